@@ -0,0 +1,66 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.el;
+
+/**
+ * A String template parsed once into an immutable array of {@code Expression}. Variables are looked up into the
+ * {@code EvaluationContext} at evaluation time so that a compiled template can be shared and evaluated concurrently
+ * against different contexts.
+ * @author agent
+ */
+public class CompiledTemplate {
+
+   private final String template;
+   private final Expression[] expressions;
+
+   private CompiledTemplate(String template, Expression[] expressions) {
+      this.template = template;
+      this.expressions = expressions;
+   }
+
+   /**
+    * Compile a String template.
+    * @param template         The string template to compile
+    * @param functions        The registry of functions that may be referenced by template expressions
+    * @param expressionPrefix The prefix starting new expression (ex: "{{")
+    * @param expressionSuffix The suffix closing expression (ex: "}}")
+    * @return The compiled template
+    * @throws ParseException if template expressions cannot be parsed.
+    */
+   public static CompiledTemplate compile(String template, ELFunctionRegistry functions, String expressionPrefix,
+         String expressionSuffix) throws ParseException {
+      return new CompiledTemplate(template,
+            ExpressionParser.compileExpressions(template, functions, expressionPrefix, expressionSuffix));
+   }
+
+   /** @return The source string template */
+   public String getTemplate() {
+      return template;
+   }
+
+   /**
+    * Evaluate this template expressions against a context.
+    * @param context The context holding variables for this evaluation
+    * @return The rendered value of template.
+    */
+   public String getValue(EvaluationContext context) {
+      StringBuilder builder = new StringBuilder(template.length());
+      for (Expression expression : expressions) {
+         builder.append(expression.getValue(context));
+      }
+      return builder.toString();
+   }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.el;
+
+import io.github.microcks.util.el.function.ELFunction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable registry of {@code ELFunction} classes indexed by function name. A registry is meant to be shared by
+ * many {@code EvaluationContext} so that functions do not have to be registered again for each evaluation.
+ * @author agent
+ */
+public class ELFunctionRegistry {
+
+   private final Map<String, Class<? extends ELFunction>> functions;
+
+   private ELFunctionRegistry(Map<String, Class<? extends ELFunction>> functions) {
+      this.functions = Map.copyOf(functions);
+   }
+
+   /**
+    * Retrieve a registered function by its name.
+    * @param name The name of function to look for
+    * @param <T>  Any implementation of {@code ELFunction} interface
+    * @return The Function class object or null if no function registered with this name.
+    */
+   @SuppressWarnings("unchecked")
+   public <T extends ELFunction> Class<T> lookupFunction(String name) {
+      return (Class<T>) functions.get(name);
+   }
+
+   /** @return The names of registered functions. */
+   public Set<String> getFunctionNames() {
+      return functions.keySet();
+   }
+
+   /**
+    * Create a new builder for an ELFunctionRegistry.
+    * @return A new Builder instance.
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /** A builder for registering functions before getting an immutable ELFunctionRegistry. */
+   public static class Builder {
+      private final Map<String, Class<? extends ELFunction>> functions = new HashMap<>();
+
+      private Builder() {
+      }
+
+      /**
+       * Register a function using a name and the ELFunction class.
+       * @param name     The name of function to register
+       * @param function The class representing the function
+       * @return This builder
+       */
+      public Builder registerFunction(String name, Class<? extends ELFunction> function) {
+         functions.put(name, function);
+         return this;
+      }
+
+      /** @return The immutable registry holding registered functions. */
+      public ELFunctionRegistry build() {
+         return new ELFunctionRegistry(functions);
+      }
+   }
+}
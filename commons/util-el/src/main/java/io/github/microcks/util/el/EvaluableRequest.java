@@ -28,6 +28,9 @@ public class EvaluableRequest {
    private Map<String, String> params;
    private Map<String, String> headers;
 
+   /** The lazily parsed body, shared by all the path queries on this request. */
+   private Object parsedBody;
+
    public EvaluableRequest(String body, String[] path) {
       this.body = body;
       this.path = path;
@@ -39,6 +42,7 @@ public class EvaluableRequest {
 
    public void setBody(String body) {
       this.body = body;
+      this.parsedBody = null;
    }
 
    public String[] getPath() {
@@ -64,4 +68,16 @@ public class EvaluableRequest {
    public void setHeaders(Map<String, String> headers) {
       this.headers = headers;
    }
+
+   /**
+    * Apply a JSON Pointer or XPath query on body. Body is parsed on first query and kept for the next ones.
+    * @param query A JSON Pointer expression for JSON body, a XPath expression for XML body
+    * @return The query result or null if body is not parsable or query fails.
+    */
+   synchronized String queryBody(String query) {
+      if (parsedBody == null) {
+         parsedBody = PathQueryHelper.parse(body);
+      }
+      return PathQueryHelper.query(parsedBody, query);
+   }
 }
@@ -28,6 +28,20 @@ import java.util.concurrent.ConcurrentHashMap;
 public class EvaluationContext {
 
    private final Map<String, Object> variables = new ConcurrentHashMap<>();
+   private final ELFunctionRegistry functions;
+
+   /** Build a new EvaluationContext without any registered function. */
+   public EvaluationContext() {
+      this(null);
+   }
+
+   /**
+    * Build a new EvaluationContext with access to a shared registry of functions.
+    * @param functions The shared registry of functions (may be null)
+    */
+   public EvaluationContext(ELFunctionRegistry functions) {
+      this.functions = functions;
+   }
 
    /**
     * Put a variable into this context
@@ -65,8 +79,14 @@ public class EvaluationContext {
       this.variables.put(name, function);
    }
 
+   /** @return The shared registry of functions of this context. May be null. */
+   public ELFunctionRegistry getFunctions() {
+      return functions;
+   }
+
    /**
-    * Retrieve a registered function by its name.
+    * Retrieve a registered function by its name. Functions registered into this context take precedence over the ones
+    * of the shared registry.
     * @param name The name of function to look for
     * @param <T>  Any implementation of {@code ELFunction} interface
     * @return The Function class object
@@ -74,6 +94,9 @@ public class EvaluationContext {
    @SuppressWarnings("unchecked")
    public <T extends ELFunction> Class<T> lookupFunction(String name) {
       Object function = variables.get(name);
+      if (function == null && functions != null) {
+         return functions.lookupFunction(name);
+      }
       if (function instanceof Class<?> functionClazz && ELFunction.class.isAssignableFrom(functionClazz)) {
          return (Class<T>) functionClazz;
       }
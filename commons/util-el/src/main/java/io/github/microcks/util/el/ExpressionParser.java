@@ -55,6 +55,26 @@ public class ExpressionParser {
     */
    public static Expression[] parseExpressions(String template, EvaluationContext context, String expressionPrefix,
          String expressionSuffix) throws ParseException {
+      return parseExpressions(template, context, expressionPrefix, expressionSuffix, false);
+   }
+
+   /**
+    * Navigate the template for finding expressions that can be evaluated into this template. Contrary to
+    * {@code parseExpressions()}, variables are not bound at parsing time but looked up at evaluation time so that the
+    * returned expressions can be evaluated many times against different contexts.
+    * @param template         The string to browse
+    * @param functions        The registry of functions that may be referenced by expressions
+    * @param expressionPrefix The prefix starting new expression (ex: "{{")
+    * @param expressionSuffix The suffix closing expression (ex: "}}")
+    * @return The array of found expressions when browsing template from left to right
+    */
+   public static Expression[] compileExpressions(String template, ELFunctionRegistry functions,
+         String expressionPrefix, String expressionSuffix) throws ParseException {
+      return parseExpressions(template, new EvaluationContext(functions), expressionPrefix, expressionSuffix, true);
+   }
+
+   private static Expression[] parseExpressions(String template, EvaluationContext context, String expressionPrefix,
+         String expressionSuffix, boolean lateBinding) throws ParseException {
       // Prepare an array for results.
       List<Expression> expressions = new ArrayList<>();
       int startIdx = 0;
@@ -90,10 +110,10 @@ public class ExpressionParser {
             }
             if (expr.charAt(0) == '{') {
                expressions.add(new LiteralExpression(expr.substring(0, 1)));
-               expressions.add(doParseExpression(expr.substring(1, expr.length() - 1), context));
+               expressions.add(doParseExpression(expr.substring(1, expr.length() - 1), context, lateBinding));
                expressions.add(new LiteralExpression(expr.substring(expr.length() - 1)));
             } else
-               expressions.add(doParseExpression(expr, context));
+               expressions.add(doParseExpression(expr, context, lateBinding));
             startIdx = suffixIndex + expressionSuffix.length();
             log.debug("Expression accumulated. Pursuing with index {} on {}", startIdx, template.length());
          } else {
@@ -130,7 +150,8 @@ public class ExpressionParser {
     * Depending on expression string, try to guess if it's a Redirect, a Literal, a Function or a VariableReference
     * expression.
     */
-   private static Expression doParseExpression(String expressionString, EvaluationContext context) {
+   private static Expression doParseExpression(String expressionString, EvaluationContext context,
+         boolean lateBinding) {
 
       // Check for special exception like RedirectExpression.
       boolean hasRedirect = expressionString.indexOf(RedirectExpression.REDIRECT_MARKER) != -1;
@@ -140,7 +161,7 @@ public class ExpressionParser {
          String[] parts = expressionString.split(RedirectExpression.REDIRECT_MARKER_SPLIT_REGEX);
          Expression[] expressions = new Expression[parts.length];
          for (int i = 0; i < parts.length; i++) {
-            expressions[i] = doParseSimpleExpression(parts[i].trim(), context);
+            expressions[i] = doParseSimpleExpression(parts[i].trim(), context, lateBinding);
          }
          return new RedirectExpression(expressions);
       }
@@ -153,19 +174,20 @@ public class ExpressionParser {
          String[] parts = expressionString.split(FallbackExpression.FALLBACK_MARKER_SPLIT_REGEX);
          Expression[] expressions = new Expression[parts.length];
          for (int i = 0; i < parts.length; i++) {
-            expressions[i] = doParseSimpleExpression(parts[i].trim(), context);
+            expressions[i] = doParseSimpleExpression(parts[i].trim(), context, lateBinding);
          }
          return new FallbackExpression(expressions);
       }
 
       // Else parse simple expression.
-      return doParseSimpleExpression(expressionString, context);
+      return doParseSimpleExpression(expressionString, context, lateBinding);
    }
 
    /**
     * Depending on expression string, try to guess if it's a Literal, a Function or a VariableReference expression.
     */
-   private static Expression doParseSimpleExpression(String expressionString, EvaluationContext context) {
+   private static Expression doParseSimpleExpression(String expressionString, EvaluationContext context,
+         boolean lateBinding) {
       int argsStart = expressionString.indexOf('(');
       int argsEnd = expressionString.indexOf(')');
       int variableStart = expressionString.indexOf('.');
@@ -182,9 +204,12 @@ public class ExpressionParser {
       if (hasVariable && (!hasArgs || varBeforeArgs)) {
          log.debug("Found a variable reference expression {}", expressionString);
          String variableName = expressionString.substring(0, expressionString.indexOf('.'));
-         Object variable = context.lookupVariable(variableName);
          String pathExpression = expressionString.substring(expressionString.indexOf('.') + 1);
+         if (lateBinding) {
+            return VariableReferenceExpression.lateBound(variableName, pathExpression);
+         }
 
+         Object variable = context.lookupVariable(variableName);
          if (variable != null) {
             return new VariableReferenceExpression(variable, pathExpression);
          }
@@ -0,0 +1,171 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.el;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Helper for applying JSON Pointer or XPath queries on JSON or XML contents. Contents are parsed separately from
+ * querying so that a same content can be parsed once and then queried many times. JSON Pointers are compiled once and
+ * cached; XPath expressions are not thread-safe and are thus kept into small pools per expression.
+ * @author agent
+ */
+class PathQueryHelper {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(PathQueryHelper.class);
+
+   /** The result of parsing a content that is neither JSON nor XML or that cannot be parsed. */
+   static final Object UNPARSABLE = new Object();
+
+   private static final int MAX_CACHED_EXPRESSIONS = 1024;
+   private static final int MAX_IDLE_XPATH_EXPRESSIONS = 8;
+
+   private static final ObjectMapper mapper = new ObjectMapper();
+   private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+   private static final XPathFactory xpathFactory = XPathFactory.newInstance();
+
+   private static final Cache<String, JsonPointer> jsonPointers = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_EXPRESSIONS).build();
+   private static final Cache<String, Queue<XPathExpression>> xpathExpressions = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_EXPRESSIONS).build();
+
+   static {
+      documentBuilderFactory.setNamespaceAware(true);
+   }
+
+   private PathQueryHelper() {
+      // Hide the implicit public constructor.
+   }
+
+   /**
+    * Parse a content depending on its format.
+    * @param content The content to parse
+    * @return A JsonNode if content is JSON, a DOM Node if content is XML or {@code UNPARSABLE}
+    */
+   static Object parse(String content) {
+      String trimmed = content.trim();
+      if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+         try {
+            return mapper.readTree(content);
+         } catch (Exception e) {
+            log.warn("Exception while parsing Json text", e);
+            return UNPARSABLE;
+         }
+      } else if (trimmed.startsWith("<")) {
+         try {
+            DocumentBuilder builder;
+            synchronized (documentBuilderFactory) {
+               builder = documentBuilderFactory.newDocumentBuilder();
+            }
+            return builder.parse(new InputSource(new StringReader(content)));
+         } catch (Exception e) {
+            log.warn("Exception while parsing XML text", e);
+            return UNPARSABLE;
+         }
+      }
+      log.warn("Got a path query expression but content seems not to be JSON nor XML...");
+      return UNPARSABLE;
+   }
+
+   /**
+    * Apply a query on a parsed content.
+    * @param parsed The result of {@code parse()}
+    * @param query  A JSON Pointer expression for JSON, a XPath expression for XML
+    * @return The query result or null if content was not parsable or query fails.
+    */
+   static String query(Object parsed, String query) {
+      if (parsed instanceof JsonNode jsonNode) {
+         return getJsonPointerValue(jsonNode, query);
+      } else if (parsed instanceof Node node) {
+         return getXPathValue(node, query);
+      }
+      return null;
+   }
+
+   /** Extract a value from JSON using a JSON Pointer expression. */
+   private static String getJsonPointerValue(JsonNode rootNode, String jsonPointerExp) {
+      try {
+         // Retrieve evaluated node within JSON tree.
+         JsonNode evaluatedNode = rootNode.at(getJsonPointer(jsonPointerExp));
+         // Return serialized array if array type node is referenced by JsonPointer, text value otherwise
+         return evaluatedNode.isArray() || evaluatedNode.isObject() ? mapper.writeValueAsString(evaluatedNode)
+               : evaluatedNode.asText();
+      } catch (Exception e) {
+         log.warn("Exception while evaluating Json Pointer", e);
+         return null;
+      }
+   }
+
+   /** Extract a value from XML using a XPath expression. */
+   private static String getXPathValue(Node node, String xPathExp) {
+      Queue<XPathExpression> idleExpressions = getIdleXPathExpressions(xPathExp);
+      try {
+         XPathExpression expression = idleExpressions.poll();
+         if (expression == null) {
+            expression = compileXPath(xPathExp);
+         }
+         String result = expression.evaluate(node);
+         idleExpressions.offer(expression);
+         return result;
+      } catch (XPathExpressionException e) {
+         log.warn("Exception while compiling/evaluating XPath", e);
+         return null;
+      }
+   }
+
+   private static JsonPointer getJsonPointer(String jsonPointerExp) {
+      JsonPointer pointer = jsonPointers.getIfPresent(jsonPointerExp);
+      if (pointer == null) {
+         pointer = JsonPointer.compile(jsonPointerExp);
+         jsonPointers.put(jsonPointerExp, pointer);
+      }
+      return pointer;
+   }
+
+   private static Queue<XPathExpression> getIdleXPathExpressions(String xPathExp) {
+      Queue<XPathExpression> idleExpressions = xpathExpressions.getIfPresent(xPathExp);
+      if (idleExpressions == null) {
+         idleExpressions = xpathExpressions.asMap().computeIfAbsent(xPathExp,
+               k -> new ArrayBlockingQueue<>(MAX_IDLE_XPATH_EXPRESSIONS));
+      }
+      return idleExpressions;
+   }
+
+   private static XPathExpression compileXPath(String xPathExp) throws XPathExpressionException {
+      // XPathFactory is not thread-safe but compilation only happens when pool is empty.
+      synchronized (xpathFactory) {
+         return xpathFactory.newXPath().compile(xPathExp);
+      }
+   }
+}
@@ -30,9 +30,14 @@ public class TemplateEngine {
    private String expressionPrefix = DEFAULT_EXPRESSION_PREFIX;
    private String expressionSuffix = DEFAULT_EXPRESSION_SUFFIX;
 
-   private final EvaluationContext context = new EvaluationContext();
+   private final EvaluationContext context;
 
    protected TemplateEngine() {
+      this.context = new EvaluationContext();
+   }
+
+   protected TemplateEngine(ELFunctionRegistry functions) {
+      this.context = new EvaluationContext(functions);
    }
 
    public String getExpressionPrefix() {
@@ -74,4 +79,25 @@ public class TemplateEngine {
 
       return builder.toString();
    }
+
+   /**
+    * Compile the given string template into expressions that can be evaluated many times using
+    * {@code getValue(CompiledTemplate)}. Compilation uses this engine expression delimiters and the shared functions
+    * of its context; variables are looked up at evaluation time.
+    * @param template The string template to compile.
+    * @return The compiled template.
+    * @throws ParseException if template expressions cannot be parsed.
+    */
+   public CompiledTemplate compile(String template) throws ParseException {
+      return CompiledTemplate.compile(template, context.getFunctions(), expressionPrefix, expressionSuffix);
+   }
+
+   /**
+    * Evaluate the given compiled template against the context of this engine.
+    * @param template The compiled template to render.
+    * @return The rendered value of template.
+    */
+   public String getValue(CompiledTemplate template) {
+      return template.getValue(context);
+   }
 }
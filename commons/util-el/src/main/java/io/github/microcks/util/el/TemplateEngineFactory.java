@@ -23,43 +23,40 @@ import io.github.microcks.util.el.function.*;
  */
 public class TemplateEngineFactory {
 
+   /** The registry of built-in functions, shared by all the engines. */
+   public static final ELFunctionRegistry BUILT_IN_FUNCTIONS = ELFunctionRegistry.builder()
+         .registerFunction("now", NowELFunction.class).registerFunction("timestamp", NowELFunction.class)
+         .registerFunction("uuid", UUIDELFunction.class).registerFunction("guid", UUIDELFunction.class)
+         .registerFunction("randomUUID", UUIDELFunction.class).registerFunction("randomInt", RandomIntELFunction.class)
+         .registerFunction("randomString", RandomStringELFunction.class)
+         .registerFunction("randomBoolean", RandomBooleanELFunction.class)
+         .registerFunction("randomValue", RandomValueELFunction.class)
+
+         .registerFunction("randomFirstName", RandomFirstNameELFunction.class)
+         .registerFunction("randomLastName", RandomLastNameELFunction.class)
+         .registerFunction("randomFullName", RandomFullNameELFunction.class)
+         .registerFunction("randomNamePrefix", RandomNamePrefixELFunction.class)
+         .registerFunction("randomNameSuffix", RandomNameSuffixELFunction.class)
+
+         .registerFunction("randomCity", RandomCityELFunction.class)
+         .registerFunction("randomCountry", RandomCountryELFunction.class)
+         .registerFunction("randomCountryCode", RandomCountryCodeELFunction.class)
+         .registerFunction("randomStreetName", RandomStreetNameELFunction.class)
+         .registerFunction("randomStreetAddress", RandomStreetAddressELFunction.class)
+         .registerFunction("randomLatitude", RandomLatitudeELFunction.class)
+         .registerFunction("randomLongitude", RandomLongitudeELFunction.class)
+         .registerFunction("randomPhoneNumber", RandomPhoneNumberELFunction.class)
+
+         .registerFunction("randomEmail", RandomEmailELFunction.class)
+
+         .registerFunction("put", PutInContextELFunction.class).build();
+
    /**
-    * Helper method for getting a {@code TemplateEngine} initialized with built-in functions.
+    * Helper method for getting a {@code TemplateEngine} initialized with built-in functions. Built-in functions are
+    * shared by engines so that getting a new engine is cheap.
     * @return A new TemplateEngine instance.
     */
    public static TemplateEngine getTemplateEngine() {
-      TemplateEngine engine = new TemplateEngine();
-
-      // Register some built-in functions into evaluation context.
-      engine.getContext().registerFunction("now", NowELFunction.class);
-      engine.getContext().registerFunction("timestamp", NowELFunction.class);
-      engine.getContext().registerFunction("uuid", UUIDELFunction.class);
-      engine.getContext().registerFunction("guid", UUIDELFunction.class);
-      engine.getContext().registerFunction("randomUUID", UUIDELFunction.class);
-      engine.getContext().registerFunction("randomInt", RandomIntELFunction.class);
-      engine.getContext().registerFunction("randomString", RandomStringELFunction.class);
-      engine.getContext().registerFunction("randomBoolean", RandomBooleanELFunction.class);
-      engine.getContext().registerFunction("randomValue", RandomValueELFunction.class);
-
-      engine.getContext().registerFunction("randomFirstName", RandomFirstNameELFunction.class);
-      engine.getContext().registerFunction("randomLastName", RandomLastNameELFunction.class);
-      engine.getContext().registerFunction("randomFullName", RandomFullNameELFunction.class);
-      engine.getContext().registerFunction("randomNamePrefix", RandomNamePrefixELFunction.class);
-      engine.getContext().registerFunction("randomNameSuffix", RandomNameSuffixELFunction.class);
-
-      engine.getContext().registerFunction("randomCity", RandomCityELFunction.class);
-      engine.getContext().registerFunction("randomCountry", RandomCountryELFunction.class);
-      engine.getContext().registerFunction("randomCountryCode", RandomCountryCodeELFunction.class);
-      engine.getContext().registerFunction("randomStreetName", RandomStreetNameELFunction.class);
-      engine.getContext().registerFunction("randomStreetAddress", RandomStreetAddressELFunction.class);
-      engine.getContext().registerFunction("randomLatitude", RandomLatitudeELFunction.class);
-      engine.getContext().registerFunction("randomLongitude", RandomLongitudeELFunction.class);
-      engine.getContext().registerFunction("randomPhoneNumber", RandomPhoneNumberELFunction.class);
-
-      engine.getContext().registerFunction("randomEmail", RandomEmailELFunction.class);
-
-      engine.getContext().registerFunction("put", PutInContextELFunction.class);
-
-      return engine;
+      return new TemplateEngine(BUILT_IN_FUNCTIONS);
    }
 }
@@ -15,17 +15,9 @@
  */
 package io.github.microcks.util.el;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.InputSource;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-import java.io.StringReader;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -74,6 +66,19 @@ public class VariableReferenceExpression implements Expression {
       this.variableName = variableName;
    }
 
+   /**
+    * Create a new expression with a variable name (to be searched later into EvaluationContext) and a path (property +
+    * sub-query expression).
+    * @param variableName   Name of a variable to get from Evaluation context
+    * @param pathExpression Path expression to get value from root object (property name + path sub-query)
+    * @return A new VariableReferenceExpression
+    */
+   public static VariableReferenceExpression lateBound(String variableName, String pathExpression) {
+      VariableReferenceExpression expression = new VariableReferenceExpression(variableName);
+      expression.pathExpression = pathExpression;
+      return expression;
+   }
+
    public Object getVariable() {
       return variable;
    }
@@ -92,10 +97,18 @@ public class VariableReferenceExpression implements Expression {
 
    @Override
    public String getValue(EvaluationContext context) {
-      // Use variable name if we just provide this.
-      if (variableName != null && variable == null) {
-         variable = context.lookupVariable(variableName);
-         return (variable != null ? variable.toString() : "");
+      // Lookup variable by name if not provided. Do not keep it as expression may be evaluated again.
+      Object target = variable;
+      if (variableName != null && target == null) {
+         target = context.lookupVariable(variableName);
+         if (pathExpression == null) {
+            return (target != null ? target.toString() : "");
+         }
+         if (target == null) {
+            log.warn("Variable with name {} cannot be found into EvaluationContext. Returning empty string",
+                  variableName);
+            return "";
+         }
       }
 
       String propertyName = pathExpression;
@@ -111,7 +124,13 @@ public class VariableReferenceExpression implements Expression {
             break;
          }
       }
-      Object variableValue = getProperty(variable, propertyName);
+      // Request body is parsed once for all the path queries on this request.
+      if (target instanceof EvaluableRequest evaluableRequest && "body".equals(propertyName) && propertyPath != null
+            && propertyPath.startsWith("/") && evaluableRequest.getBody() != null) {
+         return String.valueOf(evaluableRequest.queryBody(propertyPath));
+      }
+
+      Object variableValue = getProperty(target, propertyName);
 
       if (log.isDebugEnabled()) {
          log.debug("propertyName: {}", propertyName);
@@ -135,16 +154,7 @@ public class VariableReferenceExpression implements Expression {
    private static String getStringValue(Object variableValue, String propertyPath) {
       if (propertyPath.startsWith("/")) {
          // This is a JSON Pointer or XPath expression to apply.
-         String variableString = String.valueOf(variableValue);
-
-         if (variableString.trim().startsWith("{") || variableString.trim().startsWith("[")) {
-            return getJsonPointerValue(variableString, propertyPath);
-         } else if (variableString.trim().startsWith("<")) {
-            return getXPathValue(variableString, propertyPath);
-         } else {
-            log.warn("Got a path query expression but content seems not to be JSON nor XML...");
-            return null;
-         }
+         return PathQueryHelper.query(PathQueryHelper.parse(String.valueOf(variableValue)), propertyPath);
       }
       return String.valueOf(variableValue);
    }
@@ -200,34 +210,4 @@ public class VariableReferenceExpression implements Expression {
       }
       return result;
    }
-
-   /** Extract a value from JSON using a JSON Pointer expression. */
-   private static String getJsonPointerValue(String jsonText, String jsonPointerExp) {
-      // Parse json text ang get root node.
-      JsonNode rootNode;
-      try {
-         ObjectMapper mapper = new ObjectMapper();
-         rootNode = mapper.readTree(new StringReader(jsonText));
-         // Retrieve evaluated node within JSON tree.
-         JsonNode evaluatedNode = rootNode.at(jsonPointerExp);
-         // Return serialized array if array type node is referenced by JsonPointer, text value otherwise
-         return evaluatedNode.isArray() || evaluatedNode.isObject() ? mapper.writeValueAsString(evaluatedNode)
-               : evaluatedNode.asText();
-      } catch (Exception e) {
-         log.warn("Exception while parsing Json text", e);
-         return null;
-      }
-   }
-
-   /** Extract a value from XML using a XPath expression. */
-   private static String getXPathValue(String xmlText, String xPathExp) {
-      XPath xpath = XPathFactory.newInstance().newXPath();
-      try {
-         XPathExpression expression = xpath.compile(xPathExp);
-         return expression.evaluate(new InputSource(new StringReader(xmlText)));
-      } catch (XPathExpressionException e) {
-         log.warn("Exception while compiling/evaluating XPath", e);
-         return null;
-      }
-   }
 }
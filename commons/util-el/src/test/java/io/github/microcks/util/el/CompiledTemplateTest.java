@@ -0,0 +1,82 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.el;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This is a test case for CompiledTemplate class.
+ * @author agent
+ */
+class CompiledTemplateTest {
+
+   @Test
+   void testCompiledTemplateIsReusable() {
+      TemplateEngine engine = TemplateEngineFactory.getTemplateEngine();
+      CompiledTemplate template = engine
+            .compile("{\"name\": \"{{ request.body/name }}\", \"id\": \"{{ uuid() }}\", \"city\": \"{{ city }}\"}");
+
+      // Evaluate against a first context.
+      EvaluationContext context = new EvaluationContext(TemplateEngineFactory.BUILT_IN_FUNCTIONS);
+      context.setVariable("request", new EvaluableRequest("{\"name\": \"Eclair\"}", null));
+      context.setVariable("city", "Paris");
+      String result = template.getValue(context);
+      assertTrue(result.startsWith("{\"name\": \"Eclair\", \"id\": \""));
+      assertTrue(result.endsWith("\", \"city\": \"Paris\"}"));
+
+      // Evaluate against another context, variables should not have been kept.
+      context = new EvaluationContext(TemplateEngineFactory.BUILT_IN_FUNCTIONS);
+      context.setVariable("request", new EvaluableRequest("{\"name\": \"Millefeuille\"}", null));
+      result = template.getValue(context);
+      assertTrue(result.startsWith("{\"name\": \"Millefeuille\", \"id\": \""));
+      assertTrue(result.endsWith("\", \"city\": \"\"}"));
+   }
+
+   @Test
+   void testCompiledTemplateWithEngine() {
+      TemplateEngine engine = TemplateEngineFactory.getTemplateEngine();
+      CompiledTemplate template = engine.compile("{{ put(pastry, Eclair) }}{{ pastry }} or {{ request.path[1] }}");
+      engine.getContext().setVariables(Map.of("request", new EvaluableRequest(null, new String[] { "name", "Baba" })));
+
+      assertEquals("Eclair or Baba", engine.getValue(template));
+   }
+
+   @Test
+   void testSharedFunctionsRegistry() {
+      EvaluationContext context = new EvaluationContext(TemplateEngineFactory.BUILT_IN_FUNCTIONS);
+      assertNotNull(context.lookupFunction("randomInt"));
+      assertNull(context.lookupFunction("unknown"));
+
+      // A variable with same name should take precedence.
+      context.setVariable("randomInt", "42");
+      assertNull(context.lookupFunction("randomInt"));
+      assertNotNull(TemplateEngineFactory.BUILT_IN_FUNCTIONS.lookupFunction("randomInt"));
+   }
+
+   @Test
+   void testCompilationFailure() {
+      TemplateEngine engine = TemplateEngineFactory.getTemplateEngine();
+      assertThrows(ParseException.class, () -> engine.compile("{\"name\": \"{{ request.body/name \"}"));
+   }
+}
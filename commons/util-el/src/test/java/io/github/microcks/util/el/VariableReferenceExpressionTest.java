@@ -103,6 +103,28 @@ class VariableReferenceExpressionTest {
       assertEquals("Jane Doe", result);
    }
 
+   @Test
+   void testParsedBodyIsReused() {
+      EvaluableRequest request = new EvaluableRequest("<pastry><name>Eclair</name><size>S</size></pastry>", null);
+
+      // Evaluate several expressions on the same request, then on an updated body.
+      VariableReferenceExpression nameExp = new VariableReferenceExpression(request, "body/pastry/name");
+      VariableReferenceExpression sizeExp = new VariableReferenceExpression(request, "body/pastry/size");
+      assertEquals("Eclair", nameExp.getValue(new EvaluationContext()));
+      assertEquals("S", sizeExp.getValue(new EvaluationContext()));
+      assertEquals("Eclair", nameExp.getValue(new EvaluationContext()));
+
+      request.setBody("{\"pastry\": {\"name\": \"Baba\", \"size\": \"L\"}}");
+      nameExp.setPathExpression("body/pastry/name");
+      assertEquals("Baba", nameExp.getValue(new EvaluationContext()));
+      sizeExp.setPathExpression("body/pastry/size");
+      assertEquals("L", sizeExp.getValue(new EvaluationContext()));
+
+      // Unparsable body should lead to null value.
+      request.setBody("Millefeuille");
+      assertEquals("null", nameExp.getValue(new EvaluationContext()));
+   }
+
    @Test
    void testXPathWithNamespaceValue() {
       String xmlString = """
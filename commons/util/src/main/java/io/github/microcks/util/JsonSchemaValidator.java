@@ -153,11 +153,20 @@ public class JsonSchemaValidator {
     * @return The list of validation failure messages. If empty, json object is valid !
     */
    public static List<String> validateJson(JsonNode schemaNode, JsonNode jsonNode, String namespace) {
-      List<String> errors = new ArrayList<>();
+      return validateJson(compileSchema(schemaNode, namespace), jsonNode);
+   }
 
-      final JsonSchema jsonSchemaNode = extractJsonSchemaNode(schemaNode, namespace);
+   /**
+    * Validate a Json object against an already compiled schema. Compiled schemas are thread-safe and this allows
+    * reusing them across validations of many Json objects. It returns a list of validation error messages.
+    * @param jsonSchema The compiled Json schema as returned by {@code compileSchema()}
+    * @param jsonNode   The Json object as a Jackson node
+    * @return The list of validation failure messages. If empty, json object is valid !
+    */
+   public static List<String> validateJson(JsonSchema jsonSchema, JsonNode jsonNode) {
+      List<String> errors = new ArrayList<>();
 
-      Set<ValidationMessage> messages = jsonSchemaNode.validate(jsonNode, executionContext -> {
+      Set<ValidationMessage> messages = jsonSchema.validate(jsonNode, executionContext -> {
          executionContext.getExecutionConfig().setFormatAssertionsEnabled(true);
          executionContext.getExecutionConfig().setLocale(Locale.US);
       });
@@ -191,6 +200,16 @@ public class JsonSchemaValidator {
       return extractJsonSchemaNode(schemaNode, null);
    }
 
+   /**
+    * Compile a Json schema so that it can be reused for many validations.
+    * @param schemaNode The Json schema specification as a Jackson node
+    * @param namespace  Namespace definition to resolve relative dependencies in Json schema. May be null.
+    * @return The compiled Json schema
+    */
+   public static JsonSchema compileSchema(JsonNode schemaNode, String namespace) {
+      return extractJsonSchemaNode(schemaNode, namespace);
+   }
+
    private static JsonSchema extractJsonSchemaNode(JsonNode jsonNode, String namespace) {
       JsonMetaSchema jsonMetaSchema = JsonMetaSchema.builder(JsonMetaSchema.getV202012()).build();
       JsonSchemaFactory jsonSchemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V202012,
@@ -15,22 +15,51 @@
  */
 package io.github.microcks.util;
 
-import javax.xml.transform.Source;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Helper class for easy access to a Xml Schema validation. Validators embed an error handler and use a specific
  * LSResourceResolver allowing for resolving relative dependencies from provided XmlSchemas.
+ * <p>
+ * Compiled schemas (including their resolved dependencies) are cached using a hash of schema content and base resource
+ * URL as key, so that a same schema is only compiled once. As validators are not thread-safe, validators of a cached
+ * schema are kept into a small pool so that a validator is only used by one thread at a time.
  * @author laurent
  */
 public class XmlSchemaValidator {
 
+   /** A commons logger for diagnostic messages. */
+   private static Logger log = LoggerFactory.getLogger(XmlSchemaValidator.class);
+
+   /** The maximum number of compiled schemas we keep in cache. */
+   private static final int MAX_CACHED_SCHEMAS = 256;
+
+   /** The maximum number of idle validators we keep per compiled schema. */
+   private static final int MAX_IDLE_VALIDATORS = 8;
+
+   private static final Cache<String, CompiledSchema> schemas = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_SCHEMAS).build();
+
    private XmlSchemaValidator() {
       // Hide the implicit default constructor.
    }
@@ -57,19 +86,112 @@ public class XmlSchemaValidator {
     */
    public static List<String> validateXml(InputStream schemaStream, String xmlString, String baseResourceUrl)
          throws Exception {
-      SchemaFactory factory = SchemaFactory.newDefaultInstance();
-      factory.setResourceResolver(new XmlSchemaURLResolver(baseResourceUrl));
+      return validateXml(schemaStream.readAllBytes(), xmlString, baseResourceUrl);
+   }
 
-      Source schemaFile = new StreamSource(schemaStream);
-      Schema schema = factory.newSchema(schemaFile);
-      Validator validator = schema.newValidator();
+   /**
+    * Validation the Xml string with provided Xml schema content. A resource URL can be provided to resolved relative
+    * includes found into Xml Schema. Schema is compiled on first validation and then reused.
+    * @param schemaContent   The reference Xml Schema content
+    * @param xmlString       String representation of Xml to validate
+    * @param baseResourceUrl Base resource URL for resolving relative dependencies
+    * @return A list of validation errors that mey be empty if validation is ok
+    * @throws SAXException if validator cannot be initialized (in case of malformed schema) or Xml is malformed
+    * @throws IOException  if Xml cannot be read
+    */
+   public static List<String> validateXml(byte[] schemaContent, String xmlString, String baseResourceUrl)
+         throws SAXException, IOException {
+      return validateXml(getCompiledSchema(schemaContent, baseResourceUrl), xmlString);
+   }
+
+   /**
+    * Validation the Xml string with an already compiled Xml schema.
+    * @param compiled  The compiled reference Xml Schema
+    * @param xmlString String representation of Xml to validate
+    * @return A list of validation errors that mey be empty if validation is ok
+    * @throws SAXException if Xml is malformed
+    * @throws IOException  if Xml cannot be read
+    */
+   public static List<String> validateXml(CompiledSchema compiled, String xmlString) throws SAXException, IOException {
+      Validator validator = compiled.idleValidators.poll();
+      if (validator == null) {
+         validator = compiled.schema.newValidator();
+      }
 
       XmlErrorHandler errorHandler = new XmlErrorHandler();
       validator.setErrorHandler(errorHandler);
-
-      validator.validate(new StreamSource(new StringReader(xmlString)));
+      try {
+         validator.validate(new StreamSource(new StringReader(xmlString)));
+      } finally {
+         // Do not keep a reference on this validation errors nor state, pool is not growing if already full.
+         validator.reset();
+         compiled.idleValidators.offer(validator);
+      }
 
       return errorHandler.getExceptions().stream().map(e -> "line " + e.getLineNumber() + ": " + e.getMessage())
             .toList();
    }
+
+   /**
+    * Compile a Xml schema, resolving its relative dependencies. The compiled schema is not cached and is meant to be
+    * kept by callers having their own key for it.
+    * @param schemaContent   The Xml Schema content
+    * @param baseResourceUrl Base resource URL for resolving relative dependencies
+    * @return The compiled schema, ready for validations
+    * @throws SAXException if schema is malformed
+    */
+   public static CompiledSchema compileSchema(byte[] schemaContent, String baseResourceUrl) throws SAXException {
+      log.debug("Compiling a new Xml schema with base resource URL {}", baseResourceUrl);
+      SchemaFactory factory = SchemaFactory.newDefaultInstance();
+      factory.setResourceResolver(new XmlSchemaURLResolver(baseResourceUrl));
+      Schema schema = factory.newSchema(new StreamSource(new ByteArrayInputStream(schemaContent)));
+      return new CompiledSchema(schema);
+   }
+
+   private static CompiledSchema getCompiledSchema(byte[] schemaContent, String baseResourceUrl) throws SAXException {
+      String key = hash(schemaContent, baseResourceUrl);
+      CompiledSchema compiled = schemas.getIfPresent(key);
+      if (compiled == null) {
+         compiled = compileSchema(schemaContent, baseResourceUrl);
+         schemas.put(key, compiled);
+      }
+      return compiled;
+   }
+
+   /** @return The number of compiled schemas currently in cache. */
+   static int cachedSchemas() {
+      return (int) schemas.size();
+   }
+
+   /**
+    * Compute a hexadecimal SHA-256 hash of a content and an optional base resource URL.
+    * @param content         The content to hash
+    * @param baseResourceUrl The base resource URL to include in hash, may be null
+    * @return The hash as a string
+    */
+   public static String hash(byte[] content, String baseResourceUrl) {
+      try {
+         MessageDigest digest = MessageDigest.getInstance("SHA-256");
+         digest.update(content);
+         if (baseResourceUrl != null) {
+            digest.update((byte) 0);
+            digest.update(baseResourceUrl.getBytes(StandardCharsets.UTF_8));
+         }
+         return HexFormat.of().formatHex(digest.digest());
+      } catch (NoSuchAlgorithmException e) {
+         // SHA-256 is always available on Java platform.
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /** A compiled schema with its idle validators. */
+   public static final class CompiledSchema {
+
+      private final Schema schema;
+      private final Queue<Validator> idleValidators = new ArrayBlockingQueue<>(MAX_IDLE_VALIDATORS);
+
+      private CompiledSchema(Schema schema) {
+         this.schema = schema;
+      }
+   }
 }
@@ -63,7 +63,17 @@ public class GraphQLSchemaValidator {
    public static JsonNode buildResponseJsonSchema(String schemaText, String query) {
       TypeDefinitionRegistry registry = new SchemaParser().parse(schemaText);
       GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(registry, RuntimeWiring.MOCKED_WIRING);
+      return buildResponseJsonSchema(schema, query);
+   }
 
+   /**
+    * Build a JSON Schema that should apply to a GraphQL response giving an already executable GraphQL schema and the
+    * query specification. This allows reusing a schema that has been parsed and generated once.
+    * @param schema The executable GraphQL Schema
+    * @param query  The text representation of a GraphQL query
+    * @return The Jackson JsonNode representing the Json schema for response
+    */
+   public static JsonNode buildResponseJsonSchema(GraphQLSchema schema, String query) {
       Document graphqlRequest = new Parser().parseDocument(query);
       QueryTraverser queryTraversal = QueryTraverser.newQueryTraverser().schema(schema).document(graphqlRequest)
             .variables(new HashMap<>()).build();
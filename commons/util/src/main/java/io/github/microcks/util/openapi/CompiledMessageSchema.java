@@ -0,0 +1,76 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.openapi;
+
+import io.github.microcks.util.JsonSchemaValidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.schema.JsonSchema;
+
+import java.util.List;
+
+/**
+ * The compiled schema of an OpenAPI or Swagger message (request or response) for a given content type. Looking up the
+ * message within specification and compiling its schema is done once; the result is thread-safe and can then be used
+ * to validate many Json objects. When the message cannot be found into specification, this holds the errors that are
+ * returned by every validation.
+ * @author agent
+ */
+public class CompiledMessageSchema {
+
+   private final JsonSchema jsonSchema;
+   private final List<String> errors;
+
+   private CompiledMessageSchema(JsonSchema jsonSchema, List<String> errors) {
+      this.jsonSchema = jsonSchema;
+      this.errors = errors;
+   }
+
+   /**
+    * Build a CompiledMessageSchema from a compiled Json schema.
+    * @param jsonSchema The compiled Json schema of message
+    * @return A new CompiledMessageSchema
+    */
+   public static CompiledMessageSchema of(JsonSchema jsonSchema) {
+      return new CompiledMessageSchema(jsonSchema, null);
+   }
+
+   /**
+    * Build a CompiledMessageSchema for a message that cannot be found or compiled.
+    * @param errors The errors to return on every validation
+    * @return A new CompiledMessageSchema
+    */
+   public static CompiledMessageSchema ofErrors(List<String> errors) {
+      return new CompiledMessageSchema(null, List.copyOf(errors));
+   }
+
+   /** @return The compiled Json schema or null if message cannot be found */
+   public JsonSchema getJsonSchema() {
+      return jsonSchema;
+   }
+
+   /**
+    * Validate a Json object representing an actual message against this schema.
+    * @param jsonNode The Json object representing actual message as a Jackson node
+    * @return The list of validation failures. If empty, json object is valid !
+    */
+   public List<String> validate(JsonNode jsonNode) {
+      if (errors != null) {
+         return errors;
+      }
+      return JsonSchemaValidator.validateJson(jsonSchema, jsonNode);
+   }
+}
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.networknt.schema.JsonSchema;
 import io.github.microcks.util.JsonSchemaValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -185,11 +186,28 @@ public class OpenAPISchemaValidator {
     */
    public static List<String> validateJsonMessage(JsonNode specificationNode, JsonNode jsonNode,
          String messagePathPointer, String contentType, String namespace) {
+      return compileJsonMessageSchema(specificationNode, messagePathPointer, contentType, namespace).validate(jsonNode);
+   }
+
+   /**
+    * Compile the schema of an OpenAPI message (response or request) found into a node representing a full OpenAPI
+    * specification. Specify the message by providing a valid JSON pointer for <code>messagePathPointer</code> within
+    * specification and a <code>contentType</code> to allow finding the correct schema information. The compiled schema
+    * can then be used to validate many Json objects without looking up and compiling message schema again.
+    * @param specificationNode  The OpenAPI full specification as a Jackson node
+    * @param messagePathPointer A JSON Pointer for accessing expected message definition within spec
+    * @param contentType        The Content-Type of the message to valid
+    * @param namespace          Namespace definition to resolve relative dependencies in OpenAPI schema
+    * @return The compiled message schema. It holds errors if message cannot be found into specification.
+    */
+   public static CompiledMessageSchema compileJsonMessageSchema(JsonNode specificationNode, String messagePathPointer,
+         String contentType, String namespace) {
       // Extract specific content type node for message node.
       JsonNode messageNode = specificationNode.at(messagePathPointer);
       if (messageNode == null || messageNode.isMissingNode()) {
          log.debug("messagePathPointer {} is not a valid JSON Pointer", messagePathPointer);
-         return List.of("messagePathPointer does not represent a valid JSON Pointer in OpenAPI specification");
+         return CompiledMessageSchema.ofErrors(
+               List.of("messagePathPointer does not represent a valid JSON Pointer in OpenAPI specification"));
       }
       // Message node can be just a reference.
       if (messageNode.has("$ref")) {
@@ -200,7 +218,8 @@ public class OpenAPISchemaValidator {
       messageNode = getMessageContentNode(messageNode, contentType);
       if (messageNode == null || messageNode.isMissingNode()) {
          log.debug("content for {} cannot be found into OpenAPI specification", contentType);
-         return List.of("messagePathPointer does not represent an existing JSON Pointer in OpenAPI specification");
+         return CompiledMessageSchema.ofErrors(
+               List.of("messagePathPointer does not represent an existing JSON Pointer in OpenAPI specification"));
       }
 
       // Build a schema object with responseNode schema as root and by importing
@@ -208,12 +227,23 @@ public class OpenAPISchemaValidator {
       JsonNode schemaNode = messageNode.path("schema").deepCopy();
       if (schemaNode == null || schemaNode.isMissingNode()) {
          log.debug("schema for {} cannot be found into OpenAPI specification", messageNode);
-         return List.of("schemaPathPointer does not represent an existing JSON Pointer in OpenAPI specification");
+         return CompiledMessageSchema.ofErrors(
+               List.of("schemaPathPointer does not represent an existing JSON Pointer in OpenAPI specification"));
       }
       ((ObjectNode) schemaNode).set(JSON_SCHEMA_COMPONENTS_ELEMENT,
             specificationNode.path(JSON_SCHEMA_COMPONENTS_ELEMENT).deepCopy());
 
-      return validateJson(schemaNode, jsonNode, namespace);
+      return CompiledMessageSchema.of(compileSchema(schemaNode, namespace));
+   }
+
+   /**
+    * Compile an OpenAPI schema so that it can be reused for many validations.
+    * @param schemaNode The OpenAPI schema specification as a Jackson node
+    * @param namespace  Namespace definition to resolve relative dependencies in OpenAPI schema. May be null.
+    * @return The compiled Json schema
+    */
+   public static JsonSchema compileSchema(JsonNode schemaNode, String namespace) {
+      return JsonSchemaValidator.compileSchema(convertOpenAPISchemaToJsonSchema(schemaNode), namespace);
    }
 
    /**
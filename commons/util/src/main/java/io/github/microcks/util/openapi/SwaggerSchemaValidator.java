@@ -69,11 +69,26 @@ public class SwaggerSchemaValidator {
     */
    public static List<String> validateJsonMessage(JsonNode specificationNode, JsonNode jsonNode,
          String messagePathPointer, String namespace) {
+      return compileJsonMessageSchema(specificationNode, messagePathPointer, namespace).validate(jsonNode);
+   }
+
+   /**
+    * Compile the schema of a Swagger message (response or request) found into a node representing a full Swagger
+    * specification. Specify the message by providing a valid JSON pointer for <code>messagePathPointer</code> within
+    * specification. The compiled schema can then be used to validate many Json objects.
+    * @param specificationNode  The Swagger full specification as a Jackson node
+    * @param messagePathPointer A JSON Pointer for accessing expected message definition within spec
+    * @param namespace          Namespace definition to resolve relative dependencies in Swagger schema
+    * @return The compiled message schema. It holds errors if message cannot be found into specification.
+    */
+   public static CompiledMessageSchema compileJsonMessageSchema(JsonNode specificationNode, String messagePathPointer,
+         String namespace) {
       // Extract specific content type node for message node.
       JsonNode messageNode = specificationNode.at(messagePathPointer);
       if (messageNode == null || messageNode.isMissingNode()) {
          log.debug("messagePathPointer {} is not a valid JSON Pointer", messagePathPointer);
-         return List.of("messagePathPointer does not represent a valid JSON Pointer in OpenAPI specification");
+         return CompiledMessageSchema.ofErrors(
+               List.of("messagePathPointer does not represent a valid JSON Pointer in OpenAPI specification"));
       }
       // Message node can be just a reference.
       if (messageNode.has("$ref")) {
@@ -82,7 +97,8 @@ public class SwaggerSchemaValidator {
       }
       if (messageNode == null || messageNode.isMissingNode()) {
          log.debug("Schema node for message cannot be found into Swagger specification");
-         return List.of("messagePathPointer does not represent an existing JSON Pointer in OpenAPI specification");
+         return CompiledMessageSchema.ofErrors(
+               List.of("messagePathPointer does not represent an existing JSON Pointer in OpenAPI specification"));
       }
 
       // Build a schema object with responseNode schema as root and by importing
@@ -90,6 +106,6 @@ public class SwaggerSchemaValidator {
       JsonNode schemaNode = messageNode.path("schema").deepCopy();
       ((ObjectNode) schemaNode).set("definitions", specificationNode.path("definitions").deepCopy());
 
-      return OpenAPISchemaValidator.validateJson(schemaNode, jsonNode, namespace);
+      return CompiledMessageSchema.of(OpenAPISchemaValidator.compileSchema(schemaNode, namespace));
    }
 }
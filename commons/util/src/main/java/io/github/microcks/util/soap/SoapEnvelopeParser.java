@@ -0,0 +1,121 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.soap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Helper class for parsing Soap envelopes into DOM documents. Parsing is namespace-aware and refuses DTDs as Soap
+ * messages must not contain any. As DocumentBuilders are not thread-safe and costly to create, idle builders are kept
+ * into a small pool and reused across invocations.
+ * @author agent
+ */
+public class SoapEnvelopeParser {
+
+   /** A commons logger for diagnostic messages. */
+   private static Logger log = LoggerFactory.getLogger(SoapEnvelopeParser.class);
+
+   private static final int MAX_IDLE_BUILDERS = 16;
+
+   private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newDefaultInstance();
+   private static final Queue<DocumentBuilder> idleBuilders = new ArrayBlockingQueue<>(MAX_IDLE_BUILDERS);
+
+   /** Report errors through exceptions only, default handler is printing them on standard error. */
+   private static final ErrorHandler errorHandler = new ErrorHandler() {
+      @Override
+      public void warning(SAXParseException exception) {
+         log.debug("Warning while parsing Soap envelope: {}", exception.getMessage());
+      }
+
+      @Override
+      public void error(SAXParseException exception) throws SAXException {
+         throw exception;
+      }
+
+      @Override
+      public void fatalError(SAXParseException exception) throws SAXException {
+         throw exception;
+      }
+   };
+
+   static {
+      factory.setNamespaceAware(true);
+      factory.setExpandEntityReferences(false);
+      try {
+         factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+         factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      } catch (ParserConfigurationException pce) {
+         log.warn("DocumentBuilderFactory does not support secure features: {}", pce.getMessage());
+      }
+   }
+
+   private SoapEnvelopeParser() {
+      // Hide the implicit default constructor.
+   }
+
+   /**
+    * Parse a Soap message into a DOM document using a pooled DocumentBuilder.
+    * @param payload The Soap message as a String
+    * @return The parsed document
+    * @throws SAXException if payload is not well-formed or contains a DTD
+    * @throws IOException  if payload cannot be read
+    */
+   public static Document parse(String payload) throws SAXException, IOException {
+      DocumentBuilder builder = idleBuilders.poll();
+      if (builder == null) {
+         builder = newDocumentBuilder();
+      }
+      try {
+         builder.setErrorHandler(errorHandler);
+         return builder.parse(new InputSource(new StringReader(payload)));
+      } finally {
+         // Builder can be reused after reset, pool is not growing if already full.
+         builder.reset();
+         idleBuilders.offer(builder);
+      }
+   }
+
+   /** @return The number of idle builders currently pooled. */
+   static int idleBuilders() {
+      return idleBuilders.size();
+   }
+
+   private static DocumentBuilder newDocumentBuilder() throws IOException {
+      // DocumentBuilderFactory is not thread-safe but builders are only created when pool is empty.
+      synchronized (factory) {
+         try {
+            return factory.newDocumentBuilder();
+         } catch (ParserConfigurationException pce) {
+            throw new IOException("Cannot create a DocumentBuilder for parsing Soap envelope", pce);
+         }
+      }
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.soap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+
+/**
+ * Helper class for scanning Soap envelopes using a StAX streaming parser. Scanning only reads the envelope up to the
+ * elements it is looking for, so that large payloads (eg. with inline attachments) are not fully parsed nor matched
+ * against regular expressions.
+ * @author agent
+ */
+public class SoapEnvelopeScanner {
+
+   /** A commons logger for diagnostic messages. */
+   private static Logger log = LoggerFactory.getLogger(SoapEnvelopeScanner.class);
+
+   private static final String ENVELOPE_ELEMENT = "Envelope";
+   private static final String BODY_ELEMENT = "Body";
+
+   private static final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+
+   static {
+      inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+   }
+
+   private SoapEnvelopeScanner() {
+      // Hide the implicit default constructor.
+   }
+
+   /**
+    * Find the qualified name of the first element within the Body of a Soap envelope. Payload is read in a single
+    * streaming pass that stops as soon as this element is found.
+    * @param payload The Soap message as a String
+    * @return The qualified name of first Body child element. Null if payload is not a Soap envelope, has an empty Body
+    *         or is not well-formed before this element.
+    */
+   public static QName findBodyElementName(String payload) {
+      if (payload == null) {
+         return null;
+      }
+      XMLStreamReader reader = null;
+      try {
+         reader = inputFactory.createXMLStreamReader(new StringReader(payload));
+         int depth = 0;
+         boolean inBody = false;
+         while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+               if (inBody) {
+                  return new QName(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(),
+                        nullToEmpty(reader.getPrefix()));
+               }
+               depth++;
+               if (depth == 1 && !ENVELOPE_ELEMENT.equals(reader.getLocalName())) {
+                  return null;
+               }
+               inBody = depth == 2 && BODY_ELEMENT.equals(reader.getLocalName());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+               if (inBody) {
+                  // Body is closed without any child element.
+                  return null;
+               }
+               depth--;
+            }
+         }
+      } catch (XMLStreamException e) {
+         log.debug("Payload cannot be scanned as a Soap envelope: {}", e.getMessage());
+      } finally {
+         closeQuietly(reader);
+      }
+      return null;
+   }
+
+   private static String nullToEmpty(String value) {
+      return value != null ? value : XMLConstants.NULL_NS_URI;
+   }
+
+   private static void closeQuietly(XMLStreamReader reader) {
+      if (reader != null) {
+         try {
+            reader.close();
+         } catch (XMLStreamException e) {
+            log.debug("Exception while closing stream reader: {}", e.getMessage());
+         }
+      }
+   }
+}
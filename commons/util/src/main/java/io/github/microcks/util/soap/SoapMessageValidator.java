@@ -18,6 +18,8 @@ package io.github.microcks.util.soap;
 import io.github.microcks.util.XmlSchemaValidator;
 import io.github.microcks.util.XmlUtil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Element;
@@ -33,7 +35,7 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -43,6 +45,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -66,6 +69,15 @@ public class SoapMessageValidator {
    /** Soap 1.2 envelope public namespace. */
    public static final String SOAP_ENVELOPE_12_NS = "http://www.w3.org/2003/05/soap-envelope";
 
+   /** The maximum number of WSDL types schemas we keep in cache. */
+   private static final int MAX_CACHED_TYPES_SCHEMAS = 256;
+
+   /** The Soap envelope schemas, indexed by classpath resource. */
+   private static final Map<String, byte[]> envelopeSchemas = new ConcurrentHashMap<>();
+   /** The types schemas extracted from WSDL and compiled, indexed by WSDL content and resource url hash. */
+   private static final Cache<String, TypesSchema> typesSchemas = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_TYPES_SCHEMAS).build();
+
    private static final Pattern XML_NS_CAPTURE_PATTERN = Pattern.compile("xmlns:(\\w+)=\"([^\"]*)\"", Pattern.DOTALL);
 
 
@@ -81,18 +93,18 @@ public class SoapMessageValidator {
    public static List<String> validateSoapEnvelope(String message) {
       List<String> errors = new ArrayList<>();
 
-      InputStream schemaStream;
+      String schemaResource;
       if (message.contains(SOAP_ENVELOPE_12_NS)) {
-         schemaStream = SoapMessageValidator.class.getClassLoader().getResourceAsStream(SOAP_ENVELOPE_12_SCHEMA);
+         schemaResource = SOAP_ENVELOPE_12_SCHEMA;
       } else if (message.contains(SOAP_ENVELOPE_NS)) {
-         schemaStream = SoapMessageValidator.class.getClassLoader().getResourceAsStream(SOAP_ENVELOPE_SCHEMA);
+         schemaResource = SOAP_ENVELOPE_SCHEMA;
       } else {
          errors.add("Soap envelope does not appear to be valid: unrecognized namespace");
          return errors;
       }
 
       try {
-         errors.addAll(XmlSchemaValidator.validateXml(schemaStream, message));
+         errors.addAll(XmlSchemaValidator.validateXml(getEnvelopeSchema(schemaResource), message, null));
       } catch (Exception e) {
          log.error("Exception while validating Soap envelope for message: {}", e.getMessage());
          errors.add("Exception while validating Soap envelope for message: " + e.getMessage());
@@ -112,43 +124,30 @@ public class SoapMessageValidator {
     */
    public static List<String> validateSoapMessage(String wsdlContent, QName partQName, String message,
          String resourceUrl) {
+      return validateSoapMessage(getTypesSchema(wsdlContent, resourceUrl), partQName, message);
+   }
+
+   /**
+    * Validate a complete Soap message: Soap envelope + payload included into Soap body against the types schema of a
+    * WSDL that has already been compiled.
+    * @param typesSchema The types schema compiled from reference WSDL
+    * @param partQName   The qualified name of the element that is expected into Soap body.
+    * @param message     The Soap message as a String
+    * @return A list of validation error that's empty if everything's ok.
+    */
+   public static List<String> validateSoapMessage(TypesSchema typesSchema, QName partQName, String message) {
       List<String> errors = new ArrayList<>();
 
       // Start validating envelope.
       errors.addAll(validateSoapEnvelope(message));
 
-      try {
-         // First thing is to parse WSDL to extract types schema.
-         DocumentBuilderFactory factory = DocumentBuilderFactory.newDefaultInstance();
-         factory.setNamespaceAware(true);
-         DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-
-         Element wsdlElement = documentBuilder.parse(new InputSource(new StringReader(wsdlContent)))
-               .getDocumentElement();
-         Element wsdlTypes = XmlUtil.getUniqueDirectChild(wsdlElement, XmlUtil.WSDL_NS, "types");
-         Element xsSchema = XmlUtil.getUniqueDirectChild(wsdlTypes, XmlUtil.XML_SCHEMA_NS, "schema");
-
-         // Schema may not contain all the needed xmlns declaration found at the definitions level.
-         // We have to report it before extracting a standalone schema.
-         NamedNodeMap definitionsAttributes = wsdlElement.getAttributes();
-         for (int i = 0; i < definitionsAttributes.getLength(); i++) {
-            Node attribute = definitionsAttributes.item(i);
-            String name = attribute.getNodeName();
-            if (name.startsWith("xmlns:") && !xsSchema.hasAttribute(name)) {
-               xsSchema.setAttribute(name, attribute.getNodeValue());
-            }
-         }
-
-         TransformerFactory transformerFactory = TransformerFactory.newDefaultInstance();
-         Transformer transformer = transformerFactory.newTransformer();
-         transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-         transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-
-         Writer out = new StringWriter();
-         transformer.transform(new DOMSource(xsSchema), new StreamResult(out));
-
-         String schemaContent = out.toString();
+      // Then check the types schema extracted from WSDL has been compiled.
+      if (typesSchema.error != null) {
+         errors.add("Exception while validating Soap message: " + typesSchema.error);
+         return errors;
+      }
 
+      try {
          // Before extracting and validating body, we should capture all namespaces declaration to keep record
          // for later reinject them into body.
          Matcher nsMatcher = XML_NS_CAPTURE_PATTERN.matcher(message);
@@ -185,8 +184,7 @@ public class SoapMessageValidator {
          }
 
          // And finally validate everything using that body ;-)
-         errors.addAll(XmlSchemaValidator.validateXml(
-               new ByteArrayInputStream(schemaContent.getBytes(StandardCharsets.UTF_8)), body, resourceUrl));
+         errors.addAll(XmlSchemaValidator.validateXml(typesSchema.schema, body));
       } catch (Exception e) {
          log.error("Exception while validating Soap message: {}", e.getMessage());
          errors.add("Exception while validating Soap message: " + e.getMessage());
@@ -195,4 +193,87 @@ public class SoapMessageValidator {
       log.debug("SoapMessage validation errors: {}", errors.size());
       return errors;
    }
+
+   /** Get the content of a Soap envelope schema, loading it from classpath on first access. */
+   private static byte[] getEnvelopeSchema(String schemaResource) throws IOException {
+      byte[] schemaContent = envelopeSchemas.get(schemaResource);
+      if (schemaContent == null) {
+         try (InputStream schemaStream = SoapMessageValidator.class.getClassLoader()
+               .getResourceAsStream(schemaResource)) {
+            schemaContent = schemaStream.readAllBytes();
+         }
+         envelopeSchemas.put(schemaResource, schemaContent);
+      }
+      return schemaContent;
+   }
+
+   /** Get the compiled types schema of a WSDL, extracting and compiling it on first access. */
+   private static TypesSchema getTypesSchema(String wsdlContent, String resourceUrl) {
+      String key = XmlSchemaValidator.hash(wsdlContent.getBytes(StandardCharsets.UTF_8), resourceUrl);
+      TypesSchema typesSchema = typesSchemas.getIfPresent(key);
+      if (typesSchema == null) {
+         typesSchema = compileTypesSchema(wsdlContent, resourceUrl);
+         typesSchemas.put(key, typesSchema);
+      }
+      return typesSchema;
+   }
+
+   /**
+    * Extract the types schema of a WSDL as a standalone schema and compile it. Extraction or compilation errors are
+    * kept into returned schema and reported on each validation using it.
+    * @param wsdlContent The reference WSDL as a String
+    * @param resourceUrl AN optional resource url where includes in WSDL may be resolved
+    * @return The compiled types schema, to be used with {@code validateSoapMessage()}
+    */
+   public static TypesSchema compileTypesSchema(String wsdlContent, String resourceUrl) {
+      try {
+         return new TypesSchema(XmlSchemaValidator.compileSchema(extractTypesSchema(wsdlContent), resourceUrl), null);
+      } catch (Exception e) {
+         log.error("Exception while compiling types schema of WSDL: {}", e.getMessage());
+         return new TypesSchema(null, e.getMessage());
+      }
+   }
+
+   private static byte[] extractTypesSchema(String wsdlContent) throws Exception {
+      // Parse WSDL to extract types schema.
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newDefaultInstance();
+      factory.setNamespaceAware(true);
+      DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+
+      Element wsdlElement = documentBuilder.parse(new InputSource(new StringReader(wsdlContent))).getDocumentElement();
+      Element wsdlTypes = XmlUtil.getUniqueDirectChild(wsdlElement, XmlUtil.WSDL_NS, "types");
+      Element xsSchema = XmlUtil.getUniqueDirectChild(wsdlTypes, XmlUtil.XML_SCHEMA_NS, "schema");
+
+      // Schema may not contain all the needed xmlns declaration found at the definitions level.
+      // We have to report it before extracting a standalone schema.
+      NamedNodeMap definitionsAttributes = wsdlElement.getAttributes();
+      for (int i = 0; i < definitionsAttributes.getLength(); i++) {
+         Node attribute = definitionsAttributes.item(i);
+         String name = attribute.getNodeName();
+         if (name.startsWith("xmlns:") && !xsSchema.hasAttribute(name)) {
+            xsSchema.setAttribute(name, attribute.getNodeValue());
+         }
+      }
+
+      TransformerFactory transformerFactory = TransformerFactory.newDefaultInstance();
+      Transformer transformer = transformerFactory.newTransformer();
+      transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+
+      Writer out = new StringWriter();
+      transformer.transform(new DOMSource(xsSchema), new StreamResult(out));
+      return out.toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   /** The types schema of a WSDL, compiled or holding the error that prevented its compilation. */
+   public static final class TypesSchema {
+
+      private final XmlSchemaValidator.CompiledSchema schema;
+      private final String error;
+
+      private TypesSchema(XmlSchemaValidator.CompiledSchema schema, String error) {
+         this.schema = schema;
+         this.error = error;
+      }
+   }
 }
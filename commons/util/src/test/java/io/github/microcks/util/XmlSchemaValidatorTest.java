@@ -21,7 +21,14 @@ import org.xml.sax.SAXParseException;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,5 +65,36 @@ public class XmlSchemaValidatorTest {
       Executable validationExecutable = () -> XmlSchemaValidator.validateXml(schemaStream, validXml);
       assertThrows(SAXParseException.class, validationExecutable, "Expected SAXParseException due to schema mismatch.");
    }
-}
 
+   @Test
+   public void testCompiledSchemaIsReused() throws Exception {
+      byte[] schemaContent = Files
+            .readAllBytes(Paths.get("target/test-classes/io/github/microcks/util/valid-schema.xsd"));
+      String validXml = "<note><to>Tove</to><from>Jani</from><heading>Reminder</heading><body>Hi!</body></note>";
+      String invalidXml = "<note><to>Tove</to><heading>Reminder</heading><body>Hi!</body></note>";
+
+      assertTrue(XmlSchemaValidator.validateXml(schemaContent, validXml, null).isEmpty());
+      int cached = XmlSchemaValidator.cachedSchemas();
+
+      // Validating again with same schema should not compile it again, even from many threads.
+      List<Callable<List<String>>> validations = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+         String xml = i % 2 == 0 ? validXml : invalidXml;
+         validations.add(() -> XmlSchemaValidator.validateXml(schemaContent, xml, null));
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<List<String>>> results = executor.invokeAll(validations);
+         for (int i = 0; i < results.size(); i++) {
+            assertEquals(i % 2 == 0 ? 0 : 1, results.get(i).get().size());
+         }
+      } finally {
+         executor.shutdown();
+      }
+      assertEquals(cached, XmlSchemaValidator.cachedSchemas());
+
+      // Same schema with another base resource URL is another schema.
+      assertTrue(XmlSchemaValidator.validateXml(schemaContent, validXml, "http://localhost:8080").isEmpty());
+      assertEquals(cached + 1, XmlSchemaValidator.cachedSchemas());
+   }
+}
@@ -485,6 +485,40 @@ class OpenAPISchemaValidatorTest {
       assertFalse(errors.isEmpty());
    }
 
+   @Test
+   void testCompiledMessageSchemaIsReusable() throws Exception {
+      // Load full specification from file.
+      String openAPIText = FileUtils.readFileToString(
+            new File("target/test-classes/io/github/microcks/util/openapi/response-refs-openapi.yaml"),
+            StandardCharsets.UTF_8);
+      JsonNode openAPISpec = OpenAPISchemaValidator.getJsonNodeForSchema(openAPIText);
+
+      // Compile the schema for Get /accounts response message once.
+      CompiledMessageSchema schema = OpenAPISchemaValidator.compileJsonMessageSchema(openAPISpec,
+            "/paths/~1accounts/get/responses/200", "application/json", null);
+      assertNotNull(schema.getJsonSchema());
+
+      // And use it for validating different contents.
+      List<String> errors = schema.validate(OpenAPISchemaValidator.getJsonNode("""
+            [
+              { "resource": "396be545-e2d4-4497-a5b5-700e89ab99c0", "id": "01" },
+              { "resource": "f377afb3-5c62-40cc-8f07-1f4749a780eb", "id": "01" }
+            ]
+            """));
+      assertEquals(6, errors.size());
+      errors = schema.validate(OpenAPISchemaValidator.getJsonNode("[]"));
+      assertTrue(errors.isEmpty());
+
+      // Unknown message should give a schema that always returns errors.
+      schema = OpenAPISchemaValidator.compileJsonMessageSchema(openAPISpec, "/paths/~1unknown/get/responses/200",
+            "application/json", null);
+      assertNull(schema.getJsonSchema());
+      errors = schema.validate(OpenAPISchemaValidator.getJsonNode("[]"));
+      assertEquals(1, errors.size());
+      assertEquals("messagePathPointer does not represent a valid JSON Pointer in OpenAPI specification",
+            errors.get(0));
+   }
+
    @Test
    void testFullProcedureFromOpenAPIResourceWithStructures() {
       String openAPIText = null;
@@ -0,0 +1,68 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.soap;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This is a test case for SoapEnvelopeParser class.
+ * @author agent
+ */
+class SoapEnvelopeParserTest {
+
+   @Test
+   void testParseReusesBuilders() throws Exception {
+      String request = """
+            <soapenv:Envelope xmlns:soapenv="http://schemas.xmlsoap.org/soap/envelope/" xmlns:hel="http://www.example.com/hello">
+               <soapenv:Body>
+                  <hel:sayHello>
+                     <name>Andrew</name>
+                  </hel:sayHello>
+               </soapenv:Body>
+            </soapenv:Envelope>
+            """;
+      Document document = SoapEnvelopeParser.parse(request);
+      assertEquals("Envelope", document.getDocumentElement().getLocalName());
+      assertEquals("http://schemas.xmlsoap.org/soap/envelope/", document.getDocumentElement().getNamespaceURI());
+      assertEquals(1, document.getElementsByTagNameNS("http://www.example.com/hello", "sayHello").getLength());
+
+      // Builder should have been returned to the pool and reused.
+      int idle = SoapEnvelopeParser.idleBuilders();
+      assertTrue(idle > 0);
+      SoapEnvelopeParser.parse(request);
+      assertEquals(idle, SoapEnvelopeParser.idleBuilders());
+
+      // Builder should also be returned to the pool on parsing failure.
+      assertThrows(SAXException.class, () -> SoapEnvelopeParser.parse("<soapenv:Envelope"));
+      assertEquals(idle, SoapEnvelopeParser.idleBuilders());
+   }
+
+   @Test
+   void testParseRefusesDoctype() {
+      String request = """
+            <?xml version="1.0"?>
+            <!DOCTYPE foo [<!ENTITY xxe SYSTEM "file:///etc/passwd">]>
+            <soapenv:Envelope xmlns:soapenv="http://schemas.xmlsoap.org/soap/envelope/">
+               <soapenv:Body><name>&xxe;</name></soapenv:Body>
+            </soapenv:Envelope>
+            """;
+      assertThrows(SAXException.class, () -> SoapEnvelopeParser.parse(request));
+   }
+}
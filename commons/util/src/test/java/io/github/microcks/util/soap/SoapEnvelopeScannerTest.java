@@ -0,0 +1,74 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.soap;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.namespace.QName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This is a test case for SoapEnvelopeScanner class.
+ * @author agent
+ */
+class SoapEnvelopeScannerTest {
+
+   @Test
+   void testFindBodyElementName() {
+      String request = """
+            <soapenv:Envelope xmlns:soapenv="http://schemas.xmlsoap.org/soap/envelope/" xmlns:hel="http://www.example.com/hello">
+               <soapenv:Header>
+                  <hel:token>abc</hel:token>
+               </soapenv:Header>
+               <soapenv:Body>
+                  <hel:sayHello>
+                     <name>Andrew</name>
+                  </hel:sayHello>
+               </soapenv:Body>
+            </soapenv:Envelope>
+            """;
+      assertEquals(new QName("http://www.example.com/hello", "sayHello"),
+            SoapEnvelopeScanner.findBodyElementName(request));
+
+      String soap12Request = """
+            <env:Envelope xmlns:env="http://www.w3.org/2003/05/soap-envelope">
+               <env:Body><sayHello xmlns="http://www.example.com/hello"/></env:Body>
+            </env:Envelope>
+            """;
+      assertEquals(new QName("http://www.example.com/hello", "sayHello"),
+            SoapEnvelopeScanner.findBodyElementName(soap12Request));
+   }
+
+   @Test
+   void testScanStopsAtBodyElement() {
+      // Payload is truncated after operation element and should still be scanned.
+      String truncated = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>"
+            + "<hel:sayHello xmlns:hel=\"http://www.example.com/hello\"><name>" + "A".repeat(100000);
+      assertEquals("sayHello", SoapEnvelopeScanner.findBodyElementName(truncated).getLocalPart());
+   }
+
+   @Test
+   void testNoBodyElement() {
+      assertNull(SoapEnvelopeScanner.findBodyElementName(null));
+      assertNull(SoapEnvelopeScanner.findBodyElementName("not xml at all"));
+      assertNull(SoapEnvelopeScanner.findBodyElementName("<hel:sayHello xmlns:hel=\"http://www.example.com/hello\"/>"));
+      assertNull(SoapEnvelopeScanner.findBodyElementName(
+            "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body/></soapenv:Envelope>"));
+      assertNull(SoapEnvelopeScanner.findBodyElementName(
+            "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body></soapenv:Envelope>"));
+   }
+}
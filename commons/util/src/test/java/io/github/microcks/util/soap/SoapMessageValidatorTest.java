@@ -164,6 +164,32 @@ class SoapMessageValidatorTest {
       assertTrue(errors.get(0).contains("foo"));
    }
 
+   @Test
+   void testValidateSoapMessageWithCompiledTypesSchema() throws Exception {
+      String wsdlContent = Files.readString(
+            Paths.get("target/test-classes/io/github/microcks/util/soap/HelloService.wsdl"), StandardCharsets.UTF_8);
+      SoapMessageValidator.TypesSchema typesSchema = SoapMessageValidator.compileTypesSchema(wsdlContent,
+            "http://localhost:8080");
+
+      List<String> errors = SoapMessageValidator.validateSoapMessage(typesSchema,
+            new QName("http://www.example.com/hello", "sayHelloResponse"), validSoap);
+      assertTrue(errors.isEmpty());
+
+      errors = SoapMessageValidator.validateSoapMessage(typesSchema,
+            new QName("http://www.example.com/hello", "sayHelloResponse"), invalidSoapMessage);
+      assertEquals(1, errors.size());
+      assertTrue(errors.get(0).contains("foo"));
+
+      // Compilation error should be reported on each validation.
+      typesSchema = SoapMessageValidator.compileTypesSchema("<definitions/>", null);
+      for (int i = 0; i < 2; i++) {
+         errors = SoapMessageValidator.validateSoapMessage(typesSchema,
+               new QName("http://www.example.com/hello", "sayHelloResponse"), validSoap);
+         assertEquals(1, errors.size());
+         assertTrue(errors.get(0).startsWith("Exception while validating Soap message: "));
+      }
+   }
+
    @Test
    void testValidateSoapMessageWithDistributedNS() {
       String soapMessage = """
@@ -15,7 +15,9 @@
  */
 package io.github.microcks.config;
 
+import io.github.microcks.domain.DailyStatistic;
 import io.github.microcks.domain.ServiceState;
+import io.github.microcks.repository.DailyStatisticRepositoryImpl;
 
 import com.mongodb.WriteConcern;
 import org.slf4j.Logger;
@@ -24,9 +26,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.WriteConcernResolver;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.data.mongodb.core.index.IndexResolver;
 import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
@@ -55,7 +60,7 @@ public class MongoConfiguration {
 
    @EventListener(ContextRefreshedEvent.class)
    public void initIndicesAfterStartup() {
-      log.info("Ensuring TTL index for ServiceState");
+      log.info("Ensuring TTL and lookup indexes for ServiceState");
       MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext = mongoTemplate
             .getConverter().getMappingContext();
 
@@ -63,6 +68,19 @@ public class MongoConfiguration {
       IndexOperations indexOps = mongoTemplate.indexOps(ServiceState.class);
 
       resolver.resolveIndexFor(ServiceState.class).forEach(indexOps::ensureIndex);
+      indexOps.ensureIndex(new Index().on("serviceId", Sort.Direction.ASC).on("key", Sort.Direction.ASC));
+
+      log.info("Ensuring indexes for DailyStatistic and rollups");
+      try {
+         mongoTemplate.indexOps(DailyStatistic.class).ensureIndex(new Index().on("day", Sort.Direction.ASC)
+               .on("serviceName", Sort.Direction.ASC).on("serviceVersion", Sort.Direction.ASC).unique());
+      } catch (DataAccessException dae) {
+         // Duplicates may have been created by previous versions: keep on starting but warn about it.
+         log.warn("Cannot ensure unique index on DailyStatistic, duplicate statistics may exist: {}",
+               dae.getMessage());
+      }
+      mongoTemplate.indexOps(DailyStatisticRepositoryImpl.ROLLUP_COLLECTION)
+            .ensureIndex(new Index().on("day", Sort.Direction.ASC).unique());
    }
 
    @Bean
@@ -15,28 +15,38 @@
  */
 package io.github.microcks.listener;
 
-import io.github.microcks.domain.DailyStatistic;
 import io.github.microcks.event.MockInvocationEvent;
+import io.github.microcks.repository.CustomDailyStatisticRepository.DailyIncrement;
 import io.github.microcks.repository.DailyStatisticRepository;
 
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.BulkOperationException;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
-import java.util.Calendar;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Application event listener that updates daily statistics on incoming event.
+ * Application event listener that updates daily statistics on incoming event. Invocations are counted in memory per
+ * service and minute using {@code LongAdder} counters so that recording an invocation is cheap and does not contend
+ * with other invocations. Counters are periodically drained and flushed to the database in a single bulk operation.
  * @author laurent
  */
 @Component
@@ -45,9 +55,20 @@ public class DailyStatisticsFeeder implements StatisticsFlusher, ApplicationList
    /** A simple logger for diagnostic messages. */
    private static final Logger log = LoggerFactory.getLogger(DailyStatisticsFeeder.class);
 
+   private static final long MILLIS_PER_MINUTE = 60_000L;
+   /** Number of minutes an idle counter is kept before being discarded. */
+   private static final long IDLE_COUNTER_MINUTES = 2;
+   private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
    private final DailyStatisticRepository statisticsRepository;
    private final ScheduledExecutorService scheduler;
-   private final ConcurrentHashMap<String, Integer> statisticsCache = new ConcurrentHashMap<>();
+
+   /** Invocation counters indexed by service name and then service version. */
+   private final Map<String, Map<String, ServiceCounters>> countersByService = new ConcurrentHashMap<>();
+   /** Counters discarded at previous flush that may still have received late increments. */
+   private List<RetiredCounter> retiredCounters = new ArrayList<>();
+   /** The clock giving current minute and time zone of days, hours and minutes. */
+   private Clock clock = Clock.systemDefaultZone();
 
    /**
     * Build a DailyStatisticsFeeder with mandatory dependencies.
@@ -60,88 +81,72 @@ public class DailyStatisticsFeeder implements StatisticsFlusher, ApplicationList
    }
 
    /**
-    * Flush the statistics cache to the database. This method is called periodically by the scheduler. It copies the
-    * current statistics cache to a local map, clears the cache, and then processes each entry to update or create daily
-    * statistics in the database.
+    * Flush the statistics cache to the database. This method is called periodically by the scheduler. Each counter is
+    * atomically drained so that increments happening during the flush are kept for the next one. Drained counts are
+    * then grouped per day and service and sent to the database within a single bulk operation.
     */
-   public void flushToDatabase() {
-      if (!statisticsCache.isEmpty()) {
-         // copy the cache to a local map to avoid concurrent modification issues
-         Map<String, Integer> statisticsCache = new HashMap<>(this.statisticsCache);
-         // Clear the cache after copying
-         this.statisticsCache.clear();
-
-         for (Map.Entry<String, Integer> entry : statisticsCache.entrySet()) {
-            String[] keys = entry.getKey().split(":");
-            if (keys.length == 5) {
-               String serviceName = keys[0];
-               String serviceVersion = keys[1];
-               String day = keys[2];
-               String hourKey = keys[3];
-               String minuteKey = keys[4];
-               int count = entry.getValue();
-               // First check if there's a statistic document for invocation day.
-               DailyStatistic statistic = null;
-               List<DailyStatistic> statistics = statisticsRepository.findByDayAndServiceNameAndServiceVersion(day,
-                     serviceName, serviceVersion);
-               if (!statistics.isEmpty()) {
-                  statistic = statistics.getFirst();
-               }
+   public synchronized void flushToDatabase() {
+      long currentMinute = clock.millis() / MILLIS_PER_MINUTE;
+      List<DrainedCount> drainedCounts = new ArrayList<>();
+
+      // Drain the counters discarded at previous flush in case an increment raced with their removal.
+      for (RetiredCounter retired : retiredCounters) {
+         long count = retired.counter().adder.sumThenReset();
+         if (count > 0) {
+            drainedCounts.add(new DrainedCount(retired.service(), retired.counter(), count));
+         }
+      }
+      List<RetiredCounter> newlyRetired = new ArrayList<>();
 
-               if (statistic == null) {
-                  // No statistic's yet...
-                  log.debug("There's no statistics for {} yet. Create one.", day);
-                  // Initialize a new 0 filled structure.
-                  statistic = new DailyStatistic();
-                  statistic.setDay(day);
-                  statistic.setServiceName(serviceName);
-                  statistic.setServiceVersion(serviceVersion);
-                  statistic.setHourlyCount(initializeHourlyMap());
-                  statistic.setMinuteCount(initializeMinuteMap());
-                  // Now set first values before saving.
-                  statistic.setDailyCount(count);
-                  statistic.getHourlyCount().put(hourKey, count);
-                  statistic.getMinuteCount().put(minuteKey, count);
-                  statisticsRepository.save(statistic);
-               } else {
-                  // Already a statistic document for this day, increment fields.
-                  log.debug("Found an existing statistic document for {}", day);
-                  statisticsRepository.incrementDailyStatistic(day, serviceName, serviceVersion, hourKey, minuteKey,
-                        count);
+      for (Map<String, ServiceCounters> versionCounters : countersByService.values()) {
+         for (ServiceCounters service : versionCounters.values()) {
+            for (MinuteCounter counter : service.counters.values()) {
+               long count = counter.adder.sumThenReset();
+               if (count > 0) {
+                  drainedCounts.add(new DrainedCount(service, counter, count));
+               } else if (counter.minute < currentMinute - IDLE_COUNTER_MINUTES
+                     && service.counters.remove(counter.minute, counter)) {
+                  if (service.current == counter) {
+                     service.current = null;
+                  }
+                  newlyRetired.add(new RetiredCounter(service, counter));
                }
-            } else {
-               log.warn("Invalid key format in statistics cache: {}", entry.getKey());
             }
          }
       }
+      retiredCounters = newlyRetired;
+
+      if (!drainedCounts.isEmpty()) {
+         List<DailyAccumulator> accumulators = accumulateDailyCounts(drainedCounts);
+         List<DailyIncrement> increments = new ArrayList<>(accumulators.size());
+         accumulators.forEach(accumulator -> increments.add(accumulator.toIncrement()));
+         try {
+            statisticsRepository.incrementDailyStatistics(increments);
+         } catch (BulkOperationException boe) {
+            // Only the increments reported in errors have not been applied.
+            log.error("Failed to flush {} daily statistics, keeping them for next flush", boe.getErrors().size(), boe);
+            boe.getErrors().forEach(error -> accumulators.get(error.getIndex()).restore());
+         } catch (Exception e) {
+            log.error("Failed to flush {} daily statistics, keeping them for next flush", increments.size(), e);
+            accumulators.forEach(DailyAccumulator::restore);
+         }
+      }
+   }
+
+   /**
+    * Set the clock to use for computing current minute and time zone of statistics.
+    * @param clock The clock to use
+    */
+   void setClock(Clock clock) {
+      this.clock = clock;
    }
 
    @Override
    @Async
    public void onApplicationEvent(MockInvocationEvent event) {
       log.debug("Received a MockInvocationEvent on {} - v{}", event.getServiceName(), event.getServiceVersion());
-
-      // Compute day string representation.
-      Calendar calendar = Calendar.getInstance();
-      calendar.setTime(event.getInvocationTimestamp());
-
-      // Computing keys based on invocation date.
-      int month = calendar.get(Calendar.MONTH) + 1;
-      String monthStr = (month < 10 ? "0" : "") + month;
-      int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
-      String dayOfMonthStr = (dayOfMonth < 10 ? "0" : "") + dayOfMonth;
-
-      String day = calendar.get(Calendar.YEAR) + monthStr + dayOfMonthStr;
-      String hourKey = String.valueOf(calendar.get(Calendar.HOUR_OF_DAY));
-      String minuteKey = String.valueOf((60 * calendar.get(Calendar.HOUR_OF_DAY)) + calendar.get(Calendar.MINUTE));
-
-      String key = event.getServiceName() + ":" + event.getServiceVersion() + ":" + day + ":" + hourKey + ":"
-            + minuteKey;
-      statisticsCache.merge(key, 1, Integer::sum);
-      if (log.isDebugEnabled()) {
-         log.debug("hourKey for statistic is {}", hourKey);
-         log.debug("minuteKey for statistic is {}", minuteKey);
-      }
+      long minute = Math.floorDiv(event.getInvocationTimestamp().getTime(), MILLIS_PER_MINUTE);
+      getServiceCounters(event.getServiceName(), event.getServiceVersion()).increment(minute);
    }
 
    /**
@@ -156,20 +161,105 @@ public class DailyStatisticsFeeder implements StatisticsFlusher, ApplicationList
       log.debug("DailyStatisticsFeeder scheduler shutdown complete.");
    }
 
+   private ServiceCounters getServiceCounters(String serviceName, String serviceVersion) {
+      Map<String, ServiceCounters> versionCounters = countersByService.get(serviceName);
+      if (versionCounters == null) {
+         versionCounters = countersByService.computeIfAbsent(serviceName, name -> new ConcurrentHashMap<>());
+      }
+      ServiceCounters counters = versionCounters.get(serviceVersion);
+      if (counters == null) {
+         counters = versionCounters.computeIfAbsent(serviceVersion,
+               version -> new ServiceCounters(serviceName, version));
+      }
+      return counters;
+   }
+
+   /** Group drained counts per day and service, computing hour and minute keys in local time. */
+   private List<DailyAccumulator> accumulateDailyCounts(List<DrainedCount> drainedCounts) {
+      ZoneId zone = clock.getZone();
+      Map<DailyKey, DailyAccumulator> accumulators = new LinkedHashMap<>();
+      for (DrainedCount drained : drainedCounts) {
+         ZonedDateTime time = Instant.ofEpochMilli(drained.counter().minute * MILLIS_PER_MINUTE).atZone(zone);
+         String hourKey = String.valueOf(time.getHour());
+         String minuteKey = String.valueOf((60 * time.getHour()) + time.getMinute());
+         int count = (int) drained.count();
 
-   private Map<String, Integer> initializeHourlyMap() {
-      Map<String, Integer> result = new HashMap<>(24);
-      for (int i = 0; i < 24; i++) {
-         result.put(String.valueOf(i), 0);
+         DailyKey key = new DailyKey(time.format(DAY_FORMATTER), drained.service());
+         DailyAccumulator accumulator = accumulators.computeIfAbsent(key, DailyAccumulator::new);
+         accumulator.count += count;
+         accumulator.hourlyCounts.merge(hourKey, count, Integer::sum);
+         accumulator.minuteCounts.merge(minuteKey, count, Integer::sum);
+         accumulator.drainedCounts.add(drained);
       }
-      return result;
+      return new ArrayList<>(accumulators.values());
    }
 
-   private Map<String, Integer> initializeMinuteMap() {
-      Map<String, Integer> result = new HashMap<>(24 * 60);
-      for (int i = 0; i < 24 * 60; i++) {
-         result.put(String.valueOf(i), 0);
+   /** The invocation counters of a service version, indexed by minute since epoch. */
+   private static final class ServiceCounters {
+      private final String serviceName;
+      private final String serviceVersion;
+      private final Map<Long, MinuteCounter> counters = new ConcurrentHashMap<>();
+      /** The last used counter, avoiding a lookup when invocations happen within the same minute. */
+      private volatile MinuteCounter current;
+
+      ServiceCounters(String serviceName, String serviceVersion) {
+         this.serviceName = serviceName;
+         this.serviceVersion = serviceVersion;
       }
-      return result;
+
+      void increment(long minute) {
+         MinuteCounter counter = current;
+         if (counter == null || counter.minute != minute) {
+            counter = counters.computeIfAbsent(minute, MinuteCounter::new);
+            current = counter;
+         }
+         counter.adder.increment();
+      }
+
+      void add(long minute, long count) {
+         counters.computeIfAbsent(minute, MinuteCounter::new).adder.add(count);
+      }
+   }
+
+   /** The invocation counter of a service version for a minute since epoch. */
+   private static final class MinuteCounter {
+      private final long minute;
+      private final LongAdder adder = new LongAdder();
+
+      MinuteCounter(long minute) {
+         this.minute = minute;
+      }
+   }
+
+   /** The accumulated counts of a service for a day, with the drained counts they come from. */
+   private static final class DailyAccumulator {
+      private final DailyKey key;
+      private int count;
+      private final Map<String, Integer> hourlyCounts = new HashMap<>();
+      private final Map<String, Integer> minuteCounts = new HashMap<>();
+      private final List<DrainedCount> drainedCounts = new ArrayList<>();
+
+      DailyAccumulator(DailyKey key) {
+         this.key = key;
+      }
+
+      DailyIncrement toIncrement() {
+         return new DailyIncrement(key.day(), key.service().serviceName, key.service().serviceVersion, count,
+               hourlyCounts, minuteCounts);
+      }
+
+      /** Put drained counts back into their counters so that they're flushed again next time. */
+      void restore() {
+         drainedCounts.forEach(drained -> drained.service().add(drained.counter().minute, drained.count()));
+      }
+   }
+
+   private record DrainedCount(ServiceCounters service, MinuteCounter counter, long count) {
+   }
+
+   private record RetiredCounter(ServiceCounters service, MinuteCounter counter) {
+   }
+
+   private record DailyKey(String day, ServiceCounters service) {
    }
 }
@@ -18,6 +18,7 @@ package io.github.microcks.repository;
 import io.github.microcks.domain.DailyStatistic;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Custom repository interface for DailyStatistic domain objects.
@@ -28,12 +29,32 @@ public interface CustomDailyStatisticRepository {
    void incrementDailyStatistic(String day, String serviceName, String serviceVersion, String hourKey, String minuteKey,
          int count);
 
+   /**
+    * Apply a batch of increments to daily statistics, creating the missing statistic documents. All the increments are
+    * sent to the database within a single bulk operation.
+    * @param increments The increments to apply. There should be at most one increment per day and service.
+    */
+   void incrementDailyStatistics(List<DailyIncrement> increments);
+
    DailyStatistic aggregateDailyStatistics(String day);
 
    List<InvocationCount> aggregateDailyStatistics(String afterday, String beforeday);
 
    List<DailyStatistic> findTopStatistics(String day, int limit);
 
+   /**
+    * The invocation counts to add to the daily statistic of a service.
+    * @param day            The day of statistic (formatted as yyyyMMdd)
+    * @param serviceName    The name of service
+    * @param serviceVersion The version of service
+    * @param count          The total number of invocations to add
+    * @param hourlyCounts   The number of invocations to add per hour key
+    * @param minuteCounts   The number of invocations to add per minute key
+    */
+   record DailyIncrement(String day, String serviceName, String serviceVersion, int count,
+         Map<String, Integer> hourlyCounts, Map<String, Integer> minuteCounts) {
+   }
+
    class InvocationCount {
       String day;
       Long number;
@@ -0,0 +1,35 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.repository;
+
+import io.github.microcks.domain.ServiceState;
+
+import java.util.Collection;
+
+/**
+ * Custom repository interface for ServiceState domain objects.
+ * @author agent
+ */
+public interface CustomServiceStateRepository {
+
+   /**
+    * Apply a batch of writes to service states. States are matched using their service identifier and key, so that
+    * updated states are created if missing. All the writes are sent to the database within a single bulk operation.
+    * @param updates   The states to create or update with their value and expiration date
+    * @param deletions The states to remove
+    */
+   void writeStates(Collection<ServiceState> updates, Collection<ServiceState> deletions);
+}
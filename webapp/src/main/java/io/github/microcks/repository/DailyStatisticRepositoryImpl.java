@@ -16,27 +16,47 @@
 package io.github.microcks.repository;
 
 import io.github.microcks.domain.DailyStatistic;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
-import org.springframework.data.mongodb.core.mapreduce.MapReduceResults;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
-import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
 /**
- * Implementation of CustomDailyStatisticRepository.
+ * Implementation of CustomDailyStatisticRepository. Statistic documents only hold the hour and minute keys having
+ * invocations. Global statistics of a day (all services together) are kept as rollup documents into the
+ * {@code dailyStatisticRollup} collection; rollups are incremented with the same counts as statistics so that
+ * concurrent writers never overwrite each other.
+ * <p>
+ * Only rollups marked as {@code complete} are trusted. Rollups created by an increment are incomplete as they miss the
+ * previous invocations of the day: those are computed again from statistics on access, and saved as complete only if
+ * no increment has been started or applied to them in the meantime. Writers track this by counting their pending
+ * increments and bumping a revision on the rollups they touch.
  * @author laurent
  */
 public class DailyStatisticRepositoryImpl implements CustomDailyStatisticRepository {
@@ -44,6 +64,17 @@ public class DailyStatisticRepositoryImpl implements CustomDailyStatisticReposit
    /** A simple logger for diagnostic messages. */
    private static Logger log = LoggerFactory.getLogger(DailyStatisticRepositoryImpl.class);
 
+   /** The name of the collection holding daily rollups of statistics. */
+   public static final String ROLLUP_COLLECTION = "dailyStatisticRollup";
+
+   private static final String DAY = "day";
+   private static final String DAILY_COUNT = "dailyCount";
+   private static final String HOURLY_COUNT = "hourlyCount";
+   private static final String HOUR_FIELD_PREFIX = "hour";
+   private static final String COMPLETE = "complete";
+   private static final String REVISION = "revision";
+   private static final String PENDING_INCREMENTS = "pendingIncrements";
+
    @Autowired
    private MongoTemplate template;
 
@@ -62,82 +93,260 @@ public class DailyStatisticRepositoryImpl implements CustomDailyStatisticReposit
       Update update = new Update().inc("dailyCount", count).inc("hourlyCount." + hourKey, count)
             .inc("minuteCount." + minuteKey, count);
 
-      // Do an upsert with find and modify.
-      template.findAndModify(query, update, DailyStatistic.class);
+      // Do an upsert with find and modify, keeping the rollup of the day in sync if statistic has been incremented.
+      Set<String> days = Set.of(day);
+      boolean rollupTracked = beginRollupIncrements(days);
+      DailyStatistic statistic = null;
+      try {
+         statistic = template.findAndModify(query, update, DailyStatistic.class);
+      } finally {
+         if (rollupTracked) {
+            endRollupIncrements(days, statistic == null ? List.of()
+                  : List.of(new DailyIncrement(day, serviceName, serviceVersion, count, Map.of(hourKey, count),
+                        Map.of(minuteKey, count))));
+         }
+      }
    }
 
    @Override
-   public DailyStatistic aggregateDailyStatistics(String day) {
+   public void incrementDailyStatistics(List<DailyIncrement> increments) {
+      if (increments.isEmpty()) {
+         return;
+      }
+      BulkOperations bulkOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyStatistic.class);
+      for (DailyIncrement increment : increments) {
+         Query query = new Query(Criteria.where(DAY).is(increment.day()).and("serviceName")
+               .is(increment.serviceName()).and("serviceVersion").is(increment.serviceVersion()));
 
-      // Build a query to pre-select the statistics that will be aggregated.
-      Query query = new Query(Criteria.where("day").is(day));
+         // Upsert is creating the statistic with just the incremented keys if there's none yet.
+         Update update = new Update().inc(DAILY_COUNT, increment.count());
+         increment.hourlyCounts().forEach((hourKey, count) -> update.inc(HOURLY_COUNT + "." + hourKey, count));
+         increment.minuteCounts().forEach((minuteKey, count) -> update.inc("minuteCount." + minuteKey, count));
+         bulkOps.upsert(query, update);
+      }
 
-      // Execute a MapReduce command.
-      MapReduceResults<WrappedDailyStatistic> results = template.mapReduce(query, "dailyStatistic",
-            "classpath:mapDailyStatisticForADay.js", "classpath:reduceDailyStatisticForADay.js",
-            WrappedDailyStatistic.class);
+      Set<String> days = new TreeSet<>();
+      increments.forEach(increment -> days.add(increment.day()));
+      boolean rollupsTracked = beginRollupIncrements(days);
 
-      // Output some debug messages.
-      if (log.isDebugEnabled()) {
-         log.debug("aggregateDailyStatistics mapReduce for day " + day);
-         log.debug("aggregateDailyStatistics mapReduce result counts: " + results.getCounts());
-         for (WrappedDailyStatistic wdt : results) {
-            log.debug("aggregateDailyStatistics mapReduce result value: " + wdt.getValue());
+      // Operations are unordered: some increments may have been applied even if others have failed.
+      List<DailyIncrement> appliedIncrements = List.of();
+      try {
+         BulkWriteResult result = bulkOps.execute();
+         log.debug("Incremented {} daily statistics, {} created", increments.size(), result.getUpserts().size());
+         appliedIncrements = increments;
+      } catch (BulkOperationException boe) {
+         Set<Integer> failedIndexes = new HashSet<>();
+         boe.getErrors().forEach(error -> failedIndexes.add(error.getIndex()));
+         appliedIncrements = new ArrayList<>(increments.size());
+         for (int i = 0; i < increments.size(); i++) {
+            if (!failedIndexes.contains(i)) {
+               appliedIncrements.add(increments.get(i));
+            }
+         }
+         throw boe;
+      } finally {
+         // Now apply the same increments to the rollups of updated days.
+         if (rollupsTracked) {
+            endRollupIncrements(days, appliedIncrements);
          }
       }
+   }
 
-      // We've got a result if we've got an output.
-      if (results.getCounts().getOutputCount() > 0) {
-         return results.iterator().next().getValue();
+   @Override
+   public DailyStatistic aggregateDailyStatistics(String day) {
+      Document rollupDocument = template.findOne(new Query(Criteria.where(DAY).is(day)), Document.class,
+            ROLLUP_COLLECTION);
+
+      DailyStatistic rollup;
+      if (isComplete(rollupDocument)) {
+         rollup = template.getConverter().read(DailyStatistic.class, rollupDocument);
+      } else {
+         // No complete rollup for this day yet, compute and save it if there are statistics.
+         log.debug("No complete rollup found for day {}, computing it", day);
+         Map<String, DailyStatistic> rollups = computeRollups(Criteria.where(DAY).is(day));
+         saveRollups(rollups, rollupDocument != null ? Map.of(day, rollupDocument) : Map.of());
+         rollup = rollups.get(day);
       }
 
-      // Build and return an empty object otherwise?
-      DailyStatistic statistic = new DailyStatistic();
-      statistic.setDay(day);
-      statistic.setDailyCount(0);
-      return statistic;
+      if (rollup == null) {
+         // Build and return an empty object otherwise.
+         rollup = new DailyStatistic();
+         rollup.setDay(day);
+         rollup.setDailyCount(0);
+      } else {
+         // Incremented rollups only hold hours having invocations: put zero for the others.
+         Map<String, Integer> hourlyCount = new HashMap<>(24);
+         for (int hour = 0; hour < 24; hour++) {
+            hourlyCount.put(String.valueOf(hour), 0);
+         }
+         if (rollup.getHourlyCount() != null) {
+            hourlyCount.putAll(rollup.getHourlyCount());
+         }
+         rollup.setHourlyCount(hourlyCount);
+      }
+      return rollup;
    }
 
    @Override
    public List<InvocationCount> aggregateDailyStatistics(String afterday, String beforeday) {
-      // Build a query to pre-select the statistics that will be aggregated.
-      Aggregation aggregation = newAggregation(match(Criteria.where("day").gte(afterday).lte(beforeday)),
-            group("day").sum("dailyCount").as("number"), project("number").and("day").previousOperation(),
-            sort(ASC, "day"));
-      AggregationResults<InvocationCount> results = template.aggregate(aggregation, DailyStatistic.class,
-            InvocationCount.class);
-      return results.getMappedResults();
+      Map<String, Long> counts = new TreeMap<>();
+      Map<String, Document> incompleteRollups = new HashMap<>();
+      List<Document> rollups = template.find(
+            new Query(Criteria.where(DAY).gte(afterday).lte(beforeday)).with(Sort.by(Direction.ASC, DAY)),
+            Document.class, ROLLUP_COLLECTION);
+      for (Document rollup : rollups) {
+         if (isComplete(rollup)) {
+            counts.put(rollup.getString(DAY), getLong(rollup, DAILY_COUNT));
+         } else {
+            incompleteRollups.put(rollup.getString(DAY), rollup);
+         }
+      }
+
+      // Compute and save the rollups of days that don't have a complete one yet.
+      Map<String, DailyStatistic> missingRollups = computeRollups(
+            Criteria.where(DAY).gte(afterday).lte(beforeday).nin(counts.keySet()));
+      saveRollups(missingRollups, incompleteRollups);
+      missingRollups.values().forEach(rollup -> counts.put(rollup.getDay(), rollup.getDailyCount()));
+
+      List<InvocationCount> results = new ArrayList<>(counts.size());
+      counts.forEach((day, number) -> {
+         InvocationCount count = new InvocationCount();
+         count.setDay(day);
+         count.setNumber(number);
+         results.add(count);
+      });
+      return results;
    }
 
    @Override
    public List<DailyStatistic> findTopStatistics(String day, int limit) {
       // Build a query selecting and sorting / limiting.
-      Query query = new Query(Criteria.where("day").is(day)).with(Sort.by(new Order(Direction.DESC, "dailyCount")))
+      Query query = new Query(Criteria.where(DAY).is(day)).with(Sort.by(new Order(Direction.DESC, DAILY_COUNT)))
             .limit(limit);
 
       return template.find(query, DailyStatistic.class);
    }
 
+   /** Compute the rollups of days matching criteria from statistics, using an aggregation pipeline. */
+   private Map<String, DailyStatistic> computeRollups(Criteria dayCriteria) {
+      GroupOperation group = group(DAY).sum(DAILY_COUNT).as(DAILY_COUNT);
+      for (int hour = 0; hour < 24; hour++) {
+         group = group.sum(HOURLY_COUNT + "." + hour).as(HOUR_FIELD_PREFIX + hour);
+      }
+      Aggregation aggregation = newAggregation(match(dayCriteria), group);
 
-   /** Utility class used for wrapping a DailyStatistic object within MapReduce command results. */
-   public class WrappedDailyStatistic {
-      private String id;
-      private DailyStatistic value;
+      Map<String, DailyStatistic> rollups = new HashMap<>();
+      for (Document result : template.aggregate(aggregation, DailyStatistic.class, Document.class)) {
+         DailyStatistic rollup = new DailyStatistic();
+         rollup.setDay(result.getString("_id"));
+         rollup.setDailyCount(((Number) result.get(DAILY_COUNT)).longValue());
+         Map<String, Integer> hourlyCount = new HashMap<>(24);
+         for (int hour = 0; hour < 24; hour++) {
+            Number count = (Number) result.get(HOUR_FIELD_PREFIX + hour);
+            hourlyCount.put(String.valueOf(hour), count != null ? count.intValue() : 0);
+         }
+         rollup.setHourlyCount(hourlyCount);
+         rollups.put(rollup.getDay(), rollup);
+      }
+      return rollups;
+   }
 
-      public String getId() {
-         return id;
+   /**
+    * Mark the rollups of days as having a pending increment, creating them as incomplete if missing. This prevents
+    * rollups computed meanwhile from being saved before increment is applied.
+    * @return Whether the rollups are tracked and {@code endRollupIncrements()} should be called.
+    */
+   private boolean beginRollupIncrements(Set<String> days) {
+      BulkOperations bulkOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyStatistic.class,
+            ROLLUP_COLLECTION);
+      days.forEach(day -> bulkOps.upsert(new Query(Criteria.where(DAY).is(day)),
+            new Update().inc(PENDING_INCREMENTS, 1).setOnInsert(COMPLETE, false)));
+      try {
+         bulkOps.execute();
+         return true;
+      } catch (DataAccessException dae) {
+         // Do not fail the statistics: drop the rollups so they're computed again on next access.
+         log.warn("Failed to track increments of rollups of days {}, removing them", days, dae);
+         removeRollups(days);
+         return false;
       }
+   }
 
-      public void setId(String id) {
-         this.id = id;
+   /** Apply the sum of increments of each day to the rollups of days, and release their pending increment. */
+   private void endRollupIncrements(Set<String> days, List<DailyIncrement> appliedIncrements) {
+      Map<String, Update> updates = new TreeMap<>();
+      days.forEach(day -> updates.put(day, new Update().inc(PENDING_INCREMENTS, -1).inc(REVISION, 1)));
+      for (DailyIncrement increment : appliedIncrements) {
+         Update update = updates.get(increment.day());
+         update.inc(DAILY_COUNT, increment.count());
+         increment.hourlyCounts().forEach((hourKey, count) -> update.inc(HOURLY_COUNT + "." + hourKey, count));
       }
+      BulkOperations bulkOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyStatistic.class,
+            ROLLUP_COLLECTION);
+      updates.forEach((day, update) -> bulkOps.updateOne(new Query(Criteria.where(DAY).is(day)), update));
+      try {
+         bulkOps.execute();
+      } catch (DataAccessException dae) {
+         // Statistics have been incremented, so do not fail: drop the rollups so they're computed again on next access.
+         log.warn("Failed to increment rollups of days {}, removing them", days, dae);
+         removeRollups(days);
+      }
+   }
 
-      public DailyStatistic getValue() {
-         return value;
+   /**
+    * Save computed rollups as complete ones. Missing rollups are only inserted if no increment has created them in the
+    * meantime, incomplete ones are only replaced if no increment has been started or applied since they've been read.
+    * Rollups that cannot be saved are computed again on next access.
+    */
+   private void saveRollups(Map<String, DailyStatistic> rollups, Map<String, Document> incompleteRollups) {
+      Collection<DailyStatistic> values = rollups.values();
+      if (values.isEmpty()) {
+         return;
       }
+      BulkOperations bulkOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyStatistic.class,
+            ROLLUP_COLLECTION);
+      int operations = 0;
+      for (DailyStatistic rollup : values) {
+         Document incompleteRollup = incompleteRollups.get(rollup.getDay());
+         if (incompleteRollup == null) {
+            bulkOps.upsert(new Query(Criteria.where(DAY).is(rollup.getDay())),
+                  new Update().setOnInsert(DAILY_COUNT, rollup.getDailyCount())
+                        .setOnInsert(HOURLY_COUNT, rollup.getHourlyCount()).setOnInsert(COMPLETE, true)
+                        .setOnInsert(REVISION, 0).setOnInsert(PENDING_INCREMENTS, 0));
+            operations++;
+         } else if (getLong(incompleteRollup, PENDING_INCREMENTS) == 0) {
+            bulkOps.updateOne(
+                  new Query(Criteria.where(DAY).is(rollup.getDay()).and(PENDING_INCREMENTS).in(0, null).and(REVISION)
+                        .is(incompleteRollup.get(REVISION))),
+                  new Update().set(DAILY_COUNT, rollup.getDailyCount()).set(HOURLY_COUNT, rollup.getHourlyCount())
+                        .set(COMPLETE, true));
+            operations++;
+         }
+      }
+      if (operations > 0) {
+         try {
+            bulkOps.execute();
+         } catch (DataAccessException dae) {
+            log.debug("Failed to save some rollups, they'll be computed again on next access", dae);
+         }
+      }
+   }
 
-      public void setValue(DailyStatistic value) {
-         this.value = value;
+   private void removeRollups(Set<String> days) {
+      try {
+         template.remove(new Query(Criteria.where(DAY).in(days)), ROLLUP_COLLECTION);
+      } catch (DataAccessException dae) {
+         log.warn("Failed to remove rollups of days {}", days, dae);
       }
    }
+
+   private static boolean isComplete(Document rollup) {
+      return rollup != null && Boolean.TRUE.equals(rollup.getBoolean(COMPLETE));
+   }
+
+   private static long getLong(Document document, String field) {
+      Number value = (Number) document.get(field);
+      return value != null ? value.longValue() : 0L;
+   }
 }
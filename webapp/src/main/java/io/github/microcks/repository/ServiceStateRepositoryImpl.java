@@ -0,0 +1,57 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.repository;
+
+import io.github.microcks.domain.ServiceState;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+
+/**
+ * Implementation of CustomServiceStateRepository.
+ * @author agent
+ */
+public class ServiceStateRepositoryImpl implements CustomServiceStateRepository {
+
+   @Autowired
+   private MongoTemplate template;
+
+   @Override
+   public void writeStates(Collection<ServiceState> updates, Collection<ServiceState> deletions) {
+      if (updates.isEmpty() && deletions.isEmpty()) {
+         return;
+      }
+      BulkOperations bulkOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, ServiceState.class);
+      for (ServiceState state : updates) {
+         bulkOps.upsert(stateQuery(state),
+               new Update().set("value", state.getValue()).set("expireAt", state.getExpireAt()));
+      }
+      for (ServiceState state : deletions) {
+         bulkOps.remove(stateQuery(state));
+      }
+      bulkOps.execute();
+   }
+
+   private static Query stateQuery(ServiceState state) {
+      return new Query(Criteria.where("serviceId").is(state.getServiceId()).and("key").is(state.getKey()));
+   }
+}
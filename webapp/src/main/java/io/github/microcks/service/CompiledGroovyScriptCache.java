@@ -0,0 +1,122 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.event.ServiceChangeEvent;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A cache of compiled Groovy dispatcher scripts. Evaluating a script from its source makes Groovy generate a new
+ * script class on each call; scripts are here compiled once and their compiled form is reused across invocations.
+ * Compiled scripts are indexed by operation identifier and kept along with their source, so that a hit only costs a
+ * comparison with the source held by operation (usually the same instance) and an updated script is transparently
+ * compiled again; entries of a service are evicted on {@code ServiceChangeEvent}.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class CompiledGroovyScriptCache implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(CompiledGroovyScriptCache.class);
+
+   /** The maximum number of compiled scripts we keep in cache. */
+   private static final int MAX_CACHED_SCRIPTS = 1000;
+
+   private final Compilable compiler;
+   private final Counter compilationsCounter;
+
+   private final Cache<String, SourcedScript> cache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCRIPTS)
+         .build();
+
+   /**
+    * Build a CompiledGroovyScriptCache with required dependencies.
+    * @param meterRegistry The registry where to publish compilation metrics
+    */
+   public CompiledGroovyScriptCache(MeterRegistry meterRegistry) {
+      this.compiler = (Compilable) new ScriptEngineManager().getEngineByExtension("groovy");
+      this.compilationsCounter = Counter.builder("microcks.mock.scripts.compilations").tag("language", "groovy")
+            .description("Number of Groovy dispatcher scripts compilations").register(meterRegistry);
+   }
+
+   /**
+    * Evaluate a script within a context, compiling the script only if not already done.
+    * @param operationId The identifier of operation the script belongs to
+    * @param script      The script source
+    * @param context     The context to evaluate script into
+    * @return The result of script evaluation
+    * @throws ScriptException if script cannot be compiled or its evaluation fails
+    */
+   public Object eval(String operationId, String script, ScriptContext context) throws ScriptException {
+      return getCompiledScript(operationId, script).eval(context);
+   }
+
+   /**
+    * Get the compiled form of a script, compiling it only if not already done.
+    * @param operationId The identifier of operation the script belongs to
+    * @param script      The script source
+    * @return The compiled script
+    * @throws ScriptException if script cannot be compiled
+    */
+   public CompiledScript getCompiledScript(String operationId, String script) throws ScriptException {
+      SourcedScript sourced;
+      try {
+         sourced = cache.get(operationId, () -> compile(script));
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof ScriptException se) {
+            throw se;
+         }
+         throw new ScriptException(e);
+      }
+      if (!sourced.source().equals(script)) {
+         // Operation script has been updated without notification (eg. by another replica).
+         sourced = compile(script);
+         cache.put(operationId, sourced);
+      }
+      return sourced.compiled();
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, evicting its compiled scripts", event.getServiceId());
+      // Operation identifiers are built by prefixing operation name with service identifier.
+      String keyPrefix = event.getServiceId() + "-";
+      cache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+   }
+
+   private SourcedScript compile(String script) throws ScriptException {
+      log.debug("Compiling a Groovy dispatcher script");
+      compilationsCounter.increment();
+      return new SourcedScript(script, compiler.compile(script));
+   }
+
+   /** A compiled script with the source it has been compiled from. */
+   private record SourcedScript(String source, CompiledScript compiled) {
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of executable GraphQL schemas used by GraphQL mocks and tests. Finding the GraphQL schema resource of a
+ * service, parsing it and generating an executable schema are done once; the compiled schema is then reused across
+ * invocations. As introspection results are deterministic for a schema, they are also kept along with the compiled
+ * schema. Entries of a service are evicted on {@code ServiceChangeEvent} and compiled again right away if service is
+ * still holding a GraphQL schema; they are also expired after a configured time to catch up changes done by other
+ * replicas.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class GraphQLSchemaCache implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(GraphQLSchemaCache.class);
+
+   /** The maximum number of compiled schemas we keep in cache. */
+   private static final int MAX_CACHED_SCHEMAS = 500;
+   /** The maximum number of introspection results we keep per schema. */
+   private static final int MAX_CACHED_INTROSPECTIONS = 16;
+
+   private final ResourceRepository resourceRepository;
+
+   private final SchemaParser schemaParser = new SchemaParser();
+   private final SchemaGenerator schemaGenerator = new SchemaGenerator();
+   private final ObjectMapper mapper = new ObjectMapper();
+
+   private Cache<String, CompiledGraphQLSchema> schemas;
+
+   @Value("${mocks.graphql.schemas.expire-after-write:300000}")
+   private long expireAfterWrite = 300000L;
+
+   /**
+    * Build a GraphQLSchemaCache with required dependencies.
+    * @param resourceRepository The repository to access resources definitions
+    */
+   public GraphQLSchemaCache(ResourceRepository resourceRepository) {
+      this.resourceRepository = resourceRepository;
+   }
+
+   /** Initialize the cache storage using configured expiration. */
+   @PostConstruct
+   public void initialize() {
+      log.debug("Initializing GraphQL schemas cache with an expiration of {} ms", expireAfterWrite);
+      schemas = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCHEMAS)
+            .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS).build();
+   }
+
+   /**
+    * Get the compiled GraphQL schema of a service, compiling it only if not already done.
+    * @param serviceId The identifier of service to get schema for
+    * @return The compiled schema or null if service has no GraphQL schema resource.
+    */
+   public CompiledGraphQLSchema getCompiledSchema(String serviceId) {
+      return schemas.asMap().computeIfAbsent(serviceId, this::compile);
+   }
+
+   /**
+    * Get the result of an introspection query on the GraphQL schema of a service, executing it only if not already
+    * done for this schema.
+    * @param serviceId The identifier of service to introspect
+    * @param query     The text representation of introspection query
+    * @return The Json representation of introspection result or null if service has no GraphQL schema resource.
+    * @throws JsonProcessingException if introspection result cannot be serialized
+    */
+   public String getIntrospectionResult(String serviceId, String query) throws JsonProcessingException {
+      CompiledGraphQLSchema compiled = getCompiledSchema(serviceId);
+      if (compiled == null) {
+         return null;
+      }
+      String result = compiled.introspectionResults.getIfPresent(query);
+      if (result == null) {
+         ExecutionResult executionResult = compiled.getGraphQL().execute(query);
+         result = mapper.writeValueAsString(executionResult);
+         compiled.introspectionResults.put(query, result);
+      }
+      return result;
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, evicting its GraphQL schema", event.getServiceId());
+      if (event.getChangeType() == ChangeType.DELETED) {
+         schemas.invalidate(event.getServiceId());
+      } else {
+         try {
+            // Compile the new schema right away so that next invocation does not have to.
+            schemas.asMap().compute(event.getServiceId(), (serviceId, previous) -> compile(serviceId));
+         } catch (Exception e) {
+            log.warn("GraphQL schema of service {} cannot be compiled: {}", event.getServiceId(), e.getMessage());
+            schemas.invalidate(event.getServiceId());
+         }
+      }
+   }
+
+   private CompiledGraphQLSchema compile(String serviceId) {
+      List<Resource> resources = resourceRepository.findByServiceIdAndType(serviceId, ResourceType.GRAPHQL_SCHEMA);
+      if (resources.isEmpty()) {
+         return null;
+      }
+      log.debug("Compiling GraphQL schema of service {}", serviceId);
+      TypeDefinitionRegistry registry = schemaParser.parse(resources.get(0).getContent());
+      GraphQLSchema schema = schemaGenerator.makeExecutableSchema(registry, RuntimeWiring.MOCKED_WIRING);
+      return new CompiledGraphQLSchema(registry, schema, GraphQL.newGraphQL(schema).build());
+   }
+
+   /** A GraphQL schema parsed and made executable, with the results of introspection queries made on it. */
+   public static class CompiledGraphQLSchema {
+
+      private final TypeDefinitionRegistry typeDefinitionRegistry;
+      private final GraphQLSchema schema;
+      private final GraphQL graphQL;
+      private final Cache<String, String> introspectionResults = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_INTROSPECTIONS).build();
+
+      CompiledGraphQLSchema(TypeDefinitionRegistry typeDefinitionRegistry, GraphQLSchema schema, GraphQL graphQL) {
+         this.typeDefinitionRegistry = typeDefinitionRegistry;
+         this.schema = schema;
+         this.graphQL = graphQL;
+      }
+
+      /** @return The registry of types definitions parsed from schema resource. */
+      public TypeDefinitionRegistry getTypeDefinitionRegistry() {
+         return typeDefinitionRegistry;
+      }
+
+      /** @return The executable schema generated from types definitions. */
+      public GraphQLSchema getSchema() {
+         return schema;
+      }
+
+      /** @return The GraphQL engine built on executable schema. */
+      public GraphQL getGraphQL() {
+         return graphQL;
+      }
+   }
+}
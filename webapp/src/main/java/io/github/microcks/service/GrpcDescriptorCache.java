@@ -0,0 +1,159 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+import io.github.microcks.util.grpc.GrpcUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.TypeRegistry;
+import com.google.protobuf.util.JsonFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of compiled Protobuf descriptors used by gRPC mocks. Finding the Protobuf descriptor resource of a service,
+ * decoding it and building its file descriptors are done once; method descriptors, type registry and Json
+ * parser/printer are then reused across invocations. Entries of a service are evicted on {@code ServiceChangeEvent}
+ * and compiled again right away if service is still holding a Protobuf descriptor.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class GrpcDescriptorCache implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(GrpcDescriptorCache.class);
+
+   /** The maximum number of compiled descriptors we keep in cache. */
+   private static final int MAX_CACHED_DESCRIPTORS = 500;
+
+   private final ResourceRepository resourceRepository;
+
+   private final Cache<String, CompiledGrpcService> descriptors = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_DESCRIPTORS).build();
+
+   /**
+    * Build a GrpcDescriptorCache with required dependencies.
+    * @param resourceRepository The repository to access resources definitions
+    */
+   public GrpcDescriptorCache(ResourceRepository resourceRepository) {
+      this.resourceRepository = resourceRepository;
+   }
+
+   /**
+    * Get the compiled Protobuf descriptor of a service, compiling it only if not already done.
+    * @param serviceId The identifier of service to get descriptor for
+    * @return The compiled descriptor or null if service has not exactly one Protobuf descriptor resource.
+    * @throws IllegalStateException if Protobuf descriptor resource cannot be decoded or validated
+    */
+   public CompiledGrpcService getCompiledService(String serviceId) {
+      return descriptors.asMap().computeIfAbsent(serviceId, this::compile);
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, evicting its Protobuf descriptor", event.getServiceId());
+      if (event.getChangeType() == ChangeType.DELETED) {
+         descriptors.invalidate(event.getServiceId());
+      } else {
+         try {
+            // Compile the new descriptor right away so that next invocation does not have to.
+            descriptors.asMap().compute(event.getServiceId(), (serviceId, previous) -> compile(serviceId));
+         } catch (Exception e) {
+            log.warn("Protobuf descriptor of service {} cannot be compiled: {}", event.getServiceId(), e.getMessage());
+            descriptors.invalidate(event.getServiceId());
+         }
+      }
+   }
+
+   private CompiledGrpcService compile(String serviceId) {
+      // Protobuf binary descriptor should have been processed while importing the .proto schema for the service.
+      List<Resource> resources = resourceRepository.findByServiceIdAndType(serviceId,
+            ResourceType.PROTOBUF_DESCRIPTOR);
+      if (resources == null || resources.size() != 1) {
+         return null;
+      }
+      log.debug("Compiling Protobuf descriptor of service {}", serviceId);
+      try {
+         List<Descriptors.FileDescriptor> fileDescriptors = GrpcUtil
+               .buildFileDescriptors(resources.getFirst().getContent());
+
+         // Index methods using the full name used by gRPC calls.
+         Map<String, Descriptors.MethodDescriptor> methods = new HashMap<>();
+         for (Descriptors.FileDescriptor fd : fileDescriptors) {
+            for (Descriptors.ServiceDescriptor sd : fd.getServices()) {
+               for (Descriptors.MethodDescriptor md : sd.getMethods()) {
+                  methods.put(sd.getFullName() + "/" + md.getName(), md);
+               }
+            }
+         }
+         return new CompiledGrpcService(methods, GrpcUtil.buildTypeRegistry(fileDescriptors));
+      } catch (Exception e) {
+         throw new IllegalStateException("Protobuf descriptor of service " + serviceId + " cannot be compiled", e);
+      }
+   }
+
+   /** A Protobuf descriptor decoded and built, with the Json parser and printer using its types. */
+   public static class CompiledGrpcService {
+
+      private final Map<String, Descriptors.MethodDescriptor> methods;
+      private final TypeRegistry typeRegistry;
+      private final JsonFormat.Parser parser;
+      private final JsonFormat.Printer printer;
+
+      CompiledGrpcService(Map<String, Descriptors.MethodDescriptor> methods, TypeRegistry typeRegistry) {
+         this.methods = methods;
+         this.typeRegistry = typeRegistry;
+         this.parser = JsonFormat.parser().usingTypeRegistry(typeRegistry);
+         this.printer = JsonFormat.printer().usingTypeRegistry(typeRegistry);
+      }
+
+      /**
+       * Get the descriptor of a method.
+       * @param fullMethodName The gRPC method full name (service fqdn / method)
+       * @return The method descriptor or null if not found.
+       */
+      public Descriptors.MethodDescriptor getMethodDescriptor(String fullMethodName) {
+         return methods.get(fullMethodName);
+      }
+
+      /** @return The registry of all message types defined in descriptor. */
+      public TypeRegistry getTypeRegistry() {
+         return typeRegistry;
+      }
+
+      /** @return A Json parser using the type registry. Parser is immutable and can be shared. */
+      public JsonFormat.Parser getParser() {
+         return parser;
+      }
+
+      /** @return A Json printer using the type registry. Printer is immutable and can be shared. */
+      public JsonFormat.Printer getPrinter() {
+         return printer;
+      }
+   }
+}
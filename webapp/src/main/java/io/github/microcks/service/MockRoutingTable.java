@@ -0,0 +1,221 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Service;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ServiceRepository;
+import io.github.microcks.util.OperationPathTrie;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-memory routing table used by mock controllers to resolve a Service (and its operations) from its name and
+ * version without a database round-trip. The table is fully built when application is ready, kept current using
+ * {@code ServiceChangeEvent} and periodically rebuilt to catch up changes that may have been done by other replicas.
+ * Updates of the table are serialized with rebuilds so that none of them is lost, and lookups of unknown services are
+ * also remembered until next change or rebuild.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class MockRoutingTable implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(MockRoutingTable.class);
+
+   /** The maximum number of unknown routing keys we remember. */
+   private static final int MAX_MISSING_KEYS = 10_000;
+
+   private final ServiceRepository serviceRepository;
+
+   private final Counter hitsCounter;
+   private final Counter missesCounter;
+   private final Counter rebuildsCounter;
+
+   /** Services indexed by their routing key (name + version). Replaced as a whole on rebuild. */
+   private volatile Map<String, Service> servicesByKey = new ConcurrentHashMap<>();
+   /** Routing keys indexed by service identifier. Allows cleaning up renamed or deleted services. */
+   private volatile Map<String, String> keysById = new ConcurrentHashMap<>();
+   /** Compiled operation tries indexed by service identifier. Evicted with their service. */
+   private volatile Map<String, OperationPathTrie> operationTries = new ConcurrentHashMap<>();
+   /** Routing keys known as not matching any service. Cleared on changes and rebuilds. */
+   private final Cache<String, Boolean> missingKeys = CacheBuilder.newBuilder().maximumSize(MAX_MISSING_KEYS).build();
+
+   /** Serializes updates of the table with rebuilds. */
+   private final ReentrantLock updateLock = new ReentrantLock();
+   /** Incremented on each change so that lookups started before are not remembered as missing. */
+   private final AtomicLong generation = new AtomicLong();
+
+   @Value("${mocks.routing-table.enabled:true}")
+   private boolean enabled = true;
+
+   /**
+    * Build a MockRoutingTable with required dependencies.
+    * @param serviceRepository The repository to access services definitions
+    * @param meterRegistry     The registry where to publish routing table metrics
+    */
+   public MockRoutingTable(ServiceRepository serviceRepository, MeterRegistry meterRegistry) {
+      this.serviceRepository = serviceRepository;
+      this.hitsCounter = Counter.builder("microcks.mock.routing.lookups").tag("result", "hit")
+            .description("Number of service lookups served by the routing table").register(meterRegistry);
+      this.missesCounter = Counter.builder("microcks.mock.routing.lookups").tag("result", "miss")
+            .description("Number of service lookups that went to the repository").register(meterRegistry);
+      this.rebuildsCounter = Counter.builder("microcks.mock.routing.rebuilds")
+            .description("Number of full rebuilds of the routing table").register(meterRegistry);
+      Gauge.builder("microcks.mock.routing.services", this, table -> table.servicesByKey.size())
+            .description("Number of services held in the routing table").register(meterRegistry);
+   }
+
+   /**
+    * Find a Service using its name and version.
+    * @param name    The name of the service
+    * @param version The version of the service
+    * @return The found Service or null if none is matching
+    */
+   public Service findByNameAndVersion(String name, String version) {
+      if (!enabled) {
+         return serviceRepository.findByNameAndVersion(name, version);
+      }
+      String key = buildRoutingKey(name, version);
+      Service service = servicesByKey.get(key);
+      if (service != null || missingKeys.getIfPresent(key) != null) {
+         hitsCounter.increment();
+         return service;
+      }
+
+      missesCounter.increment();
+      long lookupGeneration = generation.get();
+      service = serviceRepository.findByNameAndVersion(name, version);
+      // Do not wait for a rebuild in progress, it will pick this service from repository anyway.
+      if (updateLock.tryLock()) {
+         try {
+            if (service != null) {
+               register(service);
+            } else if (lookupGeneration == generation.get()) {
+               missingKeys.put(key, Boolean.TRUE);
+            }
+         } finally {
+            updateLock.unlock();
+         }
+      }
+      return service;
+   }
+
+   /**
+    * Get the compiled operation trie of a Service, building it if service definition has been refreshed since.
+    * @param service The service to get operation trie for
+    * @return The operation trie of service
+    */
+   public OperationPathTrie getOperationTrie(Service service) {
+      if (service.getId() == null) {
+         return OperationPathTrie.build(service);
+      }
+      OperationPathTrie operationTrie = operationTries.get(service.getId());
+      if (operationTrie == null || operationTrie.getService() != service) {
+         operationTrie = OperationPathTrie.build(service);
+         operationTries.put(service.getId(), operationTrie);
+      }
+      return operationTrie;
+   }
+
+   /** Fully rebuild the routing table from repository content. */
+   @EventListener(ApplicationReadyEvent.class)
+   @Scheduled(initialDelayString = "${mocks.routing-table.refresh-interval:60000}",
+         fixedDelayString = "${mocks.routing-table.refresh-interval:60000}")
+   public void rebuild() {
+      if (!enabled) {
+         return;
+      }
+      log.debug("Rebuilding the mock routing table from repository");
+      updateLock.lock();
+      try {
+         Map<String, Service> newServicesByKey = new ConcurrentHashMap<>();
+         Map<String, String> newKeysById = new ConcurrentHashMap<>();
+         for (Service service : serviceRepository.findAll()) {
+            String key = buildRoutingKey(service.getName(), service.getVersion());
+            newServicesByKey.put(key, service);
+            newKeysById.put(service.getId(), key);
+         }
+         generation.incrementAndGet();
+         servicesByKey = newServicesByKey;
+         keysById = newKeysById;
+         // Tries are holding previous service definitions, they'll be built again on next access.
+         operationTries = new ConcurrentHashMap<>();
+         missingKeys.invalidateAll();
+         rebuildsCounter.increment();
+         log.debug("Mock routing table now holds {} services", newServicesByKey.size());
+      } finally {
+         updateLock.unlock();
+      }
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, refreshing routing table", event.getServiceId());
+      updateLock.lock();
+      try {
+         generation.incrementAndGet();
+         // Changed service may now be matching keys previously known as missing.
+         missingKeys.invalidateAll();
+         unregister(event.getServiceId());
+         if (enabled && event.getChangeType() != ChangeType.DELETED) {
+            serviceRepository.findById(event.getServiceId()).ifPresent(this::register);
+         }
+      } finally {
+         updateLock.unlock();
+      }
+   }
+
+   private void register(Service service) {
+      String key = buildRoutingKey(service.getName(), service.getVersion());
+      if (service.getId() != null) {
+         String previousKey = keysById.put(service.getId(), key);
+         if (previousKey != null && !previousKey.equals(key)) {
+            servicesByKey.remove(previousKey);
+         }
+      }
+      servicesByKey.put(key, service);
+   }
+
+   private void unregister(String serviceId) {
+      operationTries.remove(serviceId);
+      String key = keysById.remove(serviceId);
+      if (key != null) {
+         servicesByKey.remove(key);
+      }
+   }
+
+   private static String buildRoutingKey(String name, String version) {
+      return name + '\n' + version;
+   }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Header;
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Request;
+import io.github.microcks.domain.Response;
+import io.github.microcks.domain.Service;
+import io.github.microcks.repository.RequestRepository;
+import io.github.microcks.repository.ResponseRepository;
+import io.github.microcks.util.DataUriUtil;
+import io.github.microcks.util.IdBuilder;
+import io.github.microcks.util.UTF8ContentTypeChecker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of responses returned by proxied services, so that repeated calls to operations using {@code PROXY} or
+ * {@code PROXY_FALLBACK} dispatchers can be replayed locally. Responses are indexed by method, proxied url, a set of
+ * configured request headers and a hash of request body; only successful responses are kept, within a memory budget
+ * and for a limited time.
+ * <p>
+ * Optionally, captured exchanges can also be recorded as new request/response pairs of the operation. Recorded
+ * responses are holding the dispatch criteria of invocation so that a {@code PROXY_FALLBACK} operation will find them
+ * next time instead of calling the proxied service.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class ProxyResponseCache {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(ProxyResponseCache.class);
+
+   /** The source artifact of requests and responses recorded from proxied services. */
+   public static final String RECORDING_SOURCE = "Proxy recording";
+
+   /** Rough estimation of the memory used by a cached response, not counting its body. */
+   private static final int CACHED_RESPONSE_BASE_WEIGHT = 512;
+
+   /** Maximum number of recorded exchanges remembered to avoid recording them again. */
+   private static final int MAX_RECORDED_EXCHANGES = 10_000;
+
+   private final RequestRepository requestRepository;
+   private final ResponseRepository responseRepository;
+   private final ResponseLookupIndex responseIndex;
+
+   private Cache<CacheKey, ResponseEntity<byte[]>> cache;
+   private Cache<String, Boolean> recordedExchanges;
+
+   @Value("${mocks.proxy.cache.enabled:false}")
+   private boolean enabled = false;
+
+   @Value("${mocks.proxy.cache.max-size:64MB}")
+   private String maxSize = "64MB";
+
+   @Value("${mocks.proxy.cache.ttl:300000}")
+   private long ttl = 300000L;
+
+   @Value("${mocks.proxy.cache.key-headers:Accept,Content-Type}")
+   private String[] keyHeaders = { HttpHeaders.ACCEPT, HttpHeaders.CONTENT_TYPE };
+
+   @Value("${mocks.proxy.cache.record-enabled:false}")
+   private boolean recordEnabled = false;
+
+   /**
+    * Build a new ProxyResponseCache with required dependencies.
+    * @param requestRepository  The repository used to record requests
+    * @param responseRepository The repository used to record responses
+    * @param responseIndex      The responses index to refresh on recording
+    */
+   public ProxyResponseCache(RequestRepository requestRepository, ResponseRepository responseRepository,
+         ResponseLookupIndex responseIndex) {
+      this.requestRepository = requestRepository;
+      this.responseRepository = responseRepository;
+      this.responseIndex = responseIndex;
+   }
+
+   /** Initialize the cache storage using configured budget and time to live. */
+   @PostConstruct
+   public void initialize() {
+      long maxWeight = DataSize.parse(maxSize).toBytes();
+      log.debug("Initializing proxy responses cache with a max size of {} bytes and a ttl of {} ms", maxWeight, ttl);
+      cache = CacheBuilder.newBuilder().maximumWeight(maxWeight)
+            .weigher((CacheKey key, ResponseEntity<byte[]> response) -> weight(response))
+            .expireAfterWrite(ttl, TimeUnit.MILLISECONDS).build();
+      recordedExchanges = CacheBuilder.newBuilder().maximumSize(MAX_RECORDED_EXCHANGES).build();
+   }
+
+   /** @return Whether proxied responses should be looked up into this cache. */
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   /** @return Whether exchanges with proxied services should be recorded as operation samples. */
+   public boolean isRecordEnabled() {
+      return recordEnabled;
+   }
+
+   /**
+    * Build the key identifying a proxied call.
+    * @param method      The Http method of the call
+    * @param externalUrl The proxied url, including query string
+    * @param headers     The request headers
+    * @param body        The request body, may be null
+    * @return The key of this call
+    */
+   public CacheKey buildKey(HttpMethod method, URI externalUrl, Map<String, List<String>> headers, String body) {
+      StringBuilder keyHeaderValues = new StringBuilder();
+      for (String keyHeader : keyHeaders) {
+         keyHeaderValues.append(keyHeader.toLowerCase()).append('=');
+         headers.entrySet().stream().filter(entry -> entry.getKey().equalsIgnoreCase(keyHeader)).findFirst()
+               .ifPresent(entry -> keyHeaderValues.append(String.join(",", entry.getValue())));
+         keyHeaderValues.append(';');
+      }
+      return new CacheKey(method.name(), externalUrl.toString(), keyHeaderValues.toString(),
+            body != null ? DigestUtils.sha256Hex(body) : null);
+   }
+
+   /**
+    * Get a previously cached response for a proxied call.
+    * @param key The key of proxied call
+    * @return The cached response or null if none or if cache is disabled.
+    */
+   public ResponseEntity<byte[]> get(CacheKey key) {
+      return enabled ? cache.getIfPresent(key) : null;
+   }
+
+   /**
+    * Keep the response of a proxied call if it is successful.
+    * @param key      The key of proxied call
+    * @param response The response returned by proxied service
+    */
+   public void put(CacheKey key, ResponseEntity<byte[]> response) {
+      if (enabled && response.getStatusCode().is2xxSuccessful()) {
+         cache.put(key, response);
+      }
+   }
+
+   /**
+    * Record the exchange of a proxied call as a new request/response pair of an operation, if recording is enabled and
+    * if this exchange has not been recorded yet. Recorded request and response are given an identifier derived from
+    * operation and exchange so that concurrent recordings, from this replica or others, upsert the same documents.
+    * @param service          The service holding operation
+    * @param operation        The operation that was proxied
+    * @param dispatchCriteria The dispatch criteria computed for invocation, may be null
+    * @param key              The key of proxied call
+    * @param body             The request body, may be null
+    * @param response         The response returned by proxied service
+    */
+   public void record(Service service, Operation operation, String dispatchCriteria, CacheKey key, String body,
+         ResponseEntity<byte[]> response) {
+      if (!recordEnabled || !response.getStatusCode().is2xxSuccessful()) {
+         return;
+      }
+      String operationId = IdBuilder.buildOperationId(service, operation);
+      String name = "proxy-" + DigestUtils.sha256Hex(key.toString()).substring(0, 12);
+      String recordingId = DigestUtils.sha256Hex(operationId + "/" + key);
+      if (recordedExchanges.asMap().putIfAbsent(recordingId, Boolean.TRUE) != null) {
+         log.debug("Exchange {} has already been recorded for operation {}", name, operationId);
+         return;
+      }
+      log.info("Recording proxied exchange {} for operation {}", name, operationId);
+
+      Response recordedResponse = new Response();
+      recordedResponse.setId(recordingId);
+      recordedResponse.setName(name);
+      recordedResponse.setOperationId(operationId);
+      recordedResponse.setSourceArtifact(RECORDING_SOURCE);
+      recordedResponse.setStatus(String.valueOf(response.getStatusCode().value()));
+      recordedResponse.setDispatchCriteria(dispatchCriteria);
+      String mediaType = response.getHeaders().getContentType() != null
+            ? response.getHeaders().getContentType().toString()
+            : null;
+      recordedResponse.setMediaType(mediaType);
+      recordedResponse.setHeaders(toHeaders(response.getHeaders()));
+      if (response.getBody() != null) {
+         recordedResponse.setContent(UTF8ContentTypeChecker.isUTF8Encodable(mediaType)
+               ? new String(response.getBody(), StandardCharsets.UTF_8)
+               : DataUriUtil.buildDataUri(response.getBody()));
+      }
+      responseRepository.save(recordedResponse);
+
+      Request recordedRequest = new Request();
+      recordedRequest.setId(recordingId);
+      recordedRequest.setName(name);
+      recordedRequest.setOperationId(operationId);
+      recordedRequest.setSourceArtifact(RECORDING_SOURCE);
+      recordedRequest.setContent(body);
+      recordedRequest.setResponseId(recordedResponse.getId());
+      requestRepository.save(recordedRequest);
+
+      // Only refresh the responses of this operation, other service caches are not impacted by a new sample.
+      responseIndex.invalidate(operationId);
+   }
+
+   private static Set<Header> toHeaders(HttpHeaders httpHeaders) {
+      Set<Header> headers = new HashSet<>();
+      httpHeaders.forEach((name, values) -> {
+         if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+               && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+            headers.add(new Header(name, new HashSet<>(values)));
+         }
+      });
+      return headers;
+   }
+
+   private static int weight(ResponseEntity<byte[]> response) {
+      return CACHED_RESPONSE_BASE_WEIGHT + (response.getBody() != null ? response.getBody().length : 0);
+   }
+
+   /**
+    * The identifying elements of a proxied call.
+    * @param method   The Http method
+    * @param url      The proxied url, including query string
+    * @param headers  The values of configured key headers
+    * @param bodyHash The SHA-256 hash of request body, null if no body
+    */
+   public record CacheKey(String method, String url, String headers, String bodyHash) {
+   }
+}
@@ -15,28 +15,113 @@
  */
 package io.github.microcks.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.util.Set;
 
 /**
- * A service that acts as a simple Http proxy to external URLs or services.
+ * A service that acts as a simple Http proxy to external URLs or services. Calls are made using a pool of keep-alive
+ * connections with configurable limits and timeouts. Responses can be buffered ({@code callExternal()}) or streamed
+ * ({@code streamExternal()}) to avoid holding large upstream bodies in memory. Buffered calls follow redirects while
+ * streamed calls pass them through to the client as is.
  */
 @org.springframework.stereotype.Service
 public class ProxyService {
 
    private static final Logger log = LoggerFactory.getLogger(ProxyService.class);
 
-   private static final RestTemplate restTemplate = new RestTemplate();
+   /** Headers that are specific to a connection and must not be forwarded. */
+   private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+         "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade");
+
+   @Value("${mocks.proxy.max-connections:200}")
+   private int maxConnections = 200;
+
+   @Value("${mocks.proxy.max-connections-per-host:50}")
+   private int maxConnectionsPerHost = 50;
+
+   @Value("${mocks.proxy.connect-timeout:5000}")
+   private long connectTimeout = 5000L;
+
+   @Value("${mocks.proxy.response-timeout:30000}")
+   private long responseTimeout = 30000L;
+
+   @Value("${mocks.proxy.idle-timeout:60000}")
+   private long idleTimeout = 60000L;
+
+   private PoolingHttpClientConnectionManager connectionManager;
+   private CloseableHttpClient httpClient;
+   private CloseableHttpClient streamingHttpClient;
+   private RestTemplate restTemplate;
+
+   /** Initialize the pooled Http clients using configured limits and timeouts. */
+   @PostConstruct
+   public void initialize() {
+      log.debug("Initializing proxy Http client with {} max connections, {} per host", maxConnections,
+            maxConnectionsPerHost);
+      connectionManager = PoolingHttpClientConnectionManagerBuilder.create().setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerHost)
+            .setDefaultConnectionConfig(
+                  ConnectionConfig.custom().setConnectTimeout(Timeout.ofMilliseconds(connectTimeout)).build())
+            .build();
+      httpClient = buildHttpClient().build();
+      // Redirects are passed through as is when streaming.
+      streamingHttpClient = buildHttpClient().disableRedirectHandling().build();
+      restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+   }
+
+   /** Build a client sharing the pool of connections, both clients can then be closed independently. */
+   private HttpClientBuilder buildHttpClient() {
+      return HttpClients.custom().setConnectionManager(connectionManager).setConnectionManagerShared(true)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                  .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeout))
+                  .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout)).build())
+            // Bodies are passed through as is, keeping their original encoding.
+            .disableContentCompression()
+            // Honor the network proxy settings from ProxyConfiguration.
+            .useSystemProperties().evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout));
+   }
+
+   @PreDestroy
+   void shutdown() throws IOException {
+      httpClient.close();
+      streamingHttpClient.close();
+      connectionManager.close();
+   }
 
    /**
     * Call an external Http service url, propagating current method, headers and body.
@@ -47,7 +132,8 @@ public class ProxyService {
     * @return The response entity returned by external service as is
     */
    public ResponseEntity<byte[]> callExternal(URI externalUrl, HttpMethod method, HttpHeaders headers, String body) {
-      headers.put("Host", List.of(externalUrl.getHost()));
+      // Host header (with port) is set by client from target url.
+      headers.remove(HttpHeaders.HOST);
 
       if (log.isDebugEnabled()) {
          log.debug("Proxy request url: {}", externalUrl);
@@ -56,13 +142,14 @@ public class ProxyService {
       }
 
       try {
-         ResponseEntity<byte[]> response = restTemplate.exchange(externalUrl, method, new HttpEntity<>(body, headers),
-               byte[].class);
+         ResponseEntity<byte[]> response = restTemplate.exchange(externalUrl, method,
+               new org.springframework.http.HttpEntity<>(body, headers), byte[].class);
 
          if (log.isDebugEnabled()) {
             log.debug("Proxy returned: {}", response.getStatusCode());
             log.debug("Proxy response headers: {}", response.getHeaders());
-            log.debug("Proxy response body: {}", new String(response.getBody(), StandardCharsets.UTF_8));
+            log.debug("Proxy response body: {}",
+                  response.getBody() != null ? new String(response.getBody(), StandardCharsets.UTF_8) : null);
          }
          return response;
       } catch (RestClientResponseException ex) {
@@ -73,4 +160,81 @@ public class ProxyService {
          return new ResponseEntity<>(ex.getResponseBodyAsByteArray(), ex.getResponseHeaders(), ex.getStatusCode());
       }
    }
+
+   /**
+    * Call an external Http service url, propagating current method, headers and body, and keep the response body
+    * open for streaming it. Returned response must be closed to release the pooled connection.
+    * @param externalUrl The target backend service url.
+    * @param method      The Http method to propagate
+    * @param headers     The Http headers to propagate
+    * @param body        The Http body to propagate
+    * @return The streamed response returned by external service, error statuses included
+    * @throws IOException if external service cannot be reached
+    */
+   public StreamedResponse streamExternal(URI externalUrl, HttpMethod method, HttpHeaders headers, String body)
+         throws IOException {
+      log.debug("Proxy streaming request url: {}", externalUrl);
+
+      ClassicRequestBuilder builder = ClassicRequestBuilder.create(method.name()).setUri(externalUrl);
+      headers.forEach((name, values) -> {
+         if (!isHopByHopHeader(name) && !HttpHeaders.HOST.equalsIgnoreCase(name)
+               && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            values.forEach(value -> builder.addHeader(name, value));
+         }
+      });
+      // Host header (with port) is set by client from target url.
+      if (body != null) {
+         // Only pass through the content type sent by client, if any.
+         ContentType contentType = headers.getContentType() != null
+               ? ContentType.parseLenient(headers.getContentType().toString())
+               : null;
+         Charset charset = contentType != null && contentType.getCharset() != null ? contentType.getCharset()
+               : StandardCharsets.UTF_8;
+         builder.setEntity(new ByteArrayEntity(body.getBytes(charset), contentType));
+      }
+
+      ClassicHttpResponse response = streamingHttpClient.executeOpen(null, builder.build(), null);
+      log.debug("Proxy returned: {}", response.getCode());
+
+      HttpHeaders responseHeaders = new HttpHeaders();
+      for (Header header : response.getHeaders()) {
+         if (!isHopByHopHeader(header.getName())) {
+            responseHeaders.add(header.getName(), header.getValue());
+         }
+      }
+      HttpEntity entity = response.getEntity();
+      return new StreamedResponse(HttpStatusCode.valueOf(response.getCode()), responseHeaders,
+            entity != null ? entity.getContent() : null, response);
+   }
+
+   private static boolean isHopByHopHeader(String name) {
+      return HOP_BY_HOP_HEADERS.contains(name.toLowerCase());
+   }
+
+   /**
+    * A response from an external service whose body has not been read yet.
+    * @param status     The Http status returned by external service
+    * @param headers    The Http headers returned by external service, without the hop-by-hop ones
+    * @param body       The stream of response body, may be null if no body
+    * @param connection The connection to close once body has been consumed
+    */
+   public record StreamedResponse(HttpStatusCode status, HttpHeaders headers, InputStream body, Closeable connection)
+         implements Closeable {
+
+      /**
+       * Copy the response body to an output stream without buffering it fully.
+       * @param output The stream to write body to
+       * @throws IOException if body cannot be read or written
+       */
+      public void transferTo(OutputStream output) throws IOException {
+         if (body != null) {
+            body.transferTo(output);
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         connection.close();
+      }
+   }
 }
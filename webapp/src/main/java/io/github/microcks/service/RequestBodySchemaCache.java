@@ -0,0 +1,212 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.domain.Service;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+import io.github.microcks.util.openapi.CompiledMessageSchema;
+import io.github.microcks.util.openapi.OpenAPISchemaValidator;
+import io.github.microcks.util.openapi.SwaggerSchemaValidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of compiled request body schemas used for validating incoming requests on REST mocks. Finding the
+ * OpenAPI/Swagger resource of a service and parsing it are done once per service; compiling the schema of an operation
+ * request body is done once per content type and namespace. The compiled schemas are then reused across invocations.
+ * Entries of a service are evicted on {@code ServiceChangeEvent} and expire after a while so that changes made through
+ * another replica are eventually picked up. Specifications that cannot be parsed and schemas that cannot be compiled
+ * are kept as well, as errors holders, so that they're not parsed or compiled again on every invocation.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class RequestBodySchemaCache implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(RequestBodySchemaCache.class);
+
+   /** The maximum number of service specifications we keep in cache. */
+   private static final int MAX_CACHED_SPECIFICATIONS = 200;
+
+   /** The maximum number of compiled schemas we keep in cache. */
+   private static final int MAX_CACHED_SCHEMAS = 1000;
+
+   private static final CompiledMessageSchema UNPARSABLE_SPECIFICATION_SCHEMA = CompiledMessageSchema
+         .ofErrors(List.of("OpenAPI specification cannot be transformed into valid JsonNode schema"));
+
+   private final ResourceRepository resourceRepository;
+   private final Counter compilationsCounter;
+
+   /** Parsed specifications (or their absence) indexed by service identifier. */
+   private Cache<String, Optional<Specification>> specifications;
+
+   private Cache<SchemaKey, CompiledMessageSchema> schemas;
+
+   @Value("${mocks.schemas.expire-after-write:300000}")
+   private long expireAfterWrite = 300000L;
+
+   /**
+    * Build a RequestBodySchemaCache with required dependencies.
+    * @param resourceRepository The repository to access resources definitions
+    * @param meterRegistry      The registry where to publish compilation metrics
+    */
+   public RequestBodySchemaCache(ResourceRepository resourceRepository, MeterRegistry meterRegistry) {
+      this.resourceRepository = resourceRepository;
+      this.compilationsCounter = Counter.builder("microcks.mock.schemas.compilations")
+            .description("Number of request body schemas compilations").register(meterRegistry);
+   }
+
+   /** Initialize the cache storage using configured expiration. */
+   @PostConstruct
+   public void initialize() {
+      specifications = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SPECIFICATIONS)
+            .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS).build();
+      schemas = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCHEMAS)
+            .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS).build();
+   }
+
+   /**
+    * Get the OpenAPI or Swagger specification resource of a service.
+    * @param service The service to get specification for
+    * @return The specification resource or null if service has no OpenAPI/Swagger resource.
+    */
+   public Resource getSpecificationResource(Service service) {
+      return getSpecification(service).map(Specification::resource).orElse(null);
+   }
+
+   /**
+    * Get the compiled schema of an operation request body, compiling it only if not already done.
+    * @param service     The service operation belongs to
+    * @param operation   The operation to get request body schema for
+    * @param contentType The short content type of request body
+    * @param namespace   Namespace definition to resolve relative dependencies in schema
+    * @return The compiled schema or null if service has no OpenAPI/Swagger resource.
+    */
+   public CompiledMessageSchema getRequestBodySchema(Service service, Operation operation, String contentType,
+         String namespace) {
+      Specification specification = getSpecification(service).orElse(null);
+      if (specification == null) {
+         return null;
+      }
+      if (specification.content() == null) {
+         return UNPARSABLE_SPECIFICATION_SCHEMA;
+      }
+
+      SchemaKey key = new SchemaKey(service.getId(), operation.getName(), contentType, namespace);
+      CompiledMessageSchema schema = schemas.getIfPresent(key);
+      if (schema == null) {
+         // Errors are kept too: they're returned until service changes or entry expires.
+         schema = compile(specification, operation, contentType, namespace);
+         schemas.put(key, schema);
+      }
+      return schema;
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, evicting its request body schemas", event.getServiceId());
+      specifications.invalidate(event.getServiceId());
+      schemas.asMap().keySet().removeIf(key -> key.serviceId().equals(event.getServiceId()));
+   }
+
+   private Optional<Specification> getSpecification(Service service) {
+      Optional<Specification> specification = specifications.getIfPresent(service.getId());
+      if (specification == null) {
+         specification = findResourceCandidate(service).map(RequestBodySchemaCache::parse);
+         specifications.put(service.getId(), specification);
+      }
+      return specification;
+   }
+
+   private Optional<Resource> findResourceCandidate(Service service) {
+      Optional<Resource> candidate = Optional.empty();
+      // Try resources marked within mainArtifact first.
+      List<Resource> serviceResources = resourceRepository.findMainByServiceId(service.getId());
+      if (!serviceResources.isEmpty()) {
+         candidate = getResourceCandidate(serviceResources);
+      }
+      // Else try all the services resources...
+      if (candidate.isEmpty()) {
+         serviceResources = resourceRepository.findByServiceId(service.getId());
+         if (!serviceResources.isEmpty()) {
+            candidate = getResourceCandidate(serviceResources);
+         }
+      }
+      return candidate;
+   }
+
+   private Optional<Resource> getResourceCandidate(List<Resource> serviceResources) {
+      return serviceResources.stream()
+            .filter(r -> ResourceType.OPEN_API_SPEC.equals(r.getType()) || ResourceType.SWAGGER.equals(r.getType()))
+            .findFirst();
+   }
+
+   private static Specification parse(Resource resource) {
+      try {
+         return new Specification(resource, OpenAPISchemaValidator.getJsonNodeForSchema(resource.getContent()));
+      } catch (IOException ioe) {
+         log.debug("OpenAPI specification cannot be transformed into valid JsonNode schema, so failing");
+         return new Specification(resource, null);
+      }
+   }
+
+   private CompiledMessageSchema compile(Specification specification, Operation operation, String contentType,
+         String namespace) {
+      log.debug("Compiling request body schema of operation {} for {}", operation.getName(), contentType);
+      compilationsCounter.increment();
+
+      // Extract JsonNode corresponding to operation.
+      String verb = operation.getName().split(" ")[0].toLowerCase();
+      String path = operation.getName().split(" ")[1].trim();
+      String jsonPointer = "/paths/" + path.replace("/", "~1") + "/" + verb + "/requestBody";
+
+      try {
+         if (ResourceType.SWAGGER.equals(specification.resource().getType())) {
+            return SwaggerSchemaValidator.compileJsonMessageSchema(specification.content(), jsonPointer, namespace);
+         }
+         return OpenAPISchemaValidator.compileJsonMessageSchema(specification.content(), jsonPointer, contentType,
+               namespace);
+      } catch (RuntimeException re) {
+         log.warn("Request body schema of operation {} cannot be compiled: {}", operation.getName(), re.getMessage());
+         return CompiledMessageSchema.ofErrors(List.of("Request body schema cannot be compiled: " + re.getMessage()));
+      }
+   }
+
+   /** A specification resource with its parsed content. Content is null if resource cannot be parsed. */
+   private record Specification(Resource resource, JsonNode content) {
+   }
+
+   /** The cache key of a compiled request body schema. */
+   private record SchemaKey(String serviceId, String operationName, String contentType, String namespace) {
+   }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Header;
+import io.github.microcks.domain.Response;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResponseRepository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory index of mock responses used by invocation processors to find responses of an operation without a
+ * database round-trip. Responses of an operation are loaded lazily on first access and then indexed by dispatch
+ * criteria, name and media type. Index entries are invalidated using {@code ServiceChangeEvent}, expired after a
+ * configured time to catch up changes done by other replicas, and evicted when memory budget is exceeded. Operations
+ * whose responses are too large to fit in index are remembered as such and served by targeted repository queries.
+ * <p>
+ * Returned lists and responses are shared between invocations and must not be modified by callers.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class ResponseLookupIndex implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(ResponseLookupIndex.class);
+
+   /** Rough estimation of the memory used by a Response, not counting its content and headers. */
+   private static final int RESPONSE_BASE_WEIGHT = 512;
+   /** The number of segments of index storage. An operation cannot weigh more than the budget of one segment. */
+   private static final int CONCURRENCY_LEVEL = 4;
+   /** The maximum number of operations remembered as too large to be indexed. */
+   private static final int MAX_OVERSIZED_OPERATIONS = 10_000;
+
+   private final ResponseRepository responseRepository;
+
+   private final Counter hitsCounter;
+   private final Counter missesCounter;
+
+   /** Tokens of loads in progress by operation, removed on invalidation so that stale loads are not put in index. */
+   private final Map<String, Object> pendingLoads = new ConcurrentHashMap<>();
+
+   private Cache<String, OperationResponses> cache;
+   private Cache<String, Boolean> oversizedOperations;
+   private long maxOperationWeight;
+
+   @Value("${mocks.response-index.enabled:true}")
+   private boolean enabled = true;
+
+   @Value("${mocks.response-index.max-size:64MB}")
+   private String maxSize = "64MB";
+
+   @Value("${mocks.response-index.expire-after-write:60000}")
+   private long expireAfterWrite = 60000L;
+
+   /**
+    * Build a ResponseLookupIndex with required dependencies.
+    * @param responseRepository The repository to access responses definitions
+    * @param meterRegistry      The registry where to publish index metrics
+    */
+   public ResponseLookupIndex(ResponseRepository responseRepository, MeterRegistry meterRegistry) {
+      this.responseRepository = responseRepository;
+      this.hitsCounter = Counter.builder("microcks.mock.responses.lookups").tag("result", "hit")
+            .description("Number of responses lookups served by the index").register(meterRegistry);
+      this.missesCounter = Counter.builder("microcks.mock.responses.lookups").tag("result", "miss")
+            .description("Number of responses lookups that went to the repository").register(meterRegistry);
+   }
+
+   /** Initialize the index storage using configured budget. */
+   @PostConstruct
+   public void initialize() {
+      long maxWeight = DataSize.parse(maxSize).toBytes();
+      log.debug("Initializing responses index with a max size of {} bytes", maxWeight);
+      cache = CacheBuilder.newBuilder().maximumWeight(maxWeight).concurrencyLevel(CONCURRENCY_LEVEL)
+            .weigher((String operationId, OperationResponses responses) -> responses.weight())
+            .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS).build();
+      oversizedOperations = CacheBuilder.newBuilder().maximumSize(MAX_OVERSIZED_OPERATIONS)
+            .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS).build();
+      maxOperationWeight = maxWeight / CONCURRENCY_LEVEL;
+   }
+
+   /**
+    * Find all the responses of an operation.
+    * @param operationId The identifier of operation
+    * @return The list of responses, may be empty.
+    */
+   public List<Response> findByOperationId(String operationId) {
+      OperationResponses responses = getOperationResponses(operationId);
+      if (responses == null) {
+         return responseRepository.findByOperationId(operationId);
+      }
+      return responses.all();
+   }
+
+   /**
+    * Find the responses of an operation having the specified dispatch criteria.
+    * @param operationId      The identifier of operation
+    * @param dispatchCriteria The dispatch criteria of responses (may be null)
+    * @return The list of responses, may be empty.
+    */
+   public List<Response> findByOperationIdAndDispatchCriteria(String operationId, String dispatchCriteria) {
+      OperationResponses responses = getOperationResponses(operationId);
+      if (responses == null) {
+         return responseRepository.findByOperationIdAndDispatchCriteria(operationId, dispatchCriteria);
+      }
+      return responses.byDispatchCriteria().getOrDefault(dispatchCriteria, List.of());
+   }
+
+   /**
+    * Find the responses of an operation having the specified name.
+    * @param operationId The identifier of operation
+    * @param name        The name of responses (may be null)
+    * @return The list of responses, may be empty.
+    */
+   public List<Response> findByOperationIdAndName(String operationId, String name) {
+      OperationResponses responses = getOperationResponses(operationId);
+      if (responses == null) {
+         return responseRepository.findByOperationIdAndName(operationId, name);
+      }
+      return responses.byName().getOrDefault(name, List.of());
+   }
+
+   /**
+    * Find the first response of an operation having the specified media type, defaulting to the first response of
+    * operation if none.
+    * @param operationId The identifier of operation
+    * @param mediaType   The media type of response. If empty, the first response is returned.
+    * @return The found response or null if operation has no responses.
+    */
+   public Response findFirstByOperationIdAndMediaType(String operationId, String mediaType) {
+      OperationResponses responses = getOperationResponses(operationId);
+      if (responses == null) {
+         List<Response> found = responseRepository.findByOperationId(operationId);
+         if (found.isEmpty()) {
+            return null;
+         }
+         return found.stream()
+               .filter(r -> mediaType == null || mediaType.isEmpty() || mediaType.equals(r.getMediaType()))
+               .findFirst().orElse(found.getFirst());
+      }
+      if (responses.all().isEmpty()) {
+         return null;
+      }
+      if (mediaType == null || mediaType.isEmpty()) {
+         return responses.all().getFirst();
+      }
+      return responses.byMediaType().getOrDefault(mediaType, responses.all().getFirst());
+   }
+
+   /**
+    * Invalidate the indexed responses of a single operation so that they are reloaded on next access.
+    * @param operationId The identifier of operation
+    */
+   public void invalidate(String operationId) {
+      pendingLoads.remove(operationId);
+      cache.invalidate(operationId);
+      oversizedOperations.invalidate(operationId);
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, invalidating responses index", event.getServiceId());
+      // Operation identifiers are built by prefixing operation name with service identifier.
+      String operationIdPrefix = event.getServiceId() + "-";
+      pendingLoads.keySet().removeIf(operationId -> operationId.startsWith(operationIdPrefix));
+      cache.asMap().keySet().removeIf(operationId -> operationId.startsWith(operationIdPrefix));
+      oversizedOperations.asMap().keySet().removeIf(operationId -> operationId.startsWith(operationIdPrefix));
+   }
+
+   /**
+    * Get the indexed responses of an operation, loading them if not already done.
+    * @return The responses of operation or null if index is disabled or operation is known as too large to be indexed.
+    */
+   private OperationResponses getOperationResponses(String operationId) {
+      if (!enabled || oversizedOperations.getIfPresent(operationId) != null) {
+         return null;
+      }
+      OperationResponses responses = cache.getIfPresent(operationId);
+      if (responses != null) {
+         hitsCounter.increment();
+         return responses;
+      }
+
+      missesCounter.increment();
+      Object loadToken = new Object();
+      pendingLoads.put(operationId, loadToken);
+      OperationResponses loaded;
+      try {
+         loaded = OperationResponses.of(responseRepository.findByOperationId(operationId));
+      } catch (RuntimeException e) {
+         pendingLoads.remove(operationId, loadToken);
+         throw e;
+      }
+      // Only keep the load if operation has not been invalidated meanwhile. This is done while holding the pending
+      // load so that an invalidation either prevents the put or removes the put entry.
+      pendingLoads.computeIfPresent(operationId, (k, token) -> {
+         if (token != loadToken) {
+            return token;
+         }
+         if (loaded.weight() > maxOperationWeight) {
+            log.debug("Responses of operation {} are too large to be indexed", operationId);
+            oversizedOperations.put(operationId, Boolean.TRUE);
+         } else {
+            cache.put(operationId, loaded);
+         }
+         return null;
+      });
+      return loaded;
+   }
+
+   /**
+    * The indexed responses of an operation. Maps are allowing null keys as responses may have no dispatch criteria or
+    * media type.
+    */
+   private record OperationResponses(List<Response> all, Map<String, List<Response>> byDispatchCriteria,
+         Map<String, List<Response>> byName, Map<String, Response> byMediaType, int weight) {
+
+      static OperationResponses of(List<Response> responses) {
+         Map<String, List<Response>> byDispatchCriteria = new HashMap<>();
+         Map<String, List<Response>> byName = new HashMap<>();
+         Map<String, Response> byMediaType = new HashMap<>();
+         long weight = 0;
+         for (Response response : responses) {
+            byDispatchCriteria.computeIfAbsent(response.getDispatchCriteria(), k -> new ArrayList<>()).add(response);
+            byName.computeIfAbsent(response.getName(), k -> new ArrayList<>()).add(response);
+            byMediaType.putIfAbsent(response.getMediaType(), response);
+            weight += weigh(response);
+         }
+         byDispatchCriteria.replaceAll((k, v) -> Collections.unmodifiableList(v));
+         byName.replaceAll((k, v) -> Collections.unmodifiableList(v));
+         return new OperationResponses(Collections.unmodifiableList(new ArrayList<>(responses)),
+               Collections.unmodifiableMap(byDispatchCriteria), Collections.unmodifiableMap(byName),
+               Collections.unmodifiableMap(byMediaType), (int) Math.min(weight, Integer.MAX_VALUE));
+      }
+
+      private static long weigh(Response response) {
+         long weight = RESPONSE_BASE_WEIGHT;
+         if (response.getContent() != null) {
+            weight += response.getContent().length();
+         }
+         if (response.getHeaders() != null) {
+            for (Header header : response.getHeaders()) {
+               weight += header.getName() != null ? header.getName().length() : 0;
+               if (header.getValues() != null) {
+                  weight += header.getValues().stream().mapToInt(value -> value != null ? value.length() : 0).sum();
+               }
+            }
+         }
+         return weight;
+      }
+   }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.ServiceState;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ServiceStateRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory tier in front of {@code ServiceStateRepository} used by the state stores of stateful mocks.
+ * <p>
+ * In {@code write-through} mode (the default), every read and write goes to the repository so that several replicas
+ * can share the same database.
+ * <p>
+ * In {@code write-behind} mode, states are read from memory and written to memory first; writes are
+ * then periodically flushed to the repository within a single bulk operation. Keys are loaded from the repository on
+ * first access and keys known as missing are also kept for a short time. Entries are removed from memory once expired
+ * using an expiry wheel: keys are indexed by the second they expire at so that only due keys are checked.
+ * This mode must only be enabled when a single replica is using the database as memory is not shared by replicas.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class ServiceStateCache implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(ServiceStateCache.class);
+
+   /** The mode where states are kept in memory and flushed to repository afterwards. */
+   public static final String WRITE_BEHIND_MODE = "write-behind";
+   /** The mode where states are always read from and written to repository. */
+   public static final String WRITE_THROUGH_MODE = "write-through";
+
+   /** Duration in milliseconds a key is known as missing before being looked up again. */
+   private static final long MISSING_KEY_TTL = 10_000L;
+   /** Duration in milliseconds of an expiry wheel slot. */
+   private static final long WHEEL_SLOT_DURATION = 1000L;
+
+   private final ServiceStateRepository repository;
+
+   /** The known states. A null value means the key is missing or has been deleted. */
+   private final Map<StateKey, StateEntry> entries = new ConcurrentHashMap<>();
+   /** The states written or deleted since last flush. */
+   private final Map<StateKey, StateEntry> pendingWrites = new ConcurrentHashMap<>();
+   /** The keys indexed by expiry wheel slot. */
+   private final Map<Long, Set<StateKey>> expiryWheel = new ConcurrentHashMap<>();
+   private volatile long lastExpiredSlot = System.currentTimeMillis() / WHEEL_SLOT_DURATION;
+
+   private ScheduledExecutorService scheduler;
+
+   @Value("${mocks.state-store.mode:write-through}")
+   private String mode = WRITE_THROUGH_MODE;
+
+   @Value("${mocks.state-store.flush-interval:500}")
+   private long flushInterval = 500L;
+
+   /**
+    * Build a ServiceStateCache with required dependencies.
+    * @param repository The repository used for persisting states
+    */
+   public ServiceStateCache(ServiceStateRepository repository) {
+      this.repository = repository;
+   }
+
+   /** Start flushing writes and expiring entries if in write-behind mode. */
+   @PostConstruct
+   public void initialize() {
+      if (isWriteBehind()) {
+         log.debug("Initializing service states cache with a flush interval of {} ms", flushInterval);
+         scheduler = Executors.newSingleThreadScheduledExecutor();
+         scheduler.scheduleWithFixedDelay(() -> {
+            flush();
+            expireEntries(System.currentTimeMillis());
+         }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   /**
+    * Get a state store scoped to a Service.
+    * @param serviceId The ID of Service to get a state store for
+    * @return A state store using this cache
+    */
+   public StateStore getStateStore(String serviceId) {
+      return new ServiceStateStore(this, serviceId);
+   }
+
+   /**
+    * Get the value of a Service state.
+    * @param serviceId The ID of Service holding state
+    * @param key       The key of state
+    * @return The value of state or null if missing or expired.
+    */
+   @Nullable
+   public String get(String serviceId, String key) {
+      long now = System.currentTimeMillis();
+      if (!isWriteBehind()) {
+         ServiceState state = repository.findByServiceIdAndKey(serviceId, key);
+         return state != null && state.getExpireAt().getTime() > now ? state.getValue() : null;
+      }
+
+      StateKey stateKey = new StateKey(serviceId, key);
+      StateEntry entry = entries.get(stateKey);
+      if (entry == null || entry.expireAt() <= now) {
+         entry = load(stateKey, now);
+      }
+      return entry.expireAt() > now ? entry.value() : null;
+   }
+
+   /**
+    * Put the value of a Service state.
+    * @param serviceId  The ID of Service holding state
+    * @param key        The key of state
+    * @param value      The value of state
+    * @param secondsTTL The time to live of state in seconds
+    */
+   public void put(String serviceId, String key, String value, int secondsTTL) {
+      StateKey stateKey = new StateKey(serviceId, key);
+      StateEntry entry = new StateEntry(value, System.currentTimeMillis() + secondsTTL * 1000L);
+      if (!isWriteBehind()) {
+         repository.writeStates(List.of(toServiceState(stateKey, entry)), List.of());
+         return;
+      }
+      write(stateKey, entry);
+   }
+
+   /**
+    * Delete a Service state.
+    * @param serviceId The ID of Service holding state
+    * @param key       The key of state
+    */
+   public void delete(String serviceId, String key) {
+      StateKey stateKey = new StateKey(serviceId, key);
+      StateEntry entry = new StateEntry(null, System.currentTimeMillis() + MISSING_KEY_TTL);
+      if (!isWriteBehind()) {
+         repository.writeStates(List.of(), List.of(toServiceState(stateKey, entry)));
+         return;
+      }
+      write(stateKey, entry);
+   }
+
+   /**
+    * Flush the pending writes to the repository within a single bulk operation. Writes that cannot be flushed are kept
+    * for next flush unless they have been overwritten in the meantime.
+    */
+   public synchronized void flush() {
+      if (pendingWrites.isEmpty()) {
+         return;
+      }
+      long now = System.currentTimeMillis();
+      Map<StateKey, StateEntry> flushed = new HashMap<>();
+      List<ServiceState> updates = new ArrayList<>();
+      List<ServiceState> deletions = new ArrayList<>();
+      for (StateKey stateKey : pendingWrites.keySet()) {
+         StateEntry entry = pendingWrites.remove(stateKey);
+         if (entry != null) {
+            flushed.put(stateKey, entry);
+            // Expired states are deleted so that a previous value cannot be loaded again.
+            if (entry.value() != null && entry.expireAt() > now) {
+               updates.add(toServiceState(stateKey, entry));
+            } else {
+               deletions.add(toServiceState(stateKey, entry));
+            }
+         }
+      }
+      try {
+         repository.writeStates(updates, deletions);
+         log.debug("Flushed {} service states updates and {} deletions", updates.size(), deletions.size());
+      } catch (Exception e) {
+         log.error("Failed to flush {} service states, keeping them for next flush", flushed.size(), e);
+         flushed.forEach(pendingWrites::putIfAbsent);
+      }
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      if (event.getChangeType() == ChangeType.DELETED) {
+         log.debug("Received a ServiceChangeEvent on deleted {}, removing its states", event.getServiceId());
+         entries.keySet().removeIf(stateKey -> stateKey.serviceId().equals(event.getServiceId()));
+         // Pending writes must not be flushed after the states of service have been removed from repository.
+         pendingWrites.keySet().removeIf(stateKey -> stateKey.serviceId().equals(event.getServiceId()));
+      }
+   }
+
+   /** Flush the remaining writes when the application context is closed. */
+   @PreDestroy
+   public void shutdown() {
+      if (scheduler != null) {
+         scheduler.shutdown();
+      }
+      flush();
+   }
+
+   /** Remove the entries of elapsed expiry wheel slots that are actually expired at {@code now}. */
+   void expireEntries(long now) {
+      long currentSlot = now / WHEEL_SLOT_DURATION;
+      for (long slot = lastExpiredSlot + 1; slot <= currentSlot; slot++) {
+         Set<StateKey> stateKeys = expiryWheel.remove(slot);
+         if (stateKeys != null) {
+            // Keys may have been written again with a later expiration since they were put in this slot.
+            stateKeys.forEach(
+                  stateKey -> entries.computeIfPresent(stateKey, (k, entry) -> entry.expireAt() <= now ? null : entry));
+         }
+      }
+      lastExpiredSlot = currentSlot;
+   }
+
+   /** @return The number of states currently held in memory. */
+   int size() {
+      return entries.size();
+   }
+
+   private boolean isWriteBehind() {
+      return WRITE_BEHIND_MODE.equals(mode);
+   }
+
+   private void write(StateKey stateKey, StateEntry entry) {
+      entries.put(stateKey, entry);
+      pendingWrites.put(stateKey, entry);
+      scheduleExpiry(stateKey, entry.expireAt());
+   }
+
+   private StateEntry load(StateKey stateKey, long now) {
+      // A pending write is more recent than what the repository holds.
+      StateEntry pending = pendingWrites.get(stateKey);
+      if (pending != null) {
+         return pending;
+      }
+      ServiceState state = repository.findByServiceIdAndKey(stateKey.serviceId(), stateKey.key());
+      StateEntry loaded = state != null && state.getExpireAt().getTime() > now
+            ? new StateEntry(state.getValue(), state.getExpireAt().getTime())
+            : new StateEntry(null, now + MISSING_KEY_TTL);
+
+      // Keep an entry that may have been written while loading.
+      StateEntry entry = entries.compute(stateKey,
+            (k, current) -> current != null && current.expireAt() > now ? current : loaded);
+      if (entry == loaded) {
+         scheduleExpiry(stateKey, loaded.expireAt());
+      }
+      return entry;
+   }
+
+   private void scheduleExpiry(StateKey stateKey, long expireAt) {
+      // Keys expiring in an elapsed slot are put in the next slot to be checked.
+      long slot = Math.max(expireAt / WHEEL_SLOT_DURATION + 1, lastExpiredSlot + 1);
+      expiryWheel.computeIfAbsent(slot, s -> ConcurrentHashMap.newKeySet()).add(stateKey);
+   }
+
+   private static ServiceState toServiceState(StateKey stateKey, StateEntry entry) {
+      ServiceState state = new ServiceState(stateKey.serviceId(), stateKey.key());
+      state.setValue(entry.value());
+      state.setExpireAt(new Date(entry.expireAt()));
+      return state;
+   }
+
+   /** The identifier of a state within the cache. */
+   private record StateKey(String serviceId, String key) {
+   }
+
+   /** The value of a state and its expiration timestamp in milliseconds. */
+   private record StateEntry(String value, long expireAt) {
+   }
+}
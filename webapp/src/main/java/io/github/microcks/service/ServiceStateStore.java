@@ -24,7 +24,7 @@ import java.util.Date;
 
 /**
  * An implementation of {@code StateStore} scoped to Service, that uses a MongoDB repository with a collection having
- * some Time To Live indices.
+ * some Time To Live indices. Store may access repository directly or through a {@code ServiceStateCache} tier.
  * @author laurent
  */
 public class ServiceStateStore implements StateStore {
@@ -32,6 +32,7 @@ public class ServiceStateStore implements StateStore {
    private static final int DEFAULT_SECONDS_TTL = 10;
 
    private final ServiceStateRepository repository;
+   private final ServiceStateCache stateCache;
    private final String serviceId;
 
    /**
@@ -41,6 +42,18 @@ public class ServiceStateStore implements StateStore {
     */
    public ServiceStateStore(ServiceStateRepository repository, String serviceId) {
       this.repository = repository;
+      this.stateCache = null;
+      this.serviceId = serviceId;
+   }
+
+   /**
+    * Build a ServiceStateStore using an in-memory tier.
+    * @param stateCache The cache tier to use for reading and writing states
+    * @param serviceId  The ID of Service this state store will be scoped to
+    */
+   public ServiceStateStore(ServiceStateCache stateCache, String serviceId) {
+      this.repository = null;
+      this.stateCache = stateCache;
       this.serviceId = serviceId;
    }
 
@@ -49,6 +62,10 @@ public class ServiceStateStore implements StateStore {
    }
 
    public void put(String key, String value, int secondsTTL) {
+      if (stateCache != null) {
+         stateCache.put(serviceId, key, value, secondsTTL);
+         return;
+      }
       ServiceState state = repository.findByServiceIdAndKey(serviceId, key);
       if (state == null) {
          state = new ServiceState(serviceId, key);
@@ -60,6 +77,9 @@ public class ServiceStateStore implements StateStore {
 
    @Nullable
    public String get(String key) {
+      if (stateCache != null) {
+         return stateCache.get(serviceId, key);
+      }
       ServiceState state = repository.findByServiceIdAndKey(serviceId, key);
       if (state != null) {
          return state.getValue();
@@ -68,6 +88,10 @@ public class ServiceStateStore implements StateStore {
    }
 
    public void delete(String key) {
+      if (stateCache != null) {
+         stateCache.delete(serviceId, key);
+         return;
+      }
       ServiceState state = repository.findByServiceIdAndKey(serviceId, key);
       if (state != null) {
          repository.delete(state);
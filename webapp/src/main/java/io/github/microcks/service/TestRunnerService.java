@@ -96,6 +96,7 @@ public class TestRunnerService {
    private final ResponseRepository responseRepository;
    private final TestResultRepository testResultRepository;
    private final SecretRepository secretRepository;
+   private final GraphQLSchemaCache graphQLSchemaCache;
    private final ApplicationContext applicationContext;
 
    @Value("${tests-callback.url}")
@@ -117,16 +118,19 @@ public class TestRunnerService {
     * @param responseRepository   The repository to manage persistent responses
     * @param testResultRepository The repository to manage persistent testResults
     * @param secretRepository     The repository to manage persistent secrets
+    * @param graphQLSchemaCache   The cache of compiled GraphQL schemas
     * @param applicationContext   The Spring application context
     */
    public TestRunnerService(ResourceRepository resourceRepository, RequestRepository requestRepository,
          ResponseRepository responseRepository, TestResultRepository testResultRepository,
-         SecretRepository secretRepository, ApplicationContext applicationContext) {
+         SecretRepository secretRepository, GraphQLSchemaCache graphQLSchemaCache,
+         ApplicationContext applicationContext) {
       this.resourceRepository = resourceRepository;
       this.requestRepository = requestRepository;
       this.responseRepository = responseRepository;
       this.testResultRepository = testResultRepository;
       this.secretRepository = secretRepository;
+      this.graphQLSchemaCache = graphQLSchemaCache;
       this.applicationContext = applicationContext;
    }
 
@@ -406,7 +410,7 @@ public class TestRunnerService {
             grpcRunner.setTimeout(runnerTimeout);
             return grpcRunner;
          case GRAPHQL_SCHEMA:
-            GraphQLTestRunner graphqlRunner = new GraphQLTestRunner(resourceRepository);
+            GraphQLTestRunner graphqlRunner = new GraphQLTestRunner(graphQLSchemaCache);
             graphqlRunner.setClientHttpRequestFactory(factory);
             graphqlRunner.setSecret(secret);
             return graphqlRunner;
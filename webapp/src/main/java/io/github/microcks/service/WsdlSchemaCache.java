@@ -0,0 +1,100 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+import io.github.microcks.util.soap.SoapMessageValidator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of the WSDL types schemas used for validating SOAP mock requests. Finding the WSDL resource of a service,
+ * extracting its types schema and compiling it are done once; the compiled schema (or its compilation error) is then
+ * reused across invocations. Entries of a service are evicted on {@code ServiceChangeEvent}; they are also expired
+ * after a configured time to catch up changes done by other replicas.
+ * @author agent
+ */
+@org.springframework.stereotype.Service
+public class WsdlSchemaCache implements ApplicationListener<ServiceChangeEvent> {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(WsdlSchemaCache.class);
+
+   /** The maximum number of compiled schemas we keep in cache. */
+   private static final int MAX_CACHED_SCHEMAS = 500;
+
+   private final ResourceRepository resourceRepository;
+
+   private Cache<String, SoapMessageValidator.TypesSchema> schemas;
+
+   @Value("${mocks.soap.schemas.expire-after-write:300000}")
+   private long expireAfterWrite = 300000L;
+
+   @Value("${validation.resourceUrl}")
+   private String resourceUrl;
+
+   /**
+    * Build a WsdlSchemaCache with required dependencies.
+    * @param resourceRepository The repository to access resources definitions
+    */
+   public WsdlSchemaCache(ResourceRepository resourceRepository) {
+      this.resourceRepository = resourceRepository;
+   }
+
+   /** Initialize the cache storage using configured expiration. */
+   @PostConstruct
+   public void initialize() {
+      log.debug("Initializing WSDL schemas cache with an expiration of {} ms", expireAfterWrite);
+      schemas = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCHEMAS)
+            .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS).build();
+   }
+
+   /**
+    * Get the compiled types schema of the WSDL of a service, compiling it only if not already done.
+    * @param serviceId The identifier of service to get schema for
+    * @return The compiled types schema or null if service has no WSDL resource.
+    */
+   public SoapMessageValidator.TypesSchema getTypesSchema(String serviceId) {
+      return schemas.asMap().computeIfAbsent(serviceId, this::compile);
+   }
+
+   @Override
+   public void onApplicationEvent(ServiceChangeEvent event) {
+      log.debug("Received a ServiceChangeEvent on {}, evicting its WSDL schema", event.getServiceId());
+      schemas.invalidate(event.getServiceId());
+   }
+
+   private SoapMessageValidator.TypesSchema compile(String serviceId) {
+      List<Resource> resources = resourceRepository.findByServiceIdAndType(serviceId, ResourceType.WSDL);
+      if (resources.isEmpty()) {
+         return null;
+      }
+      log.debug("Compiling WSDL types schema of service {}", serviceId);
+      return SoapMessageValidator.compileTypesSchema(resources.get(0).getContent(), resourceUrl);
+   }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A URI pattern (containing variable parts within '{}' or prefixed with ':') that has been compiled once for being
+ * projected many times onto real instantiated URIs. Compiled patterns are kept into a bounded cache as there's usually
+ * a limited number of them (one per operation).
+ * @author agent
+ */
+public class CompiledURIPattern {
+
+   private static final String CURLY_PART_PATTERN = "(\\{[^\\}]+\\})";
+   private static final String CURLY_PART_EXTRACTION_PATTERN = "\\\\{(.+)\\\\}";
+
+   /** The maximum number of compiled patterns we keep in cache. */
+   private static final int MAX_CACHED_PATTERNS = 2048;
+
+   private static final Cache<String, CompiledURIPattern> cache = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_PATTERNS).build();
+
+   private final List<String> parameterNames;
+   private final Pattern valuesPattern;
+
+   private CompiledURIPattern(List<String> parameterNames, Pattern valuesPattern) {
+      this.parameterNames = parameterNames;
+      this.valuesPattern = valuesPattern;
+   }
+
+   /**
+    * Get the compiled form of a URI pattern, compiling it if not already in cache.
+    * @param pattern The URI pattern containing variables parts ({} or :)
+    * @return The compiled URI pattern
+    */
+   public static CompiledURIPattern compile(String pattern) {
+      return cache.asMap().computeIfAbsent(pattern, CompiledURIPattern::doCompile);
+   }
+
+   /** @return The names of the variable parts of this pattern, in order of appearance */
+   public List<String> getParameterNames() {
+      return parameterNames;
+   }
+
+   /**
+    * Extract a map of parameters from this pattern, projected onto a real instantiated URI.
+    * @param realURI The real URI that should match pattern.
+    * @return A map of parameters extracted from the URI. Empty if URI is not matching the pattern.
+    */
+   public Map<String, String> extractParameters(String realURI) {
+      Map<String, String> parametersMap = new TreeMap<>();
+      Matcher valuesM = valuesPattern.matcher(sanitizeURLForRegExp(realURI));
+
+      // Should match and have the same group count.
+      if (valuesM.matches() && valuesM.groupCount() == parameterNames.size()) {
+         for (int i = 0; i < parameterNames.size(); i++) {
+            parametersMap.put(parameterNames.get(i), valuesM.group(i + 1));
+         }
+      }
+      return parametersMap;
+   }
+
+   private static CompiledURIPattern doCompile(String pattern) {
+      pattern = sanitizeURLForRegExp(pattern);
+
+      // Build a pattern for extracting parts from pattern and a pattern for extracting values
+      // from realURI. Supporting both {id} and :id.
+      String partsPattern = null;
+      String valuesPattern = null;
+      if (pattern.contains("/{")) {
+         partsPattern = pattern.replaceAll(CURLY_PART_PATTERN, CURLY_PART_EXTRACTION_PATTERN);
+         valuesPattern = pattern.replaceAll(CURLY_PART_PATTERN, "(.+)");
+      } else {
+         partsPattern = pattern.replaceAll("(:[^:^/]+)", "\\:(.+)");
+         valuesPattern = pattern.replaceAll("(:[^:^/]+)", "(.+)");
+      }
+      if (pattern.contains("$")) {
+         partsPattern = partsPattern.replace("$", "\\$");
+         valuesPattern = valuesPattern.replace("$", "\\$");
+      }
+
+      // Parameter names are extracted once from the pattern itself.
+      List<String> parameterNames = new ArrayList<>();
+      Matcher partsM = Pattern.compile(partsPattern).matcher(pattern);
+      if (partsM.matches()) {
+         for (int i = 1; i < partsM.groupCount() + 1; i++) {
+            parameterNames.add(partsM.group(i));
+         }
+      }
+      return new CompiledURIPattern(Collections.unmodifiableList(parameterNames), Pattern.compile(valuesPattern));
+   }
+
+   private static String sanitizeURLForRegExp(String url) {
+      return url.replace("+", " ");
+   }
+}
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -292,7 +293,19 @@ public class DispatchCriteriaHelper {
     * @return A string representing dispatch criteria for the corresponding incoming request.
     */
    public static String extractFromURIPattern(String paramsRuleString, String pattern, String realURI) {
-      Map<String, String> criteriaMap = extractMapFromURIPattern(paramsRuleString, pattern, realURI);
+      return extractFromURIPattern(parseURIPartsRule(paramsRuleString), pattern, realURI);
+   }
+
+   /**
+    * Extract and build a dispatch criteria string from URI pattern (containing variable parts within {} or prefixed
+    * with :), projected onto a real instanciated URI.
+    * @param paramsRule The names of parameters to consider, as parsed by {@code parseURIPartsRule()}
+    * @param pattern    The URI pattern containing variables parts ({})
+    * @param realURI    The real URI that should match pattern.
+    * @return A string representing dispatch criteria for the corresponding incoming request.
+    */
+   public static String extractFromURIPattern(Set<String> paramsRule, String pattern, String realURI) {
+      Map<String, String> criteriaMap = extractMapFromURIPattern(paramsRule, pattern, realURI);
 
       // Just appends sorted entries, separating them with /.
       StringBuilder result = new StringBuilder();
@@ -313,14 +326,19 @@ public class DispatchCriteriaHelper {
     * @see #extractMapFromURIPattern(String, String)
     */
    public static Map<String, String> extractMapFromURIPattern(String paramsRuleString, String pattern, String realURI) {
-      // Rule string can be a URI_ELEMENT rule and containers ?? elements.
-      // We must remove them before parsing the URI parts.
-      if (paramsRuleString.contains("??")) {
-         paramsRuleString = paramsRuleString.split("\\?\\?")[0];
-      }
-      final var paramsRule = Arrays.stream(paramsRuleString.split("&&")).map(String::trim).distinct()
-            .collect(Collectors.toUnmodifiableSet());
+      return extractMapFromURIPattern(parseURIPartsRule(paramsRuleString), pattern, realURI);
+   }
 
+   /**
+    * Extract a map of parameters from URI pattern (containing variable parts within '{}' or prefixed with ':'),
+    * projected onto a real instantiated URI. The extracted map only contains values for parameters in
+    * {@code paramsRule}.
+    * @param paramsRule The names of parameters to consider, as parsed by {@code parseURIPartsRule()}
+    * @param pattern    The URI pattern containing variables parts ({})
+    * @param realURI    The real URI that should match pattern.
+    * @return A map of parameters extracted from the URI for the corresponding incoming request.
+    */
+   public static Map<String, String> extractMapFromURIPattern(Set<String> paramsRule, String pattern, String realURI) {
       // Ensure realURI does not contain query string.
       if (realURI.contains("?")) {
          realURI = realURI.substring(0, realURI.indexOf('?'));
@@ -341,40 +359,22 @@ public class DispatchCriteriaHelper {
     * @see #extractMapFromURIPattern(String, String, String)
     */
    public static Map<String, String> extractMapFromURIPattern(String pattern, String realURI) {
-      Map<String, String> criteriaMap = new TreeMap<>();
-      pattern = sanitizeURLForRegExp(pattern);
-      realURI = sanitizeURLForRegExp(realURI);
+      return CompiledURIPattern.compile(pattern).extractParameters(realURI);
+   }
 
-      // Build a pattern for extracting parts from pattern and a pattern for extracting values
-      // from realURI. Supporting both {id} and :id.
-      String partsPattern = null;
-      String valuesPattern = null;
-      if (pattern.contains("/{")) {
-         partsPattern = pattern.replaceAll(CURLY_PART_PATTERN, CURLY_PART_EXTRACTION_PATTERN);
-         valuesPattern = pattern.replaceAll(CURLY_PART_PATTERN, "(.+)");
-      } else {
-         partsPattern = pattern.replaceAll("(:[^:^/]+)", "\\:(.+)");
-         valuesPattern = pattern.replaceAll("(:[^:^/]+)", "(.+)");
-      }
-      if (pattern.contains("$")) {
-         partsPattern = partsPattern.replace("$", "\\$");
-         valuesPattern = valuesPattern.replace("$", "\\$");
-      }
-      Pattern partsP = Pattern.compile(partsPattern);
-      Matcher partsM = partsP.matcher(pattern);
-
-      Pattern valuesP = Pattern.compile(valuesPattern);
-      Matcher valuesM = valuesP.matcher(realURI);
-
-      // Both should match and have the same group count.
-      if (valuesM.matches() && partsM.matches() && valuesM.groupCount() == partsM.groupCount()) {
-         for (int i = 1; i < partsM.groupCount() + 1; i++) {
-            final String paramName = partsM.group(i);
-            final String paramValue = valuesM.group(i);
-            criteriaMap.put(paramName, paramValue);
-         }
+   /**
+    * Parse the dispatch rules of a URI parts based dispatcher into the set of referenced parameters names.
+    * @param paramsRuleString The dispatch rules referencing parameters to consider
+    * @return An unmodifiable set of parameters names
+    */
+   public static Set<String> parseURIPartsRule(String paramsRuleString) {
+      // Rule string can be a URI_ELEMENT rule and containers ?? elements.
+      // We must remove them before parsing the URI parts.
+      if (paramsRuleString.contains("??")) {
+         paramsRuleString = paramsRuleString.split("\\?\\?")[0];
       }
-      return criteriaMap;
+      return Arrays.stream(paramsRuleString.split("&&")).map(String::trim).distinct()
+            .collect(Collectors.toUnmodifiableSet());
    }
 
    /**
@@ -467,16 +467,17 @@ public class DispatchCriteriaHelper {
     * @return A string representing a dispatch criteria for the corresponding incoming request.
     */
    public static String extractFromURIParams(String paramsRule, String uri) {
-      Multimap<String, String> criteriaMap = extractMapFromURIParams(paramsRule, uri);
+      return extractFromURIParams(paramsRule::contains, uri);
+   }
 
-      // Just appends sorted entries, separating them with ?.
-      StringBuilder result = new StringBuilder();
-      for (Map.Entry<String, String> criteria : criteriaMap.entries()) {
-         if (paramsRule.contains(criteria.getKey())) {
-            result.append("?").append(criteria.getKey()).append("=").append(criteria.getValue());
-         }
-      }
-      return result.toString();
+   /**
+    * Extract and build a dispatch criteria string from URI parameters
+    * @param paramsRule The names of parameters to consider, as parsed by {@code parseParamsRule()}
+    * @param uri        The URI from which we should build a specific dispatch criteria
+    * @return A string representing a dispatch criteria for the corresponding incoming request.
+    */
+   public static String extractFromURIParams(Set<String> paramsRule, String uri) {
+      return extractFromURIParams(paramsRule::contains, uri);
    }
 
    /**
@@ -486,6 +487,53 @@ public class DispatchCriteriaHelper {
     * @return A map of parameters extracted from the URI for the corresponding incoming request.
     */
    public static Multimap<String, String> extractMapFromURIParams(String paramsRule, String uri) {
+      return extractMapFromURIParams(paramsRule::contains, uri);
+   }
+
+   /**
+    * Extract and build a dispatch criteria string from URI parameters already stored into a Map.
+    * @param paramsRule The dispatch rules referencing parameters to consider
+    * @param paramMap   The URI fetched params from which we should build a specific dispatch criteria
+    * @return A string representing a dispatch criteria for the corresponding incoming request.
+    */
+   public static String extractFromParamMap(String paramsRule, Map<String, String> paramMap) {
+      return extractFromParamMap(paramsRule::contains, paramMap);
+   }
+
+   /**
+    * Extract and build a dispatch criteria string from parameters already stored into a Map.
+    * @param paramsRule The names of parameters to consider, as parsed by {@code parseParamsRule()}
+    * @param paramMap   The fetched params from which we should build a specific dispatch criteria
+    * @return A string representing a dispatch criteria for the corresponding incoming request.
+    */
+   public static String extractFromParamMap(Set<String> paramsRule, Map<String, String> paramMap) {
+      return extractFromParamMap(paramsRule::contains, paramMap);
+   }
+
+   /**
+    * Parse the names of parameters referenced by URI_PARAMS, URI_ELEMENTS, QUERY_ARGS or QUERY_HEADER rules, so that
+    * rules can be applied to many requests without looking into the rules string.
+    * @param paramsRuleString The dispatch rules referencing parameters to consider
+    * @return The set of referenced parameters names
+    */
+   public static Set<String> parseParamsRule(String paramsRuleString) {
+      // Names may be separated by && or ?? (for URI_ELEMENTS) and prefixed by ?.
+      return Arrays.stream(paramsRuleString.split("&&|\\?|\\s+")).filter(name -> !name.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+   }
+
+   private static String extractFromURIParams(Predicate<String> isReferenced, String uri) {
+      Multimap<String, String> criteriaMap = extractMapFromURIParams(isReferenced, uri);
+
+      // Just appends sorted entries, separating them with ?.
+      StringBuilder result = new StringBuilder();
+      for (Map.Entry<String, String> criteria : criteriaMap.entries()) {
+         result.append("?").append(criteria.getKey()).append("=").append(criteria.getValue());
+      }
+      return result.toString();
+   }
+
+   private static Multimap<String, String> extractMapFromURIParams(Predicate<String> isReferenced, String uri) {
       Multimap<String, String> criteriaMap = TreeMultimap.create();
 
       if (uri.contains("?") && uri.contains("=")) {
@@ -496,7 +544,7 @@ public class DispatchCriteriaHelper {
             if (pair.length > 1) {
                String key = URLDecoder.decode(pair[0], StandardCharsets.UTF_8);
                String value = URLDecoder.decode(pair[1], StandardCharsets.UTF_8);
-               if (paramsRule.contains(key)) {
+               if (isReferenced.test(key)) {
                   criteriaMap.put(key, value);
                }
             }
@@ -505,18 +553,12 @@ public class DispatchCriteriaHelper {
       return criteriaMap;
    }
 
-   /**
-    * Extract and build a dispatch criteria string from URI parameters already stored into a Map.
-    * @param paramsRule The dispatch rules referencing parameters to consider
-    * @param paramMap   The URI fetched params from which we should build a specific dispatch criteria
-    * @return A string representing a dispatch criteria for the corresponding incoming request.
-    */
-   public static String extractFromParamMap(String paramsRule, Map<String, String> paramMap) {
+   private static String extractFromParamMap(Predicate<String> isReferenced, Map<String, String> paramMap) {
       Set<String> sortedKeys = paramMap.keySet().stream().sorted().collect(Collectors.toSet());
 
       StringBuilder result = new StringBuilder();
       for (String param : sortedKeys) {
-         if (paramsRule.contains(param)) {
+         if (isReferenced.test(param)) {
             result.append("?").append(param).append("=").append(paramMap.get(param));
          }
       }
@@ -558,8 +600,4 @@ public class DispatchCriteriaHelper {
 
    public record DispatcherDetails(String rootDispatcher, String rootDispatcherRules) {
    }
-
-   private static String sanitizeURLForRegExp(String url) {
-      return url.replace("+", " ");
-   }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A per-service index of REST operations allowing to resolve the operation matching an incoming request without
+ * evaluating every operation path pattern. Exact resource paths are indexed into hash maps and operation path templates
+ * are compiled into a segment trie (one per Http method) where literal segments are preferred to variable ones.
+ * <p>
+ * When many operations are matching, the first one in service definition order is returned so that resolution stays
+ * consistent with a sequential scan of the operations. A trie is immutable once built and is bound to the Service
+ * instance it was built from.
+ * @author agent
+ */
+public class OperationPathTrie {
+
+   /** Regular expression for variable parts expressed within '{}' in a segment. */
+   private static final Pattern CURLY_PART_PATTERN = Pattern.compile("\\{[\\w-]+\\}");
+   /** Regular expression for a variable part starting a segment with ':'. */
+   private static final Pattern COLON_PART_PATTERN = Pattern.compile("^:[^:^/]+");
+
+   private static final String[] HTTP_VERBS = { "GET ", "POST ", "PUT ", "DELETE ", "PATCH ", "OPTIONS " };
+
+   private final Service service;
+   private final Map<String, Route> routesByResourcePath = new HashMap<>();
+   private final Map<String, Route> routesByName = new HashMap<>();
+   private final Map<String, Node> rootsByMethod = new HashMap<>();
+
+   private OperationPathTrie(Service service) {
+      this.service = service;
+   }
+
+   /**
+    * Build the trie for the REST operations of a Service.
+    * @param service The service to index operations for
+    * @return The built OperationPathTrie
+    */
+   public static OperationPathTrie build(Service service) {
+      OperationPathTrie trie = new OperationPathTrie(service);
+      List<Operation> operations = service.getOperations();
+      for (int i = 0; i < operations.size(); i++) {
+         trie.addOperation(new Route(i, operations.get(i)));
+      }
+      return trie;
+   }
+
+   /** @return The Service instance this trie was built from */
+   public Service getService() {
+      return service;
+   }
+
+   /**
+    * Find an operation having an exact resource path matching the one of request, or having a name made of the verb
+    * and the resource path.
+    * @param method              The Http method of request
+    * @param resourcePath        The resource path of request
+    * @param trimmedResourcePath The resource path of request without trailing '/'
+    * @return The first matching operation or null if none.
+    */
+   public Operation findOperationByResourcePath(String method, String resourcePath, String trimmedResourcePath) {
+      Route best = routesByResourcePath.get(buildRouteKey(method, resourcePath));
+      best = first(best, routesByResourcePath.get(buildRouteKey(method, trimmedResourcePath)));
+      best = first(best, routesByName.get(buildRouteKey(method, resourcePath)));
+      return best != null ? best.operation() : null;
+   }
+
+   /**
+    * Find an operation whose path pattern (with {part} and :part variables) is matching the resource path.
+    * @param method       The Http method of request
+    * @param resourcePath The resource path of request
+    * @return The first matching operation or null if none.
+    */
+   public Operation findOperationByPathPattern(String method, String resourcePath) {
+      Node root = rootsByMethod.get(method);
+      if (root == null) {
+         return null;
+      }
+      Route best = root.find(resourcePath.split("/", -1), 0);
+      return best != null ? best.operation() : null;
+   }
+
+   private void addOperation(Route route) {
+      Operation operation = route.operation();
+      if (operation.getMethod() != null && operation.getResourcePaths() != null) {
+         for (String resourcePath : operation.getResourcePaths()) {
+            routesByResourcePath.putIfAbsent(buildRouteKey(operation.getMethod(), resourcePath), route);
+         }
+         // Now register the operation path template into the trie.
+         Node node = rootsByMethod.computeIfAbsent(operation.getMethod(), method -> new Node());
+         for (String segment : getURIPattern(operation.getName()).split("/", -1)) {
+            node = node.child(segment);
+         }
+         if (node.route == null) {
+            node.route = route;
+         }
+      }
+      if (operation.getName() != null) {
+         routesByName.putIfAbsent(operation.getName(), route);
+      }
+   }
+
+   /** Retrieve URI Pattern from operation name (remove starting verb name). */
+   private static String getURIPattern(String operationName) {
+      for (String verb : HTTP_VERBS) {
+         if (operationName.startsWith(verb)) {
+            return operationName.substring(verb.length());
+         }
+      }
+      return operationName;
+   }
+
+   private static String buildRouteKey(String method, String resourcePath) {
+      return method + " " + resourcePath;
+   }
+
+   /** Return the route coming first in operations order, accepting null values. */
+   private static Route first(Route route1, Route route2) {
+      if (route1 == null) {
+         return route2;
+      }
+      if (route2 == null) {
+         return route1;
+      }
+      return route1.index() <= route2.index() ? route1 : route2;
+   }
+
+   /** An operation with its position within service operations. */
+   private record Route(int index, Operation operation) {
+   }
+
+   /** A node of the trie, representing a path segment. */
+   private static class Node {
+      private final Map<String, Node> literalChildren = new HashMap<>();
+      private final List<PatternChild> patternChildren = new ArrayList<>();
+      private Node wildcardChild;
+      private Route route;
+
+      /** Get or create the child node for a pattern segment. */
+      Node child(String segment) {
+         String colonPart = null;
+         Matcher colonMatcher = COLON_PART_PATTERN.matcher(segment);
+         if (colonMatcher.find()) {
+            colonPart = colonMatcher.group();
+         }
+         Matcher curlyMatcher = CURLY_PART_PATTERN.matcher(segment);
+         boolean hasCurlyPart = curlyMatcher.find();
+
+         // Segment is a single variable part: it matches any non empty segment.
+         if (segment.equals(colonPart) || (hasCurlyPart && curlyMatcher.start() == 0
+               && curlyMatcher.end() == segment.length())) {
+            if (wildcardChild == null) {
+               wildcardChild = new Node();
+            }
+            return wildcardChild;
+         }
+         // Segment is mixing literal and variable parts: compile a regular expression.
+         if (colonPart != null || hasCurlyPart) {
+            String regex = buildSegmentRegex(segment, colonPart);
+            for (PatternChild patternChild : patternChildren) {
+               if (patternChild.pattern().pattern().equals(regex)) {
+                  return patternChild.node();
+               }
+            }
+            PatternChild patternChild = new PatternChild(Pattern.compile(regex), new Node());
+            patternChildren.add(patternChild);
+            return patternChild.node();
+         }
+         return literalChildren.computeIfAbsent(segment, s -> new Node());
+      }
+
+      /** Find the first route matching segments starting at index, exploring every matching branch. */
+      Route find(String[] segments, int index) {
+         if (index == segments.length) {
+            return route;
+         }
+         String segment = segments[index];
+         Route best = null;
+         Node literalChild = literalChildren.get(segment);
+         if (literalChild != null) {
+            best = literalChild.find(segments, index + 1);
+         }
+         if (segment.isEmpty()) {
+            return best;
+         }
+         if (wildcardChild != null) {
+            best = first(best, wildcardChild.find(segments, index + 1));
+         }
+         for (PatternChild patternChild : patternChildren) {
+            if (patternChild.pattern().matcher(segment).matches()) {
+               best = first(best, patternChild.node().find(segments, index + 1));
+            }
+         }
+         return best;
+      }
+
+      private static String buildSegmentRegex(String segment, String colonPart) {
+         StringBuilder regex = new StringBuilder();
+         int position = 0;
+         if (colonPart != null) {
+            regex.append("[^/]+");
+            position = colonPart.length();
+         }
+         Matcher curlyMatcher = CURLY_PART_PATTERN.matcher(segment);
+         while (curlyMatcher.find(position)) {
+            if (curlyMatcher.start() > position) {
+               regex.append(Pattern.quote(segment.substring(position, curlyMatcher.start())));
+            }
+            regex.append("[^/]+");
+            position = curlyMatcher.end();
+         }
+         if (position < segment.length()) {
+            regex.append(Pattern.quote(segment.substring(position)));
+         }
+         return regex.toString();
+      }
+   }
+
+   /** A child node reached through a segment mixing literal and variable parts. */
+   private record PatternChild(Pattern pattern, Node node) {
+   }
+}
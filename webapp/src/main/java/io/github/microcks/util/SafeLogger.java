@@ -177,6 +177,19 @@ public class SafeLogger {
       }
    }
 
+   /**
+    * Log an exception (throwable) at the WARN level with a message built according to the specified format and
+    * argument. This form avoids superfluous string concatenation when the logger is disabled for the WARN level.
+    * @param format the format string
+    * @param arg    the argument
+    * @param t      the exception (throwable) to log
+    */
+   public void warn(String format, Object arg, Throwable t) {
+      if (log.isWarnEnabled()) {
+         log.warn(encode(format), encode(arg), t);
+      }
+   }
+
    /**
     * Is the logger instance enabled for the ERROR level?
     * @return True if this Logger is enabled for the ERROR level, false otherwise.
@@ -0,0 +1,202 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.dispatcher;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.util.DispatchCriteriaHelper;
+import io.github.microcks.util.DispatchStyles;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+
+/**
+ * The dispatcher of an operation with its rules parsed once for being applied to many incoming requests. A compiled
+ * dispatcher resolves Fallback and Proxy-Fallback specifications into the dispatcher and rules to apply first, and
+ * holds the parsed form of these rules (URI parts and parameters names, JSON evaluation specification) so that no
+ * configuration parsing happens at request time.
+ * <p>
+ * Compiled dispatchers are kept into a bounded cache indexed by dispatcher and rules. An updated operation is thus
+ * transparently compiled again.
+ * @author agent
+ */
+public class CompiledDispatcher {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(CompiledDispatcher.class);
+
+   /** The maximum number of compiled dispatchers we keep in cache. */
+   private static final int MAX_CACHED_DISPATCHERS = 2048;
+
+   private static final Cache<DispatcherKey, CompiledDispatcher> cache = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_DISPATCHERS).build();
+
+   private final String dispatcher;
+   private final String dispatcherRules;
+   private final FallbackSpecification fallback;
+   private final ProxyFallbackSpecification proxyFallback;
+   private final Set<String> uriPartsRule;
+   private final Set<String> paramsRule;
+   private final JsonEvaluationSpecification jsonEvaluationSpecification;
+   private final String jsonEvaluationSpecificationError;
+
+   private CompiledDispatcher(String operationDispatcher, String operationDispatcherRules) {
+      String rootDispatcher = operationDispatcher;
+      String rootDispatcherRules = operationDispatcherRules;
+
+      // If we have a Fallback or Proxy-Fallback this is the one who is holding the first pass rules.
+      this.fallback = parseFallback(operationDispatcher, operationDispatcherRules);
+      if (fallback != null) {
+         rootDispatcher = fallback.getDispatcher();
+         rootDispatcherRules = fallback.getDispatcherRules();
+      }
+      this.proxyFallback = parseProxyFallback(operationDispatcher, operationDispatcherRules);
+      if (proxyFallback != null) {
+         rootDispatcher = proxyFallback.getDispatcher();
+         rootDispatcherRules = proxyFallback.getDispatcherRules();
+      }
+      this.dispatcher = rootDispatcher;
+      this.dispatcherRules = rootDispatcherRules;
+
+      // Now parse the rules depending on root dispatcher.
+      Set<String> partsRule = null;
+      Set<String> parametersRule = null;
+      JsonEvaluationSpecification specification = null;
+      String specificationError = null;
+      if (rootDispatcher != null && rootDispatcherRules != null) {
+         switch (rootDispatcher) {
+            case DispatchStyles.SEQUENCE, DispatchStyles.URI_PARTS:
+               partsRule = DispatchCriteriaHelper.parseURIPartsRule(rootDispatcherRules);
+               break;
+            case DispatchStyles.URI_ELEMENTS:
+               partsRule = DispatchCriteriaHelper.parseURIPartsRule(rootDispatcherRules);
+               parametersRule = DispatchCriteriaHelper.parseParamsRule(rootDispatcherRules);
+               break;
+            case DispatchStyles.URI_PARAMS, DispatchStyles.QUERY_ARGS, DispatchStyles.QUERY_HEADER:
+               parametersRule = DispatchCriteriaHelper.parseParamsRule(rootDispatcherRules);
+               break;
+            case DispatchStyles.JSON_BODY:
+               try {
+                  specification = JsonEvaluationSpecification.buildFromJsonString(rootDispatcherRules);
+               } catch (JsonMappingException jme) {
+                  specificationError = jme.getMessage();
+               }
+               break;
+            default:
+               break;
+         }
+      }
+      this.uriPartsRule = partsRule;
+      this.paramsRule = parametersRule;
+      this.jsonEvaluationSpecification = specification;
+      this.jsonEvaluationSpecificationError = specificationError;
+   }
+
+   /**
+    * Get the compiled dispatcher of an operation, compiling it if not already in cache.
+    * @param operation The operation to get compiled dispatcher for
+    * @return The compiled dispatcher
+    */
+   public static CompiledDispatcher compile(Operation operation) {
+      return compile(operation.getDispatcher(), operation.getDispatcherRules());
+   }
+
+   /**
+    * Get the compiled form of a dispatcher and its rules, compiling it if not already in cache.
+    * @param dispatcher      The dispatcher of operation (may be null)
+    * @param dispatcherRules The dispatcher rules of operation (may be null)
+    * @return The compiled dispatcher
+    */
+   public static CompiledDispatcher compile(String dispatcher, String dispatcherRules) {
+      return cache.asMap().computeIfAbsent(new DispatcherKey(dispatcher, dispatcherRules),
+            key -> new CompiledDispatcher(dispatcher, dispatcherRules));
+   }
+
+   /** @return The root dispatcher to apply, taking into account Fallback or Proxy-Fallback. May be null. */
+   public String getDispatcher() {
+      return dispatcher;
+   }
+
+   /** @return The root dispatcher rules to apply, taking into account Fallback or Proxy-Fallback. May be null. */
+   public String getDispatcherRules() {
+      return dispatcherRules;
+   }
+
+   /** @return The Fallback specification if operation dispatcher is a Fallback one, null otherwise. */
+   public FallbackSpecification getFallback() {
+      return fallback;
+   }
+
+   /** @return The Proxy-Fallback specification if operation dispatcher is a Proxy-Fallback one, null otherwise. */
+   public ProxyFallbackSpecification getProxyFallback() {
+      return proxyFallback;
+   }
+
+   /** @return The names of URI parts referenced by rules if dispatcher is URI parts based, null otherwise. */
+   public Set<String> getURIPartsRule() {
+      return uriPartsRule;
+   }
+
+   /**
+    * @return The names of parameters referenced by rules if dispatcher is URI_PARAMS, URI_ELEMENTS, QUERY_ARGS or
+    *         QUERY_HEADER, null otherwise.
+    */
+   public Set<String> getParamsRule() {
+      return paramsRule;
+   }
+
+   /**
+    * Get the JSON evaluation specification of a JSON_BODY dispatcher.
+    * @return The parsed specification or null if dispatcher is not a JSON_BODY one.
+    * @throws JsonMappingException if dispatcher rules cannot be interpreted as a JsonEvaluationSpecification
+    */
+   public JsonEvaluationSpecification getJsonEvaluationSpecification() throws JsonMappingException {
+      if (jsonEvaluationSpecificationError != null) {
+         // A new exception is thrown each time as compiled dispatchers are shared between threads.
+         throw new JsonMappingException(jsonEvaluationSpecificationError);
+      }
+      return jsonEvaluationSpecification;
+   }
+
+   private static FallbackSpecification parseFallback(String dispatcher, String dispatcherRules) {
+      if (DispatchStyles.FALLBACK.equals(dispatcher)) {
+         try {
+            return FallbackSpecification.buildFromJsonString(dispatcherRules);
+         } catch (JsonMappingException jme) {
+            log.error("Dispatching rules of operation cannot be interpreted as FallbackSpecification", jme);
+         }
+      }
+      return null;
+   }
+
+   private static ProxyFallbackSpecification parseProxyFallback(String dispatcher, String dispatcherRules) {
+      if (DispatchStyles.PROXY_FALLBACK.equals(dispatcher)) {
+         try {
+            return ProxyFallbackSpecification.buildFromJsonString(dispatcherRules);
+         } catch (JsonMappingException jme) {
+            log.error("Dispatching rules of operation cannot be interpreted as ProxyFallbackSpecification", jme);
+         }
+      }
+      return null;
+   }
+
+   /** The cache key of a compiled dispatcher. Both members may be null. */
+   private record DispatcherKey(String dispatcher, String dispatcherRules) {
+   }
+}
@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @JsonPropertyOrder({ "dispatcher", "dispatcherRules", "fallback" })
 public class FallbackSpecification {
+   private static final ObjectMapper mapper = new ObjectMapper();
 
    private String dispatcher;
    private String dispatcherRules;
@@ -64,7 +65,6 @@ public class FallbackSpecification {
    public static FallbackSpecification buildFromJsonString(String jsonPayload) throws JsonMappingException {
       FallbackSpecification specification = null;
       try {
-         ObjectMapper mapper = new ObjectMapper();
          specification = mapper.readValue(jsonPayload, FallbackSpecification.class);
       } catch (Exception e) {
          throw new JsonMappingException("Given JSON string cannot be interpreted as valid FallbackSpecification");
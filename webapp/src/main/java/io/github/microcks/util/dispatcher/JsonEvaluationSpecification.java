@@ -15,7 +15,9 @@
  */
 package io.github.microcks.util.dispatcher;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -26,10 +28,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @JsonPropertyOrder({ "exp", "operator", "cases" })
 public class JsonEvaluationSpecification {
+   private static final ObjectMapper mapper = new ObjectMapper();
 
    private String exp;
    private EvaluationOperator operator;
    private DispatchCases cases;
+   private JsonPointer expPointer;
 
    public String getExp() {
       return exp;
@@ -37,6 +41,16 @@ public class JsonEvaluationSpecification {
 
    public void setExp(String exp) {
       this.exp = exp;
+      this.expPointer = null;
+   }
+
+   /** @return The compiled JSONPointer of {@code exp}, compiled on first access. */
+   @JsonIgnore
+   public JsonPointer getExpPointer() {
+      if (expPointer == null) {
+         expPointer = JsonPointer.compile(exp);
+      }
+      return expPointer;
    }
 
    public EvaluationOperator getOperator() {
@@ -64,7 +78,6 @@ public class JsonEvaluationSpecification {
    public static JsonEvaluationSpecification buildFromJsonString(String jsonPayload) throws JsonMappingException {
       JsonEvaluationSpecification specification = null;
       try {
-         ObjectMapper mapper = new ObjectMapper();
          specification = mapper.readValue(jsonPayload, JsonEvaluationSpecification.class);
       } catch (Exception e) {
          throw new JsonMappingException("Given JSON string cannot be interpreted as valid JsonEvaluationSpecification");
@@ -67,7 +67,7 @@ public class JsonExpressionEvaluator {
       }
 
       // Retrieve evaluated node within JSON tree.
-      JsonNode evaluatedNode = rootNode.at(specification.getExp());
+      JsonNode evaluatedNode = rootNode.at(specification.getExpPointer());
       String caseKey = evaluatedNode.asText();
 
       switch (specification.getOperator()) {
@@ -0,0 +1,88 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A bounded cache of parsed GraphQL queries, indexed by the SHA-256 hash of query text. As GraphQL clients are sending
+ * the same few queries over and over, queries are parsed once and their documents are then reused. Documents are
+ * immutable and can be safely shared by concurrent requests.
+ * <p>
+ * As keys are the same hashes as the ones used by Automatic Persisted Queries, this cache is also the store of
+ * persisted queries: a query that has been sent once can then be retrieved using only its hash. A persisted query that
+ * has been evicted is simply reported as not found so that clients send it again.
+ * @author agent
+ */
+public class GraphQLDocumentCache {
+
+   /** The maximum number of parsed queries we keep in cache. */
+   private static final int MAX_CACHED_DOCUMENTS = 2048;
+
+   private static final Cache<String, ParsedQuery> documents = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_DOCUMENTS).build();
+
+   private GraphQLDocumentCache() {
+      // Hide the implicit default constructor.
+   }
+
+   /**
+    * Compute the hash of a GraphQL query text, as used by Automatic Persisted Queries.
+    * @param query The text representation of a GraphQL query
+    * @return The hexadecimal SHA-256 hash of query
+    */
+   public static String hash(String query) {
+      return DigestUtils.sha256Hex(query);
+   }
+
+   /**
+    * Get the parsed representation of a GraphQL query, parsing it only if not already in cache.
+    * @param query The text representation of a GraphQL query
+    * @return The parsed query
+    * @throws graphql.parser.InvalidSyntaxException if query is not a valid GraphQL document
+    */
+   public static ParsedQuery parse(String query) {
+      String hash = hash(query);
+      ParsedQuery parsed = documents.getIfPresent(hash);
+      if (parsed == null) {
+         parsed = new ParsedQuery(hash, query, Parser.parse(query));
+         documents.put(hash, parsed);
+      }
+      return parsed;
+   }
+
+   /**
+    * Get a previously parsed query using its hash.
+    * @param hash The hexadecimal SHA-256 hash of query
+    * @return The parsed query or null if this query is unknown or has been evicted.
+    */
+   public static ParsedQuery getPersistedQuery(String hash) {
+      return documents.getIfPresent(hash.toLowerCase());
+   }
+
+   /**
+    * A GraphQL query with its parsed document.
+    * @param hash     The hexadecimal SHA-256 hash of query
+    * @param query    The text representation of query
+    * @param document The parsed document of query
+    */
+   public record ParsedQuery(String hash, String query, Document document) {
+   }
+}
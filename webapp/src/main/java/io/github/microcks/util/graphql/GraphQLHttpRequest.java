@@ -17,18 +17,26 @@ package io.github.microcks.util.graphql;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.language.Document;
 
 import jakarta.servlet.http.HttpServletRequest;
 
 /**
- * A wrapper for parsing GraphQL requests over Http.
+ * A wrapper for parsing GraphQL requests over Http. Apollo Automatic Persisted Queries are supported: when request
+ * extensions hold a {@code persistedQuery} hash without query, the query is resolved from {@code GraphQLDocumentCache}
+ * where it has been registered by a previous request holding both the query and its hash.
  * @author laurent
  */
 public class GraphQLHttpRequest {
 
+   /** The name of request extension holding the Automatic Persisted Query specification. */
+   public static final String PERSISTED_QUERY_EXTENSION = "persistedQuery";
+
    String query;
    String operationName;
    JsonNode variables;
+   String persistedQueryHash;
+   Document document;
 
    public String getQuery() {
       return query;
@@ -42,12 +50,30 @@ public class GraphQLHttpRequest {
       return variables;
    }
 
+   /** @return The hash of Automatic Persisted Query if request is using one, null otherwise. */
+   public String getPersistedQueryHash() {
+      return persistedQueryHash;
+   }
+
+   /**
+    * Get the parsed document of query. Parsing is done on first access using {@code GraphQLDocumentCache}.
+    * @return The parsed document of query
+    * @throws graphql.parser.InvalidSyntaxException if query is not a valid GraphQL document
+    */
+   public Document getDocument() {
+      if (document == null) {
+         document = GraphQLDocumentCache.parse(query).document();
+      }
+      return document;
+   }
+
    /**
     * Build a GraphQLHttpRequest from Http servlet request and body content.
     * @param body    The content of Http request.
     * @param request The servlet request
     * @return The wrapper object
-    * @throws Exception if request is no valid Json as expected by GraphQL over Http spec.
+    * @throws PersistedQueryNotFoundException if request only holds the hash of an unknown persisted query
+    * @throws Exception                       if request is no valid Json as expected by GraphQL over Http spec.
     */
    public static GraphQLHttpRequest from(String body, HttpServletRequest request) throws Exception {
       // We'll need a Json mapper.
@@ -60,11 +86,13 @@ public class GraphQLHttpRequest {
          parameters.query = json.path("query").asText();
          parameters.operationName = json.path("operationName").asText(null);
          parameters.variables = json.get("variables");
+         parameters.resolvePersistedQuery(json.get("extensions"));
       } else {
          // If it's a get, we're using parameters.
          parameters.query = request.getParameter("query");
          parameters.operationName = request.getParameter("operationName");
-         parameters.variables = getVariables(mapper, request.getParameter("variables"));
+         parameters.variables = readJsonParameter(mapper, request.getParameter("variables"));
+         parameters.resolvePersistedQuery(readJsonParameter(mapper, request.getParameter("extensions")));
       }
       return parameters;
    }
@@ -83,10 +111,48 @@ public class GraphQLHttpRequest {
       return parameters;
    }
 
-   private static JsonNode getVariables(ObjectMapper mapper, String variables) throws Exception {
-      if (variables != null) {
-         return mapper.readTree(variables);
+   private static JsonNode readJsonParameter(ObjectMapper mapper, String parameter) throws Exception {
+      if (parameter != null) {
+         return mapper.readTree(parameter);
       }
       return null;
    }
+
+   /** Resolve query from its hash or register it if request extensions specify a persisted query. */
+   private void resolvePersistedQuery(JsonNode extensions) throws PersistedQueryNotFoundException {
+      if (extensions == null || !extensions.has(PERSISTED_QUERY_EXTENSION)) {
+         return;
+      }
+      persistedQueryHash = extensions.path(PERSISTED_QUERY_EXTENSION).path("sha256Hash").asText(null);
+      if (persistedQueryHash == null) {
+         return;
+      }
+      GraphQLDocumentCache.ParsedQuery parsed;
+      if (query == null || query.isEmpty()) {
+         parsed = GraphQLDocumentCache.getPersistedQuery(persistedQueryHash);
+         if (parsed == null) {
+            throw new PersistedQueryNotFoundException(persistedQueryHash);
+         }
+         query = parsed.query();
+      } else {
+         // Registering the query by parsing it, provided hash must be the one of query.
+         parsed = GraphQLDocumentCache.parse(query);
+         if (!parsed.hash().equalsIgnoreCase(persistedQueryHash)) {
+            throw new IllegalArgumentException("provided sha does not match query");
+         }
+      }
+      document = parsed.document();
+   }
+
+   /** Exception raised when a request only holds the hash of a persisted query that is not known. */
+   public static class PersistedQueryNotFoundException extends Exception {
+
+      /** The message and error code expected by Apollo clients for sending the full query again. */
+      public static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+      public static final String PERSISTED_QUERY_NOT_FOUND_CODE = "PERSISTED_QUERY_NOT_FOUND";
+
+      public PersistedQueryNotFoundException(String hash) {
+         super(PERSISTED_QUERY_NOT_FOUND + ": " + hash);
+      }
+   }
 }
@@ -17,11 +17,9 @@ package io.github.microcks.util.graphql;
 
 import io.github.microcks.domain.Operation;
 import io.github.microcks.domain.Request;
-import io.github.microcks.domain.Resource;
-import io.github.microcks.domain.ResourceType;
 import io.github.microcks.domain.Service;
 import io.github.microcks.domain.TestReturn;
-import io.github.microcks.repository.ResourceRepository;
+import io.github.microcks.service.GraphQLSchemaCache;
 import io.github.microcks.util.test.HttpTestRunner;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -49,17 +47,17 @@ public class GraphQLTestRunner extends HttpTestRunner {
 
    private ObjectMapper mapper = new ObjectMapper();
 
-   private ResourceRepository resourceRepository;
+   private GraphQLSchemaCache schemaCache;
 
    private String lastQueryContent = null;
    private List<String> lastValidationErrors = null;
 
    /**
     * Build a new GraphQLTestRunner.
-    * @param resourceRepository Access to resources repository
+    * @param schemaCache Access to compiled GraphQL schemas
     */
-   public GraphQLTestRunner(ResourceRepository resourceRepository) {
-      this.resourceRepository = resourceRepository;
+   public GraphQLTestRunner(GraphQLSchemaCache schemaCache) {
+      this.schemaCache = schemaCache;
    }
 
 
@@ -109,21 +107,16 @@ public class GraphQLTestRunner extends HttpTestRunner {
       // Do not try to validate response content if no content provided ;-)
       // Also do not try to schema validate something that is not application/json for now...
       if (responseCode != 204 && APPLICATION_JSON_TYPE.equals(contentType)) {
-         // Retrieve the resource corresponding to OpenAPI specification if any.
-         Resource graphqlSchemaResource = null;
-         List<Resource> resources = resourceRepository.findByServiceIdAndType(service.getId(),
-               ResourceType.GRAPHQL_SCHEMA);
-         if (!resources.isEmpty()) {
-            graphqlSchemaResource = resources.get(0);
-         }
-         if (graphqlSchemaResource == null) {
+         // Retrieve the compiled GraphQL schema of service if any.
+         GraphQLSchemaCache.CompiledGraphQLSchema graphqlSchema = schemaCache.getCompiledSchema(service.getId());
+         if (graphqlSchema == null) {
             log.debug("Found no GraphQL specification resource for service {}, so failing validating", service.getId());
             return TestReturn.FAILURE_CODE;
          }
 
          JsonNode responseSchema = null;
          try {
-            responseSchema = GraphQLSchemaValidator.buildResponseJsonSchema(graphqlSchemaResource.getContent(),
+            responseSchema = GraphQLSchemaValidator.buildResponseJsonSchema(graphqlSchema.getSchema(),
                   lastQueryContent);
             log.debug("responseSchema: {}", responseSchema);
             lastValidationErrors = GraphQLSchemaValidator.validateJson(responseSchema,
@@ -134,11 +134,35 @@ public class GrpcUtil {
     */
    public static TypeRegistry buildTypeRegistry(String base64ProtobufDescriptor)
          throws InvalidProtocolBufferException, Descriptors.DescriptorValidationException {
-      // Get Descriptor objects corresponding to the base64 encoded descriptor.
-      DescriptorProtos.FileDescriptorSet fds = getFileDescriptorSet(base64ProtobufDescriptor);
+      return buildTypeRegistry(buildFileDescriptors(base64ProtobufDescriptor));
+   }
 
+   /**
+    * Build a TypeRegistry for JSON parsing/serialization from already built file descriptors.
+    * @param fileDescriptors The Protobuf file descriptors to extract types information from.
+    * @return A TypeRegistry instance.
+    */
+   public static TypeRegistry buildTypeRegistry(List<Descriptors.FileDescriptor> fileDescriptors) {
       // Initialize a new TypeRegistry builder.
       TypeRegistry.Builder registryBuilder = TypeRegistry.newBuilder();
+      for (Descriptors.FileDescriptor fd : fileDescriptors) {
+         registryBuilder.add(fd.getMessageTypes());
+      }
+      return registryBuilder.build();
+   }
+
+   /**
+    * Build all the Protobuf file descriptors from a base64 encoded representation of the proto descriptor. Each file
+    * descriptor is built using the previous ones as dependencies.
+    * @param base64ProtobufDescriptor The encoded representation of proto descriptor as produced by protoc.
+    * @return The list of Protobuf FileDescriptors, in the order of descriptor set.
+    * @throws InvalidProtocolBufferException            If representation is not understood as protobuf descriptor.
+    * @throws Descriptors.DescriptorValidationException If included FileDescriptor cannot be validated.
+    */
+   public static List<Descriptors.FileDescriptor> buildFileDescriptors(String base64ProtobufDescriptor)
+         throws InvalidProtocolBufferException, Descriptors.DescriptorValidationException {
+      // Get Descriptor objects corresponding to the base64 encoded descriptor.
+      DescriptorProtos.FileDescriptorSet fds = getFileDescriptorSet(base64ProtobufDescriptor);
 
       // Build dependencies.
       List<Descriptors.FileDescriptor> dependencies = new ArrayList<>();
@@ -147,11 +171,8 @@ public class GrpcUtil {
          Descriptors.FileDescriptor fd = Descriptors.FileDescriptor.buildFrom(fds.getFile(i),
                dependencies.toArray(new Descriptors.FileDescriptor[dependencies.size()]), true);
          dependencies.add(fd);
-
-         registryBuilder.add(fd.getMessageTypes());
       }
-
-      return registryBuilder.build();
+      return dependencies;
    }
 
    /**
@@ -0,0 +1,278 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.script;
+
+import io.github.microcks.service.StateStore;
+import io.github.microcks.util.script.JsScriptEngineBinder.CustomBuiltins;
+import io.github.microcks.util.script.JsScriptEngineBinder.LogContext;
+import io.github.microcks.util.script.JsScriptEngineBinder.MockRequestApi;
+import io.github.microcks.util.script.JsScriptEngineBinder.RequestContextApi;
+import io.github.microcks.util.script.JsScriptEngineBinder.StoreApi;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.roastedroot.quickjs4j.core.Engine;
+import io.roastedroot.quickjs4j.core.ScriptCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A pool of pre-initialized QuickJs4J engines for evaluating dispatcher scripts. Building an engine means spinning up a
+ * new WebAssembly instance, so engines are kept per script and reused across invocations: request, request context
+ * and state store are bound to the engine builtins for the time of an invocation only.
+ * <p>
+ * When an engine is given back, the properties added to the guest global object by the invocation are removed so
+ * that no state is shared between invocations. Engine output is only reported for the current invocation and engines
+ * having accumulated too much output are retired.
+ * <p>
+ * The pool keeps a bounded number of idle engines per script and a bounded number of scripts. Engines are retired
+ * after a number of invocations (or on failure) so that their guest memory does not grow forever.
+ * @author agent
+ */
+public class JsEnginePool {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(JsEnginePool.class);
+
+   /** The maximum number of output characters an engine can accumulate before being retired. */
+   private static final int MAX_RETAINED_OUTPUT = 64 * 1024;
+
+   /** Script recording the names of initial guest global properties. */
+   private static final String CAPTURE_GLOBALS_SCRIPT = """
+         function process() {
+            globalThis.__microcksGlobals = new Set(Object.getOwnPropertyNames(globalThis));
+            globalThis.__microcksGlobals.add("__microcksGlobals");
+            return "";
+         }
+         """;
+   /** Script removing the guest global properties that were not recorded initially. */
+   private static final String RESET_GLOBALS_SCRIPT = """
+         function process() {
+            for (const name of Object.getOwnPropertyNames(globalThis)) {
+               if (!globalThis.__microcksGlobals.has(name) && !delete globalThis[name]) {
+                  globalThis[name] = undefined;
+               }
+            }
+            return "";
+         }
+         """;
+
+   private final int maxIdleEnginesPerScript;
+   private final int maxInvocationsPerEngine;
+   private final ScriptCache scriptCache;
+
+   private final Cache<String, ScriptEngines> enginesByScript;
+
+   private volatile byte[] captureGlobalsBytecode;
+   private volatile byte[] resetGlobalsBytecode;
+
+   /**
+    * Create a new JsEnginePool.
+    * @param maxScripts              The maximum number of scripts we keep engines for
+    * @param maxIdleEnginesPerScript The maximum number of idle engines kept for a script
+    * @param maxInvocationsPerEngine The number of invocations after which an engine is retired
+    * @param scriptCache             The cache of compiled scripts bytecode shared by engines
+    */
+   public JsEnginePool(int maxScripts, int maxIdleEnginesPerScript, int maxInvocationsPerEngine,
+         ScriptCache scriptCache) {
+      this.maxIdleEnginesPerScript = maxIdleEnginesPerScript;
+      this.maxInvocationsPerEngine = maxInvocationsPerEngine;
+      this.scriptCache = scriptCache;
+      this.enginesByScript = CacheBuilder.newBuilder().maximumSize(maxScripts)
+            .removalListener((RemovalNotification<String, ScriptEngines> notification) -> {
+               if (notification.getValue() != null) {
+                  notification.getValue().closeIdleEngines();
+               }
+            }).build();
+   }
+
+   /**
+    * Borrow an engine for evaluating a script. Engine should be given back using {@code release()} once done.
+    * @param script The script to evaluate
+    * @return A pooled engine, either an idle one or a newly created one
+    */
+   public PooledEngine borrow(String script) {
+      PooledEngine engine = getScriptEngines(script).idleEngines.poll();
+      if (engine == null) {
+         log.debug("No idle JS engine for script, creating a new one");
+         engine = new PooledEngine(script, getScriptEngines(script), scriptCache);
+         try {
+            if (captureGlobalsBytecode == null) {
+               captureGlobalsBytecode = engine.compile(CAPTURE_GLOBALS_SCRIPT);
+            }
+            engine.invoke(captureGlobalsBytecode);
+         } catch (RuntimeException e) {
+            // Engine has not been given to caller, so it has to be closed here.
+            engine.close();
+            throw e;
+         }
+      }
+      return engine;
+   }
+
+   /**
+    * Give back an engine to the pool after an invocation. Global state left by invocation is cleared before engine can
+    * be borrowed again.
+    * @param engine   The engine to give back
+    * @param reusable Whether engine can be reused (it should not after a failure)
+    */
+   public void release(PooledEngine engine, boolean reusable) {
+      engine.unbind();
+      if (!reusable || engine.invocations >= maxInvocationsPerEngine || !reset(engine)
+            || !getScriptEngines(engine.script).idleEngines.offer(engine)) {
+         engine.close();
+      }
+   }
+
+   /** @return The number of idle engines currently kept for script. */
+   public int getIdleEnginesCount(String script) {
+      ScriptEngines scriptEngines = enginesByScript.getIfPresent(script);
+      return scriptEngines != null ? scriptEngines.idleEngines.size() : 0;
+   }
+
+   private boolean reset(PooledEngine engine) {
+      try {
+         if (resetGlobalsBytecode == null) {
+            resetGlobalsBytecode = engine.compile(RESET_GLOBALS_SCRIPT);
+         }
+         engine.invoke(resetGlobalsBytecode);
+      } catch (RuntimeException e) {
+         log.warn("Exception while resetting a pooled JS engine, retiring it", e);
+         return false;
+      }
+      return engine.markOutput();
+   }
+
+   private ScriptEngines getScriptEngines(String script) {
+      try {
+         return enginesByScript.get(script, () -> new ScriptEngines(maxIdleEnginesPerScript));
+      } catch (ExecutionException e) {
+         // Cannot happen as creating a ScriptEngines does not throw anything.
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /** The idle engines of a script and its bytecode, compiled once and shared by engines. */
+   private static class ScriptEngines {
+      private final BlockingQueue<PooledEngine> idleEngines;
+      private volatile byte[] bytecode;
+
+      ScriptEngines(int capacity) {
+         this.idleEngines = new ArrayBlockingQueue<>(capacity);
+      }
+
+      void closeIdleEngines() {
+         PooledEngine engine;
+         while ((engine = idleEngines.poll()) != null) {
+            engine.close();
+         }
+      }
+   }
+
+   /** A QuickJs4J engine whose builtins can be bound to an invocation before evaluating its script. */
+   public static class PooledEngine {
+      private final String script;
+      private final ScriptEngines scriptEngines;
+      private final Engine engine;
+      private final StoreApi storeApi = new StoreApi(null);
+      private final RequestContextApi requestContextApi = new RequestContextApi(null);
+      private final MockRequestApi mockRequestApi = new MockRequestApi(null);
+      private int invocations = 0;
+      private int stdoutMark = 0;
+      private int stderrMark = 0;
+
+      PooledEngine(String script, ScriptEngines scriptEngines, ScriptCache scriptCache) {
+         this.script = script;
+         this.scriptEngines = scriptEngines;
+         this.engine = Engine.builder().withCache(scriptCache).addInvokables(JsApi_Invokables.toInvokables())
+               .addBuiltins(LogContext_Builtins.toBuiltins(new LogContext()))
+               .addBuiltins(StoreApi_Builtins.toBuiltins(storeApi))
+               .addBuiltins(RequestContextApi_Builtins.toBuiltins(requestContextApi))
+               .addBuiltins(MockRequestApi_Builtins.toBuiltins(mockRequestApi))
+               .addBuiltins(CustomBuiltins_Builtins.toBuiltins(new CustomBuiltins())).build();
+      }
+
+      /**
+       * Bind the engine builtins to an invocation.
+       * @param mockRequest    The request container
+       * @param requestContext The request context to share with response rendering
+       * @param stateStore     The state store of service
+       */
+      public void bind(FakeScriptMockRequest mockRequest, Map<String, Object> requestContext, StateStore stateStore) {
+         mockRequestApi.bind(mockRequest);
+         requestContextApi.bind(requestContext);
+         storeApi.bind(stateStore);
+      }
+
+      /**
+       * Invoke the {@code process()} function of script.
+       * @return The result of function
+       */
+      public String invokeProcessFn() {
+         invocations++;
+         byte[] bytecode = scriptEngines.bytecode;
+         if (bytecode == null) {
+            bytecode = compile(script);
+            scriptEngines.bytecode = bytecode;
+         }
+         return invoke(bytecode);
+      }
+
+      /** @return The standard output of engine for current invocation */
+      public String stdout() {
+         return engine.stdout().substring(stdoutMark);
+      }
+
+      /** @return The error output of engine for current invocation */
+      public String stderr() {
+         return engine.stderr().substring(stderrMark);
+      }
+
+      private byte[] compile(String processScript) {
+         return engine.compilePortableGuestFunction(processScript);
+      }
+
+      private String invoke(byte[] bytecode) {
+         return (String) engine.invokePrecompiledGuestFunction("js", "process", List.of(), bytecode);
+      }
+
+      /** Mark the end of current invocation output. Return false if engine has accumulated too much output. */
+      private boolean markOutput() {
+         stdoutMark = engine.stdout().length();
+         stderrMark = engine.stderr().length();
+         return stdoutMark + stderrMark <= MAX_RETAINED_OUTPUT;
+      }
+
+      private void unbind() {
+         bind(null, null, null);
+      }
+
+      private void close() {
+         try {
+            engine.close();
+         } catch (RuntimeException e) {
+            log.warn("Exception while closing a pooled JS engine", e);
+         }
+      }
+   }
+}
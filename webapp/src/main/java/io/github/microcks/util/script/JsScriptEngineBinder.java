@@ -15,6 +15,7 @@
  */
 package io.github.microcks.util.script;
 
+import io.github.microcks.domain.Service;
 import io.github.microcks.service.StateStore;
 import io.github.microcks.util.http.HttpHeadersUtil;
 
@@ -33,8 +34,6 @@ import io.roastedroot.quickjs4j.annotations.Builtins;
 import io.roastedroot.quickjs4j.annotations.GuestFunction;
 import io.roastedroot.quickjs4j.annotations.HostFunction;
 import io.roastedroot.quickjs4j.annotations.Invokables;
-import io.roastedroot.quickjs4j.core.Engine;
-import io.roastedroot.quickjs4j.core.Runner;
 import io.roastedroot.quickjs4j.core.ScriptCache;
 import jakarta.servlet.http.HttpServletRequest;
 import io.opentelemetry.api.trace.Span;
@@ -77,24 +76,10 @@ public class JsScriptEngineBinder {
 
    private static final ScriptCache cache = new LRUScriptCache(100);
 
-   private JsScriptEngineBinder() {
-   }
-
-   public static Engine buildEvaluationContext(String requestContent, Map<String, Object> requestContext,
-         StateStore stateStore, HttpServletRequest request) {
-      StringToStringsMap headers = HttpHeadersUtil.extractFromHttpServletRequest(request);
-      return buildEvaluationContext(requestContent, requestContext, stateStore, headers, request);
-   }
-
-   public static Engine buildEvaluationContext(String requestContent, Map<String, Object> requestContext,
-         StateStore stateStore, HttpServletRequest request, Map<String, String> uriParameters) {
-      StringToStringsMap headers = HttpHeadersUtil.extractFromHttpServletRequest(request);
-      return buildEvaluationContext(requestContent, requestContext, stateStore, headers, request, uriParameters);
-   }
+   /** Pooled engines used by {@code evaluate()} methods: 100 scripts, 8 idle engines per script, 1000 invocations. */
+   private static final JsEnginePool enginePool = new JsEnginePool(100, 8, 1000, cache);
 
-   public static Engine buildEvaluationContext(String requestContent, Map<String, Object> requestContext,
-         StateStore stateStore, StringToStringsMap headers, HttpServletRequest request) {
-      return buildEvaluationContext(requestContent, requestContext, stateStore, headers, request, null);
+   private JsScriptEngineBinder() {
    }
 
    @Builtins("log")
@@ -126,12 +111,17 @@ public class JsScriptEngineBinder {
 
    @Builtins("store")
    public static final class StoreApi {
-      private final StateStore delegate;
+      private StateStore delegate;
 
       public StoreApi(StateStore store) {
          this.delegate = store;
       }
 
+      /** Bind this api to another store, allowing reuse of a pooled engine. */
+      void bind(StateStore store) {
+         this.delegate = store;
+      }
+
       @HostFunction
       public String get(String key) {
          return this.delegate.get(key);
@@ -157,12 +147,17 @@ public class JsScriptEngineBinder {
 
    @Builtins("requestContext")
    public static final class RequestContextApi {
-      private final Map<String, Object> delegate;
+      private Map<String, Object> delegate;
 
       public RequestContextApi(Map<String, Object> requestContext) {
          this.delegate = requestContext;
       }
 
+      /** Bind this api to another request context, allowing reuse of a pooled engine. */
+      void bind(Map<String, Object> requestContext) {
+         this.delegate = requestContext;
+      }
+
       @HostFunction
       public JsonNode get(String key) {
          return mapper.convertValue(this.delegate.get(key), JsonNode.class);
@@ -176,13 +171,18 @@ public class JsScriptEngineBinder {
 
    @Builtins("mockRequest")
    public static final class MockRequestApi {
-      private final FakeScriptMockRequest delegate;
+      private FakeScriptMockRequest delegate;
       private final ObjectMapper mapper = new ObjectMapper();
 
       public MockRequestApi(FakeScriptMockRequest mockRequest) {
          this.delegate = mockRequest;
       }
 
+      /** Bind this api to another mock request, allowing reuse of a pooled engine. */
+      void bind(FakeScriptMockRequest mockRequest) {
+         this.delegate = mockRequest;
+      }
+
       @HostFunction
       public String requestContent() {
          return this.delegate.getRequestContent();
@@ -338,62 +338,139 @@ public class JsScriptEngineBinder {
       String process();
    }
 
-   public static Engine buildEvaluationContext(String requestContent, Map<String, Object> requestContext,
+   public static String wrapIntoFunction(String script) {
+      return "globalThis.fetch = customBuiltins.fetch;\n" + "function process() { " + script + "}";
+   }
+
+   /**
+    * Evaluate the {@code process()} function of a script using a pooled engine bound to this request.
+    * @param script         The script defining the process function
+    * @param requestContent The content of request
+    * @param requestContext The request context to share with response rendering
+    * @param stateStore     The state store of service
+    * @param request        The incoming Http request
+    * @return The result of process function or null if evaluation failed
+    */
+   public static String evaluate(String script, String requestContent, Map<String, Object> requestContext,
+         StateStore stateStore, HttpServletRequest request) {
+      return evaluate(script, requestContent, requestContext, stateStore, request, null);
+   }
+
+   /**
+    * Evaluate the {@code process()} function of a script using a pooled engine bound to this request.
+    * @param script         The script defining the process function
+    * @param requestContent The content of request
+    * @param requestContext The request context to share with response rendering
+    * @param stateStore     The state store of service
+    * @param request        The incoming Http request
+    * @param uriParameters  The parameters extracted from request URI
+    * @return The result of process function or null if evaluation failed
+    */
+   public static String evaluate(String script, String requestContent, Map<String, Object> requestContext,
+         StateStore stateStore, HttpServletRequest request, Map<String, String> uriParameters) {
+      return evaluate(script, requestContent, requestContext, stateStore, request, uriParameters, null);
+   }
+
+   /**
+    * Evaluate the {@code process()} function of a script using a pooled engine bound to this request, adding explain
+    * tracing events only if enabled for service.
+    * @param script         The script defining the process function
+    * @param requestContent The content of request
+    * @param requestContext The request context to share with response rendering
+    * @param stateStore     The state store of service
+    * @param request        The incoming Http request
+    * @param uriParameters  The parameters extracted from request URI
+    * @param service        The service being invoked (may be null)
+    * @return The result of process function or null if evaluation failed
+    */
+   public static String evaluate(String script, String requestContent, Map<String, Object> requestContext,
+         StateStore stateStore, HttpServletRequest request, Map<String, String> uriParameters, Service service) {
+      StringToStringsMap headers = HttpHeadersUtil.extractFromHttpServletRequest(request);
+      return evaluate(script, requestContent, requestContext, stateStore, headers, request, uriParameters, service);
+   }
+
+   /**
+    * Evaluate the {@code process()} function of a script using a pooled engine bound to this request.
+    * @param script         The script defining the process function
+    * @param requestContent The content of request
+    * @param requestContext The request context to share with response rendering
+    * @param stateStore     The state store of service
+    * @param headers        The headers of request
+    * @param request        The incoming Http request (may be null)
+    * @param uriParameters  The parameters extracted from request URI (may be null)
+    * @return The result of process function or null if evaluation failed
+    */
+   public static String evaluate(String script, String requestContent, Map<String, Object> requestContext,
          StateStore stateStore, StringToStringsMap headers, HttpServletRequest request,
          Map<String, String> uriParameters) {
+      return evaluate(script, requestContent, requestContext, stateStore, headers, request, uriParameters, null);
+   }
 
+   /**
+    * Evaluate the {@code process()} function of a script using a pooled engine bound to this request, adding explain
+    * tracing events only if enabled for service.
+    * @param script         The script defining the process function
+    * @param requestContent The content of request
+    * @param requestContext The request context to share with response rendering
+    * @param stateStore     The state store of service
+    * @param headers        The headers of request
+    * @param request        The incoming Http request (may be null)
+    * @param uriParameters  The parameters extracted from request URI (may be null)
+    * @param service        The service being invoked (may be null)
+    * @return The result of process function or null if evaluation failed
+    */
+   public static String evaluate(String script, String requestContent, Map<String, Object> requestContext,
+         StateStore stateStore, StringToStringsMap headers, HttpServletRequest request,
+         Map<String, String> uriParameters, Service service) {
       // Build a fake request container.
       FakeScriptMockRequest mockRequest = new FakeScriptMockRequest(requestContent, headers);
       mockRequest.setRequest(request);
       mockRequest.setURIParameters(uriParameters);
 
-      // Create bindings and put content according to SoapUI binding environment.
-      return Engine.builder().withCache(cache).addInvokables(JsApi_Invokables.toInvokables())
-            .addBuiltins(LogContext_Builtins.toBuiltins(new LogContext()))
-            .addBuiltins(StoreApi_Builtins.toBuiltins(new StoreApi(stateStore)))
-            .addBuiltins(RequestContextApi_Builtins.toBuiltins(new RequestContextApi(requestContext)))
-            .addBuiltins(MockRequestApi_Builtins.toBuiltins(new MockRequestApi(mockRequest)))
-            .addBuiltins(CustomBuiltins_Builtins.toBuiltins(new CustomBuiltins())).build();
-   }
-
-   public static String wrapIntoFunction(String script) {
-      return "globalThis.fetch = customBuiltins.fetch;\n" + "function process() { " + script + "}";
-   }
-
-   public static String invokeProcessFn(String script, Engine scriptContext) {
-      Runner runner = null;
+      JsEnginePool.PooledEngine engine = enginePool.borrow(script);
+      boolean success = false;
       try {
-         runner = Runner.builder().withEngine(scriptContext).build();
-         JsScriptEngineBinder.JsApi jsApi = JsApi_Invokables.create(script, runner);
-         String res = jsApi.process();
-         Span.current().addEvent(DISPATCH_CRITERIA_COMPUTED.getEventName(),
-               TraceUtil.explainSpanEventBuilder("Computed dispatch criteria using JS dispatcher")
-                     .put("dispatch.type", "SCRIPT").put("dispatch.result", res).build());
+         engine.bind(mockRequest, requestContext, stateStore);
+         String res = engine.invokeProcessFn();
+         success = true;
+         traceEvaluationSuccess(service, res);
          return res;
-
       } catch (Exception e) {
-         log.error("Error during JS evaluation", e);
-         Span.current().recordException(e);
-         Span.current().addEvent(DISPATCH_CRITERIA_COMPUTED.getEventName(),
-               TraceUtil.explainSpanEventBuilder("Failed to compute dispatch criteria using JS dispatcher")
-                     .put("dispatch.type", "JS").put("dispatch.result", "null")
-                     .put("dispatch.script", script == null ? "" : script).build());
-         Span.current().setStatus(StatusCode.ERROR, "Error during Script evaluation");
-         if (runner != null) {
-            log.error("script stdout: {}", runner.stdout());
-            log.error("script stderr: {}", runner.stderr());
-            Span.current().addEvent("script_error_output",
-                  TraceUtil.explainSpanEventBuilder("Script error output")
-                        .put("script.stdout", runner.stdout() == null ? "" : runner.stdout())
-                        .put("script.stderr", runner.stderr() == null ? "" : runner.stderr()).build());
-
-
-         }
+         traceEvaluationFailure(service, script, e);
+         traceErrorOutput(service, engine.stdout(), engine.stderr());
       } finally {
-         if (runner != null) {
-            runner.close();
-         }
+         // A failed engine may be left in an inconsistent state, so it is not given back to pool.
+         enginePool.release(engine, success);
       }
       return null;
    }
+
+   private static void traceEvaluationSuccess(Service service, String result) {
+      TraceUtil.addExplainEvent(Span.current(), service, DISPATCH_CRITERIA_COMPUTED,
+            () -> TraceUtil.explainSpanEventBuilder("Computed dispatch criteria using JS dispatcher")
+                  .put("dispatch.type", "SCRIPT").put("dispatch.result", result).build());
+   }
+
+   private static void traceEvaluationFailure(Service service, String script, Exception e) {
+      log.error("Error during JS evaluation", e);
+      Span span = Span.current();
+      span.recordException(e);
+      TraceUtil.addExplainEvent(span, service, DISPATCH_CRITERIA_COMPUTED,
+            () -> TraceUtil.explainSpanEventBuilder("Failed to compute dispatch criteria using JS dispatcher")
+                  .put("dispatch.type", "JS").put("dispatch.result", "null")
+                  .put("dispatch.script", script == null ? "" : script).build());
+      span.setStatus(StatusCode.ERROR, "Error during Script evaluation");
+   }
+
+   private static void traceErrorOutput(Service service, String stdout, String stderr) {
+      log.error("script stdout: {}", stdout);
+      log.error("script stderr: {}", stderr);
+      Span span = Span.current();
+      if (TraceUtil.isExplainTracingEnabled(span, service)) {
+         span.addEvent("script_error_output",
+               TraceUtil.explainSpanEventBuilder("Script error output")
+                     .put("script.stdout", stdout == null ? "" : stdout)
+                     .put("script.stderr", stderr == null ? "" : stderr).build());
+      }
+   }
 }
@@ -1,37 +1,46 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package io.github.microcks.util.script;
 
 import io.roastedroot.quickjs4j.core.ScriptCache;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.codehaus.groovy.runtime.memoize.LRUCache;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
+/**
+ * A bounded cache of QuickJs4J compiled scripts, indexed by the SHA-256 hash of script code. This cache is shared by
+ * engines evaluating scripts on concurrent threads so digests are computed on each call rather than using a shared
+ * {@code MessageDigest} that is not thread-safe.
+ * @author laurent
+ */
 public class LRUScriptCache implements ScriptCache {
    private final LRUCache<String, byte[]> cache;
-   private final MessageDigest messageDigest;
 
    public LRUScriptCache(int maxSize) {
       cache = new LRUCache<>(maxSize);
-      try {
-         messageDigest = MessageDigest.getInstance("MD5");
-      } catch (NoSuchAlgorithmException e) {
-         throw new RuntimeException(e);
-      }
    }
 
    public boolean exists(byte[] code) {
-      var key = messageDigest.digest(code);
-      return cache.get(new String(key, StandardCharsets.UTF_8)) != null;
+      return cache.get(DigestUtils.sha256Hex(code)) != null;
    }
 
    public void set(byte[] code, byte[] compiled) {
-      var key = messageDigest.digest(code);
-      cache.put(new String(key, StandardCharsets.UTF_8), compiled);
+      cache.put(DigestUtils.sha256Hex(code), compiled);
    }
 
    public byte[] get(byte[] code) {
-      var key = messageDigest.digest(code);
-      return cache.get(new String(key, StandardCharsets.UTF_8));
+      return cache.get(DigestUtils.sha256Hex(code));
    }
 }
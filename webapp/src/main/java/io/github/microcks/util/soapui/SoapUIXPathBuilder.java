@@ -17,17 +17,52 @@ package io.github.microcks.util.soapui;
 
 import io.github.microcks.util.WritableNamespaceContext;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.w3c.dom.Node;
+
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
- * Builder from creating XPathExpression matcher from SoapUI rules.
+ * Builder from creating XPathExpression matcher from SoapUI rules. As XPath expressions are not thread-safe, matchers
+ * used for evaluating dispatcher rules are kept into small pools per rules so that a matcher is only used by one thread
+ * at a time and compiled once.
  * @author laurent
  */
 public class SoapUIXPathBuilder {
 
+   private static final int MAX_CACHED_RULES = 1024;
+   private static final int MAX_IDLE_MATCHERS = 8;
+
+   private static final XPathFactory xpathFactory = XPathFactory.newInstance();
+
+   private static final Cache<String, Queue<XPathExpression>> matchers = CacheBuilder.newBuilder()
+         .maximumSize(MAX_CACHED_RULES).build();
+
+   /**
+    * Evaluate SoapUI rules on a parsed XML node, reusing a previously compiled matcher if one is idle.
+    * @param rules The string representing the rules.
+    * @param node  The node (typically a parsed Soap envelope document) to evaluate rules on
+    * @return The result of XPath evaluation as a string
+    * @throws XPathExpressionException if something wrong occurs.
+    */
+   public static String evaluateRules(String rules, Node node) throws XPathExpressionException {
+      Queue<XPathExpression> idleMatchers = getIdleMatchers(rules);
+      XPathExpression matcher = idleMatchers.poll();
+      if (matcher == null) {
+         matcher = buildXPathMatcherFromRules(rules);
+      }
+      String result = matcher.evaluate(node);
+      // Matcher is returned to the pool only once evaluated, pool is not growing if already full.
+      idleMatchers.offer(matcher);
+      return result;
+   }
+
    /**
     * Build a XPath expressions matcher from SoapUI Rules.
     * @param rules The string representing the rules.
@@ -35,7 +70,11 @@ public class SoapUIXPathBuilder {
     * @throws XPathExpressionException if something wrong occurs.
     */
    public static XPathExpression buildXPathMatcherFromRules(String rules) throws XPathExpressionException {
-      XPath xpath = XPathFactory.newInstance().newXPath();
+      XPath xpath;
+      // XPathFactory is not thread-safe but matchers are only built when pool is empty.
+      synchronized (xpathFactory) {
+         xpath = xpathFactory.newXPath();
+      }
       WritableNamespaceContext nsContext = new WritableNamespaceContext();
 
       // Parse SoapUI rules for getting namespaces and expression to evaluate.
@@ -58,4 +97,13 @@ public class SoapUIXPathBuilder {
       xpath.setNamespaceContext(nsContext);
       return xpath.compile(xpathExpression);
    }
+
+   private static Queue<XPathExpression> getIdleMatchers(String rules) {
+      // Least recently used rules are evicted first, their matchers will be compiled again on next access.
+      Queue<XPathExpression> idleMatchers = matchers.getIfPresent(rules);
+      if (idleMatchers == null) {
+         idleMatchers = matchers.asMap().computeIfAbsent(rules, k -> new ArrayBlockingQueue<>(MAX_IDLE_MATCHERS));
+      }
+      return idleMatchers;
+   }
 }
@@ -15,11 +15,16 @@
  */
 package io.github.microcks.util.tracing;
 
+import io.github.microcks.domain.Service;
+
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.trace.Span;
 
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * Utility class for managing tracing functionality. This class provides constants and methods to enable explain tracing
  * in the current context.
@@ -33,6 +38,12 @@ public final class TraceUtil {
     */
    public static final AttributeKey<Boolean> EXPLAIN_TRACE_ATTRIBUTE = AttributeKey.booleanKey("explain-trace");
 
+   /**
+    * The service metadata annotation allowing to turn explain tracing off for a service. Explain tracing is enabled
+    * unless this annotation is set to {@code false}.
+    */
+   public static final String EXPLAIN_TRACING_ANNOTATION = "microcks.io/explain-tracing";
+
    /**
     * Private constructor to prevent instantiation of utility class.
     */
@@ -67,6 +78,54 @@ public final class TraceUtil {
       }
    }
 
+   /**
+    * Tell if explain events should be recorded on a span for an invocation of a service. This is the case only if span
+    * is recorded (it may not be depending on sampling) and explain tracing has not been turned off for the service.
+    * @param span    The span to record events on
+    * @param service The invoked service. May be null.
+    * @return true if explain events should be built and added to span
+    */
+   public static boolean isExplainTracingEnabled(Span span, Service service) {
+      if (!span.isRecording()) {
+         return false;
+      }
+      if (service != null && service.getMetadata() != null) {
+         Map<String, String> annotations = service.getMetadata().getAnnotations();
+         return annotations == null || !"false".equalsIgnoreCase(annotations.get(EXPLAIN_TRACING_ANNOTATION));
+      }
+      return true;
+   }
+
+   /**
+    * Enables explain tracing on a span for an invocation of a service, if span is recorded and explain tracing has not
+    * been turned off for the service.
+    * @param span    The span to mark for explain tracing
+    * @param service The invoked service. May be null.
+    * @return true if explain tracing has been enabled on span
+    */
+   public static boolean enableExplainTracing(Span span, Service service) {
+      if (!isExplainTracingEnabled(span, service)) {
+         return false;
+      }
+      span.setAttribute(EXPLAIN_TRACE_ATTRIBUTE, true);
+      return true;
+   }
+
+   /**
+    * Adds an explain event to a span. Event attributes are built only if explain tracing is enabled for span and
+    * service, so that unsampled invocations do not pay for building messages and attributes.
+    * @param span       The span to add event to
+    * @param service    The invoked service. May be null.
+    * @param event      The event to add
+    * @param attributes The supplier of event attributes, typically using {@code explainSpanEventBuilder()}
+    */
+   public static void addExplainEvent(Span span, Service service, CommonEvents event,
+         Supplier<Attributes> attributes) {
+      if (isExplainTracingEnabled(span, service)) {
+         span.addEvent(event.getEventName(), attributes.get());
+      }
+   }
+
    /**
     * Builder Wrapper enforcing specific attributes on an event. An event has a message attribute which is used as the
     * event name in tracing UIs.
@@ -83,6 +142,10 @@ public final class TraceUtil {
     * @param t            Associated exception, can be null
     */
    public static void addSpanLogEvent(LogLevel level, String message, String scriptEngine, Throwable t) {
+      Span span = Span.current();
+      if (!span.isRecording()) {
+         return;
+      }
       AttributesBuilder b = Attributes.builder().put(AttributeKey.stringKey("level"), level.name())
             .put(CommonAttributes.SCRIPT_LOG, message == null ? "" : message)
             .put(CommonAttributes.SCRIPT_ENGINE, scriptEngine).put(CommonAttributes.MESSAGE, "Script log message");
@@ -92,7 +155,7 @@ public final class TraceUtil {
             b.put(AttributeKey.stringKey("exception.message"), t.getMessage());
          }
       }
-      Span.current().addEvent("script_log", b.build());
+      span.addEvent("script_log", b.build());
    }
 
    /** Enumeration of log levels for tracing events. */
@@ -21,7 +21,7 @@ import io.github.microcks.domain.Service;
 import io.github.microcks.domain.ServiceType;
 import io.github.microcks.event.MockInvocationEvent;
 import io.github.microcks.repository.GenericResourceRepository;
-import io.github.microcks.repository.ServiceRepository;
+import io.github.microcks.service.MockRoutingTable;
 import io.github.microcks.util.SafeLogger;
 import io.github.microcks.util.el.EvaluableRequest;
 import io.github.microcks.util.el.TemplateEngine;
@@ -65,7 +65,7 @@ public class DynamicMockRestController {
 
    public static final String ID_FIELD = "id";
 
-   private final ServiceRepository serviceRepository;
+   private final MockRoutingTable routingTable;
    private final GenericResourceRepository genericResourceRepository;
    private final ApplicationContext applicationContext;
 
@@ -74,13 +74,13 @@ public class DynamicMockRestController {
 
    /**
     * Build a new DynamicMockRestController with required dependencies.
-    * @param serviceRepository         the repository for services
+    * @param routingTable              the routing table for services
     * @param genericResourceRepository the repository for generic resources
     * @param applicationContext        the Spring application context
     */
-   public DynamicMockRestController(ServiceRepository serviceRepository,
+   public DynamicMockRestController(MockRoutingTable routingTable,
          GenericResourceRepository genericResourceRepository, ApplicationContext applicationContext) {
-      this.serviceRepository = serviceRepository;
+      this.routingTable = routingTable;
       this.genericResourceRepository = genericResourceRepository;
       this.applicationContext = applicationContext;
    }
@@ -325,7 +325,7 @@ public class DynamicMockRestController {
 
    /** Retrieve a MockContext corresponding to operation on service. Null if not found or not valid. */
    private MockContext getMockContext(String serviceName, String version, String operationName) {
-      Service service = serviceRepository.findByNameAndVersion(serviceName, version);
+      Service service = routingTable.findByNameAndVersion(serviceName, version);
       if (service != null && ServiceType.GENERIC_REST.equals(service.getType())) {
          for (Operation operation : service.getOperations()) {
             if (operationName.equals(operation.getName())) {
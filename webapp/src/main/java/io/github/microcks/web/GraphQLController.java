@@ -18,22 +18,20 @@ package io.github.microcks.web;
 import io.github.microcks.domain.Header;
 import io.github.microcks.domain.Operation;
 import io.github.microcks.domain.ParameterConstraint;
-import io.github.microcks.domain.Resource;
-import io.github.microcks.domain.ResourceType;
 import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResourceRepository;
-import io.github.microcks.repository.ServiceRepository;
+import io.github.microcks.service.GraphQLSchemaCache;
+import io.github.microcks.service.MockRoutingTable;
 import io.github.microcks.util.ParameterConstraintUtil;
 import io.github.microcks.util.SafeLogger;
 import io.github.microcks.util.graphql.GraphQLHttpRequest;
+import io.github.microcks.util.graphql.GraphQLHttpRequest.PersistedQueryNotFoundException;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import graphql.ExecutionResult;
-import graphql.GraphQL;
 import graphql.language.Argument;
 import graphql.language.Definition;
 import graphql.language.Document;
@@ -45,16 +43,13 @@ import graphql.language.Selection;
 import graphql.language.SelectionSet;
 import graphql.language.StringValue;
 import graphql.language.VariableReference;
-import graphql.schema.GraphQLSchema;
-import graphql.schema.idl.RuntimeWiring;
-import graphql.schema.idl.SchemaGenerator;
-import graphql.schema.idl.SchemaParser;
-import graphql.schema.idl.TypeDefinitionRegistry;
-import graphql.parser.Parser;
+import io.opentelemetry.context.Context;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -72,6 +67,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import io.github.microcks.util.delay.DelaySpec;
 
@@ -90,32 +89,39 @@ public class GraphQLController {
    private static final String TYPENAME_SELECTION = "__typename";
    private static final Set<String> IGNORED_HEADERS = Set.of("transfer-encoding", "content-length");
 
-   private final ServiceRepository serviceRepository;
-   private final ResourceRepository resourceRepository;
+   private final MockRoutingTable routingTable;
+   private final GraphQLSchemaCache schemaCache;
    private final GraphQLInvocationProcessor invocationProcessor;
+   private final MockStageTimers stageTimers;
+   private final MockDelayScheduler delayScheduler;
 
-   private final Parser requestParser = new Parser();
-   private final SchemaParser schemaParser = new SchemaParser();
-   private final SchemaGenerator schemaGenerator = new SchemaGenerator();
    private final ObjectMapper mapper = new ObjectMapper();
 
+   @Value("${mocks.graphql.parallel-selections.enabled:true}")
+   private boolean parallelSelectionsEnabled = true;
+
 
    /**
     * Build a GraphQLController with required dependencies.
-    * @param serviceRepository   The repository to access services definitions
-    * @param resourceRepository  The repository to access resources artifacts
+    * @param routingTable        The routing table to access services definitions
+    * @param schemaCache         The cache of compiled GraphQL schemas
     * @param invocationProcessor The invocation processor to use for processing the call
+    * @param stageTimers         The timers for measuring invocation stages
+    * @param delayScheduler      The scheduler for releasing delayed responses asynchronously
     */
-   public GraphQLController(ServiceRepository serviceRepository, ResourceRepository resourceRepository,
-         GraphQLInvocationProcessor invocationProcessor) {
-      this.serviceRepository = serviceRepository;
-      this.resourceRepository = resourceRepository;
+   public GraphQLController(MockRoutingTable routingTable, GraphQLSchemaCache schemaCache,
+         GraphQLInvocationProcessor invocationProcessor, MockStageTimers stageTimers,
+         MockDelayScheduler delayScheduler) {
+      this.routingTable = routingTable;
+      this.schemaCache = schemaCache;
       this.invocationProcessor = invocationProcessor;
+      this.stageTimers = stageTimers;
+      this.delayScheduler = delayScheduler;
    }
 
 
    @RequestMapping(value = "/{service}/{version}/**", method = { RequestMethod.GET, RequestMethod.POST })
-   public ResponseEntity<?> execute(@PathVariable("service") String serviceName,
+   public Object execute(@PathVariable("service") String serviceName,
          @PathVariable("version") String version, @RequestParam(value = "delay", required = false) Long requestedDelay,
          @RequestParam(value = "delayStrategy", required = false) String requestedDelayStrategy,
          @RequestBody(required = false) String body, @RequestHeader HttpHeaders headers, HttpServletRequest request,
@@ -131,7 +137,9 @@ public class GraphQLController {
          serviceName = serviceName.replace('+', ' ');
       }
 
-      Service service = serviceRepository.findByNameAndVersion(serviceName, version);
+      long stageStart = stageTimers.start();
+      Service service = routingTable.findByNameAndVersion(serviceName, version);
+      stageTimers.record(Stage.SERVICE_LOOKUP, MockStageTimers.GRAPHQL, service, null, stageStart);
       if (service == null) {
          return new ResponseEntity<>(
                String.format("The service %s with version %s does not exist!", serviceName, version),
@@ -142,7 +150,11 @@ public class GraphQLController {
       Document graphqlRequest;
       try {
          graphqlHttpReq = GraphQLHttpRequest.from(body, request);
-         graphqlRequest = requestParser.parseDocument(graphqlHttpReq.getQuery());
+         graphqlRequest = graphqlHttpReq.getDocument();
+      } catch (PersistedQueryNotFoundException e) {
+         // Apollo clients expect this error for sending the full query again.
+         log.debug("Persisted query not found, client should send query again: {}", e.getMessage());
+         return buildPersistedQueryNotFoundResponse();
       } catch (Exception e) {
          log.error("Error parsing GraphQL request: {}", e.getMessage());
          return new ResponseEntity<>("Error parsing GraphQL request: " + e.getMessage(), HttpStatus.BAD_REQUEST);
@@ -160,66 +172,43 @@ public class GraphQLController {
       if ("QUERY".equals(operationType) && INTROSPECTION_SELECTION
             .equals(((Field) graphqlOperation.getSelectionSet().getSelections().get(0)).getName())) {
          log.info("Handling GraphQL schema introspection query...");
-         Resource graphqlSchema = resourceRepository
-               .findByServiceIdAndType(service.getId(), ResourceType.GRAPHQL_SCHEMA).get(0);
-
-         TypeDefinitionRegistry typeDefinitionRegistry = schemaParser.parse(graphqlSchema.getContent());
-         GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry,
-               RuntimeWiring.MOCKED_WIRING);
-
-         GraphQL graphQL = GraphQL.newGraphQL(graphQLSchema).build();
-         ExecutionResult executionResult = graphQL.execute(graphqlHttpReq.getQuery());
-
          String responseContent = null;
          try {
-            responseContent = mapper.writeValueAsString(executionResult);
+            responseContent = schemaCache.getIntrospectionResult(service.getId(), graphqlHttpReq.getQuery());
          } catch (JsonProcessingException jpe) {
             log.error("Unknown Json processing exception", jpe);
             return new ResponseEntity<>(jpe.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
          }
+         if (responseContent == null) {
+            return new ResponseEntity<>(
+                  String.format("The service %s with version %s does not have a GraphQL schema!", serviceName, version),
+                  HttpStatus.NOT_FOUND);
+         }
          return new ResponseEntity<>(responseContent, HttpStatus.OK);
       }
 
       // Then deal with one or many regular GraphQL selection queries.
-      List<GraphQLQueryResponse> graphqlResponses = new ArrayList<>();
       DelaySpec specifiedDelay = MockControllerCommons.getDelay(headers, requestedDelay, requestedDelayStrategy);
 
       Long maxDelay = specifiedDelay == null ? 0L : specifiedDelay.baseValue();
       String maxDelayStrategy = specifiedDelay == null ? null : specifiedDelay.strategyName();
 
-      for (Selection<?> selection : graphqlOperation.getSelectionSet().getSelections()) {
-         try {
-            GraphQLQueryResponse graphqlResponse = processGraphQLQuery(service, operationType, (Field) selection,
-                  graphqlRequest.getDefinitionsOfType(FragmentDefinition.class), body, graphqlHttpReq, headers,
-                  request);
-
-            //            if (graphqlResponse.getProxyUrl() != null) {
-            //               // If we've got a proxyUrl, that's the moment!
-            //               return proxyService.callExternal(graphqlResponse.getProxyUrl(), method, headers, body);
-            //            }
-
-            graphqlResponses.add(graphqlResponse);
-            if (specifiedDelay == null && graphqlResponse.getOperationDelay() != null
-                  && graphqlResponse.getOperationDelay() > maxDelay) {
-               maxDelay = graphqlResponse.getOperationDelay();
-               maxDelayStrategy = graphqlResponse.getOperationDelayStrategy();
-            }
-         } catch (GraphQLQueryProcessingException e) {
-            log.error("Caught a GraphQL processing exception", e);
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-         }
+      List<GraphQLQueryResponse> graphqlResponses;
+      try {
+         graphqlResponses = processGraphQLSelections(service, operationType, graphqlOperation,
+               graphqlRequest.getDefinitionsOfType(FragmentDefinition.class), body, graphqlHttpReq, headers, request);
+      } catch (GraphQLQueryProcessingException e) {
+         log.error("Caught a GraphQL processing exception", e);
+         return new ResponseEntity<>(e.getMessage(), e.getStatus());
       }
 
-      /*
-       * Optimized parallel version but need to better handle exception. graphqlResponses =
-       * graphqlOperation.getSelectionSet().getSelections().stream().parallel().map(selection -> { try {
-       * GraphQLQueryResponse graphqlResponse = processGraphQLQuery(service, operationType, (Field) selection,
-       * graphqlRequest.getDefinitionsOfType(FragmentDefinition.class), body, graphqlHttpReq, request); if
-       * (graphqlResponse.getOperationDelay() != null && graphqlResponse.getOperationDelay() > maxDelay[0]) {
-       * maxDelay[0] = graphqlResponse.getOperationDelay(); } return graphqlResponse; } catch
-       * (GraphQLQueryProcessingException e) { log.error("Caught a GraphQL processing exception", e); return null; }
-       * }).collect(Collectors.toList());
-       */
+      for (GraphQLQueryResponse graphqlResponse : graphqlResponses) {
+         if (specifiedDelay == null && graphqlResponse.getOperationDelay() != null
+               && graphqlResponse.getOperationDelay() > maxDelay) {
+            maxDelay = graphqlResponse.getOperationDelay();
+            maxDelayStrategy = graphqlResponse.getOperationDelayStrategy();
+         }
+      }
 
       // Deal with response headers.
       HttpHeaders responseHeaders = new HttpHeaders();
@@ -236,9 +225,13 @@ public class GraphQLController {
          responseHeaders.put("Content-Type", List.of("application/json"));
       }
 
-      // Waiting for delay if any.
+      // Waiting for delay if any, unless it can be deferred once response is built.
       DelaySpec waitMaxDelay = new DelaySpec(maxDelay, maxDelayStrategy);
-      MockControllerCommons.waitForDelay(startTime, waitMaxDelay);
+      if (!delayScheduler.isAsyncEnabled()) {
+         stageStart = stageTimers.start();
+         MockControllerCommons.waitForDelay(startTime, waitMaxDelay);
+         stageTimers.record(Stage.DELAY, MockStageTimers.GRAPHQL, service, null, stageStart);
+      }
 
       String responseContent = null;
       JsonNode responseNode = graphqlResponses.get(0).getJsonResponse();
@@ -247,6 +240,7 @@ public class GraphQLController {
       // Setting each response under its alias (or operation name if no alias is provided),
       // ensures that aliasing applies consistently for both multi and single queries, matching actual
       // GraphQL behavior.
+      stageStart = stageTimers.start();
       ObjectNode aggregated = mapper.createObjectNode();
       ObjectNode dataNode = aggregated.putObject("data");
       for (GraphQLQueryResponse response : graphqlResponses) {
@@ -260,7 +254,88 @@ public class GraphQLController {
          log.error("Unknown Json processing exception", e);
          return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
       }
-      return new ResponseEntity<>(responseContent, responseHeaders, HttpStatus.OK);
+      long serializationDuration = stageTimers.elapsed(stageStart);
+      for (GraphQLQueryResponse response : graphqlResponses) {
+         serializationDuration += response.getSerializationDuration();
+      }
+      stageTimers.recordDuration(Stage.SERIALIZATION, MockStageTimers.GRAPHQL, service, null, serializationDuration);
+
+      ResponseEntity<String> responseEntity = new ResponseEntity<>(responseContent, responseHeaders, HttpStatus.OK);
+      if (delayScheduler.isAsyncEnabled()) {
+         long deferredDelay = MockControllerCommons.computeRemainingDelay(startTime, waitMaxDelay);
+         if (deferredDelay > 0) {
+            // Release request thread, response will be returned once delay is expired.
+            return delayScheduler.deferResult(deferredDelay, () -> responseEntity);
+         }
+      }
+      return responseEntity;
+   }
+
+   /**
+    * Process all the field selection queries of a GraphQL operation. Selections of a query operation are processed
+    * concurrently on virtual threads if enabled; selections of a mutation are always processed sequentially as
+    * required by GraphQL specification. In both cases, responses are returned in the order of selections and the
+    * reported exception is the one of the first failing selection.
+    * @param service             The Service this query is targeting
+    * @param operationType       The type of GraphQL operation (QUERY or MUTATION)
+    * @param graphqlOperation    The GraphQL operation holding selections
+    * @param fragmentDefinitions A list of fragment field selection
+    * @param body                The Http request body
+    * @param graphqlHttpReq      The Http GraphQL request wrapper
+    * @param headers             The header of the incoming Http request
+    * @param request             The bare Http Servlet request
+    * @return The GraphQL query responses, in the order of selections
+    * @throws GraphQLQueryProcessingException if one of the field selection queries cannot be processed
+    */
+   protected List<GraphQLQueryResponse> processGraphQLSelections(Service service, String operationType,
+         OperationDefinition graphqlOperation, List<FragmentDefinition> fragmentDefinitions, String body,
+         GraphQLHttpRequest graphqlHttpReq, HttpHeaders headers, HttpServletRequest request)
+         throws GraphQLQueryProcessingException {
+
+      List<Selection> selections = graphqlOperation.getSelectionSet().getSelections();
+      List<GraphQLQueryResponse> graphqlResponses = new ArrayList<>(selections.size());
+
+      if (!parallelSelectionsEnabled || !"QUERY".equals(operationType) || selections.size() < 2) {
+         for (Selection<?> selection : selections) {
+            graphqlResponses.add(processGraphQLQuery(service, operationType, (Field) selection, fragmentDefinitions,
+                  body, graphqlHttpReq, headers, request));
+         }
+         return graphqlResponses;
+      }
+
+      // Container request is not thread-safe: selections only get an immutable snapshot of it and read-only headers.
+      HttpServletRequest requestSnapshot = new RequestSnapshot(request);
+      HttpHeaders readOnlyHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+
+      // Tasks cannot outlive this request: executor is closed (waiting for tasks) before returning.
+      Context context = Context.current();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+         List<Future<GraphQLQueryResponse>> futures = new ArrayList<>(selections.size());
+         for (Selection<?> selection : selections) {
+            futures.add(executor.submit(context.wrap(() -> processGraphQLQuery(service, operationType,
+                  (Field) selection, fragmentDefinitions, body, graphqlHttpReq, readOnlyHeaders, requestSnapshot))));
+         }
+         for (Future<GraphQLQueryResponse> future : futures) {
+            try {
+               graphqlResponses.add(future.get());
+            } catch (ExecutionException ee) {
+               // No need to complete remaining selections, the whole query is failing.
+               futures.forEach(other -> other.cancel(true));
+               if (ee.getCause() instanceof GraphQLQueryProcessingException gqpe) {
+                  throw gqpe;
+               }
+               log.error("Unexpected exception while processing a GraphQL selection", ee.getCause());
+               throw new GraphQLQueryProcessingException("Exception while processing selection: "
+                     + ee.getCause().getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            } catch (InterruptedException ie) {
+               futures.forEach(other -> other.cancel(true));
+               Thread.currentThread().interrupt();
+               throw new GraphQLQueryProcessingException("Interrupted while processing selections",
+                     HttpStatus.SERVICE_UNAVAILABLE);
+            }
+         }
+      }
+      return graphqlResponses;
    }
 
    /**
@@ -298,6 +373,7 @@ public class GraphQLController {
          return result;
       }
 
+      long stageStart = stageTimers.start();
       Operation rOperation = null;
       for (Operation operation : service.getOperations()) {
          // Select operation based on type (QUERY or MUTATION)...
@@ -307,6 +383,7 @@ public class GraphQLController {
             break;
          }
       }
+      stageTimers.record(Stage.OPERATION_MATCH, MockStageTimers.GRAPHQL, service, rOperation, stageStart);
 
       if (rOperation != null) {
          log.debug("Found a valid operation {} with rules: {}", rOperation.getName(), rOperation.getDispatcherRules());
@@ -337,10 +414,13 @@ public class GraphQLController {
 
          if (responseResult.content() != null) {
             try {
+               stageStart = stageTimers.start();
                JsonNode responseJson = mapper.readTree(responseResult.content());
                filterFieldSelection(graphqlField.getSelectionSet(), fragmentDefinitions,
                      responseJson.get("data").get(operationName));
                result.setJsonResponse(responseJson);
+               // Serialization is recorded once for the whole request, along with response aggregation.
+               result.setSerializationDuration(stageTimers.elapsed(stageStart));
             } catch (Exception pe) {
                log.error("Exception while filtering response according GraphQL field selection", pe);
                throw new GraphQLQueryProcessingException("Exception while filtering response JSON",
@@ -359,6 +439,19 @@ public class GraphQLController {
       throw new GraphQLQueryProcessingException("No '" + operationName + "' operation found", HttpStatus.NOT_FOUND);
    }
 
+   /** Build the response telling an Apollo client that persisted query is not known and must be sent again. */
+   private ResponseEntity<String> buildPersistedQueryNotFoundResponse() {
+      ObjectNode error = mapper.createObjectNode();
+      error.put("message", PersistedQueryNotFoundException.PERSISTED_QUERY_NOT_FOUND);
+      error.putObject("extensions").put("code", PersistedQueryNotFoundException.PERSISTED_QUERY_NOT_FOUND_CODE);
+      ObjectNode responseNode = mapper.createObjectNode();
+      responseNode.putArray("errors").add(error);
+
+      HttpHeaders responseHeaders = new HttpHeaders();
+      responseHeaders.setContentType(MediaType.APPLICATION_JSON);
+      return new ResponseEntity<>(responseNode.toString(), responseHeaders, HttpStatus.OK);
+   }
+
    /** Validate the parameter constraints and return a single string with violation message if any. */
    private String validateParameterConstraintsIfAny(Operation rOperation, HttpServletRequest request) {
       if (rOperation.getParameterConstraints() != null) {
@@ -429,6 +522,7 @@ public class GraphQLController {
       Response response;
       JsonNode jsonResponse;
       URI proxyUrl;
+      long serializationDuration;
 
       public String getOperationName() {
          return operationName;
@@ -485,6 +579,14 @@ public class GraphQLController {
       public void setProxyUrl(URI proxyUrl) {
          this.proxyUrl = proxyUrl;
       }
+
+      public long getSerializationDuration() {
+         return serializationDuration;
+      }
+
+      public void setSerializationDuration(long serializationDuration) {
+         this.serializationDuration = serializationDuration;
+      }
    }
 
    /** Simple exception wrapping a processing error. */
@@ -16,16 +16,18 @@
 package io.github.microcks.web;
 
 import io.github.microcks.domain.Header;
+import io.github.microcks.domain.Operation;
 import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResponseRepository;
-import io.github.microcks.repository.ServiceStateRepository;
+import io.github.microcks.service.CompiledGroovyScriptCache;
 import io.github.microcks.service.ProxyService;
-import io.github.microcks.service.ServiceStateStore;
+import io.github.microcks.service.ResponseLookupIndex;
+import io.github.microcks.service.ServiceStateCache;
 import io.github.microcks.util.DispatchCriteriaHelper;
 import io.github.microcks.util.DispatchStyles;
 import io.github.microcks.util.IdBuilder;
 import io.github.microcks.util.SafeLogger;
+import io.github.microcks.util.dispatcher.CompiledDispatcher;
 import io.github.microcks.util.dispatcher.FallbackSpecification;
 import io.github.microcks.util.dispatcher.JsonEvaluationSpecification;
 import io.github.microcks.util.dispatcher.JsonExpressionEvaluator;
@@ -34,11 +36,11 @@ import io.github.microcks.util.dispatcher.ProxyFallbackSpecification;
 import io.github.microcks.util.graphql.GraphQLHttpRequest;
 import io.github.microcks.util.script.JsScriptEngineBinder;
 import io.github.microcks.util.script.ScriptEngineBinder;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.roastedroot.quickjs4j.core.Engine;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
@@ -70,10 +72,12 @@ public class GraphQLInvocationProcessor {
    /** A safe logger for filtering user-controlled data in diagnostic messages. */
    private static final SafeLogger log = SafeLogger.getLogger(GraphQLInvocationProcessor.class);
 
-   private final ServiceStateRepository serviceStateRepository;
-   private final ResponseRepository responseRepository;
+   private final ServiceStateCache serviceStateCache;
+   private final ResponseLookupIndex responseIndex;
+   private final CompiledGroovyScriptCache groovyScriptCache;
    private final ApplicationContext applicationContext;
    private final ProxyService proxyService;
+   private final MockStageTimers stageTimers;
    private final ObjectMapper mapper = new ObjectMapper();
 
    private ScriptEngine scriptEngine;
@@ -83,17 +87,22 @@ public class GraphQLInvocationProcessor {
 
    /**
     * Build a GraphQLInvocationProcessor with required dependencies.
-    * @param serviceStateRepository The repository to access service state
-    * @param responseRepository     The repository to access responses definitions
-    * @param applicationContext     The Spring application context
-    * @param proxyService           The proxy to external URLs or services
+    * @param serviceStateCache  The cache to access service state
+    * @param responseIndex      The index to access responses definitions
+    * @param groovyScriptCache  The cache of compiled Groovy dispatcher scripts
+    * @param applicationContext The Spring application context
+    * @param proxyService       The proxy to external URLs or services
+    * @param stageTimers        The timers for measuring invocation stages
     */
-   public GraphQLInvocationProcessor(ServiceStateRepository serviceStateRepository,
-         ResponseRepository responseRepository, ApplicationContext applicationContext, ProxyService proxyService) {
-      this.serviceStateRepository = serviceStateRepository;
-      this.responseRepository = responseRepository;
+   public GraphQLInvocationProcessor(ServiceStateCache serviceStateCache,
+         ResponseLookupIndex responseIndex, CompiledGroovyScriptCache groovyScriptCache,
+         ApplicationContext applicationContext, ProxyService proxyService, MockStageTimers stageTimers) {
+      this.serviceStateCache = serviceStateCache;
+      this.responseIndex = responseIndex;
+      this.groovyScriptCache = groovyScriptCache;
       this.applicationContext = applicationContext;
       this.proxyService = proxyService;
+      this.stageTimers = stageTimers;
       this.scriptEngine = new ScriptEngineManager().getEngineByExtension("groovy");
    }
 
@@ -113,19 +122,22 @@ public class GraphQLInvocationProcessor {
          HttpServletRequest request) {
       // We must find dispatcher and its rules. Default to operation ones but
       // if we have a Fallback or Proxy-Fallback this is the one who is holding the first pass rules.
-      FallbackSpecification fallback = MockControllerCommons.getFallbackIfAny(ic.operation());
-      ProxyFallbackSpecification proxyFallback = MockControllerCommons.getProxyFallbackIfAny(ic.operation());
-      String dispatcher = getDispatcher(ic, fallback, proxyFallback);
-      String dispatcherRules = getDispatcherRules(ic, fallback, proxyFallback);
+      CompiledDispatcher compiledDispatcher = CompiledDispatcher.compile(ic.operation());
+      FallbackSpecification fallback = compiledDispatcher.getFallback();
+      ProxyFallbackSpecification proxyFallback = compiledDispatcher.getProxyFallback();
+      String dispatcher = compiledDispatcher.getDispatcher();
+      String dispatcherRules = compiledDispatcher.getDispatcherRules();
 
-      //
-      DispatchContext dispatchContext = computeDispatchCriteria(ic.service(), dispatcher, dispatcherRules, queryParams,
-            graphqlHttpReq.getVariables(), request, body);
+      long stageStart = stageTimers.start();
+      DispatchContext dispatchContext = computeDispatchCriteria(ic.service(), ic.operation(), compiledDispatcher,
+            queryParams, graphqlHttpReq.getVariables(), request, body);
+      stageTimers.record(Stage.DISPATCH_CRITERIA, MockStageTimers.GRAPHQL, ic.service(), ic.operation(), stageStart);
       log.debug("Dispatch criteria for finding response is {}", dispatchContext.dispatchCriteria());
 
       // First try: using computed dispatchCriteria on main dispatcher.
+      stageStart = stageTimers.start();
       Response response = null;
-      List<Response> responses = responseRepository.findByOperationIdAndDispatchCriteria(
+      List<Response> responses = responseIndex.findByOperationIdAndDispatchCriteria(
             IdBuilder.buildOperationId(ic.service(), ic.operation()), dispatchContext.dispatchCriteria());
       if (!responses.isEmpty()) {
          response = responses.getFirst();
@@ -134,7 +146,7 @@ public class GraphQLInvocationProcessor {
       if (response == null) {
          // When using the SCRIPT or JSON_BODY dispatcher, return of evaluation may be the name of response.
          log.debug("No responses with dispatch criteria, trying the name...");
-         responses = responseRepository.findByOperationIdAndName(
+         responses = responseIndex.findByOperationIdAndName(
                IdBuilder.buildOperationId(ic.service(), ic.operation()), dispatchContext.dispatchCriteria());
          if (!responses.isEmpty()) {
             response = responses.getFirst();
@@ -144,12 +156,13 @@ public class GraphQLInvocationProcessor {
       if (response == null && fallback != null) {
          // If we've found nothing and got a fallback, that's the moment!
          log.debug("No responses till now so far, applying the fallback...");
-         responses = responseRepository.findByOperationIdAndName(
+         responses = responseIndex.findByOperationIdAndName(
                IdBuilder.buildOperationId(ic.service(), ic.operation()), fallback.getFallback());
          if (!responses.isEmpty()) {
             response = responses.getFirst();
          }
       }
+      stageTimers.record(Stage.RESPONSE_LOOKUP, MockStageTimers.GRAPHQL, ic.service(), ic.operation(), stageStart);
 
       // Check if we need to proxy the request.
       Optional<URI> proxyUrl = MockControllerCommons.getProxyUrlIfProxyIsNeeded(dispatcher, dispatcherRules, "",
@@ -160,8 +173,10 @@ public class GraphQLInvocationProcessor {
          httpHeaders.putAll(headers);
 
          // If we've got a proxyUrl, that's the moment to tell about it!
+         stageStart = stageTimers.start();
          ResponseEntity<byte[]> proxyResponse = proxyService.callExternal(proxyUrl.get(),
                HttpMethod.valueOf(request.getMethod()), httpHeaders, body);
+         stageTimers.record(Stage.PROXY, MockStageTimers.GRAPHQL, ic.service(), ic.operation(), stageStart);
          return new ResponseResult(proxyResponse.getStatusCode(), proxyResponse.getHeaders(), proxyResponse.getBody());
       }
 
@@ -170,7 +185,7 @@ public class GraphQLInvocationProcessor {
             // In case no response found (because dispatcher is null for example), just get one for the operation.
             // This will allow also OPTIONS operations (like pre-flight requests) with no dispatch criteria to work.
             log.debug("No responses found so far, tempting with just bare operationId...");
-            responses = responseRepository.findByOperationId(IdBuilder.buildOperationId(ic.service(), ic.operation()));
+            responses = responseIndex.findByOperationId(IdBuilder.buildOperationId(ic.service(), ic.operation()));
             if (!responses.isEmpty()) {
                response = responses.getFirst();
             }
@@ -190,8 +205,10 @@ public class GraphQLInvocationProcessor {
          }
 
          // Render response content before waiting and returning.
+         stageStart = stageTimers.start();
          String responseContent = MockControllerCommons.renderResponseContent(body, null, evaluableHeaders,
                dispatchContext.requestContext(), response);
+         stageTimers.record(Stage.RENDERING, MockStageTimers.GRAPHQL, ic.service(), ic.operation(), stageStart);
 
 
          // Evaluate headers and add them to responseHeaders.
@@ -217,8 +234,11 @@ public class GraphQLInvocationProcessor {
    }
 
    /** Compute a dispatch context with a dispatchCriteria string from type, rules and request elements. */
-   private DispatchContext computeDispatchCriteria(Service service, String dispatcher, String dispatcherRules,
-         Map<String, String> queryParams, JsonNode requestVariables, HttpServletRequest request, String body) {
+   private DispatchContext computeDispatchCriteria(Service service, Operation operation,
+         CompiledDispatcher compiledDispatcher, Map<String, String> queryParams, JsonNode requestVariables,
+         HttpServletRequest request, String body) {
+      String dispatcher = compiledDispatcher.getDispatcher();
+      String dispatcherRules = compiledDispatcher.getDispatcherRules();
       String dispatchCriteria = null;
       Map<String, Object> requestContext = null;
 
@@ -226,12 +246,12 @@ public class GraphQLInvocationProcessor {
       if (dispatcher != null) {
          switch (dispatcher) {
             case DispatchStyles.QUERY_ARGS:
-               dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(dispatcherRules, queryParams);
+               dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(compiledDispatcher.getParamsRule(),
+                     queryParams);
                break;
             case DispatchStyles.JSON_BODY:
                try {
-                  JsonEvaluationSpecification specification = JsonEvaluationSpecification
-                        .buildFromJsonString(dispatcherRules);
+                  JsonEvaluationSpecification specification = compiledDispatcher.getJsonEvaluationSpecification();
                   dispatchCriteria = JsonExpressionEvaluator.evaluate(mapper.writeValueAsString(requestVariables),
                         specification);
                } catch (JsonMappingException jme) {
@@ -248,16 +268,16 @@ public class GraphQLInvocationProcessor {
                try {
                   // Evaluating request with script coming from operation dispatcher rules.
                   ScriptContext scriptContext = ScriptEngineBinder.buildEvaluationContext(scriptEngine, body,
-                        requestContext, new ServiceStateStore(serviceStateRepository, service.getId()), request);
-                  dispatchCriteria = (String) scriptEngine.eval(dispatcherRules, scriptContext);
+                        requestContext, serviceStateCache.getStateStore(service.getId()), request);
+                  dispatchCriteria = (String) groovyScriptCache.eval(IdBuilder.buildOperationId(service, operation),
+                        dispatcherRules, scriptContext);
                } catch (Exception e) {
                   log.error("Error during Script evaluation", e);
                }
                break;
             case DispatchStyles.JS:
-               Engine scriptContext = JsScriptEngineBinder.buildEvaluationContext(body, requestContext,
-                     new ServiceStateStore(serviceStateRepository, service.getId()), request);
-               String result = JsScriptEngineBinder.invokeProcessFn(dispatcherRules, scriptContext);
+               String result = JsScriptEngineBinder.evaluate(dispatcherRules, body, requestContext,
+                     serviceStateCache.getStateStore(service.getId()), request);
                if (result != null) {
                   dispatchCriteria = result;
                }
@@ -266,30 +286,4 @@ public class GraphQLInvocationProcessor {
       }
       return new DispatchContext(dispatchCriteria, requestContext);
    }
-
-   /** Get the root dispatcher for the invocation context. */
-   private String getDispatcher(MockInvocationContext ic, FallbackSpecification fallback,
-         ProxyFallbackSpecification proxyFallback) {
-      String dispatcher = ic.operation().getDispatcher();
-      if (fallback != null) {
-         dispatcher = fallback.getDispatcher();
-      }
-      if (proxyFallback != null) {
-         dispatcher = proxyFallback.getDispatcher();
-      }
-      return dispatcher;
-   }
-
-   /** Get the root dispatcher rules for the invocation context. */
-   private String getDispatcherRules(MockInvocationContext ic, FallbackSpecification fallback,
-         ProxyFallbackSpecification proxyFallback) {
-      String dispatcherRules = ic.operation().getDispatcherRules();
-      if (fallback != null) {
-         dispatcherRules = fallback.getDispatcherRules();
-      }
-      if (proxyFallback != null) {
-         dispatcherRules = proxyFallback.getDispatcherRules();
-      }
-      return dispatcherRules;
-   }
 }
@@ -18,13 +18,14 @@ package io.github.microcks.web;
 import io.github.microcks.domain.Operation;
 import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResponseRepository;
-import io.github.microcks.repository.ServiceStateRepository;
+import io.github.microcks.service.CompiledGroovyScriptCache;
 import io.github.microcks.service.OpenTelemetryResolverService;
-import io.github.microcks.service.ServiceStateStore;
+import io.github.microcks.service.ResponseLookupIndex;
+import io.github.microcks.service.ServiceStateCache;
 import io.github.microcks.util.DispatchCriteriaHelper;
 import io.github.microcks.util.DispatchStyles;
 import io.github.microcks.util.IdBuilder;
+import io.github.microcks.util.dispatcher.CompiledDispatcher;
 import io.github.microcks.util.dispatcher.FallbackSpecification;
 import io.github.microcks.util.dispatcher.JsonEvaluationSpecification;
 import io.github.microcks.util.dispatcher.JsonExpressionEvaluator;
@@ -45,7 +46,6 @@ import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Scope;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
-import io.roastedroot.quickjs4j.core.Engine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -65,6 +65,7 @@ import io.github.microcks.util.delay.DelayApplierOptions;
 import io.github.microcks.util.tracing.CommonAttributes;
 import io.github.microcks.util.tracing.CommonEvents;
 import io.github.microcks.util.tracing.TraceUtil;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import static io.github.microcks.util.tracing.CommonEvents.DISPATCH_CRITERIA_COMPUTED;
 
@@ -79,31 +80,38 @@ public class GrpcInvocationProcessor {
    /** A simple logger for diagnostic messages. */
    private static final Logger log = LoggerFactory.getLogger(GrpcInvocationProcessor.class);
 
-   private final ServiceStateRepository serviceStateRepository;
-   private final ResponseRepository responseRepository;
+   private final ServiceStateCache serviceStateCache;
+   private final ResponseLookupIndex responseIndex;
+   private final CompiledGroovyScriptCache groovyScriptCache;
    private final ApplicationContext applicationContext;
    private final ObjectMapper mapper = new ObjectMapper();
 
    private final ScriptEngine scriptEngine;
    private final OpenTelemetryResolverService opentelemetryResolverService;
+   private final MockStageTimers stageTimers;
 
    @Value("${mocks.enable-invocation-stats}")
    private Boolean enableInvocationStats;
 
    /**
     * Build a GrpcInvocationProcessor with required dependencies.
-    * @param serviceStateRepository       The repository to access service state
-    * @param responseRepository           The repository to access responses definitions
+    * @param serviceStateCache            The cache to access service state
+    * @param responseIndex                The index to access responses definitions
+    * @param groovyScriptCache            The cache of compiled Groovy dispatcher scripts
     * @param applicationContext           The Spring application context
     * @param opentelemetryResolverService The opentelemetry resolver
+    * @param stageTimers                  The timers for measuring invocation stages
     */
-   public GrpcInvocationProcessor(ServiceStateRepository serviceStateRepository, ResponseRepository responseRepository,
-         ApplicationContext applicationContext, OpenTelemetryResolverService opentelemetryResolverService) {
-      this.serviceStateRepository = serviceStateRepository;
-      this.responseRepository = responseRepository;
+   public GrpcInvocationProcessor(ServiceStateCache serviceStateCache, ResponseLookupIndex responseIndex,
+         CompiledGroovyScriptCache groovyScriptCache, ApplicationContext applicationContext,
+         OpenTelemetryResolverService opentelemetryResolverService, MockStageTimers stageTimers) {
+      this.serviceStateCache = serviceStateCache;
+      this.responseIndex = responseIndex;
+      this.groovyScriptCache = groovyScriptCache;
       this.applicationContext = applicationContext;
       this.scriptEngine = new ScriptEngineManager().getEngineByExtension("groovy");
       this.opentelemetryResolverService = opentelemetryResolverService;
+      this.stageTimers = stageTimers;
    }
 
    /**
@@ -116,6 +124,21 @@ public class GrpcInvocationProcessor {
     */
    @WithSpan(kind = SpanKind.INTERNAL, value = "processInvocation")
    public GrpcResponseResult processInvocation(MockInvocationContext ic, long startTime, String jsonBody) {
+      return processInvocation(ic, startTime, jsonBody, false);
+   }
+
+   /**
+    * Process a gRPC invocation. This method is responsible for determining the appropriate response based on the
+    * request context, applying any necessary dispatching logic.
+    * @param ic         The invocation context containing information about the service and operation being invoked
+    * @param startTime  The start time of the invocation
+    * @param jsonBody   The request body expressed in JSON
+    * @param deferDelay Whether response delay should be returned as {@code deferredDelay} instead of being waited for
+    * @return A GrcpResponseResult containing the status, body or exception message of the response
+    */
+   @WithSpan(kind = SpanKind.INTERNAL, value = "processInvocation")
+   public GrpcResponseResult processInvocation(MockInvocationContext ic, long startTime, String jsonBody,
+         boolean deferDelay) {
       // Mark current span as an explain Span
       Span span = Span.current();
       TraceUtil.enableExplainTracing();
@@ -124,7 +147,8 @@ public class GrpcInvocationProcessor {
       // if we have a Fallback this is the one who is holding the first pass rules.
       String dispatcher = ic.operation().getDispatcher();
       String dispatcherRules = ic.operation().getDispatcherRules();
-      FallbackSpecification fallback = MockControllerCommons.getFallbackIfAny(ic.operation());
+      CompiledDispatcher compiledDispatcher = CompiledDispatcher.compile(ic.operation());
+      FallbackSpecification fallback = compiledDispatcher.getFallback();
       if (fallback != null) {
          dispatcher = fallback.getDispatcher();
          dispatcherRules = fallback.getDispatcherRules();
@@ -138,22 +162,29 @@ public class GrpcInvocationProcessor {
 
       // Get metadata for current context.
       Metadata metadata = GrpcMetadataUtil.METADATA_CTX_KEY.get();
-      DispatchContext dispatchContext = computeDispatchCriteria(ic.service(), dispatcher, dispatcherRules, jsonBody,
-            metadata);
+      long stageStart = stageTimers.start();
+      DispatchContext dispatchContext = computeDispatchCriteria(ic.service(), ic.operation(), dispatcher,
+            dispatcherRules, jsonBody, metadata);
+      stageTimers.record(Stage.DISPATCH_CRITERIA, MockStageTimers.GRPC, ic.service(), ic.operation(), stageStart);
       log.debug("Dispatch criteria for finding response is {}", dispatchContext.dispatchCriteria());
 
       // Trying to retrieve the responses with context elements.
+      stageStart = stageTimers.start();
       List<Response> responses = findCandidateResponses(ic.service(), ic.operation(), dispatchContext, fallback);
+      stageTimers.record(Stage.RESPONSE_LOOKUP, MockStageTimers.GRPC, ic.service(), ic.operation(), stageStart);
 
       // No filter to apply, just check that we have a response.
       if (!responses.isEmpty()) {
          Response response = responses.getFirst();
 
          // Render response content before.
+         stageStart = stageTimers.start();
          String responseContent = MockControllerCommons.renderResponseContent(jsonBody,
                dispatchContext.requestContext(), response);
+         stageTimers.record(Stage.RENDERING, MockStageTimers.GRPC, ic.service(), ic.operation(), stageStart);
 
          // Setting delay to default one if not set.
+         long deferredDelay = 0L;
          if (ic.operation().getDefaultDelay() != null) {
             DelaySpec delay = new DelaySpec(ic.operation().getDefaultDelay(), ic.operation().getDefaultDelayStrategy());
             span.addEvent(CommonEvents.DELAY_CONFIGURED.getEventName(),
@@ -161,7 +192,13 @@ public class GrpcInvocationProcessor {
                         .put(CommonAttributes.DELAY_VALUE, delay.baseValue())
                         .put(CommonAttributes.DELAY_STRATEGY, delay.strategyName()).build());
 
-            MockControllerCommons.waitForDelay(startTime, delay);
+            if (deferDelay) {
+               deferredDelay = MockControllerCommons.computeRemainingDelay(startTime, delay);
+            } else {
+               stageStart = stageTimers.start();
+               MockControllerCommons.waitForDelay(startTime, delay);
+               stageTimers.record(Stage.DELAY, MockStageTimers.GRPC, ic.service(), ic.operation(), stageStart);
+            }
          }
 
          // Publish an invocation event before returning if enabled.
@@ -172,11 +209,12 @@ public class GrpcInvocationProcessor {
          // Return a GrpcResponseResult with the response content.
          if (response.getStatus() == null || response.getStatus().trim().equals("0")
                || statusInHttpRange(response.getStatus())) {
-            return new GrpcResponseResult(Status.OK, responseContent, null);
+            return new GrpcResponseResult(Status.OK, responseContent, null, deferredDelay);
          }
 
          // Or, return an error status.
-         return new GrpcResponseResult(getSafeErrorStatus(response.getStatus()), null, "Mocked response status code");
+         return new GrpcResponseResult(getSafeErrorStatus(response.getStatus()), null, "Mocked response status code",
+               deferredDelay);
       }
 
       // No response found.
@@ -185,8 +223,8 @@ public class GrpcInvocationProcessor {
    }
 
    /** Compute a dispatch context with a dispatchCriteria string from type, rules and request elements. */
-   private DispatchContext computeDispatchCriteria(Service service, String dispatcher, String dispatcherRules,
-         String jsonBody, Metadata metadata) {
+   private DispatchContext computeDispatchCriteria(Service service, Operation operation, String dispatcher,
+         String dispatcherRules, String jsonBody, Metadata metadata) {
       String dispatchCriteria = null;
       Map<String, Object> requestContext = null;
 
@@ -205,15 +243,16 @@ public class GrpcInvocationProcessor {
                   try {
                      Map<String, String> paramsMap = mapper.readValue(jsonBody,
                            TypeFactory.defaultInstance().constructMapType(TreeMap.class, String.class, String.class));
-                     dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(dispatcherRules, paramsMap);
+                     dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(
+                           CompiledDispatcher.compile(dispatcher, dispatcherRules).getParamsRule(), paramsMap);
                   } catch (JsonProcessingException jpe) {
                      log.error("Incoming body cannot be parsed as JSON", jpe);
                   }
                   break;
                case DispatchStyles.JSON_BODY:
                   try {
-                     JsonEvaluationSpecification specification = JsonEvaluationSpecification
-                           .buildFromJsonString(dispatcherRules);
+                     JsonEvaluationSpecification specification = CompiledDispatcher
+                           .compile(dispatcher, dispatcherRules).getJsonEvaluationSpecification();
                      dispatchCriteria = JsonExpressionEvaluator.evaluate(jsonBody, specification);
                   } catch (JsonMappingException jme) {
                      log.error("Dispatching rules of operation cannot be interpreted as JsonEvaluationSpecification",
@@ -236,9 +275,10 @@ public class GrpcInvocationProcessor {
                      StringToStringsMap headers = GrpcMetadataUtil.convertToMap(metadata);
                      // Evaluating request with script coming from operation dispatcher rules.
                      ScriptContext scriptContext = ScriptEngineBinder.buildEvaluationContext(scriptEngine, jsonBody,
-                           requestContext, new ServiceStateStore(serviceStateRepository, service.getId()), headers,
+                           requestContext, serviceStateCache.getStateStore(service.getId()), headers,
                            null);
-                     dispatchCriteria = (String) scriptEngine.eval(dispatcherRules, scriptContext);
+                     dispatchCriteria = (String) groovyScriptCache
+                           .eval(IdBuilder.buildOperationId(service, operation), dispatcherRules, scriptContext);
                   } catch (Exception e) {
                      // Get current span and record failure
                      Span.current().recordException(e);
@@ -257,9 +297,8 @@ public class GrpcInvocationProcessor {
                   try {
                      StringToStringsMap headers = GrpcMetadataUtil.convertToMap(metadata);
                      // Evaluating request with script coming from operation dispatcher rules.
-                     Engine scriptContext = JsScriptEngineBinder.buildEvaluationContext(jsonBody, requestContext,
-                           new ServiceStateStore(serviceStateRepository, service.getId()), headers, null);
-                     dispatchCriteria = JsScriptEngineBinder.invokeProcessFn(dispatcherRules, scriptContext);
+                     dispatchCriteria = JsScriptEngineBinder.evaluate(dispatcherRules, jsonBody, requestContext,
+                           serviceStateCache.getStateStore(service.getId()), headers, null, null);
                   } catch (Exception e) {
                      log.error("Error during Script evaluation", e);
                   }
@@ -294,12 +333,12 @@ public class GrpcInvocationProcessor {
    private List<Response> findCandidateResponses(Service service, Operation grpcOperation,
          DispatchContext dispatchContext, FallbackSpecification fallback) {
       // Trying to retrieve the responses with dispatch criteria.
-      List<Response> responses = responseRepository.findByOperationIdAndDispatchCriteria(
+      List<Response> responses = responseIndex.findByOperationIdAndDispatchCriteria(
             IdBuilder.buildOperationId(service, grpcOperation), dispatchContext.dispatchCriteria());
 
       if (responses.isEmpty()) {
          // When using the SCRIPT or JSON_BODY dispatchers, return of evaluation may be the name of response.
-         responses = responseRepository.findByOperationIdAndName(IdBuilder.buildOperationId(service, grpcOperation),
+         responses = responseIndex.findByOperationIdAndName(IdBuilder.buildOperationId(service, grpcOperation),
                dispatchContext.dispatchCriteria());
       }
 
@@ -312,14 +351,14 @@ public class GrpcInvocationProcessor {
          Span.current().addEvent(CommonEvents.FALLBACK_RESPONSE_USED.getEventName(),
                TraceUtil.explainSpanEventBuilder("Using fallback response as no matching response was found")
                      .put("fallback.name", fallback.getFallback()).build());
-         responses = responseRepository.findByOperationIdAndName(IdBuilder.buildOperationId(service, grpcOperation),
+         responses = responseIndex.findByOperationIdAndName(IdBuilder.buildOperationId(service, grpcOperation),
                fallback.getFallback());
       }
 
       if (responses.isEmpty()) {
          // In case no response found (because dispatcher is null for example), just get one for the operation.
          log.debug("No responses found so far, tempting with just bare operationId...");
-         responses = responseRepository.findByOperationId(IdBuilder.buildOperationId(service, grpcOperation));
+         responses = responseIndex.findByOperationId(IdBuilder.buildOperationId(service, grpcOperation));
       }
       return responses;
    }
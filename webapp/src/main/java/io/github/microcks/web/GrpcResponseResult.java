@@ -22,8 +22,16 @@ import io.grpc.Status;
  * @param status           The HTTP status code
  * @param content          The optional content of the response
  * @param errorDescription The optional error description
+ * @param deferredDelay    The delay in milliseconds to apply before sending the response, when delay has not been
+ *                         applied by invocation processor. 0 if none.
  */
-public record GrpcResponseResult(Status status, String content, String errorDescription) {
+public record GrpcResponseResult(Status status, String content, String errorDescription, long deferredDelay) {
+
+   /** Build a GrpcResponseResult with no deferred delay. */
+   public GrpcResponseResult(Status status, String content, String errorDescription) {
+      this(status, content, errorDescription, 0L);
+   }
+
    public boolean isError() {
       return status.getCode() != Status.Code.OK;
    }
@@ -16,27 +16,24 @@
 package io.github.microcks.web;
 
 import io.github.microcks.domain.Operation;
-import io.github.microcks.domain.Resource;
-import io.github.microcks.domain.ResourceType;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResourceRepository;
-import io.github.microcks.repository.ServiceRepository;
 
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
-import com.google.protobuf.TypeRegistry;
-import com.google.protobuf.util.JsonFormat;
 
+import io.github.microcks.service.GrpcDescriptorCache;
+import io.github.microcks.service.MockRoutingTable;
 import io.github.microcks.service.OpenTelemetryResolverService;
 import io.github.microcks.util.grpc.GrpcMetadataUtil;
-import io.github.microcks.util.grpc.GrpcUtil;
 import io.github.microcks.util.tracing.CommonAttributes;
 import io.github.microcks.util.tracing.CommonEvents;
 import io.github.microcks.util.tracing.TraceUtil;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import io.grpc.Metadata;
 import io.grpc.ServerCallHandler;
 import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
 import io.opentelemetry.api.trace.Span;
@@ -48,7 +45,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 /**
  * A Handler for GRPC Server calls invocation that is using Microcks dispatching and mock definitions.
@@ -60,25 +56,32 @@ public class GrpcServerCallHandler {
    /** A simple logger for diagnostic messages. */
    private static final Logger log = LoggerFactory.getLogger(GrpcServerCallHandler.class);
 
-   private final ServiceRepository serviceRepository;
-   private final ResourceRepository resourceRepository;
+   private final MockRoutingTable routingTable;
+   private final GrpcDescriptorCache descriptorCache;
 
    private final GrpcInvocationProcessor invocationProcessor;
    private final OpenTelemetryResolverService opentelemetryResolverService;
+   private final MockDelayScheduler delayScheduler;
+   private final MockStageTimers stageTimers;
 
    /**
     * Build a new GrpcServerCallHandler with all the repositories it needs and application context.
-    * @param serviceRepository            Repository for getting service definitions
-    * @param resourceRepository           Repository for getting service resources definitions
+    * @param routingTable                 Routing table for getting service definitions
+    * @param descriptorCache              Cache for getting compiled Protobuf descriptors of services
     * @param invocationProcessor          The invocation processor to apply gRPC mocks dispatching logic
     * @param opentelemetryResolverService The opentelemetry resolver
+    * @param delayScheduler               The scheduler for releasing delayed responses asynchronously
+    * @param stageTimers                  The timers for measuring invocation stages
     */
-   public GrpcServerCallHandler(ServiceRepository serviceRepository, ResourceRepository resourceRepository,
-         GrpcInvocationProcessor invocationProcessor, OpenTelemetryResolverService opentelemetryResolverService) {
-      this.serviceRepository = serviceRepository;
-      this.resourceRepository = resourceRepository;
+   public GrpcServerCallHandler(MockRoutingTable routingTable, GrpcDescriptorCache descriptorCache,
+         GrpcInvocationProcessor invocationProcessor, OpenTelemetryResolverService opentelemetryResolverService,
+         MockDelayScheduler delayScheduler, MockStageTimers stageTimers) {
+      this.routingTable = routingTable;
+      this.descriptorCache = descriptorCache;
       this.invocationProcessor = invocationProcessor;
       this.opentelemetryResolverService = opentelemetryResolverService;
+      this.delayScheduler = delayScheduler;
+      this.stageTimers = stageTimers;
    }
 
    /**
@@ -158,7 +161,9 @@ public class GrpcServerCallHandler {
 
          try {
             // Get service and spotted operation.
-            Service service = serviceRepository.findByNameAndVersion(serviceName, serviceVersion);
+            long stageStart = stageTimers.start();
+            Service service = routingTable.findByNameAndVersion(serviceName, serviceVersion);
+            stageTimers.record(Stage.SERVICE_LOOKUP, MockStageTimers.GRPC, service, null, stageStart);
             if (service == null) {
                // No service found.
                log.debug("No GRPC Service def found for [{}, {}]", serviceName, serviceVersion);
@@ -166,6 +171,7 @@ public class GrpcServerCallHandler {
                      .withDescription("No GRPC Service def found for " + fullMethodName).asException());
                return;
             }
+            stageStart = stageTimers.start();
             Operation grpcOperation = null;
             for (Operation operation : service.getOperations()) {
                if (operation.getName().equals(operationName)) {
@@ -173,31 +179,30 @@ public class GrpcServerCallHandler {
                   break;
                }
             }
+            stageTimers.record(Stage.OPERATION_MATCH, MockStageTimers.GRPC, service, grpcOperation, stageStart);
 
             if (grpcOperation != null) {
                log.debug("Found a valid operation {} with rules: {}", grpcOperation.getName(),
                      grpcOperation.getDispatcherRules());
 
                // In order to inspect incoming byte array, we need the Protobuf binary descriptor that should
-               // have been processed while importing the .proto schema for the service.
-               List<Resource> resources = resourceRepository.findByServiceIdAndType(service.getId(),
-                     ResourceType.PROTOBUF_DESCRIPTOR);
-               if (resources == null || resources.size() != 1) {
+               // have been processed while importing the .proto schema for the service. It's compiled once.
+               GrpcDescriptorCache.CompiledGrpcService compiled = descriptorCache.getCompiledService(service.getId());
+               if (compiled == null) {
                   log.error("Did not found any pre-processed Protobuf binary descriptor...");
                   streamObserver.onError(Status.FAILED_PRECONDITION
                         .withDescription("No pre-processed Protobuf binary descriptor found").asException());
                   return;
                }
-               Resource pbResource = resources.getFirst();
 
-               // Get the method descriptor and type registry.
-               Descriptors.MethodDescriptor md = GrpcUtil.findMethodDescriptor(pbResource.getContent(), serviceName,
-                     operationName);
-               TypeRegistry registry = GrpcUtil.buildTypeRegistry(pbResource.getContent());
+               // Get the method descriptor.
+               Descriptors.MethodDescriptor md = compiled.getMethodDescriptor(fullMethodName);
 
                // Now parse the incoming message.
+               stageStart = stageTimers.start();
                DynamicMessage inMsg = DynamicMessage.parseFrom(md.getInputType(), bytes);
-               String jsonBody = JsonFormat.printer().usingTypeRegistry(registry).print(inMsg);
+               String jsonBody = compiled.getPrinter().print(inMsg);
+               stageTimers.record(Stage.SERIALIZATION, MockStageTimers.GRPC, service, grpcOperation, stageStart);
                log.debug("Request body: {}", jsonBody);
 
                Span.current()
@@ -209,22 +214,43 @@ public class GrpcServerCallHandler {
                                  .build());
 
                MockInvocationContext ic = new MockInvocationContext(service, grpcOperation, null);
-               GrpcResponseResult response = invocationProcessor.processInvocation(ic, startTime, jsonBody);
+               GrpcResponseResult response = invocationProcessor.processInvocation(ic, startTime, jsonBody,
+                     delayScheduler.isAsyncEnabled());
 
                if (!response.isError()) {
                   // Use a builder for out type with a Json parser to merge content and build outMsg.
+                  stageStart = stageTimers.start();
                   DynamicMessage.Builder outBuilder = DynamicMessage.newBuilder(md.getOutputType());
 
-                  JsonFormat.parser().usingTypeRegistry(registry).merge(response.content(), outBuilder);
-                  DynamicMessage outMsg = outBuilder.build();
-
-                  // Send the output message and complete the stream.
-                  streamObserver.onNext(outMsg.toByteArray());
-                  streamObserver.onCompleted();
+                  compiled.getParser().merge(response.content(), outBuilder);
+                  byte[] outBytes = outBuilder.build().toByteArray();
+                  stageTimers.record(Stage.SERIALIZATION, MockStageTimers.GRPC, service, grpcOperation, stageStart);
+
+                  // Send the output message and complete the stream, once delay is expired if any.
+                  if (response.deferredDelay() > 0) {
+                     delayScheduler.schedule(response.deferredDelay(), () -> {
+                        if (!isCancelled(streamObserver)) {
+                           streamObserver.onNext(outBytes);
+                           streamObserver.onCompleted();
+                        }
+                     });
+                  } else {
+                     streamObserver.onNext(outBytes);
+                     streamObserver.onCompleted();
+                  }
 
                } else {
-                  // Error during invocation processing. Write it to the stream.
-                  streamObserver.onError(response.status().withDescription(response.errorDescription()).asException());
+                  // Error during invocation processing. Write it to the stream, once delay is expired if any.
+                  Exception error = response.status().withDescription(response.errorDescription()).asException();
+                  if (response.deferredDelay() > 0) {
+                     delayScheduler.schedule(response.deferredDelay(), () -> {
+                        if (!isCancelled(streamObserver)) {
+                           streamObserver.onError(error);
+                        }
+                     });
+                  } else {
+                     streamObserver.onError(error);
+                  }
                }
 
             } else {
@@ -240,5 +266,11 @@ public class GrpcServerCallHandler {
                         .withCause(t).asException());
          }
       }
+
+      /** Check whether client has cancelled the call while response was delayed. */
+      private boolean isCancelled(StreamObserver<byte[]> streamObserver) {
+         return streamObserver instanceof ServerCallStreamObserver<byte[]> serverObserver
+               && serverObserver.isCancelled();
+      }
    }
 }
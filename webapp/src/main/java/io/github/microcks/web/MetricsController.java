@@ -34,6 +34,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -93,7 +94,9 @@ public class MetricsController {
       if (day == null) {
          day = getTodaysDate();
       }
-      return invocationsRepository.findTopStatistics(day, limit);
+      List<DailyStatistic> statistics = invocationsRepository.findTopStatistics(day, limit);
+      statistics.forEach(MetricsController::fillMissingCounts);
+      return statistics;
    }
 
    @GetMapping(value = "/metrics/invocations/{service}/{version}")
@@ -109,7 +112,7 @@ public class MetricsController {
       List<DailyStatistic> statistics = invocationsRepository.findByDayAndServiceNameAndServiceVersion(day, serviceName,
             serviceVersion);
       if (!statistics.isEmpty()) {
-         return statistics.get(0);
+         return fillMissingCounts(statistics.get(0));
       }
       return null;
    }
@@ -159,6 +162,24 @@ public class MetricsController {
             .collect(Collectors.toList());
    }
 
+   /** Statistics are stored with only hours and minutes having invocations: put zero for the others. */
+   private static DailyStatistic fillMissingCounts(DailyStatistic statistic) {
+      statistic.setHourlyCount(fillMissingCounts(statistic.getHourlyCount(), 24));
+      statistic.setMinuteCount(fillMissingCounts(statistic.getMinuteCount(), 24 * 60));
+      return statistic;
+   }
+
+   private static Map<String, Integer> fillMissingCounts(Map<String, Integer> counts, int size) {
+      Map<String, Integer> result = new HashMap<>(size * 4 / 3 + 1);
+      for (int i = 0; i < size; i++) {
+         result.put(String.valueOf(i), 0);
+      }
+      if (counts != null) {
+         result.putAll(counts);
+      }
+      return result;
+   }
+
    private String getTodaysDate() {
       Calendar calendar = Calendar.getInstance();
       int month = calendar.get(Calendar.MONTH) + 1;
@@ -21,13 +21,16 @@ import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
 import io.github.microcks.event.MockInvocationEvent;
 import io.github.microcks.util.DispatchStyles;
+import io.github.microcks.util.dispatcher.CompiledDispatcher;
 import io.github.microcks.util.dispatcher.FallbackSpecification;
-import io.github.microcks.util.dispatcher.JsonMappingException;
 import io.github.microcks.util.dispatcher.ProxyFallbackSpecification;
+import io.github.microcks.util.el.CompiledTemplate;
 import io.github.microcks.util.el.EvaluableRequest;
 import io.github.microcks.util.el.TemplateEngine;
 import io.github.microcks.util.el.TemplateEngineFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
@@ -70,6 +73,12 @@ public class MockControllerCommons {
 
    private static final String RENDERING_MESSAGE = "Response contains dynamic EL expression, rendering it...";
 
+   /** The maximum number of compiled response templates we keep in cache. */
+   private static final int MAX_COMPILED_TEMPLATES = 1024;
+
+   /** Compiled response templates, indexed by response identifier and content hash. */
+   private static final Cache<TemplateKey, CompiledTemplate> compiledTemplates = CacheBuilder.newBuilder()
+         .maximumSize(MAX_COMPILED_TEMPLATES).build();
 
    /** Private constructor to avoid instantiation. */
    private MockControllerCommons() {
@@ -81,15 +90,7 @@ public class MockControllerCommons {
     * @return A fallback specification or null if none defined
     */
    public static FallbackSpecification getFallbackIfAny(Operation rOperation) {
-      FallbackSpecification fallback = null;
-      if (DispatchStyles.FALLBACK.equals(rOperation.getDispatcher())) {
-         try {
-            fallback = FallbackSpecification.buildFromJsonString(rOperation.getDispatcherRules());
-         } catch (JsonMappingException jme) {
-            log.error("Dispatching rules of operation cannot be interpreted as FallbackSpecification", jme);
-         }
-      }
-      return fallback;
+      return CompiledDispatcher.compile(rOperation).getFallback();
    }
 
    /**
@@ -98,15 +99,7 @@ public class MockControllerCommons {
     * @return A proxy specification or null if none defined
     */
    public static ProxyFallbackSpecification getProxyFallbackIfAny(Operation rOperation) {
-      ProxyFallbackSpecification proxyFallback = null;
-      if (DispatchStyles.PROXY_FALLBACK.equals(rOperation.getDispatcher())) {
-         try {
-            proxyFallback = ProxyFallbackSpecification.buildFromJsonString(rOperation.getDispatcherRules());
-         } catch (JsonMappingException jme) {
-            log.error("Dispatching rules of operation cannot be interpreted as ProxyFallbackSpecification", jme);
-         }
-      }
-      return proxyFallback;
+      return CompiledDispatcher.compile(rOperation).getProxyFallback();
    }
 
    /**
@@ -193,8 +186,7 @@ public class MockControllerCommons {
          EvaluableRequest evaluableRequest = new EvaluableRequest(requestBody, null);
 
          // Evaluate the response.
-         return unguardedRenderResponseContent(evaluableRequest, requestContext,
-               TemplateEngineFactory.getTemplateEngine(), response.getContent());
+         return unguardedRenderResponseContent(evaluableRequest, requestContext, response);
       }
       return response.getContent();
    }
@@ -221,8 +213,7 @@ public class MockControllerCommons {
          evaluableRequest.setHeaders(evaluableHeaders);
 
          // Evaluate the response.
-         return unguardedRenderResponseContent(evaluableRequest, requestContext,
-               TemplateEngineFactory.getTemplateEngine(), response.getContent());
+         return unguardedRenderResponseContent(evaluableRequest, requestContext, response);
       }
       return response.getContent();
    }
@@ -239,15 +230,33 @@ public class MockControllerCommons {
     */
    public static String renderResponseContent(String requestBody, String requestResourcePath,
          HttpServletRequest request, Map<String, Object> requestContext, Response response) {
-      if (response.getContent() != null && response.getContent().contains(TemplateEngine.DEFAULT_EXPRESSION_PREFIX)) {
+      return renderResponseContent(requestBody, requestResourcePath, request, requestContext, response,
+            response.getContent());
+   }
+
+   /**
+    * Render a response content using the Expression Language compatible {@code TemplateEngine} if required. Found
+    * responses are shared between invocations, so this method allows rendering a content derived from the response
+    * (eg. a converted template) without modifying it. If rendering template fails, we just produce a log error message
+    * and stick to templatized content.
+    * @param requestBody         The body payload of incoming request.
+    * @param requestResourcePath The resource path of mock request (if any, may be null)
+    * @param request             The incoming servlet request
+    * @param requestContext      The invocation context of the request
+    * @param response            The response that was found by dispatcher
+    * @param responseContent     The content of response to render
+    * @return The rendered response body payload.
+    */
+   public static String renderResponseContent(String requestBody, String requestResourcePath,
+         HttpServletRequest request, Map<String, Object> requestContext, Response response, String responseContent) {
+      if (responseContent != null && responseContent.contains(TemplateEngine.DEFAULT_EXPRESSION_PREFIX)) {
          log.debug(RENDERING_MESSAGE);
 
          // Create and fill an evaluable request object.
          EvaluableRequest evaluableRequest = buildEvaluableRequest(requestBody, requestResourcePath, request);
-         return unguardedRenderResponseContent(evaluableRequest, requestContext,
-               TemplateEngineFactory.getTemplateEngine(), response.getContent());
+         return unguardedRenderResponseContent(evaluableRequest, requestContext, response.getId(), responseContent);
       }
-      return response.getContent();
+      return responseContent;
    }
 
    /**
@@ -267,12 +276,46 @@ public class MockControllerCommons {
    }
 
    private static String unguardedRenderResponseContent(EvaluableRequest evaluableRequest,
-         Map<String, Object> requestContext, TemplateEngine engine, String responseContent) {
-      // Register the request variable and evaluate the response.
+         Map<String, Object> requestContext, Response response) {
+      return unguardedRenderResponseContent(evaluableRequest, requestContext, response.getId(), response.getContent());
+   }
+
+   private static String unguardedRenderResponseContent(EvaluableRequest evaluableRequest,
+         Map<String, Object> requestContext, String responseId, String content) {
+      // Register the request variable and evaluate the compiled response.
+      TemplateEngine engine = TemplateEngineFactory.getTemplateEngine();
+      registerVariables(engine, evaluableRequest, requestContext);
+      try {
+         return engine.getValue(getCompiledTemplate(engine, responseId, content));
+      } catch (Throwable t) {
+         log.error("Failing at evaluating template {}", content, t);
+      }
+      return content;
+   }
+
+   /** Get the compiled template of response content from cache, compiling it if missing or outdated. */
+   private static CompiledTemplate getCompiledTemplate(TemplateEngine engine, String responseId, String content) {
+      TemplateKey key = new TemplateKey(responseId, content.hashCode());
+      CompiledTemplate compiled = compiledTemplates.getIfPresent(key);
+      if (compiled == null || !compiled.getTemplate().equals(content)) {
+         compiled = engine.compile(content);
+         compiledTemplates.put(key, compiled);
+      }
+      return compiled;
+   }
+
+   private static void registerVariables(TemplateEngine engine, EvaluableRequest evaluableRequest,
+         Map<String, Object> requestContext) {
       engine.getContext().setVariable("request", evaluableRequest);
       if (requestContext != null) {
          engine.getContext().setVariables(requestContext);
       }
+   }
+
+   private static String unguardedRenderResponseContent(EvaluableRequest evaluableRequest,
+         Map<String, Object> requestContext, TemplateEngine engine, String responseContent) {
+      // Register the request variable and evaluate the response.
+      registerVariables(engine, evaluableRequest, requestContext);
       try {
          return engine.getValue(responseContent);
       } catch (Throwable t) {
@@ -339,15 +382,13 @@ public class MockControllerCommons {
     */
    public static void waitForDelay(Long startTime, DelaySpec delay) {
       if (delay != null && delay.baseValue() > -1) {
-         DelayApplier delayStrategy = DelayApplierFactory.fromString(delay.strategyName());
-         Long waitDelay = delayStrategy.compute(delay.baseValue());
          log.debug("Mock delay is turned on, waiting if necessary...");
-         long duration = System.currentTimeMillis() - startTime;
-         if (duration < waitDelay) {
+         long remainingDelay = computeRemainingDelay(startTime, delay);
+         if (remainingDelay > 0) {
             Object semaphore = new Object();
             synchronized (semaphore) {
                try {
-                  semaphore.wait(waitDelay - duration);
+                  semaphore.wait(remainingDelay);
                } catch (Exception e) {
                   log.debug("Delay semaphore was interrupted");
                }
@@ -357,6 +398,22 @@ public class MockControllerCommons {
       }
    }
 
+   /**
+    * Compute the remaining delay to apply for specified delay (if not null) from @{code startTime}. Delay strategy is
+    * applied on each call so that result should be computed once per invocation.
+    * @param startTime The starting time of mock request invocation
+    * @param delay     The delay to apply
+    * @return The remaining delay in milliseconds, 0 if none or already expired.
+    */
+   public static long computeRemainingDelay(Long startTime, DelaySpec delay) {
+      if (delay != null && delay.baseValue() > -1) {
+         DelayApplier delayStrategy = DelayApplierFactory.fromString(delay.strategyName());
+         long waitDelay = delayStrategy.compute(delay.baseValue());
+         return Math.max(0L, waitDelay - (System.currentTimeMillis() - startTime));
+      }
+      return 0L;
+   }
+
    /**
     * Publish a mock invocation event on Spring ApplicationContext internal bus.
     * @param applicationContext The context to use for publication
@@ -389,4 +446,8 @@ public class MockControllerCommons {
       }
       return resourcePath;
    }
+
+   /** The cache key of a compiled response template. Response identifier may be null. */
+   private record TemplateKey(String responseId, int contentHash) {
+   }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A scheduler for releasing delayed mock responses without holding the request thread for the whole delay. A single
+ * timer thread tracks pending delays and hands expired ones to virtual threads that complete the deferred result of
+ * the request.
+ * <p>
+ * Asynchronous delays are disabled by default ({@code mocks.delay.async-enabled} property); mock controllers then keep
+ * on waiting for delay on the request thread.
+ * @author agent
+ */
+@Component
+public class MockDelayScheduler {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(MockDelayScheduler.class);
+
+   /** Extra time given to a deferred result before the request times out if it has not been completed. */
+   private static final long DEFERRED_RESULT_TIMEOUT_MARGIN = 30_000L;
+
+   private final ScheduledExecutorService timer;
+   private final ExecutorService releaseExecutor;
+
+   @Value("${mocks.delay.async-enabled:false}")
+   private boolean asyncEnabled = false;
+
+   /** Build a new MockDelayScheduler with its timer thread. */
+   public MockDelayScheduler() {
+      this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "microcks-mock-delay-timer");
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.releaseExecutor = Executors.newVirtualThreadPerTaskExecutor();
+   }
+
+   /** @return Whether mock controllers should defer response delays to this scheduler. */
+   public boolean isAsyncEnabled() {
+      return asyncEnabled;
+   }
+
+   /**
+    * Schedule a task to be run once delay is expired.
+    * @param delayMillis The delay in milliseconds
+    * @param task        The task to run after delay
+    */
+   public void schedule(long delayMillis, Runnable task) {
+      timer.schedule(() -> releaseExecutor.execute(task), delayMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Build a deferred result that is completed with the supplied value once delay is expired. The deferred result is
+    * meant to be returned by the controller so that request completion stays managed by Spring MVC. It times out if it
+    * has not been completed some time after delay.
+    * @param delayMillis    The delay in milliseconds
+    * @param resultSupplier The supplier of the result value, called once delay is expired
+    * @param <T>            The type of the result value
+    * @return The deferred result to return from controller
+    */
+   public <T> DeferredResult<T> deferResult(long delayMillis, Supplier<T> resultSupplier) {
+      DeferredResult<T> deferredResult = new DeferredResult<>(delayMillis + DEFERRED_RESULT_TIMEOUT_MARGIN);
+      schedule(delayMillis, () -> {
+         if (deferredResult.isSetOrExpired()) {
+            return;
+         }
+         try {
+            deferredResult.setResult(resultSupplier.get());
+         } catch (RuntimeException re) {
+            log.warn("Exception while building delayed mock response", re);
+            deferredResult.setErrorResult(re);
+         }
+      });
+      return deferredResult;
+   }
+
+   @PreDestroy
+   void shutdown() {
+      timer.shutdownNow();
+      releaseExecutor.shutdown();
+   }
+}
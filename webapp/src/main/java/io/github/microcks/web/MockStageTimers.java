@@ -0,0 +1,162 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers measuring the duration of each stage of the mock invocation pipeline. Timers are published as
+ * {@code microcks.mock.stage} and tagged with stage, protocol, service (name:version), operation and operation
+ * dispatcher so that a slowdown can be attributed to repository lookups, dispatcher scripts or template rendering.
+ * <p>
+ * Stage timers can be disabled using {@code mocks.stage-timers.enabled} property. Percentiles histograms can be
+ * published using the regular {@code management.metrics.distribution.percentiles-histogram.microcks.mock.stage}
+ * property.
+ * @author agent
+ */
+@Component
+public class MockStageTimers {
+
+   /** The name of the published timers. */
+   public static final String TIMER_NAME = "microcks.mock.stage";
+
+   /** The protocol tag value for REST mocks. */
+   public static final String REST = "rest";
+   /** The protocol tag value for SOAP mocks. */
+   public static final String SOAP = "soap";
+   /** The protocol tag value for GraphQL mocks. */
+   public static final String GRAPHQL = "graphql";
+   /** The protocol tag value for gRPC mocks. */
+   public static final String GRPC = "grpc";
+
+   private static final String NONE = "none";
+
+   /** The stages of the mock invocation pipeline. */
+   public enum Stage {
+      /** Finding the service definition from the invoked name and version. */
+      SERVICE_LOOKUP("service-lookup"),
+      /** Finding the invoked operation within service. */
+      OPERATION_MATCH("operation-match"),
+      /** Evaluating the request with dispatcher rules. */
+      DISPATCH_CRITERIA("dispatch-criteria"),
+      /** Finding the response matching dispatch criteria, fallback included. */
+      RESPONSE_LOOKUP("response-lookup"),
+      /** Evaluating the templates of response content and headers. */
+      RENDERING("rendering"),
+      /** Waiting for the artificial delay of response. */
+      DELAY("delay"),
+      /** Calling the external service the request is proxied to. */
+      PROXY("proxy"),
+      /** Converting messages between their wire format and the mock representation. */
+      SERIALIZATION("serialization");
+
+      private final String tagValue;
+
+      Stage(String tagValue) {
+         this.tagValue = tagValue;
+      }
+
+      /** @return The value of the stage tag for this stage */
+      public String getTagValue() {
+         return tagValue;
+      }
+   }
+
+   private final MeterRegistry meterRegistry;
+   private final Map<StageKey, Timer> timers = new ConcurrentHashMap<>();
+
+   @Value("${mocks.stage-timers.enabled:true}")
+   private boolean enabled = true;
+
+   /**
+    * Build a new MockStageTimers.
+    * @param meterRegistry The registry where to publish stage timers
+    */
+   public MockStageTimers(MeterRegistry meterRegistry) {
+      this.meterRegistry = meterRegistry;
+   }
+
+   /** @return The start of a stage to later give to {@code record()} */
+   public long start() {
+      return enabled ? System.nanoTime() : 0L;
+   }
+
+   /**
+    * Record the duration of a stage that started at {@code stageStart}.
+    * @param stage      The stage to record
+    * @param protocol   The protocol of invoked mock (one of this class constants)
+    * @param service    The invoked service if already known, may be null
+    * @param operation  The invoked operation if already known, may be null
+    * @param stageStart The value returned by {@code start()} when stage began
+    */
+   public void record(Stage stage, String protocol, Service service, Operation operation, long stageStart) {
+      recordDuration(stage, protocol, service, operation, elapsed(stageStart));
+   }
+
+   /**
+    * Get the duration of a stage that started at {@code stageStart}, for stages whose duration is accumulated over
+    * several steps before being recorded once.
+    * @param stageStart The value returned by {@code start()} when stage began
+    * @return The elapsed duration in nanoseconds, 0 if stage timers are disabled
+    */
+   public long elapsed(long stageStart) {
+      return enabled ? System.nanoTime() - stageStart : 0L;
+   }
+
+   /**
+    * Record an already measured duration of a stage.
+    * @param stage     The stage to record
+    * @param protocol  The protocol of invoked mock (one of this class constants)
+    * @param service   The invoked service if already known, may be null
+    * @param operation The invoked operation if already known, may be null
+    * @param duration  The duration of stage in nanoseconds, as accumulated from {@code elapsed()}
+    */
+   public void recordDuration(Stage stage, String protocol, Service service, Operation operation, long duration) {
+      if (enabled) {
+         getTimer(new StageKey(stage, protocol, service != null ? service.getName() : null,
+               service != null ? service.getVersion() : null, operation != null ? operation.getName() : null,
+               operation != null ? operation.getDispatcher() : null)).record(duration, TimeUnit.NANOSECONDS);
+      }
+   }
+
+   private Timer getTimer(StageKey key) {
+      Timer timer = timers.get(key);
+      if (timer == null) {
+         timer = timers.computeIfAbsent(key,
+               k -> Timer.builder(TIMER_NAME).description("Duration of a stage of mock invocations")
+                     .tag("stage", k.stage().getTagValue()).tag("protocol", k.protocol())
+                     .tag("service", k.serviceName() != null ? k.serviceName() + ":" + k.serviceVersion() : NONE)
+                     .tag("operation", k.operationName() != null ? k.operationName() : NONE)
+                     .tag("dispatcher", k.dispatcher() != null ? k.dispatcher() : NONE).register(meterRegistry));
+      }
+      return timer;
+   }
+
+   /** The key of a stage timer, avoiding to build tags for each record. */
+   private record StageKey(Stage stage, String protocol, String serviceName, String serviceVersion,
+         String operationName, String dispatcher) {
+   }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable snapshot of the elements of an Http request that are read while processing a mock invocation: method,
+ * URL, headers, parameters and cookies. Values are all captured on creation, so that a snapshot can be read
+ * concurrently by many threads without touching the container request, which is not thread-safe. Other elements are
+ * still read from the wrapped request.
+ * @author agent
+ */
+final class RequestSnapshot extends HttpServletRequestWrapper {
+
+   private final String method;
+   private final String requestURI;
+   private final String requestURL;
+   private final String queryString;
+   private final String contentType;
+   private final String remoteAddr;
+   private final Map<String, List<String>> headers;
+   private final Map<String, String[]> parameters;
+   private final Cookie[] cookies;
+
+   /**
+    * Capture the elements of a request.
+    * @param request The container request to capture
+    */
+   RequestSnapshot(HttpServletRequest request) {
+      super(request);
+      this.method = request.getMethod();
+      this.requestURI = request.getRequestURI();
+      this.requestURL = request.getRequestURL() != null ? request.getRequestURL().toString() : null;
+      this.queryString = request.getQueryString();
+      this.contentType = request.getContentType();
+      this.remoteAddr = request.getRemoteAddr();
+
+      Map<String, List<String>> headersMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      Enumeration<String> headerNames = request.getHeaderNames();
+      while (headerNames != null && headerNames.hasMoreElements()) {
+         String headerName = headerNames.nextElement();
+         headersMap.put(headerName, List.copyOf(Collections.list(request.getHeaders(headerName))));
+      }
+      this.headers = Collections.unmodifiableMap(headersMap);
+
+      Map<String, String[]> parametersMap = new LinkedHashMap<>();
+      request.getParameterMap().forEach((name, values) -> parametersMap.put(name, values.clone()));
+      this.parameters = Collections.unmodifiableMap(parametersMap);
+
+      this.cookies = request.getCookies();
+   }
+
+   @Override
+   public String getMethod() {
+      return method;
+   }
+
+   @Override
+   public String getRequestURI() {
+      return requestURI;
+   }
+
+   @Override
+   public StringBuffer getRequestURL() {
+      return requestURL != null ? new StringBuffer(requestURL) : null;
+   }
+
+   @Override
+   public String getQueryString() {
+      return queryString;
+   }
+
+   @Override
+   public String getContentType() {
+      return contentType;
+   }
+
+   @Override
+   public String getRemoteAddr() {
+      return remoteAddr;
+   }
+
+   @Override
+   public String getHeader(String name) {
+      List<String> values = headers.get(name);
+      return values != null && !values.isEmpty() ? values.getFirst() : null;
+   }
+
+   @Override
+   public Enumeration<String> getHeaders(String name) {
+      return Collections.enumeration(headers.getOrDefault(name, List.of()));
+   }
+
+   @Override
+   public Enumeration<String> getHeaderNames() {
+      return Collections.enumeration(new ArrayList<>(headers.keySet()));
+   }
+
+   @Override
+   public String getParameter(String name) {
+      String[] values = parameters.get(name);
+      return values != null && values.length > 0 ? values[0] : null;
+   }
+
+   @Override
+   public String[] getParameterValues(String name) {
+      String[] values = parameters.get(name);
+      return values != null ? values.clone() : null;
+   }
+
+   @Override
+   public Map<String, String[]> getParameterMap() {
+      return parameters;
+   }
+
+   @Override
+   public Enumeration<String> getParameterNames() {
+      return Collections.enumeration(parameters.keySet());
+   }
+
+   @Override
+   public Cookie[] getCookies() {
+      return cookies != null ? cookies.clone() : null;
+   }
+}
@@ -15,14 +15,37 @@
  */
 package io.github.microcks.web;
 
+import io.github.microcks.service.ProxyService.StreamedResponse;
+
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 
 /**
  * A thin wrapper around a response result.
- * @param status  The HTTP status code
- * @param headers The HTTP headers
- * @param content The content of the response
+ * @param status           The HTTP status code
+ * @param headers          The HTTP headers
+ * @param content          The content of the response
+ * @param deferredDelay    The delay in milliseconds to apply before sending the response, when delay has not been
+ *                         applied by invocation processor. 0 if none.
+ * @param streamedResponse The not yet consumed response of a proxied service, content is null in that case. Null if
+ *                         response is not streamed.
  */
-public record ResponseResult(HttpStatusCode status, HttpHeaders headers, byte[] content) {
+public record ResponseResult(HttpStatusCode status, HttpHeaders headers, byte[] content, long deferredDelay,
+      StreamedResponse streamedResponse) {
+
+   /** Build a ResponseResult with no deferred delay. */
+   public ResponseResult(HttpStatusCode status, HttpHeaders headers, byte[] content) {
+      this(status, headers, content, 0L, null);
+   }
+
+   /** Build a ResponseResult with content. */
+   public ResponseResult(HttpStatusCode status, HttpHeaders headers, byte[] content, long deferredDelay) {
+      this(status, headers, content, deferredDelay, null);
+   }
+
+   /** Build a ResponseResult whose content is streamed from a proxied service. */
+   public static ResponseResult streamed(StreamedResponse streamedResponse, long deferredDelay) {
+      return new ResponseResult(streamedResponse.status(), streamedResponse.headers(), null, deferredDelay,
+            streamedResponse);
+   }
 }
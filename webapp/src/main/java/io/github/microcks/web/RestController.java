@@ -17,20 +17,21 @@ package io.github.microcks.web;
 
 import io.github.microcks.domain.Operation;
 import io.github.microcks.domain.ParameterConstraint;
-import io.github.microcks.domain.Resource;
-import io.github.microcks.domain.ResourceType;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResourceRepository;
-import io.github.microcks.repository.ServiceRepository;
+import io.github.microcks.service.MockRoutingTable;
+import io.github.microcks.service.ProxyService.StreamedResponse;
+import io.github.microcks.service.RequestBodySchemaCache;
+import io.github.microcks.util.OperationPathTrie;
 import io.github.microcks.util.ParameterConstraintUtil;
 import io.github.microcks.util.SafeLogger;
 import io.github.microcks.util.delay.DelaySpec;
+import io.github.microcks.util.openapi.CompiledMessageSchema;
 import io.github.microcks.util.openapi.OpenAPISchemaValidator;
 import io.github.microcks.util.openapi.OpenAPITestRunner;
 import io.github.microcks.util.tracing.CommonAttributes;
 import io.github.microcks.util.tracing.CommonEvents;
 import io.github.microcks.util.tracing.TraceUtil;
-import io.github.microcks.util.openapi.SwaggerSchemaValidator;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import io.opentelemetry.api.trace.Span;
@@ -45,15 +46,16 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import javax.annotation.CheckForNull;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * A controller for mocking Rest responses.
@@ -65,9 +67,11 @@ public class RestController {
    /** A safe logger for filtering user-controlled data in diagnostic messages. */
    private static final SafeLogger log = SafeLogger.getLogger(RestController.class);
 
-   private final ServiceRepository serviceRepository;
-   private final ResourceRepository resourceRepository;
+   private final MockRoutingTable routingTable;
+   private final RequestBodySchemaCache schemaCache;
    private final RestInvocationProcessor invocationProcessor;
+   private final MockDelayScheduler delayScheduler;
+   private final MockStageTimers stageTimers;
 
    @Value("${mocks.rest.enable-cors-policy}")
    private Boolean enableCorsPolicy;
@@ -79,27 +83,35 @@ public class RestController {
    @Value("${validation.resourceUrl}")
    private String validationResourceUrl;
 
+   @Value("${mocks.proxy.streaming-enabled:true}")
+   private boolean proxyStreamingEnabled = true;
+
    /**
     * Build a RestController with required dependencies.
-    * @param serviceRepository   The repository to access services definitions
-    * @param resourceRepository  The repository to access resources definitions
+    * @param routingTable        The routing table to access services definitions
+    * @param schemaCache         The cache of compiled schemas for validating request bodies
     * @param invocationProcessor The invocation processor to apply REST mocks dispatching logic
+    * @param delayScheduler      The scheduler for releasing delayed responses asynchronously
+    * @param stageTimers         The timers for measuring invocation stages
     */
-   public RestController(ServiceRepository serviceRepository, ResourceRepository resourceRepository,
-         RestInvocationProcessor invocationProcessor) {
-      this.serviceRepository = serviceRepository;
-      this.resourceRepository = resourceRepository;
+   public RestController(MockRoutingTable routingTable, RequestBodySchemaCache schemaCache,
+         RestInvocationProcessor invocationProcessor, MockDelayScheduler delayScheduler,
+         MockStageTimers stageTimers) {
+      this.routingTable = routingTable;
+      this.schemaCache = schemaCache;
       this.invocationProcessor = invocationProcessor;
+      this.delayScheduler = delayScheduler;
+      this.stageTimers = stageTimers;
    }
 
    @SuppressWarnings("java:S3752")
    @RequestMapping(value = "/rest/{service}/{version}/**", method = { RequestMethod.HEAD, RequestMethod.OPTIONS,
          RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH, RequestMethod.DELETE })
-   public ResponseEntity<byte[]> execute(@PathVariable("service") String serviceName,
+   public Object execute(@PathVariable("service") String serviceName,
          @PathVariable("version") String version, @RequestParam(value = "delay", required = false) Long requestedDelay,
          @RequestParam(value = "delayStrategy", required = false) String requestedDelayStrategy,
          @RequestBody(required = false) String body, @RequestHeader HttpHeaders headers, HttpServletRequest request,
-         HttpMethod method) {
+         HttpServletResponse response, HttpMethod method) {
 
       log.info("Servicing mock response for service [{}, {}] on uri {} with verb {}", serviceName, version,
             request.getRequestURI(), method);
@@ -129,17 +141,17 @@ public class RestController {
       log.debug("Found a valid operation {} with rules: {}", ic.operation().getName(),
             ic.operation().getDispatcherRules());
       DelaySpec delay = MockControllerCommons.getDelay(headers, requestedDelay, requestedDelayStrategy);
-      return processMockInvocationRequest(ic, startTime, delay, body, headers, request, method);
+      return processMockInvocationRequest(ic, startTime, delay, body, headers, request, response, method);
    }
 
    @SuppressWarnings("java:S3752")
    @RequestMapping(value = "/rest-valid/{service}/{version}/**", method = { RequestMethod.HEAD, RequestMethod.OPTIONS,
          RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH, RequestMethod.DELETE })
-   public ResponseEntity<byte[]> validateAndExecute(@PathVariable("service") String serviceName,
+   public Object validateAndExecute(@PathVariable("service") String serviceName,
          @PathVariable("version") String version, @RequestParam(value = "delay", required = false) Long requestedDelay,
          @RequestParam(value = "delayStrategy", required = false) String requestedDelayStrategy,
          @RequestBody(required = false) String body, @RequestHeader HttpHeaders headers, HttpServletRequest request,
-         HttpMethod method) {
+         HttpServletResponse response, HttpMethod method) {
 
       log.info("Servicing mock response for service [{}, {}] on uri {} with verb {}", serviceName, version,
             request.getRequestURI(), method);
@@ -175,15 +187,16 @@ public class RestController {
             && OpenAPITestRunner.APPLICATION_JSON_TYPES_PATTERN.matcher(shortContentType).matches()) {
          log.debug("Looking for an OpenAPI/Swagger schema to validate request body");
 
-         Resource openapiSpecResource = findResourceCandidate(ic.service());
-         if (openapiSpecResource == null) {
+         CompiledMessageSchema requestBodySchema = schemaCache.getRequestBodySchema(ic.service(), ic.operation(),
+               shortContentType, validationResourceUrl);
+         if (requestBodySchema == null) {
             return new ResponseEntity<>(
                   String.format("The service %s with version %s does not have an OpenAPI/Swagger schema!", serviceName,
                         version).getBytes(),
                   HttpStatus.PRECONDITION_FAILED);
          }
 
-         List<String> errors = getErrors(body, ic, shortContentType, openapiSpecResource);
+         List<String> errors = getErrors(body, requestBodySchema);
 
          log.debug("Schema validation errors: {}", errors.size());
          // Return a 400 http code with errors.
@@ -193,25 +206,11 @@ public class RestController {
       }
 
       DelaySpec delay = MockControllerCommons.getDelay(headers, requestedDelay, requestedDelayStrategy);
-      return processMockInvocationRequest(ic, startTime, delay, body, headers, request, method);
+      return processMockInvocationRequest(ic, startTime, delay, body, headers, request, response, method);
    }
 
    /** Get the errors from OpenAPI/Swagger schema validation. */
-   private List<String> getErrors(String body, MockInvocationContext ic, String shortContentType,
-         Resource openapiSpecResource) {
-      boolean isOpenAPIv3 = !ResourceType.SWAGGER.equals(openapiSpecResource.getType());
-
-      JsonNode openApiSpec = null;
-      try {
-         openApiSpec = OpenAPISchemaValidator.getJsonNodeForSchema(openapiSpecResource.getContent());
-      } catch (IOException ioe) {
-         log.debug("OpenAPI specification cannot be transformed into valid JsonNode schema, so failing");
-      }
-
-      // Extract JsonNode corresponding to operation.
-      String verb = ic.operation().getName().split(" ")[0].toLowerCase();
-      String path = ic.operation().getName().split(" ")[1].trim();
-
+   private List<String> getErrors(String body, CompiledMessageSchema requestBodySchema) {
       // Get body content as a string.
       JsonNode contentNode = null;
       try {
@@ -219,32 +218,22 @@ public class RestController {
       } catch (IOException ioe) {
          log.debug("Response body cannot be accessed or transformed as Json, returning failure");
       }
-      String jsonPointer = "/paths/" + path.replace("/", "~1") + "/" + verb + "/requestBody";
-
-      List<String> errors = null;
-      if (isOpenAPIv3) {
-         errors = OpenAPISchemaValidator.validateJsonMessage(openApiSpec, contentNode, jsonPointer, shortContentType,
-               validationResourceUrl);
-      } else {
-         errors = SwaggerSchemaValidator.validateJsonMessage(openApiSpec, contentNode, jsonPointer,
-               validationResourceUrl);
-      }
-      return errors;
+      return requestBodySchema.validate(contentNode);
    }
 
    /** Process REST mock invocation. */
-   private ResponseEntity<byte[]> processMockInvocationRequest(MockInvocationContext ic, long startTime,
-         DelaySpec delay, String body, HttpHeaders headers, HttpServletRequest request, HttpMethod method) {
+   private Object processMockInvocationRequest(MockInvocationContext ic, long startTime, DelaySpec delay, String body,
+         HttpHeaders headers, HttpServletRequest request, HttpServletResponse response, HttpMethod method) {
 
       Span span = Span.current();
-      TraceUtil.enableExplainTracing();
+      TraceUtil.enableExplainTracing(span, ic.service());
       span.setAttribute(CommonAttributes.SERVICE_NAME, ic.service().getName());
       span.setAttribute(CommonAttributes.SERVICE_VERSION, ic.service().getVersion());
       span.setAttribute(CommonAttributes.OPERATION_NAME, ic.operation().getName());
       span.setAttribute(CommonAttributes.OPERATION_METHOD, ic.operation().getMethod());
 
       // Add an event for the invocation reception with a human-friendly message.
-      span.addEvent(CommonEvents.INVOCATION_RECEIVED.getEventName(), TraceUtil
+      TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.INVOCATION_RECEIVED, () -> TraceUtil
             .explainSpanEventBuilder(
                   String.format("Received REST invocation %s %s", ic.operation().getMethod(), ic.resourcePath()))
             .put(CommonAttributes.HTTP_METHOD, request.getMethod())
@@ -260,8 +249,8 @@ public class RestController {
       String violationMsg = validateParameterConstraintsIfAny(ic.operation(), request);
       if (violationMsg != null) {
          // if a constraint is violated, add an event and return a 400 error.
-         span.addEvent(CommonEvents.PARAMETER_CONSTRAINT_VIOLATED.getEventName(),
-               TraceUtil.explainSpanEventBuilder(violationMsg).build());
+         TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.PARAMETER_CONSTRAINT_VIOLATED,
+               () -> TraceUtil.explainSpanEventBuilder(violationMsg).build());
          span.setStatus(io.opentelemetry.api.trace.StatusCode.ERROR, "Parameter constraint violation");
          span.setAttribute(CommonAttributes.ERROR_STATUS, 400);
 
@@ -269,8 +258,34 @@ public class RestController {
                HttpStatus.BAD_REQUEST);
       }
 
-      ResponseResult response = invocationProcessor.processInvocation(ic, startTime, delay, body, headers, request);
-      return new ResponseEntity<>(response.content(), response.headers(), response.status());
+      ResponseResult result = invocationProcessor.processInvocation(ic, startTime, delay, body, headers, request,
+            delayScheduler.isAsyncEnabled(), proxyStreamingEnabled);
+      if (result.deferredDelay() > 0) {
+         // Release request thread, response will be produced once delay is expired.
+         return delayScheduler.deferResult(result.deferredDelay(), () -> buildResponse(result, response));
+      }
+      return buildResponse(result, response);
+   }
+
+   /** Build the controller response for an invocation result: a streamed body or a response entity. */
+   private Object buildResponse(ResponseResult result, HttpServletResponse response) {
+      if (result.streamedResponse() != null) {
+         return streamResponse(result, response);
+      }
+      return new ResponseEntity<>(result.content(), result.headers(), result.status());
+   }
+
+   /** Build a response body that passes proxied response body through without buffering it. */
+   private StreamingResponseBody streamResponse(ResponseResult result, HttpServletResponse response) {
+      response.setStatus(result.status().value());
+      if (result.headers() != null) {
+         result.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+      }
+      return output -> {
+         try (StreamedResponse streamedResponse = result.streamedResponse()) {
+            streamedResponse.transferTo(output);
+         }
+      };
    }
 
    /** Find the invocation context for this mock request. */
@@ -287,13 +302,17 @@ public class RestController {
       }
 
       // Find matching service.
-      Service service = serviceRepository.findByNameAndVersion(serviceName, version);
+      long stageStart = stageTimers.start();
+      Service service = routingTable.findByNameAndVersion(serviceName, version);
+      stageTimers.record(Stage.SERVICE_LOOKUP, MockStageTimers.REST, service, null, stageStart);
       if (service == null) {
          return new MockInvocationContext(null, null, resourcePath);
       }
 
       // Find matching operation.
+      stageStart = stageTimers.start();
       Operation operation = findOperation(service, method, resourcePath);
+      stageTimers.record(Stage.OPERATION_MATCH, MockStageTimers.REST, service, operation, stageStart);
       return new MockInvocationContext(service, operation, resourcePath);
    }
 
@@ -302,54 +321,17 @@ public class RestController {
       // Remove trailing '/' if any.
       String trimmedResourcePath = trimResourcePath(resourcePath);
 
-      Operation result = findOperationByResourcePath(service, method, resourcePath, trimmedResourcePath);
+      OperationPathTrie operationTrie = routingTable.getOperationTrie(service);
+      Operation result = operationTrie.findOperationByResourcePath(method.name(), resourcePath, trimmedResourcePath);
 
       if (result == null) {
          // We may not have found an Operation because of not exact resource path matching with an operation
          // using a Fallback dispatcher. Try again, just considering the verb and path pattern of operation.
-         result = findOperationByPathPattern(service, method, resourcePath);
+         result = operationTrie.findOperationByPathPattern(method.name(), resourcePath);
       }
       return result;
    }
 
-   @CheckForNull
-   private Operation findOperationByPathPattern(Service service, HttpMethod method, String resourcePath) {
-      for (Operation operation : service.getOperations()) {
-         // Select operation based onto Http verb (GET, POST, PUT, etc ...)
-         // ... then check is current resource path matches operation path pattern.
-         if (operation.getMethod().equals(method.name()) && operation.getResourcePaths() != null) {
-            // Produce a matching regexp removing {part} and :part from pattern.
-            String operationPattern = getURIPattern(operation.getName());
-            //operationPattern = operationPattern.replaceAll("\\{.+\\}", "([^/])+");
-            operationPattern = operationPattern.replaceAll("\\{[\\w-]+\\}", "([^/])+");
-            operationPattern = operationPattern.replaceAll("(/:[^:^/]+)", "\\/([^/]+)");
-            if (resourcePath.matches(operationPattern)) {
-               return operation;
-            }
-         }
-      }
-      return null;
-   }
-
-   @CheckForNull
-   private Operation findOperationByResourcePath(Service service, HttpMethod method, String resourcePath,
-         String trimmedResourcePath) {
-      for (Operation operation : service.getOperations()) {
-         // Select operation based onto Http verb (GET, POST, PUT, etc ...)
-         // ... then check is we have a matching resource path.
-         if (operation.getMethod().equals(method.name()) && operation.getResourcePaths() != null
-               && (operation.getResourcePaths().contains(resourcePath)
-                     || operation.getResourcePaths().contains(trimmedResourcePath))) {
-            return operation;
-         }
-         // Check by simple name comparison if no resource path is defined.
-         if (operation.getName().equals(method.name().toUpperCase() + " " + resourcePath)) {
-            return operation;
-         }
-      }
-      return null;
-   }
-
    /** Trim the resource path if it ends with a '/'. */
    private String trimResourcePath(String resourcePath) {
       if (resourcePath.endsWith("/")) {
@@ -380,16 +362,6 @@ public class RestController {
       return null;
    }
 
-   /** Retrieve URI Pattern from operation name (remove starting verb name). */
-   private String getURIPattern(String operationName) {
-      if (operationName.startsWith("GET ") || operationName.startsWith("POST ") || operationName.startsWith("PUT ")
-            || operationName.startsWith("DELETE ") || operationName.startsWith("PATCH ")
-            || operationName.startsWith("OPTIONS ")) {
-         return operationName.substring(operationName.indexOf(' ') + 1);
-      }
-      return operationName;
-   }
-
    /** Handle a CORS request putting the correct headers in response entity. */
    private ResponseEntity<byte[]> handleCorsRequest(HttpServletRequest request) {
       // Retrieve and set access control headers from those coming in request.
@@ -405,27 +377,4 @@ public class RestController {
             .header("Access-Allow-Credentials", String.valueOf(corsAllowCredentials))
             .header("Access-Control-Max-Age", "3600").header("Vary", "Accept-Encoding, Origin").build();
    }
-
-   private Resource findResourceCandidate(Service service) {
-      Optional<Resource> candidate = Optional.empty();
-      // Try resources marked within mainArtifact first.
-      List<Resource> resources = resourceRepository.findMainByServiceId(service.getId());
-      if (!resources.isEmpty()) {
-         candidate = getResourceCandidate(resources);
-      }
-      // Else try all the services resources...
-      if (candidate.isEmpty()) {
-         resources = resourceRepository.findByServiceId(service.getId());
-         if (!resources.isEmpty()) {
-            candidate = getResourceCandidate(resources);
-         }
-      }
-      return candidate.orElse(null);
-   }
-
-   private Optional<Resource> getResourceCandidate(List<Resource> resources) {
-      return resources.stream()
-            .filter(r -> ResourceType.OPEN_API_SPEC.equals(r.getType()) || ResourceType.SWAGGER.equals(r.getType()))
-            .findFirst();
-   }
 }
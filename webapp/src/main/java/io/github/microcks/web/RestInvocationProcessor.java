@@ -21,10 +21,11 @@ import io.github.microcks.domain.ParameterConstraint;
 import io.github.microcks.domain.ParameterLocation;
 import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResponseRepository;
-import io.github.microcks.repository.ServiceStateRepository;
+import io.github.microcks.service.CompiledGroovyScriptCache;
+import io.github.microcks.service.ProxyResponseCache;
 import io.github.microcks.service.ProxyService;
-import io.github.microcks.service.ServiceStateStore;
+import io.github.microcks.service.ResponseLookupIndex;
+import io.github.microcks.service.ServiceStateCache;
 import io.github.microcks.util.AbsoluteUrlMatcher;
 import io.github.microcks.util.DataUriUtil;
 import io.github.microcks.util.DispatchCriteriaHelper;
@@ -33,6 +34,7 @@ import io.github.microcks.util.IdBuilder;
 import io.github.microcks.util.SafeLogger;
 import io.github.microcks.util.UTF8ContentTypeChecker;
 import io.github.microcks.util.delay.DelaySpec;
+import io.github.microcks.util.dispatcher.CompiledDispatcher;
 import io.github.microcks.util.dispatcher.FallbackSpecification;
 import io.github.microcks.util.dispatcher.JsonEvaluationSpecification;
 import io.github.microcks.util.dispatcher.JsonExpressionEvaluator;
@@ -45,6 +47,7 @@ import io.github.microcks.util.tracing.CommonAttributes;
 import io.github.microcks.util.tracing.CommonEvents;
 import io.github.microcks.service.OpenTelemetryResolverService;
 import io.github.microcks.util.tracing.TraceUtil;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanKind;
@@ -52,7 +55,6 @@ import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Scope;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
-import io.roastedroot.quickjs4j.core.Engine;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
@@ -69,6 +71,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -92,13 +95,17 @@ public class RestInvocationProcessor {
    /** A safe logger for filtering user-controlled data in diagnostic messages. */
    private static final SafeLogger log = SafeLogger.getLogger(RestInvocationProcessor.class);
 
-   private final ServiceStateRepository serviceStateRepository;
-   private final ResponseRepository responseRepository;
+   private final ServiceStateCache serviceStateCache;
+   private final ResponseLookupIndex responseIndex;
+   private final StaticResponseCache staticResponses;
+   private final CompiledGroovyScriptCache groovyScriptCache;
    private final ApplicationContext applicationContext;
    private final ProxyService proxyService;
+   private final ProxyResponseCache proxyResponseCache;
 
    private final ScriptEngine scriptEngine;
    private final OpenTelemetryResolverService opentelemetryResolverService;
+   private final MockStageTimers stageTimers;
 
    @Value("${mocks.enable-invocation-stats}")
    private Boolean enableInvocationStats;
@@ -108,21 +115,30 @@ public class RestInvocationProcessor {
 
    /**
     * Build a RestMockInvocationProcessor with required dependencies.
-    * @param serviceStateRepository       The repository to access service state
-    * @param responseRepository           The repository to access responses definitions
+    * @param serviceStateCache            The cache to access service state
+    * @param responseIndex                The index to access responses definitions
+    * @param staticResponses              The cache of pre-rendered static responses
+    * @param groovyScriptCache            The cache of compiled Groovy dispatcher scripts
     * @param applicationContext           The Spring application context
     * @param proxyService                 The proxy to external URLs or services
+    * @param proxyResponseCache           The cache of responses returned by proxied services
     * @param opentelemetryResolverService The opentelemetry resolver
+    * @param stageTimers                  The timers for measuring invocation stages
     */
-   public RestInvocationProcessor(ServiceStateRepository serviceStateRepository, ResponseRepository responseRepository,
-         ApplicationContext applicationContext, ProxyService proxyService,
-         OpenTelemetryResolverService opentelemetryResolverService) {
-      this.serviceStateRepository = serviceStateRepository;
-      this.responseRepository = responseRepository;
+   public RestInvocationProcessor(ServiceStateCache serviceStateCache, ResponseLookupIndex responseIndex,
+         StaticResponseCache staticResponses, CompiledGroovyScriptCache groovyScriptCache,
+         ApplicationContext applicationContext, ProxyService proxyService, ProxyResponseCache proxyResponseCache,
+         OpenTelemetryResolverService opentelemetryResolverService, MockStageTimers stageTimers) {
+      this.serviceStateCache = serviceStateCache;
+      this.responseIndex = responseIndex;
+      this.staticResponses = staticResponses;
+      this.groovyScriptCache = groovyScriptCache;
       this.applicationContext = applicationContext;
       this.proxyService = proxyService;
+      this.proxyResponseCache = proxyResponseCache;
       this.scriptEngine = new ScriptEngineManager().getEngineByExtension("groovy");
       this.opentelemetryResolverService = opentelemetryResolverService;
+      this.stageTimers = stageTimers;
    }
 
    /**
@@ -139,87 +155,167 @@ public class RestInvocationProcessor {
    @WithSpan(kind = SpanKind.INTERNAL, value = "processInvocation")
    public ResponseResult processInvocation(MockInvocationContext ic, long startTime, DelaySpec delay, String body,
          Map<String, List<String>> headers, HttpServletRequest request) {
+      return processInvocation(ic, startTime, delay, body, headers, request, false);
+   }
+
+   /**
+    * Process a REST invocation. This method is responsible for determining the appropriate response based on the
+    * request context, applying any necessary dispatching logic, and handling proxying if required.
+    * @param ic         The invocation context containing information about the service and operation being invoked
+    * @param startTime  The start time of the invocation
+    * @param delay      The delay to apply before returning the response
+    * @param body       The request body
+    * @param headers    The HTTP headers of the request
+    * @param request    The HTTP servlet request
+    * @param deferDelay Whether remaining delay should be returned as {@code deferredDelay} instead of being waited for
+    * @return A ResponseResult containing the status, headers, and body of the response
+    */
+   @WithSpan(kind = SpanKind.INTERNAL, value = "processInvocation")
+   public ResponseResult processInvocation(MockInvocationContext ic, long startTime, DelaySpec delay, String body,
+         Map<String, List<String>> headers, HttpServletRequest request, boolean deferDelay) {
+      return processInvocation(ic, startTime, delay, body, headers, request, deferDelay, false);
+   }
+
+   /**
+    * Process a REST invocation. This method is responsible for determining the appropriate response based on the
+    * request context, applying any necessary dispatching logic, and handling proxying if required.
+    * @param ic          The invocation context containing information about the service and operation being invoked
+    * @param startTime   The start time of the invocation
+    * @param delay       The delay to apply before returning the response
+    * @param body        The request body
+    * @param headers     The HTTP headers of the request
+    * @param request     The HTTP servlet request
+    * @param deferDelay  Whether remaining delay should be returned as {@code deferredDelay} instead of being waited for
+    * @param streamProxy Whether the response of a proxied service should be returned as {@code streamedResponse}
+    *                    instead of being read as content
+    * @return A ResponseResult containing the status, headers, and body of the response
+    */
+   @WithSpan(kind = SpanKind.INTERNAL, value = "processInvocation")
+   public ResponseResult processInvocation(MockInvocationContext ic, long startTime, DelaySpec delay, String body,
+         Map<String, List<String>> headers, HttpServletRequest request, boolean deferDelay, boolean streamProxy) {
       // Mark current span as an explain Span
       Span span = Span.current();
-      TraceUtil.enableExplainTracing();
+      TraceUtil.enableExplainTracing(span, ic.service());
 
       // We must find dispatcher and its rules. Default to operation ones but
       // if we have a Fallback or Proxy-Fallback this is the one who is holding the first pass rules.
-      FallbackSpecification fallback = MockControllerCommons.getFallbackIfAny(ic.operation());
-      ProxyFallbackSpecification proxyFallback = MockControllerCommons.getProxyFallbackIfAny(ic.operation());
-      String dispatcher = getDispatcher(ic, fallback, proxyFallback);
-      String dispatcherRules = getDispatcherRules(ic, fallback, proxyFallback);
+      CompiledDispatcher compiledDispatcher = CompiledDispatcher.compile(ic.operation());
+      FallbackSpecification fallback = compiledDispatcher.getFallback();
+      ProxyFallbackSpecification proxyFallback = compiledDispatcher.getProxyFallback();
+      String dispatcher = compiledDispatcher.getDispatcher();
+      String dispatcherRules = compiledDispatcher.getDispatcherRules();
 
       // Add event about selected dispatcher.
-      span.addEvent(CommonEvents.DISPATCHER_SELECTED.getEventName(),
-            TraceUtil.explainSpanEventBuilder("Selected dispatcher and rules for this invocation")
+      TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.DISPATCHER_SELECTED,
+            () -> TraceUtil.explainSpanEventBuilder("Selected dispatcher and rules for this invocation")
                   .put(CommonAttributes.DISPATCHER, dispatcher != null ? dispatcher : "none")
                   .put(CommonAttributes.DISPATCHER_RULES, dispatcherRules != null ? dispatcherRules : "none").build());
 
-      DispatchContext dispatchContext = computeDispatchCriteria(ic.service(), dispatcher, dispatcherRules,
+      long stageStart = stageTimers.start();
+      DispatchContext dispatchContext = computeDispatchCriteria(ic.service(), ic.operation(), compiledDispatcher,
             getURIPattern(ic.operation().getName()), UriUtils.decode(ic.resourcePath(), StandardCharsets.UTF_8),
             request, body);
+      stageTimers.record(Stage.DISPATCH_CRITERIA, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
       log.debug("Dispatch criteria for finding response is {}", dispatchContext.dispatchCriteria());
 
       List<Response> responses;
+      stageStart = stageTimers.start();
       Response response = getResponse(ic, request, dispatchContext);
 
-      span.addEvent(CommonEvents.RESPONSE_LOOKUP_COMPLETED.getEventName(),
-            TraceUtil.explainSpanEventBuilder("Response lookup completed").put("response.found", response != null)
-                  .put("response.name", response != null ? response.getName() : "null").build());
+      Response foundResponse = response;
+      TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.RESPONSE_LOOKUP_COMPLETED,
+            () -> TraceUtil.explainSpanEventBuilder("Response lookup completed")
+                  .put("response.found", foundResponse != null)
+                  .put("response.name", foundResponse != null ? foundResponse.getName() : "null").build());
 
       if (response == null && fallback != null) {
          // If we've found nothing and got a fallback, that's the moment!
-         span.addEvent(CommonEvents.FALLBACK_RESPONSE_USED.getEventName(),
-               TraceUtil.explainSpanEventBuilder("Using fallback response as no matching response was found")
+         TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.FALLBACK_RESPONSE_USED,
+               () -> TraceUtil.explainSpanEventBuilder("Using fallback response as no matching response was found")
                      .put("fallback.name", fallback.getFallback()).build());
-         responses = responseRepository.findByOperationIdAndName(
+         responses = responseIndex.findByOperationIdAndName(
                IdBuilder.buildOperationId(ic.service(), ic.operation()), fallback.getFallback());
          response = getResponseByMediaType(responses, request);
       }
+      stageTimers.record(Stage.RESPONSE_LOOKUP, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
 
       // Setting delay to default one if not set.
       if (delay == null && ic.operation().getDefaultDelay() != null) {
          delay = new DelaySpec(ic.operation().getDefaultDelay(), ic.operation().getDefaultDelayStrategy());
       }
 
-      span.addEvent(CommonEvents.DELAY_CONFIGURED.getEventName(),
-            TraceUtil.explainSpanEventBuilder("Configured response delay")
-                  .put(CommonAttributes.DELAY_VALUE, delay != null ? delay.baseValue() : 0)
-                  .put(CommonAttributes.DELAY_STRATEGY, delay != null ? delay.strategyName() : "N/A").build());
+      DelaySpec configuredDelay = delay;
+      TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.DELAY_CONFIGURED,
+            () -> TraceUtil.explainSpanEventBuilder("Configured response delay")
+                  .put(CommonAttributes.DELAY_VALUE, configuredDelay != null ? configuredDelay.baseValue() : 0)
+                  .put(CommonAttributes.DELAY_STRATEGY,
+                        configuredDelay != null ? configuredDelay.strategyName() : "N/A")
+                  .build());
 
       // Check if we need to proxy the request.
       Optional<URI> proxyUrl = MockControllerCommons.getProxyUrlIfProxyIsNeeded(dispatcher, dispatcherRules,
             ic.resourcePath(), proxyFallback, request, response);
       if (proxyUrl.isPresent()) {
-         span.addEvent(CommonEvents.PROXY_REQUEST_INITIATED.getEventName(),
-               TraceUtil.explainSpanEventBuilder("Proxying request to external service")
+         TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.PROXY_REQUEST_INITIATED,
+               () -> TraceUtil.explainSpanEventBuilder("Proxying request to external service")
                      .put("proxy.url", proxyUrl.get().toString()).put("proxy.method", ic.operation().getMethod())
                      .build());
 
          // Delay response here as the returning content will be returned directly.
-         MockControllerCommons.waitForDelay(startTime, delay);
+         long deferredDelay = 0L;
+         if (deferDelay) {
+            deferredDelay = MockControllerCommons.computeRemainingDelay(startTime, delay);
+         } else {
+            waitForDelay(startTime, delay, ic);
+         }
 
          // Translate generic headers into Spring ones.
          HttpHeaders httpHeaders = new HttpHeaders();
          httpHeaders.putAll(headers);
 
          // If we've got a proxyUrl, that's the moment!
+         stageStart = stageTimers.start();
+         if (proxyResponseCache.isEnabled() || proxyResponseCache.isRecordEnabled()) {
+            // Responses must be read for being cached or recorded, so no streaming here.
+            ResponseEntity<byte[]> proxyResponse = callExternalThroughCache(ic, proxyUrl.get(), httpHeaders, body,
+                  dispatchContext.dispatchCriteria());
+            stageTimers.record(Stage.PROXY, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
+            return new ResponseResult(proxyResponse.getStatusCode(), proxyResponse.getHeaders(),
+                  proxyResponse.getBody(), deferredDelay);
+         }
+         if (streamProxy) {
+            try {
+               ProxyService.StreamedResponse streamedResponse = proxyService.streamExternal(proxyUrl.get(),
+                     HttpMethod.valueOf(ic.operation().getMethod()), httpHeaders, body);
+               return ResponseResult.streamed(streamedResponse, deferredDelay);
+            } catch (IOException ioe) {
+               log.warn("Exception while calling proxied service {}", proxyUrl.get(), ioe);
+               span.setStatus(StatusCode.ERROR, "Proxied service cannot be reached");
+               return new ResponseResult(HttpStatus.BAD_GATEWAY, null,
+                     String.format("The proxied service %s cannot be reached!", proxyUrl.get()).getBytes());
+            } finally {
+               stageTimers.record(Stage.PROXY, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
+            }
+         }
          ResponseEntity<byte[]> proxyResponse = proxyService.callExternal(proxyUrl.get(),
                HttpMethod.valueOf(ic.operation().getMethod()), httpHeaders, body);
-         return new ResponseResult(proxyResponse.getStatusCode(), proxyResponse.getHeaders(), proxyResponse.getBody());
+         stageTimers.record(Stage.PROXY, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
+         return new ResponseResult(proxyResponse.getStatusCode(), proxyResponse.getHeaders(), proxyResponse.getBody(),
+               deferredDelay);
       }
 
       if (response == null) {
          if (dispatcher == null) {
-            span.addEvent(CommonEvents.NO_DISPATCHER_FALLBACK_ATTEMPTED.getEventName(), TraceUtil
-                  .explainSpanEventBuilder("No dispatcher configured, attempting to find any response for operation")
-                  .build());
+            TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.NO_DISPATCHER_FALLBACK_ATTEMPTED,
+                  () -> TraceUtil.explainSpanEventBuilder(
+                        "No dispatcher configured, attempting to find any response for operation").build());
+            stageStart = stageTimers.start();
             response = getOneForOperation(ic, request, response);
+            stageTimers.record(Stage.RESPONSE_LOOKUP, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
          } else {
             // There is a dispatcher, but we found no response => return 400 as per #819 and #1132.
-            span.addEvent(CommonEvents.NO_RESPONSE_FOUND.getEventName(),
-                  TraceUtil.explainSpanEventBuilder("No matching response found for dispatch criteria")
+            TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.NO_RESPONSE_FOUND,
+                  () -> TraceUtil.explainSpanEventBuilder("No matching response found for dispatch criteria")
                         .put(CommonAttributes.DISPATCH_CRITERIA, dispatchContext.dispatchCriteria())
                         .put(CommonAttributes.ERROR_STATUS, 400).build());
             span.setStatus(StatusCode.ERROR, "No matching response found for dispatch criteria");
@@ -232,64 +328,55 @@ public class RestInvocationProcessor {
          HttpStatus status = (response.getStatus() != null ? HttpStatus.valueOf(Integer.parseInt(response.getStatus()))
                : HttpStatus.OK);
 
-         span.addEvent(CommonEvents.RESPONSE_SELECTED.getEventName(),
-               TraceUtil.explainSpanEventBuilder("Selected response to return")
-                     .put(CommonAttributes.RESPONSE_NAME, response.getName())
+         Response selectedResponse = response;
+         TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.RESPONSE_SELECTED,
+               () -> TraceUtil.explainSpanEventBuilder("Selected response to return")
+                     .put(CommonAttributes.RESPONSE_NAME, selectedResponse.getName())
                      .put(CommonAttributes.RESPONSE_STATUS, status.value())
-                     .put("response.mediaType", response.getMediaType() != null ? response.getMediaType() : "none")
+                     .put("response.mediaType",
+                           selectedResponse.getMediaType() != null ? selectedResponse.getMediaType() : "none")
                      .build());
 
-         // Deal with specific headers (content-type and redirect directive).
-         HttpHeaders responseHeaders = getResponseHeaders(ic, body, request, dispatchContext, response);
-         byte[] responseContent = getResponseContent(ic, startTime, delay, body, request, dispatchContext, response);
+         HttpHeaders responseHeaders;
+         byte[] responseContent;
+         StaticResponseCache.PreparedResponse prepared = staticResponses.getPreparedResponse(response);
+         if (prepared != null) {
+            // Static response: just reuse its pre-rendered headers and content.
+            stageStart = stageTimers.start();
+            boolean useGzip = staticResponses.shouldUseGzip(prepared, request);
+            responseHeaders = getStaticResponseHeaders(ic.operation(), request,
+                  useGzip ? prepared.getGzipHeaders() : prepared.getHeaders());
+            responseContent = useGzip ? prepared.getGzipContent() : prepared.getContent();
+            stageTimers.record(Stage.SERIALIZATION, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
+         } else {
+            // Deal with specific headers (content-type and redirect directive).
+            stageStart = stageTimers.start();
+            responseHeaders = getResponseHeaders(ic, body, request, dispatchContext, response);
+            responseContent = getResponseContent(ic, body, request, dispatchContext, response, stageStart);
+         }
+
+         // Apply response delay and optionally publish the invocation event
+         handlePostProcessing(startTime, delay, deferDelay, ic, response);
 
-         // Return response content.
-         return new ResponseResult(status, responseHeaders, responseContent);
+         // Return response content, leaving delay to the caller if asked to.
+         long deferredDelay = deferDelay ? MockControllerCommons.computeRemainingDelay(startTime, delay) : 0L;
+         return new ResponseResult(status, responseHeaders, responseContent, deferredDelay);
       }
 
-      span.addEvent(CommonEvents.NO_RESPONSE_AVAILABLE.getEventName(), TraceUtil
+      TraceUtil.addExplainEvent(span, ic.service(), CommonEvents.NO_RESPONSE_AVAILABLE, () -> TraceUtil
             .explainSpanEventBuilder("No response could be found or generated").put("error.status", 400).build());
       span.setStatus(StatusCode.ERROR, "No response could be found or generated");
       return new ResponseResult(HttpStatus.BAD_REQUEST, null, null);
    }
 
-   /** Get the root dispatcher for the invocation context. */
-   private String getDispatcher(MockInvocationContext ic, FallbackSpecification fallback,
-         ProxyFallbackSpecification proxyFallback) {
-      String dispatcher = ic.operation().getDispatcher();
-      if (fallback != null) {
-         dispatcher = fallback.getDispatcher();
-      }
-      if (proxyFallback != null) {
-         dispatcher = proxyFallback.getDispatcher();
-      }
-      return dispatcher;
-   }
-
-   /** Get the root dispatcher rules for the invocation context. */
-   private String getDispatcherRules(MockInvocationContext ic, FallbackSpecification fallback,
-         ProxyFallbackSpecification proxyFallback) {
-      String dispatcherRules = ic.operation().getDispatcherRules();
-      if (fallback != null) {
-         dispatcherRules = fallback.getDispatcherRules();
-      }
-      if (proxyFallback != null) {
-         dispatcherRules = proxyFallback.getDispatcherRules();
-      }
-      return dispatcherRules;
-   }
-
    /** Get one random response for operation. */
    private Response getOneForOperation(MockInvocationContext ic, HttpServletRequest request, Response response) {
-      List<Response> responses;
       // In case no response found because dispatcher is null, just get one for the operation.
       // This will allow also OPTIONS operations (like pre-flight requests) with no dispatch criteria to work.
       log.debug("No responses found so far, tempting with just bare operationId...");
-      responses = responseRepository.findByOperationId(IdBuilder.buildOperationId(ic.service(), ic.operation()));
-      if (!responses.isEmpty()) {
-         response = getResponseByMediaType(responses, request);
-      }
-      return response;
+      Response candidate = responseIndex.findFirstByOperationIdAndMediaType(
+            IdBuilder.buildOperationId(ic.service(), ic.operation()), request.getHeader("Accept"));
+      return candidate != null ? candidate : response;
    }
 
    /** Filter responses using the Accept header for content-type, default to the first. Return null if no responses. */
@@ -313,8 +400,11 @@ public class RestInvocationProcessor {
    }
 
    /** Compute a dispatch context with a dispatchCriteria string from type, rules and request elements. */
-   private DispatchContext computeDispatchCriteria(Service service, String dispatcher, String dispatcherRules,
-         String uriPattern, String resourcePath, HttpServletRequest request, String body) {
+   private DispatchContext computeDispatchCriteria(Service service, Operation operation,
+         CompiledDispatcher compiledDispatcher, String uriPattern, String resourcePath, HttpServletRequest request,
+         String body) {
+      String dispatcher = compiledDispatcher.getDispatcher();
+      String dispatcherRules = compiledDispatcher.getDispatcherRules();
       String dispatchCriteria = null;
       Map<String, Object> requestContext = null;
 
@@ -324,14 +414,14 @@ public class RestInvocationProcessor {
       Span childSpan = tracer.spanBuilder("computeDispatchCriteria").setSpanKind(SpanKind.INTERNAL).startSpan();
 
       try (Scope ignored = childSpan.makeCurrent()) {
-         TraceUtil.enableExplainTracing();
+         TraceUtil.enableExplainTracing(childSpan, service);
 
          // Depending on dispatcher, evaluate request with rules.
          if (dispatcher != null) {
             switch (dispatcher) {
                case DispatchStyles.SEQUENCE:
-                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIPattern(dispatcherRules, uriPattern,
-                        resourcePath);
+                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIPattern(compiledDispatcher.getURIPartsRule(),
+                        uriPattern, resourcePath);
                   break;
                case DispatchStyles.SCRIPT:
                   log.info("Use the \"GROOVY\" Dispatch Style instead.");
@@ -344,14 +434,15 @@ public class RestInvocationProcessor {
                      // Evaluating request with script coming from operation dispatcher rules.
                      String script = ScriptEngineBinder.ensureSoapUICompatibility(dispatcherRules);
                      ScriptContext scriptContext = ScriptEngineBinder.buildEvaluationContext(scriptEngine, body,
-                           requestContext, new ServiceStateStore(serviceStateRepository, service.getId()), request,
+                           requestContext, serviceStateCache.getStateStore(service.getId()), request,
                            uriParameters);
-                     dispatchCriteria = (String) scriptEngine.eval(script, scriptContext);
+                     dispatchCriteria = (String) groovyScriptCache
+                           .eval(IdBuilder.buildOperationId(service, operation), script, scriptContext);
                   } catch (Exception e) {
                      // Get current span and record failure
                      Span.current().recordException(e);
-                     Span.current().addEvent(DISPATCH_CRITERIA_COMPUTED.getEventName(),
-                           TraceUtil
+                     TraceUtil.addExplainEvent(Span.current(), service, DISPATCH_CRITERIA_COMPUTED,
+                           () -> TraceUtil
                                  .explainSpanEventBuilder("Failed to compute dispatch criteria using GROOVY dispatcher")
                                  .put(CommonAttributes.DISPATCHER, "GROOVY")
                                  .put(CommonAttributes.DISPATCHER_RULES, dispatcherRules)
@@ -366,38 +457,38 @@ public class RestInvocationProcessor {
                         resourcePath);
                   // Evaluating request with script coming from operation dispatcher rules.
                   String script = JsScriptEngineBinder.wrapIntoFunction(dispatcherRules);
-                  Engine scriptContext = JsScriptEngineBinder.buildEvaluationContext(body, requestContext,
-                        new ServiceStateStore(serviceStateRepository, service.getId()), request, jsUriParameters);
-                  String result = JsScriptEngineBinder.invokeProcessFn(script, scriptContext);
+                  String result = JsScriptEngineBinder.evaluate(script, body, requestContext,
+                        serviceStateCache.getStateStore(service.getId()), request, jsUriParameters, service);
                   if (result != null) {
                      dispatchCriteria = result;
                   }
                   break;
                case DispatchStyles.URI_PARAMS:
                   String fullURI = request.getRequestURL() + "?" + request.getQueryString();
-                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIParams(dispatcherRules, fullURI);
+                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIParams(compiledDispatcher.getParamsRule(),
+                        fullURI);
                   break;
                case DispatchStyles.URI_PARTS:
                   // /tenantId?t1/userId=x
-                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIPattern(dispatcherRules, uriPattern,
-                        resourcePath);
+                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIPattern(compiledDispatcher.getURIPartsRule(),
+                        uriPattern, resourcePath);
                   break;
                case DispatchStyles.URI_ELEMENTS:
-                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIPattern(dispatcherRules, uriPattern,
-                        resourcePath);
+                  dispatchCriteria = DispatchCriteriaHelper.extractFromURIPattern(compiledDispatcher.getURIPartsRule(),
+                        uriPattern, resourcePath);
                   fullURI = request.getRequestURL() + "?" + request.getQueryString();
-                  dispatchCriteria += DispatchCriteriaHelper.extractFromURIParams(dispatcherRules, fullURI);
+                  dispatchCriteria += DispatchCriteriaHelper.extractFromURIParams(compiledDispatcher.getParamsRule(),
+                        fullURI);
                   break;
                case DispatchStyles.JSON_BODY:
                   try {
-                     JsonEvaluationSpecification specification = JsonEvaluationSpecification
-                           .buildFromJsonString(dispatcherRules);
+                     JsonEvaluationSpecification specification = compiledDispatcher.getJsonEvaluationSpecification();
                      dispatchCriteria = JsonExpressionEvaluator.evaluate(body, specification);
                   } catch (JsonMappingException jme) {
                      log.error("Dispatching rules of operation cannot be interpreted as JsonEvaluationSpecification",
                            jme);
                      Span.current().recordException(jme);
-                     Span.current().addEvent(DISPATCH_CRITERIA_COMPUTED.getEventName(), TraceUtil
+                     TraceUtil.addExplainEvent(Span.current(), service, DISPATCH_CRITERIA_COMPUTED, () -> TraceUtil
                            .explainSpanEventBuilder("Failed to compute dispatch criteria using JSON_BODY dispatcher")
                            .put(CommonAttributes.DISPATCHER, "JSON_BODY")
                            .put(CommonAttributes.DISPATCHER_RULES, dispatcherRules)
@@ -407,13 +498,13 @@ public class RestInvocationProcessor {
                   break;
                case DispatchStyles.QUERY_HEADER:
                   // Extract headers from request and put them into a simple map to reuse extractFromParamMap().
-                  dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(dispatcherRules,
+                  dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(compiledDispatcher.getParamsRule(),
                         extractRequestHeaders(request));
                   break;
                default:
                   log.error("Unknown dispatcher type: {}", dispatcher);
-                  Span.current().addEvent(DISPATCH_CRITERIA_COMPUTED.getEventName(),
-                        TraceUtil.explainSpanEventBuilder("Unknown dispatcher type encountered")
+                  TraceUtil.addExplainEvent(Span.current(), service, DISPATCH_CRITERIA_COMPUTED,
+                        () -> TraceUtil.explainSpanEventBuilder("Unknown dispatcher type encountered")
                               .put(CommonAttributes.DISPATCHER, dispatcher)
                               .put(CommonAttributes.DISPATCHER_RULES, dispatcherRules)
                               .put(CommonAttributes.DISPATCH_CRITERIA, "null").build());
@@ -422,11 +513,13 @@ public class RestInvocationProcessor {
 
             if (dispatchCriteria != null) {
                // Add an event about computed dispatch criteria.
-               Span.current().addEvent(DISPATCH_CRITERIA_COMPUTED.getEventName(),
-                     TraceUtil.explainSpanEventBuilder("Computed dispatch criteria using " + dispatcher + " dispatcher")
+               String computedCriteria = dispatchCriteria;
+               TraceUtil.addExplainEvent(Span.current(), service, DISPATCH_CRITERIA_COMPUTED,
+                     () -> TraceUtil
+                           .explainSpanEventBuilder("Computed dispatch criteria using " + dispatcher + " dispatcher")
                            .put(CommonAttributes.DISPATCHER, dispatcher)
                            .put(CommonAttributes.DISPATCHER_RULES, dispatcherRules)
-                           .put(CommonAttributes.DISPATCH_CRITERIA, dispatchCriteria).build());
+                           .put(CommonAttributes.DISPATCH_CRITERIA, computedCriteria).build());
             }
          }
       } finally {
@@ -441,13 +534,13 @@ public class RestInvocationProcessor {
 
       // Filter depending on requested media type.
       // TODO: validate dispatchCriteria with dispatcherRules
-      List<Response> responses = responseRepository.findByOperationIdAndDispatchCriteria(
+      List<Response> responses = responseIndex.findByOperationIdAndDispatchCriteria(
             IdBuilder.buildOperationId(ic.service(), ic.operation()), dispatchContext.dispatchCriteria());
       response = getResponseByMediaType(responses, request);
 
       if (response == null) {
          // When using the SCRIPT or JSON_BODY dispatchers, return of evaluation may be the name of response.
-         responses = responseRepository.findByOperationIdAndName(
+         responses = responseIndex.findByOperationIdAndName(
                IdBuilder.buildOperationId(ic.service(), ic.operation()), dispatchContext.dispatchCriteria());
          response = getResponseByMediaType(responses, request);
       }
@@ -484,6 +577,20 @@ public class RestInvocationProcessor {
       return responseHeaders;
    }
 
+   /** Get headers of a static response, adding the ones from parameter constraints if any. */
+   private HttpHeaders getStaticResponseHeaders(Operation rOperation, HttpServletRequest request,
+         HttpHeaders preparedHeaders) {
+      if (rOperation.getParameterConstraints() == null || rOperation.getParameterConstraints().stream()
+            .noneMatch(constraint -> ParameterLocation.header == constraint.getIn() && constraint.isRecopy())) {
+         return preparedHeaders;
+      }
+      // Response headers take precedence over recopied ones.
+      HttpHeaders responseHeaders = new HttpHeaders();
+      recopyHeadersFromParameterConstraints(rOperation, request, responseHeaders);
+      responseHeaders.putAll(preparedHeaders);
+      return responseHeaders;
+   }
+
    /** Recopy headers defined with parameter constraints. */
    private void recopyHeadersFromParameterConstraints(Operation rOperation, HttpServletRequest request,
          HttpHeaders responseHeaders) {
@@ -522,11 +629,11 @@ public class RestInvocationProcessor {
    }
 
    /**
-    * Generates the response content to return, based on the media type (UTF-8 or Base64), applies an optional delay,
-    * and publishes an invocation event if enabled.
+    * Generates the response content to return, based on the media type (UTF-8 or Base64). Rendering is recorded once,
+    * from {@code renderingStart} so that it includes the rendering of headers.
     */
-   private byte[] getResponseContent(MockInvocationContext ic, long startTime, DelaySpec delay, String body,
-         HttpServletRequest request, DispatchContext dispatchContext, Response response) {
+   private byte[] getResponseContent(MockInvocationContext ic, String body, HttpServletRequest request,
+         DispatchContext dispatchContext, Response response, long renderingStart) {
 
       byte[] responseContent;
 
@@ -537,15 +644,18 @@ public class RestInvocationProcessor {
       if (treatAsUtf8) {
          String content = MockControllerCommons.renderResponseContent(body, ic.resourcePath(), request,
                dispatchContext.requestContext(), response);
-         responseContent = content != null ? content.getBytes(StandardCharsets.UTF_8) : null;
+         stageTimers.record(Stage.RENDERING, MockStageTimers.REST, ic.service(), ic.operation(), renderingStart);
 
+         long stageStart = stageTimers.start();
+         responseContent = content != null ? content.getBytes(StandardCharsets.UTF_8) : null;
+         stageTimers.record(Stage.SERIALIZATION, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
       } else {
+         stageTimers.record(Stage.RENDERING, MockStageTimers.REST, ic.service(), ic.operation(), renderingStart);
+
+         long stageStart = stageTimers.start();
          responseContent = tryDecodeExternalValueContent(response);
+         stageTimers.record(Stage.SERIALIZATION, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
       }
-
-      // Apply response delay and optionally publish the invocation event
-      handlePostProcessing(startTime, delay, ic, response);
-
       return responseContent;
    }
 
@@ -570,15 +680,43 @@ public class RestInvocationProcessor {
    }
 
    /**
-    * Applies an artificial delay before returning the response, and publishes a mock invocation event if statistics
-    * collection is enabled.
+    * Applies an artificial delay before returning the response (unless delay is deferred to the caller), and publishes
+    * a mock invocation event if statistics collection is enabled.
     */
-   private void handlePostProcessing(long startTime, DelaySpec delay, MockInvocationContext ic, Response response) {
-      MockControllerCommons.waitForDelay(startTime, delay);
+   private void handlePostProcessing(long startTime, DelaySpec delay, boolean deferDelay, MockInvocationContext ic,
+         Response response) {
+      if (!deferDelay) {
+         waitForDelay(startTime, delay, ic);
+      }
 
       // Publish an invocation event before returning if enabled.
       if (Boolean.TRUE.equals(enableInvocationStats)) {
          MockControllerCommons.publishMockInvocation(applicationContext, this, ic.service(), response, startTime);
       }
    }
+
+   /** Call proxied service if its response is not already cached, recording the exchange if required. */
+   private ResponseEntity<byte[]> callExternalThroughCache(MockInvocationContext ic, URI proxyUrl,
+         HttpHeaders httpHeaders, String body, String dispatchCriteria) {
+      HttpMethod method = HttpMethod.valueOf(ic.operation().getMethod());
+      ProxyResponseCache.CacheKey cacheKey = proxyResponseCache.buildKey(method, proxyUrl, httpHeaders, body);
+      ResponseEntity<byte[]> proxyResponse = proxyResponseCache.get(cacheKey);
+      if (proxyResponse != null) {
+         log.debug("Found a cached response for proxied url {}", proxyUrl);
+         return proxyResponse;
+      }
+      proxyResponse = proxyService.callExternal(proxyUrl, method, httpHeaders, body);
+      proxyResponseCache.put(cacheKey, proxyResponse);
+      proxyResponseCache.record(ic.service(), ic.operation(), dispatchCriteria, cacheKey, body, proxyResponse);
+      return proxyResponse;
+   }
+
+   /** Wait for the remaining of delay, measuring the time spent waiting. */
+   private void waitForDelay(long startTime, DelaySpec delay, MockInvocationContext ic) {
+      if (delay != null) {
+         long stageStart = stageTimers.start();
+         MockControllerCommons.waitForDelay(startTime, delay);
+         stageTimers.record(Stage.DELAY, MockStageTimers.REST, ic.service(), ic.operation(), stageStart);
+      }
+   }
 }
@@ -16,33 +16,34 @@
 package io.github.microcks.web;
 
 import io.github.microcks.domain.Operation;
-import io.github.microcks.domain.Resource;
-import io.github.microcks.domain.ResourceType;
 import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
-import io.github.microcks.repository.ResourceRepository;
-import io.github.microcks.repository.ResponseRepository;
-import io.github.microcks.repository.ServiceRepository;
-import io.github.microcks.repository.ServiceStateRepository;
+import io.github.microcks.service.CompiledGroovyScriptCache;
+import io.github.microcks.service.MockRoutingTable;
 import io.github.microcks.service.ProxyService;
+import io.github.microcks.service.ResponseLookupIndex;
 import io.github.microcks.util.DispatchStyles;
 import io.github.microcks.util.IdBuilder;
 import io.github.microcks.util.SafeLogger;
 import io.github.microcks.util.delay.DelaySpec;
+import io.github.microcks.util.dispatcher.CompiledDispatcher;
 import io.github.microcks.util.dispatcher.FallbackSpecification;
 import io.github.microcks.util.dispatcher.ProxyFallbackSpecification;
 import io.github.microcks.util.script.JsScriptEngineBinder;
 import io.github.microcks.util.script.ScriptEngineBinder;
-import io.github.microcks.service.ServiceStateStore;
+import io.github.microcks.service.ServiceStateCache;
+import io.github.microcks.service.WsdlSchemaCache;
+import io.github.microcks.util.soap.SoapEnvelopeParser;
+import io.github.microcks.util.soap.SoapEnvelopeScanner;
 import io.github.microcks.util.soap.SoapMessageValidator;
 import io.github.microcks.util.soapui.SoapUIXPathBuilder;
 import io.github.microcks.util.tracing.CommonAttributes;
 import io.github.microcks.util.tracing.CommonEvents;
 import io.github.microcks.util.tracing.TraceUtil;
+import io.github.microcks.web.MockStageTimers.Stage;
 
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
-import io.roastedroot.quickjs4j.core.Engine;
 import org.apache.commons.lang3.RandomUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
@@ -59,7 +60,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ResponseStatusException;
-import org.xml.sax.InputSource;
+import org.w3c.dom.Document;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -67,8 +68,6 @@ import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.xml.namespace.QName;
-import javax.xml.xpath.XPathExpression;
-import java.io.StringReader;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
@@ -97,46 +96,53 @@ public class SoapController {
    private static final Pattern SOAPUI_TEMPLATE_PARAMETER_REPLACE_PATTERN = Pattern
          .compile("\\$\\{\s*([a-zA-Z0-9-_]+)\s*\\}", Pattern.DOTALL);
 
-   private final ServiceRepository serviceRepository;
-   private final ServiceStateRepository serviceStateRepository;
-   private final ResponseRepository responseRepository;
-   private final ResourceRepository resourceRepository;
+   private final MockRoutingTable routingTable;
+   private final ServiceStateCache serviceStateCache;
+   private final ResponseLookupIndex responseIndex;
+   private final CompiledGroovyScriptCache groovyScriptCache;
+   private final WsdlSchemaCache wsdlSchemaCache;
    private final ApplicationContext applicationContext;
    private final ProxyService proxyService;
+   private final MockStageTimers stageTimers;
+   private final MockDelayScheduler delayScheduler;
 
    private ScriptEngine scriptEngine;
 
    @Value("${mocks.enable-invocation-stats}")
    private Boolean enableInvocationStats;
 
-   @Value("${validation.resourceUrl}")
-   private String resourceUrl;
-
 
    /**
     * Build a SoapController with required dependencies.
-    * @param serviceRepository      The repository to access services definitions
-    * @param serviceStateRepository The repository to access service state
-    * @param responseRepository     The repository to access responses definitions
-    * @param resourceRepository     The repository to access resources artifacts
-    * @param applicationContext     The Spring application context
-    * @param proxyService           The proxy to external URLs or services
+    * @param routingTable       The routing table to access services definitions
+    * @param serviceStateCache  The cache to access service state
+    * @param responseIndex      The index to access responses definitions
+    * @param groovyScriptCache  The cache of compiled Groovy dispatcher scripts
+    * @param wsdlSchemaCache    The cache of compiled WSDL types schemas
+    * @param applicationContext The Spring application context
+    * @param proxyService       The proxy to external URLs or services
+    * @param stageTimers        The timers for measuring invocation stages
+    * @param delayScheduler     The scheduler for releasing delayed responses asynchronously
     */
-   public SoapController(ServiceRepository serviceRepository, ServiceStateRepository serviceStateRepository,
-         ResponseRepository responseRepository, ResourceRepository resourceRepository,
-         ApplicationContext applicationContext, ProxyService proxyService) {
-      this.serviceRepository = serviceRepository;
-      this.serviceStateRepository = serviceStateRepository;
-      this.responseRepository = responseRepository;
-      this.resourceRepository = resourceRepository;
+   public SoapController(MockRoutingTable routingTable, ServiceStateCache serviceStateCache,
+         ResponseLookupIndex responseIndex, CompiledGroovyScriptCache groovyScriptCache,
+         WsdlSchemaCache wsdlSchemaCache, ApplicationContext applicationContext, ProxyService proxyService,
+         MockStageTimers stageTimers, MockDelayScheduler delayScheduler) {
+      this.routingTable = routingTable;
+      this.serviceStateCache = serviceStateCache;
+      this.responseIndex = responseIndex;
+      this.groovyScriptCache = groovyScriptCache;
+      this.wsdlSchemaCache = wsdlSchemaCache;
       this.applicationContext = applicationContext;
       this.proxyService = proxyService;
+      this.stageTimers = stageTimers;
+      this.delayScheduler = delayScheduler;
       this.scriptEngine = new ScriptEngineManager().getEngineByExtension("groovy");
    }
 
 
    @PostMapping(value = "/{service}/{version}/**")
-   public ResponseEntity<?> execute(@PathVariable("service") String serviceName,
+   public Object execute(@PathVariable("service") String serviceName,
          @PathVariable("version") String version, @RequestParam(value = "validate", required = false) Boolean validate,
          @RequestParam(value = "delay", required = false) Long requestedDelay,
          @RequestParam(value = "delayStrategy", required = false) String requestedDelayStrategy,
@@ -155,13 +161,16 @@ public class SoapController {
       }
       log.debug("Service name: {}", serviceName);
       // Retrieve service and correct operation.
-      Service service = serviceRepository.findByNameAndVersion(serviceName, version);
+      long stageStart = stageTimers.start();
+      Service service = routingTable.findByNameAndVersion(serviceName, version);
+      stageTimers.record(Stage.SERVICE_LOOKUP, MockStageTimers.SOAP, service, null, stageStart);
       if (service == null) {
          return new ResponseEntity<>(
                String.format("The service %s with version %s does not exist!", serviceName, version),
                HttpStatus.NOT_FOUND);
       }
       Operation rOperation = null;
+      stageStart = stageTimers.start();
 
       // Enhancement : retrieve SOAPAction from request headers
       String action = extractSoapAction(request);
@@ -197,6 +206,8 @@ public class SoapController {
          }
       }
 
+      stageTimers.record(Stage.OPERATION_MATCH, MockStageTimers.SOAP, service, rOperation, stageStart);
+
       // Now processing the request and send a response.
       if (rOperation != null) {
          log.debug("Found a valid operation with rules: {}", rOperation.getDispatcherRules());
@@ -223,16 +234,14 @@ public class SoapController {
          if (validate != null && validate) {
             log.debug("Soap message validation is turned on, validating...");
 
-            List<Resource> wsdlResources = resourceRepository.findByServiceIdAndType(service.getId(),
-                  ResourceType.WSDL);
-            if (wsdlResources.isEmpty()) {
+            SoapMessageValidator.TypesSchema typesSchema = wsdlSchemaCache.getTypesSchema(service.getId());
+            if (typesSchema == null) {
                return new ResponseEntity<>(
                      String.format("The service %s with version %s does not have a wsdl!", serviceName, version),
                      HttpStatus.PRECONDITION_FAILED);
             }
-            Resource wsdlResource = wsdlResources.get(0);
-            List<String> errors = SoapMessageValidator.validateSoapMessage(wsdlResource.getContent(),
-                  new QName(service.getXmlNS(), rOperation.getInputName()), body, resourceUrl);
+            List<String> errors = SoapMessageValidator.validateSoapMessage(typesSchema,
+                  new QName(service.getXmlNS(), rOperation.getInputName()), body);
 
             log.debug("SoapBody validation errors: {}", errors.size());
 
@@ -244,18 +253,11 @@ public class SoapController {
 
          // We must find dispatcher and its rules. Default to operation ones but
          // if we have a Fallback this is the one who is holding the first pass rules.
-         String dispatcher = rOperation.getDispatcher();
-         String dispatcherRules = rOperation.getDispatcherRules();
-         FallbackSpecification fallback = MockControllerCommons.getFallbackIfAny(rOperation);
-         if (fallback != null) {
-            dispatcher = fallback.getDispatcher();
-            dispatcherRules = fallback.getDispatcherRules();
-         }
-         ProxyFallbackSpecification proxyFallback = MockControllerCommons.getProxyFallbackIfAny(rOperation);
-         if (proxyFallback != null) {
-            dispatcher = proxyFallback.getDispatcher();
-            dispatcherRules = proxyFallback.getDispatcherRules();
-         }
+         CompiledDispatcher compiledDispatcher = CompiledDispatcher.compile(rOperation);
+         FallbackSpecification fallback = compiledDispatcher.getFallback();
+         ProxyFallbackSpecification proxyFallback = compiledDispatcher.getProxyFallback();
+         String dispatcher = compiledDispatcher.getDispatcher();
+         String dispatcherRules = compiledDispatcher.getDispatcherRules();
 
          span.addEvent(CommonEvents.DISPATCHER_SELECTED.getEventName(),
                TraceUtil.explainSpanEventBuilder("Selected dispatcher and rules for this invocation")
@@ -266,12 +268,14 @@ public class SoapController {
          Response response = null;
          DispatchContext dispatchContext = null;
 
+         stageStart = stageTimers.start();
          try {
             // Depending on dispatcher, evaluate request with rules.
             if (DispatchStyles.QUERY_MATCH.equals(dispatcher)) {
                dispatchContext = getDispatchCriteriaFromXPathEval(dispatcherRules, body);
             } else if (DispatchStyles.SCRIPT.equals(dispatcher) || DispatchStyles.GROOVY.equals(dispatcher)) {
-               dispatchContext = getDispatchCriteriaFromGroovyEval(service, dispatcherRules, body, request);
+               dispatchContext = getDispatchCriteriaFromGroovyEval(service, rOperation, dispatcherRules, body,
+                     request);
             } else if (DispatchStyles.JS.equals(dispatcher)) {
                dispatchContext = getDispatchCriteriaFromJsEval(service, dispatcherRules, body, request);
             } else if (DispatchStyles.RANDOM.equals(dispatcher)) {
@@ -285,6 +289,7 @@ public class SoapController {
          } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
          }
+         stageTimers.record(Stage.DISPATCH_CRITERIA, MockStageTimers.SOAP, service, rOperation, stageStart);
 
          if (dispatchContext.dispatchCriteria() != null) {
             // Add an event about computed dispatch criteria.
@@ -296,7 +301,8 @@ public class SoapController {
          }
 
          log.debug("Dispatch criteria for finding response is {}", dispatchContext.dispatchCriteria());
-         List<Response> responses = responseRepository.findByOperationIdAndDispatchCriteria(
+         stageStart = stageTimers.start();
+         List<Response> responses = responseIndex.findByOperationIdAndDispatchCriteria(
                IdBuilder.buildOperationId(service, rOperation), dispatchContext.dispatchCriteria());
 
          span.addEvent(CommonEvents.RESPONSE_LOOKUP_COMPLETED.getEventName(),
@@ -310,9 +316,10 @@ public class SoapController {
             span.addEvent(CommonEvents.FALLBACK_RESPONSE_USED.getEventName(),
                   TraceUtil.explainSpanEventBuilder("Using fallback response as no matching response was found")
                         .put("fallback.name", fallback.getFallback()).build());
-            responses = responseRepository.findByOperationIdAndName(IdBuilder.buildOperationId(service, rOperation),
+            responses = responseIndex.findByOperationIdAndName(IdBuilder.buildOperationId(service, rOperation),
                   fallback.getFallback());
          }
+         stageTimers.record(Stage.RESPONSE_LOOKUP, MockStageTimers.SOAP, service, rOperation, stageStart);
 
          Optional<URI> proxyUrl = MockControllerCommons.getProxyUrlIfProxyIsNeeded(dispatcher, dispatcherRules,
                MockControllerCommons.extractResourcePath(request, serviceAndVersion), proxyFallback, request,
@@ -323,7 +330,10 @@ public class SoapController {
                   TraceUtil.explainSpanEventBuilder("Proxying request to external service")
                         .put("proxy.url", proxyUrl.get().toString())
                         .put("proxy.method", method != null ? method.toString() : "POST").build());
-            return proxyService.callExternal(proxyUrl.get(), method, headers, body);
+            stageStart = stageTimers.start();
+            ResponseEntity<byte[]> proxyResponse = proxyService.callExternal(proxyUrl.get(), method, headers, body);
+            stageTimers.record(Stage.PROXY, MockStageTimers.SOAP, service, rOperation, stageStart);
+            return proxyResponse;
          }
 
          if (!responses.isEmpty()) {
@@ -360,9 +370,12 @@ public class SoapController {
 
          // Render response content before waiting and returning.
          // Response coming from SoapUI may contain specific template markers, we have to convert them first.
-         response.setContent(convertSoapUITemplate(response.getContent()));
+         stageStart = stageTimers.start();
+         // Found response is shared with other invocations and must not be modified.
+         String responseTemplate = convertSoapUITemplate(response.getContent());
          String responseContent = MockControllerCommons.renderResponseContent(body, null, request,
-               dispatchContext.requestContext(), response);
+               dispatchContext.requestContext(), response, responseTemplate);
+         stageTimers.record(Stage.RENDERING, MockStageTimers.SOAP, service, rOperation, stageStart);
 
          // Setting delay to default one if not set.
          DelaySpec delay = MockControllerCommons.getDelay(headers, requestedDelay, requestedDelayStrategy);
@@ -375,29 +388,45 @@ public class SoapController {
                      .put(CommonAttributes.DELAY_VALUE, delay != null ? delay.baseValue() : 0)
                      .put(CommonAttributes.DELAY_STRATEGY, delay != null ? delay.strategyName() : "N/A").build());
 
-         MockControllerCommons.waitForDelay(startTime, delay);
+         if (delay != null && !delayScheduler.isAsyncEnabled()) {
+            stageStart = stageTimers.start();
+            MockControllerCommons.waitForDelay(startTime, delay);
+            stageTimers.record(Stage.DELAY, MockStageTimers.SOAP, service, rOperation, stageStart);
+         }
 
          // Publish an invocation event before returning if enabled.
          if (Boolean.TRUE.equals(enableInvocationStats)) {
             MockControllerCommons.publishMockInvocation(applicationContext, this, service, response, startTime);
          }
 
-         if (response.isFault()) {
-            return new ResponseEntity<>(responseContent, responseHeaders, HttpStatus.INTERNAL_SERVER_ERROR);
+         ResponseEntity<String> responseEntity = new ResponseEntity<>(responseContent, responseHeaders,
+               response.isFault() ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK);
+         if (delay != null && delayScheduler.isAsyncEnabled()) {
+            long deferredDelay = MockControllerCommons.computeRemainingDelay(startTime, delay);
+            if (deferredDelay > 0) {
+               // Release request thread, response will be returned once delay is expired.
+               return delayScheduler.deferResult(deferredDelay, () -> responseEntity);
+            }
          }
-         return new ResponseEntity<>(responseContent, responseHeaders, HttpStatus.OK);
+         return responseEntity;
       }
 
       return new ResponseEntity<>(String.format("The operation %s does not exist!", action), HttpStatus.NOT_FOUND);
    }
 
    /**
-    * Check if given SOAP payload has a correct structure for given operation name.
+    * Check if given SOAP payload has a correct structure for given operation name. Payload is scanned as a Soap envelope
+    * first, regular expressions are only used as a fallback if it cannot be scanned.
     * @param payload       SOAP payload to check structure
     * @param operationName Name of operation to check structure against
     * @return True if payload is correct for operation, false otherwise.
     */
    protected static boolean hasPayloadCorrectStructureForOperation(String payload, String operationName) {
+      QName bodyElementName = SoapEnvelopeScanner.findBodyElementName(payload);
+      if (bodyElementName != null) {
+         return operationName.equals(bodyElementName.getLocalPart());
+      }
+
       String openingPattern = "(.*):Body>(\\s*)<((\\w+):|)" + operationName + "(.*)>(.*)";
       String closingPattern = "(.*)</((\\w+):|)" + operationName + ">(\\s*)</(.*):Body>(.*)";
       String shortPattern = "(.*):Body>(\\s*)<((\\w+):|)" + operationName + "(.*)/>(\\s*)</(.*):Body>(.*)";
@@ -409,11 +438,17 @@ public class SoapController {
    }
 
    /**
-    * Extract operation name from payload. Indeed we extract the wrapping element name inside SOAP body.
+    * Extract operation name from payload. Indeed we extract the wrapping element name inside SOAP body. Payload is
+    * scanned as a Soap envelope first, regular expression is only used as a fallback if it cannot be scanned.
     * @param payload SOAP payload to extract from
     * @return The wrapping Xml element name with body if matches SOAP. Null otherwise.
     */
    protected static String extractOperationName(String payload) {
+      QName bodyElementName = SoapEnvelopeScanner.findBodyElementName(payload);
+      if (bodyElementName != null) {
+         return bodyElementName.getLocalPart();
+      }
+
       Matcher matcher = OPERATION_CAPTURE_PATTERN.matcher(payload);
       if (matcher.find()) {
          return matcher.group("operation");
@@ -457,9 +492,10 @@ public class SoapController {
    /** Build a dispatch context after a XPath evaluation coming from rules. */
    private DispatchContext getDispatchCriteriaFromXPathEval(String dispatcherRules, String body) {
       try {
-         // Evaluating request regarding XPath build with operation dispatcher rules.
-         XPathExpression xpath = SoapUIXPathBuilder.buildXPathMatcherFromRules(dispatcherRules);
-         return new DispatchContext(xpath.evaluate(new InputSource(new StringReader(body))), null);
+         // Evaluating request regarding XPath matcher built and pooled from operation dispatcher rules.
+         // Envelope is parsed once into a document using a pooled builder.
+         Document envelope = SoapEnvelopeParser.parse(body);
+         return new DispatchContext(SoapUIXPathBuilder.evaluateRules(dispatcherRules, envelope), null);
       } catch (Exception e) {
          // Get current span and record failure
          Span.current().recordException(e);
@@ -476,16 +512,18 @@ public class SoapController {
    }
 
    /** Build a dispatch context after a Groovy script evaluation coming from rules. */
-   private DispatchContext getDispatchCriteriaFromGroovyEval(Service service, String dispatcherRules, String body,
-         HttpServletRequest request) {
+   private DispatchContext getDispatchCriteriaFromGroovyEval(Service service, Operation operation,
+         String dispatcherRules, String body, HttpServletRequest request) {
       Map<String, Object> requestContext = new HashMap<>();
       try {
          // Evaluating request with script coming from operation dispatcher rules.
          String script = ScriptEngineBinder.ensureSoapUICompatibility(dispatcherRules);
          ScriptContext scriptContext = ScriptEngineBinder.buildEvaluationContext(scriptEngine, body, requestContext,
-               new ServiceStateStore(serviceStateRepository, service.getId()), request);
+               serviceStateCache.getStateStore(service.getId()), request);
 
-         return new DispatchContext((String) scriptEngine.eval(script, scriptContext), requestContext);
+         return new DispatchContext(
+               (String) groovyScriptCache.eval(IdBuilder.buildOperationId(service, operation), script, scriptContext),
+               requestContext);
       } catch (Exception e) {
          // Get current span and record failure
          Span.current().recordException(e);
@@ -506,11 +544,10 @@ public class SoapController {
          HttpServletRequest request) {
       Map<String, Object> requestContext = new HashMap<>();
       try {
-         Engine scriptContext = JsScriptEngineBinder.buildEvaluationContext(body, requestContext,
-               new ServiceStateStore(serviceStateRepository, service.getId()), request);
+         String result = JsScriptEngineBinder.evaluate(dispatcherRules, body, requestContext,
+               serviceStateCache.getStateStore(service.getId()), request);
 
-         return new DispatchContext(JsScriptEngineBinder.invokeProcessFn(dispatcherRules, scriptContext),
-               requestContext);
+         return new DispatchContext(result, requestContext);
       } catch (Exception e) {
          log.error("Error during JS evaluation", e);
          throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
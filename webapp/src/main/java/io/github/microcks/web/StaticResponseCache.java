@@ -0,0 +1,293 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import io.github.microcks.domain.Header;
+import io.github.microcks.domain.Response;
+import io.github.microcks.util.DataUriUtil;
+import io.github.microcks.util.UTF8ContentTypeChecker;
+import io.github.microcks.util.el.TemplateEngine;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A cache of pre-rendered representations of static mock responses. A response is static when neither its content nor
+ * its headers hold template expressions and it has no {@code Location} header to resolve against request. The
+ * representation of a static response (encoded body bytes, headers including content type and optionally a gzip
+ * variant of body) is computed once and then shared by invocations.
+ * <p>
+ * Representations are indexed by response identifier and checked against the response they were computed from, so
+ * that updated responses are prepared again.
+ * @author agent
+ */
+@Component
+public class StaticResponseCache {
+
+   /** A simple logger for diagnostic messages. */
+   private static final Logger log = LoggerFactory.getLogger(StaticResponseCache.class);
+
+   /** The minimum body size for which a gzip variant is worth it. */
+   private static final int GZIP_MIN_SIZE = 1024;
+
+   /** Rough estimation of the memory used by a prepared response, not counting its body. */
+   private static final int PREPARED_RESPONSE_BASE_WEIGHT = 512;
+
+   private Cache<String, PreparedResponse> cache;
+
+   @Value("${mocks.static-responses.enabled:true}")
+   private boolean enabled = true;
+
+   @Value("${mocks.static-responses.max-size:32MB}")
+   private String maxSize = "32MB";
+
+   @Value("${mocks.static-responses.gzip-enabled:false}")
+   private boolean gzipEnabled = false;
+
+   @Value("${mocks.enable-binary-response-decode:false}")
+   private boolean enableBinaryResponseDecode = false;
+
+   /** Initialize the cache storage using configured budget. */
+   @PostConstruct
+   public void initialize() {
+      long maxWeight = DataSize.parse(maxSize).toBytes();
+      log.debug("Initializing static responses cache with a max size of {} bytes", maxWeight);
+      cache = CacheBuilder.newBuilder().maximumWeight(maxWeight)
+            .weigher((String responseId, PreparedResponse prepared) -> prepared.weight()).build();
+   }
+
+   /**
+    * Get the pre-rendered representation of a response if this one is static.
+    * @param response The response found by dispatcher
+    * @return The prepared response or null if response is not static or cache is disabled.
+    */
+   public PreparedResponse getPreparedResponse(Response response) {
+      if (!enabled || response.getId() == null) {
+         return null;
+      }
+      PreparedResponse prepared = cache.getIfPresent(response.getId());
+      if (prepared == null || !prepared.isPreparedFrom(response)) {
+         prepared = PreparedResponse.prepare(response, enableBinaryResponseDecode);
+         cache.put(response.getId(), prepared);
+      } else if (prepared.source != response) {
+         // Same definition but a new instance (index has been refreshed): keep it for cheaper checks next time.
+         prepared = prepared.withSource(response);
+         cache.put(response.getId(), prepared);
+      }
+      return prepared.isStatic() ? prepared : null;
+   }
+
+   /**
+    * Tell if the gzip variant of a prepared response should be used for answering a request.
+    * @param prepared The prepared response
+    * @param request  The incoming request
+    * @return True if gzip is enabled, body is large enough and client accepts gzip encoding.
+    */
+   public boolean shouldUseGzip(PreparedResponse prepared, HttpServletRequest request) {
+      if (!gzipEnabled || prepared.content == null || prepared.content.length < GZIP_MIN_SIZE) {
+         return false;
+      }
+      String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+      return acceptEncoding != null && acceptEncoding.contains("gzip");
+   }
+
+   /** The immutable pre-rendered representation of a response. */
+   public static class PreparedResponse {
+      private final Response source;
+      private final String sourceContent;
+      private final String sourceMediaType;
+      private final Set<Header> sourceHeaders;
+      private final boolean isStatic;
+      private final byte[] content;
+      private final HttpHeaders headers;
+      private volatile Variant gzipVariant;
+
+      private PreparedResponse(Response source, boolean isStatic, byte[] content, HttpHeaders headers) {
+         this.source = source;
+         this.sourceContent = source.getContent();
+         this.sourceMediaType = source.getMediaType();
+         this.sourceHeaders = source.getHeaders();
+         this.isStatic = isStatic;
+         this.content = content;
+         this.headers = headers;
+      }
+
+      static PreparedResponse prepare(Response response, boolean enableBinaryResponseDecode) {
+         if (!hasStaticHeaders(response)) {
+            return new PreparedResponse(response, false, null, null);
+         }
+
+         byte[] content;
+         boolean treatAsUtf8 = !enableBinaryResponseDecode
+               || UTF8ContentTypeChecker.isUTF8Encodable(response.getMediaType());
+         if (treatAsUtf8) {
+            if (response.getContent() != null
+                  && response.getContent().contains(TemplateEngine.DEFAULT_EXPRESSION_PREFIX)) {
+               return new PreparedResponse(response, false, null, null);
+            }
+            content = response.getContent() != null ? response.getContent().getBytes(StandardCharsets.UTF_8) : null;
+         } else {
+            content = decodeExternalValueContent(response);
+         }
+
+         HttpHeaders headers = new HttpHeaders();
+         if (response.getMediaType() != null) {
+            headers.setContentType(MediaType.valueOf(response.getMediaType() + ";charset=UTF-8"));
+         }
+         if (response.getHeaders() != null) {
+            for (Header header : response.getHeaders()) {
+               if (!HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(header.getName())) {
+                  headers.put(header.getName(), new ArrayList<>(header.getValues()));
+               }
+            }
+         }
+         return new PreparedResponse(response, true, content, HttpHeaders.readOnlyHttpHeaders(headers));
+      }
+
+      /** @return Whether response was found static and is thus pre-rendered */
+      public boolean isStatic() {
+         return isStatic;
+      }
+
+      /** @return The encoded body bytes. Must not be modified. May be null. */
+      public byte[] getContent() {
+         return content;
+      }
+
+      /** @return The read-only headers, including content type. */
+      public HttpHeaders getHeaders() {
+         return headers;
+      }
+
+      /** @return The gzip compressed body bytes, computed on first call. Must not be modified. */
+      public byte[] getGzipContent() {
+         return getGzipVariant().content();
+      }
+
+      /** @return The read-only headers to use with gzip compressed body. */
+      public HttpHeaders getGzipHeaders() {
+         return getGzipVariant().headers();
+      }
+
+      boolean isPreparedFrom(Response response) {
+         return source == response || (Objects.equals(sourceContent, response.getContent())
+               && Objects.equals(sourceMediaType, response.getMediaType())
+               && sameHeaders(sourceHeaders, response.getHeaders()));
+      }
+
+      PreparedResponse withSource(Response response) {
+         PreparedResponse prepared = new PreparedResponse(response, isStatic, content, headers);
+         prepared.gzipVariant = gzipVariant;
+         return prepared;
+      }
+
+      int weight() {
+         int weight = PREPARED_RESPONSE_BASE_WEIGHT + (content != null ? content.length : 0);
+         return sourceContent != null ? weight + sourceContent.length() : weight;
+      }
+
+      private Variant getGzipVariant() {
+         Variant variant = gzipVariant;
+         if (variant == null) {
+            HttpHeaders gzipHeaders = new HttpHeaders();
+            gzipHeaders.putAll(headers);
+            gzipHeaders.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            gzipHeaders.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            variant = new Variant(gzip(content), HttpHeaders.readOnlyHttpHeaders(gzipHeaders));
+            gzipVariant = variant;
+         }
+         return variant;
+      }
+
+      private static boolean hasStaticHeaders(Response response) {
+         if (response.getHeaders() != null) {
+            for (Header header : response.getHeaders()) {
+               if ("Location".equals(header.getName()) || header.getValues().stream()
+                     .anyMatch(value -> value.contains(TemplateEngine.DEFAULT_EXPRESSION_PREFIX))) {
+                  return false;
+               }
+            }
+         }
+         return true;
+      }
+
+      private static boolean sameHeaders(Set<Header> headers, Set<Header> otherHeaders) {
+         if (headers == otherHeaders) {
+            return true;
+         }
+         if (headers == null || otherHeaders == null || headers.size() != otherHeaders.size()) {
+            return false;
+         }
+         // Header does not implement equals(), compare names and values.
+         return toMap(headers).equals(toMap(otherHeaders));
+      }
+
+      private static Map<String, Set<String>> toMap(Set<Header> headers) {
+         Map<String, Set<String>> result = new HashMap<>();
+         headers.forEach(header -> result.put(header.getName(), header.getValues()));
+         return result;
+      }
+
+      /* Attempts to decode the response content which is expected to be a data URI with Base64 encoded data. */
+      private static byte[] decodeExternalValueContent(Response response) {
+         if (response.getContent() == null) {
+            return null;
+         }
+         try {
+            return DataUriUtil.decodeDataUri(response.getContent());
+         } catch (IllegalArgumentException e) {
+            log.error("Error decoding response content as base64", e);
+            log.debug("Returning response content as is");
+            // Return raw content as UTF-8 if Base64 decoding fails
+            return response.getContent().getBytes(StandardCharsets.UTF_8);
+         }
+      }
+
+      private static byte[] gzip(byte[] content) {
+         ByteArrayOutputStream bos = new ByteArrayOutputStream(content.length / 2);
+         try (GZIPOutputStream gzos = new GZIPOutputStream(bos)) {
+            gzos.write(content);
+         } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+         }
+         return bos.toByteArray();
+      }
+   }
+
+   /** The body and headers of an encoded variant of a prepared response. */
+   private record Variant(byte[] content, HttpHeaders headers) {
+   }
+}
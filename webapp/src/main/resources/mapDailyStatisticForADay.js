@@ -1,3 +0,0 @@
-function(){ 
-   emit(this.day, this);
-}
\ No newline at end of file
@@ -17,20 +17,40 @@ package io.github.microcks.listener;
 
 import io.github.microcks.domain.DailyStatistic;
 import io.github.microcks.event.MockInvocationEvent;
+import io.github.microcks.repository.CustomDailyStatisticRepository.DailyIncrement;
 import io.github.microcks.repository.DailyStatisticRepository;
 import io.github.microcks.repository.RepositoryTestsConfiguration;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 
 /**
  * Test case for DailyStatisticsFeeder class.
@@ -41,44 +61,134 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 @TestPropertySource(locations = { "classpath:/config/test.properties" })
 class DailyStatisticsFeederTest {
 
+   /** A fixed clock so that invocations all happen on 2024-05-14 at 10:15 (minute 615 of day). */
+   private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-14T10:15:30Z"), ZoneOffset.UTC);
+   private static final Date NOW = Date.from(CLOCK.instant());
+   private static final Date YESTERDAY = Date.from(CLOCK.instant().minus(Duration.ofDays(1)));
+
    @Autowired
    DailyStatisticsFeeder feeder;
 
    @Autowired
    DailyStatisticRepository statisticsRepository;
 
+   @BeforeEach
+   void setUp() {
+      feeder.setClock(CLOCK);
+   }
+
    @Test
    void testOnApplicationEvent() {
-      Calendar today = Calendar.getInstance();
-      MockInvocationEvent event = new MockInvocationEvent(this, "TestService1", "1.0", "123456789", today.getTime(),
-            100);
+      MockInvocationEvent event = new MockInvocationEvent(this, "TestService1", "1.0", "123456789", NOW, 100);
 
       // Fire event a first time.
       feeder.onApplicationEvent(event);
-
-      SimpleDateFormat formater = new SimpleDateFormat("yyyyMMdd");
-      String day = formater.format(today.getTime());
       feeder.flushToDatabase();
-      DailyStatistic stat = statisticsRepository.findByDayAndServiceNameAndServiceVersion(day, "TestService1", "1.0")
-            .get(0);
+      DailyStatistic stat = statisticsRepository
+            .findByDayAndServiceNameAndServiceVersion("20240514", "TestService1", "1.0").get(0);
       assertNotNull(stat);
       assertNotNull(stat.getId());
-      assertEquals(day, stat.getDay());
+      assertEquals("20240514", stat.getDay());
       assertEquals("TestService1", stat.getServiceName());
       assertEquals("1.0", stat.getServiceVersion());
       assertEquals(1, stat.getDailyCount());
-      assertEquals(1, stat.getHourlyCount().get(String.valueOf(today.get(Calendar.HOUR_OF_DAY))));
+      assertEquals(1, stat.getHourlyCount().get("10"));
 
       // Fire event a second time.
       feeder.onApplicationEvent(event);
       feeder.flushToDatabase();
-      stat = statisticsRepository.findByDayAndServiceNameAndServiceVersion(day, "TestService1", "1.0").get(0);
+      stat = statisticsRepository.findByDayAndServiceNameAndServiceVersion("20240514", "TestService1", "1.0").get(0);
       assertNotNull(stat);
       assertNotNull(stat.getId());
-      assertEquals(day, stat.getDay());
+      assertEquals("20240514", stat.getDay());
       assertEquals("TestService1", stat.getServiceName());
       assertEquals("1.0", stat.getServiceVersion());
       assertEquals(2, stat.getDailyCount());
-      assertEquals(2, stat.getHourlyCount().get(String.valueOf(today.get(Calendar.HOUR_OF_DAY))));
+      assertEquals(2, stat.getHourlyCount().get("10"));
+   }
+
+   @Test
+   void testConcurrentInvocationsAreNotLost() throws Exception {
+      MockInvocationEvent event = new MockInvocationEvent(this, "TestService2", "1.0", "123456789", NOW, 100);
+      MockInvocationEvent oldEvent = new MockInvocationEvent(this, "TestService2", "1.0", "123456789", YESTERDAY,
+            100);
+
+      // Fire events from different threads while flushing.
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+         futures.add(executor.submit(() -> {
+            for (int j = 0; j < 500; j++) {
+               feeder.onApplicationEvent(j % 10 == 0 ? oldEvent : event);
+            }
+         }));
+      }
+      for (int i = 0; i < 5; i++) {
+         feeder.flushToDatabase();
+      }
+      for (Future<?> future : futures) {
+         future.get();
+      }
+      executor.shutdown();
+      feeder.flushToDatabase();
+
+      DailyStatistic stat = statisticsRepository
+            .findByDayAndServiceNameAndServiceVersion("20240514", "TestService2", "1.0").get(0);
+      assertEquals(1800, stat.getDailyCount());
+      assertEquals(1800, stat.getHourlyCount().get("10"));
+      assertEquals(1800, stat.getMinuteCount().get("615"));
+      // Only hours having invocations are stored.
+      assertEquals(1, stat.getHourlyCount().size());
+
+      // Rollup of the day should have been incremented at flush.
+      DailyStatistic rollup = statisticsRepository.aggregateDailyStatistics("20240514");
+      assertEquals(1800, rollup.getDailyCount());
+      assertEquals(24, rollup.getHourlyCount().size());
+      assertEquals(1800, rollup.getHourlyCount().get("10"));
+
+      stat = statisticsRepository.findByDayAndServiceNameAndServiceVersion("20240513", "TestService2", "1.0").get(0);
+      assertEquals(200, stat.getDailyCount());
+   }
+
+   @Test
+   void testOnlyFailedIncrementsAreKept() {
+      DailyStatisticRepository failingRepository = mock(DailyStatisticRepository.class);
+      List<List<DailyIncrement>> flushed = new ArrayList<>();
+      doAnswer(invocation -> {
+         List<DailyIncrement> increments = new ArrayList<>(invocation.getArgument(0));
+         flushed.add(increments);
+         if (flushed.size() == 1) {
+            // Fail the increment of second service only.
+            int index = increments.indexOf(findIncrement(increments, "TestService2"));
+            BulkWriteError error = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), index);
+            throw new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                  BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of()));
+         }
+         return null;
+      }).when(failingRepository).incrementDailyStatistics(anyList());
+
+      DailyStatisticsFeeder failingFeeder = new DailyStatisticsFeeder(failingRepository);
+      failingFeeder.setClock(CLOCK);
+      try {
+         failingFeeder.onApplicationEvent(new MockInvocationEvent(this, "TestService1", "1.0", "1", NOW, 100));
+         failingFeeder.onApplicationEvent(new MockInvocationEvent(this, "TestService2", "1.0", "2", NOW, 100));
+         failingFeeder.onApplicationEvent(new MockInvocationEvent(this, "TestService2", "1.0", "3", NOW, 100));
+         failingFeeder.flushToDatabase();
+         failingFeeder.flushToDatabase();
+      } finally {
+         failingFeeder.shutdown();
+      }
+
+      assertEquals(2, flushed.get(0).size());
+      assertEquals(1, flushed.get(1).size());
+      DailyIncrement retried = findIncrement(flushed.get(1), "TestService2");
+      assertNotNull(retried);
+      assertEquals(2, retried.count());
+      assertEquals(2, retried.minuteCounts().get("615"));
+   }
+
+   private static DailyIncrement findIncrement(List<DailyIncrement> increments, String serviceName) {
+      return increments.stream().filter(increment -> serviceName.equals(increment.serviceName())).findFirst()
+            .orElse(null);
    }
 }
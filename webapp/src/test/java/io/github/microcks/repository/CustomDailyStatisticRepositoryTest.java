@@ -19,16 +19,17 @@ import io.github.microcks.domain.DailyStatistic;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.convert.ConverterNotFoundException;
-import org.springframework.data.mongodb.UncategorizedMongoDbException;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Test case for CustomDailyStatisticRepository class.
  * @author laurent
@@ -63,20 +64,63 @@ class CustomDailyStatisticRepositoryTest {
 
    @Test
    void testAggregateDailyStatistics() {
-      try {
-         DailyStatistic stat = repository.aggregateDailyStatistics("20140930");
-      } catch (ConverterNotFoundException cvnfe) {
-         // For now, mapReduce in Fongo is experimental. MapReduce execution is working
-         // but SpringData cannot convert Fongo Rhino result into Java object
-         // ("No converter found capable of converting from type org.mozilla.javascript.UniqueTag to type java.lang.Integer")
-      } catch (UncategorizedMongoDbException ume) {
-         // For now, mapReduce in Fongo is experimental. MapReduce execution is not working
-         // ("org.mozilla.javascript.EcmaError: TypeError: Cannot read property "0" from undefined")
-      } catch (RuntimeException re) {
-         // For now, mapReduce in Fongo is experimental. MapReduce execution is working
-         // but SpringData cannot convert Fongo Rhino result into Java object
-         // ("json can't serialize type : class org.mozilla.javascript.UniqueTag")
-      }
+      // Rollup is computed on first access for statistics stored before rollups.
+      DailyStatistic stat = repository.aggregateDailyStatistics("20140930");
+      assertEquals("20140930", stat.getDay());
+      assertEquals(4, stat.getDailyCount());
+      assertEquals(24, stat.getHourlyCount().size());
+
+      // Rollup is refreshed when statistics are incremented.
+      repository.incrementDailyStatistics(List.of(new CustomDailyStatisticRepository.DailyIncrement("20140930",
+            "TestService1", "1.0", 3, Map.of("10", 3), Map.of("600", 3))));
+      stat = repository.aggregateDailyStatistics("20140930");
+      assertEquals(7, stat.getDailyCount());
+      assertEquals(3, stat.getHourlyCount().get("10"));
+
+      // Unknown day gives an empty statistic.
+      assertEquals(0, repository.aggregateDailyStatistics("20141001").getDailyCount());
+   }
+
+   @Test
+   void testIncrementDailyStatisticUpdatesRollup() {
+      assertEquals(4, repository.aggregateDailyStatistics("20140930").getDailyCount());
+
+      repository.incrementDailyStatistic("20140930", "TestService1", "1.2", "10", "600", 2);
+      DailyStatistic stat = repository.aggregateDailyStatistics("20140930");
+      assertEquals(6, stat.getDailyCount());
+      assertEquals(2, stat.getHourlyCount().get("10"));
+      assertEquals(0, stat.getHourlyCount().get("11"));
+   }
+
+   @Test
+   void testRollupCreatedByIncrementIsCompleted() {
+      // Rollup created by increment misses statistics stored before: it must be computed again.
+      repository.incrementDailyStatistics(List.of(new CustomDailyStatisticRepository.DailyIncrement("20140930",
+            "TestService1", "1.0", 3, Map.of("10", 3), Map.of("600", 3))));
+      List<CustomDailyStatisticRepository.InvocationCount> counts = repository.aggregateDailyStatistics("20140930",
+            "20140930");
+      assertEquals(1, counts.size());
+      assertEquals(7, counts.get(0).getNumber());
+
+      // Once completed, rollup is kept in sync by increments.
+      repository.incrementDailyStatistic("20140930", "TestService1", "1.2", "10", "600", 2);
+      DailyStatistic stat = repository.aggregateDailyStatistics("20140930");
+      assertEquals(9, stat.getDailyCount());
+      assertEquals(5, stat.getHourlyCount().get("10"));
+   }
+
+   @Test
+   void testAggregateDailyStatisticsForRange() {
+      repository.incrementDailyStatistics(List.of(new CustomDailyStatisticRepository.DailyIncrement("20141001",
+            "TestService1", "1.0", 5, Map.of("1", 5), Map.of("60", 5))));
+
+      List<CustomDailyStatisticRepository.InvocationCount> counts = repository.aggregateDailyStatistics("20140929",
+            "20141001");
+      assertEquals(2, counts.size());
+      assertEquals("20140930", counts.get(0).getDay());
+      assertEquals(4, counts.get(0).getNumber());
+      assertEquals("20141001", counts.get(1).getDay());
+      assertEquals(5, counts.get(1).getNumber());
    }
 
    private Map<String, Integer> initializeHourlyMap() {
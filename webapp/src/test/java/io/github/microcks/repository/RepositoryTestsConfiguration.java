@@ -19,7 +19,10 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import de.bwaldvogel.mongo.MongoServer;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
@@ -58,6 +61,11 @@ public class RepositoryTestsConfiguration extends AbstractMongoClientConfigurati
       return client;
    }
 
+   @Bean
+   public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+   }
+
    @PreDestroy
    public void shutdown() {
       client.close();
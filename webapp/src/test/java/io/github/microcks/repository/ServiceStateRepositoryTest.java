@@ -25,6 +25,9 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
+import java.util.Date;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -51,4 +54,23 @@ class ServiceStateRepositoryTest {
       ServiceState status = repository.findByServiceIdAndKey("azertyuiop", "foo");
       assertEquals("bar", status.getValue());
    }
+
+   @Test
+   void testWriteStates() {
+      ServiceState update = new ServiceState("azertyuiop", "foo");
+      update.setValue("baz");
+      update.setExpireAt(new Date(System.currentTimeMillis() + 10000L));
+      ServiceState creation = new ServiceState("azertyuiop", "bar");
+      creation.setValue("foo");
+      creation.setExpireAt(new Date(System.currentTimeMillis() + 10000L));
+      repository.writeStates(List.of(update, creation), List.of());
+
+      assertEquals(2, repository.count());
+      assertEquals("baz", repository.findByServiceIdAndKey("azertyuiop", "foo").getValue());
+      assertEquals("foo", repository.findByServiceIdAndKey("azertyuiop", "bar").getValue());
+
+      repository.writeStates(List.of(), List.of(new ServiceState("azertyuiop", "foo")));
+      assertNull(repository.findByServiceIdAndKey("azertyuiop", "foo"));
+      assertEquals(1, repository.count());
+   }
 }
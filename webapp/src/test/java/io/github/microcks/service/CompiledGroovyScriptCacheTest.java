@@ -0,0 +1,94 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.script.ScriptContext;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test case for CompiledGroovyScriptCache class.
+ * @author agent
+ */
+class CompiledGroovyScriptCacheTest {
+
+   private static final String SCRIPT = "return 'pastry-' + name";
+
+   private MeterRegistry meterRegistry;
+   private CompiledGroovyScriptCache cache;
+
+   @BeforeEach
+   void setUp() {
+      meterRegistry = new SimpleMeterRegistry();
+      cache = new CompiledGroovyScriptCache(meterRegistry);
+   }
+
+   @Test
+   void testEvalCompilesOnce() throws Exception {
+      assertEquals("pastry-Eclair", cache.eval("123-GET /pastries", SCRIPT, buildContext("Eclair")));
+      assertEquals("pastry-Millefeuille", cache.eval("123-GET /pastries", SCRIPT, buildContext("Millefeuille")));
+      assertEquals(1.0, getCompilationsCount());
+
+      // An updated script or another operation should lead to a new compilation.
+      assertEquals("Eclair", cache.eval("123-GET /pastries", "return name", buildContext("Eclair")));
+      assertEquals("Eclair", cache.eval("123-GET /pastries", "return name", buildContext("Eclair")));
+      assertEquals("pastry-Eclair", cache.eval("456-GET /pastries", SCRIPT, buildContext("Eclair")));
+      assertEquals(3.0, getCompilationsCount());
+   }
+
+   @Test
+   void testServiceChangeEvents() throws Exception {
+      var compiled = cache.getCompiledScript("123-GET /pastries", SCRIPT);
+      var otherCompiled = cache.getCompiledScript("456-GET /pastries", SCRIPT);
+
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.UPDATED));
+      assertSame(otherCompiled, cache.getCompiledScript("456-GET /pastries", SCRIPT));
+      assertNotSame(compiled, cache.getCompiledScript("123-GET /pastries", SCRIPT));
+      assertEquals(3.0, getCompilationsCount());
+   }
+
+   @Test
+   void testCompilationFailure() {
+      assertThrows(ScriptException.class,
+            () -> cache.eval("123-GET /pastries", "return 'pastry' +", buildContext("Eclair")));
+   }
+
+   private double getCompilationsCount() {
+      return meterRegistry.get("microcks.mock.scripts.compilations").tag("language", "groovy").counter().count();
+   }
+
+   private ScriptContext buildContext(String name) {
+      SimpleBindings bindings = new SimpleBindings();
+      bindings.put("name", name);
+      SimpleScriptContext context = new SimpleScriptContext();
+      context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+      return context;
+   }
+}
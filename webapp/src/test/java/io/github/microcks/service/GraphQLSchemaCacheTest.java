@@ -0,0 +1,122 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for GraphQLSchemaCache class.
+ * @author agent
+ */
+class GraphQLSchemaCacheTest {
+
+   private static final String INTROSPECTION_QUERY = "query { __schema { queryType { name } types { name } } }";
+
+   private ResourceRepository resourceRepository;
+   private GraphQLSchemaCache cache;
+
+   @BeforeEach
+   void setUp() throws Exception {
+      Resource resource = new Resource();
+      resource.setType(ResourceType.GRAPHQL_SCHEMA);
+      resource.setContent(
+            Files.readString(Paths.get("target/test-classes/io/github/microcks/util/graphql/films.graphql")));
+
+      resourceRepository = mock(ResourceRepository.class);
+      when(resourceRepository.findByServiceIdAndType("films", ResourceType.GRAPHQL_SCHEMA))
+            .thenReturn(List.of(resource));
+      cache = new GraphQLSchemaCache(resourceRepository);
+      cache.initialize();
+   }
+
+   @Test
+   void testSchemaIsCompiledOnce() {
+      GraphQLSchemaCache.CompiledGraphQLSchema compiled = cache.getCompiledSchema("films");
+      assertNotNull(compiled);
+      assertNotNull(compiled.getTypeDefinitionRegistry().getType("Film").orElse(null));
+      assertNotNull(compiled.getSchema().getQueryType());
+      assertSame(compiled, cache.getCompiledSchema("films"));
+      verify(resourceRepository, times(1)).findByServiceIdAndType("films", ResourceType.GRAPHQL_SCHEMA);
+
+      // Service without GraphQL schema should not have compiled schema.
+      assertNull(cache.getCompiledSchema("pastries"));
+   }
+
+   @Test
+   void testIntrospectionResultIsCached() throws Exception {
+      String result = cache.getIntrospectionResult("films", INTROSPECTION_QUERY);
+      JsonNode resultNode = new ObjectMapper().readTree(result);
+      assertEquals("Query", resultNode.path("data").path("__schema").path("queryType").path("name").asText());
+      assertTrue(resultNode.path("data").path("__schema").path("types").isArray());
+
+      assertSame(result, cache.getIntrospectionResult("films", INTROSPECTION_QUERY));
+      assertNull(cache.getIntrospectionResult("pastries", INTROSPECTION_QUERY));
+   }
+
+   @Test
+   void testSchemaIsCompiledAgainOnChange() throws Exception {
+      GraphQLSchemaCache.CompiledGraphQLSchema compiled = cache.getCompiledSchema("films");
+      String result = cache.getIntrospectionResult("films", INTROSPECTION_QUERY);
+
+      // An update should compile schema again right away.
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "films", ChangeType.UPDATED));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("films", ResourceType.GRAPHQL_SCHEMA);
+      GraphQLSchemaCache.CompiledGraphQLSchema recompiled = cache.getCompiledSchema("films");
+      assertNotSame(compiled, recompiled);
+      assertNotSame(result, cache.getIntrospectionResult("films", INTROSPECTION_QUERY));
+
+      // A deletion should just evict schema.
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "films", ChangeType.DELETED));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("films", ResourceType.GRAPHQL_SCHEMA);
+      assertNotSame(recompiled, cache.getCompiledSchema("films"));
+   }
+
+   @Test
+   void testSchemaExpires() {
+      ReflectionTestUtils.setField(cache, "expireAfterWrite", 0L);
+      cache.initialize();
+
+      // Expired schema should be compiled again to catch up changes done by other replicas.
+      assertNotNull(cache.getCompiledSchema("films"));
+      assertNotNull(cache.getCompiledSchema("films"));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("films", ResourceType.GRAPHQL_SCHEMA);
+   }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for GrpcDescriptorCache class.
+ * @author agent
+ */
+class GrpcDescriptorCacheTest {
+
+   /** This is the simple HelloService with no dependencies. */
+   private static final String HELLO_DESCRIPTOR = "CrICCg5oZWxsby12MS5wcm90bxIgaW8uZ2l0aHViLm1pY3JvY2tzLmdycGMuaGVsbG8udjEiSAoMSGVsbG9SZXF1ZXN0EhwKCWZpcnN0bmFtZRgBIAEoCVIJZmlyc3RuYW1lEhoKCGxhc3RuYW1lGAIgASgJUghsYXN0bmFtZSIrCg1IZWxsb1Jlc3BvbnNlEhoKCGdyZWV0aW5nGAEgASgJUghncmVldGluZzJ7CgxIZWxsb1NlcnZpY2USawoIZ3JlZXRpbmcSLi5pby5naXRodWIubWljcm9ja3MuZ3JwYy5oZWxsby52MS5IZWxsb1JlcXVlc3QaLy5pby5naXRodWIubWljcm9ja3MuZ3JwYy5oZWxsby52MS5IZWxsb1Jlc3BvbnNlQgJQAWIGcHJvdG8z";
+
+   private static final String GREETING_METHOD = "io.github.microcks.grpc.hello.v1.HelloService/greeting";
+
+   private ResourceRepository resourceRepository;
+   private GrpcDescriptorCache cache;
+
+   @BeforeEach
+   void setUp() {
+      Resource resource = new Resource();
+      resource.setType(ResourceType.PROTOBUF_DESCRIPTOR);
+      resource.setContent(HELLO_DESCRIPTOR);
+
+      resourceRepository = mock(ResourceRepository.class);
+      when(resourceRepository.findByServiceIdAndType("hello", ResourceType.PROTOBUF_DESCRIPTOR))
+            .thenReturn(List.of(resource));
+      cache = new GrpcDescriptorCache(resourceRepository);
+   }
+
+   @Test
+   void testDescriptorIsCompiledOnce() throws Exception {
+      GrpcDescriptorCache.CompiledGrpcService compiled = cache.getCompiledService("hello");
+      assertNotNull(compiled);
+      assertSame(compiled, cache.getCompiledService("hello"));
+      verify(resourceRepository, times(1)).findByServiceIdAndType("hello", ResourceType.PROTOBUF_DESCRIPTOR);
+
+      Descriptors.MethodDescriptor md = compiled.getMethodDescriptor(GREETING_METHOD);
+      assertNotNull(md);
+      assertEquals("io.github.microcks.grpc.hello.v1.HelloService.greeting", md.getFullName());
+      assertNull(compiled.getMethodDescriptor("io.github.microcks.grpc.hello.v1.HelloService/unknown"));
+      assertNotNull(compiled.getTypeRegistry().find("io.github.microcks.grpc.hello.v1.HelloRequest"));
+
+      // Parser and printer should be usable with method types.
+      DynamicMessage.Builder builder = DynamicMessage.newBuilder(md.getOutputType());
+      compiled.getParser().merge("{\"greeting\": \"Hello Laurent\"}", builder);
+      DynamicMessage message = DynamicMessage.parseFrom(md.getOutputType(), builder.build().toByteArray());
+      assertEquals("{\n  \"greeting\": \"Hello Laurent\"\n}", compiled.getPrinter().print(message));
+
+      // Service without Protobuf descriptor should not have compiled descriptor.
+      assertNull(cache.getCompiledService("pastries"));
+   }
+
+   @Test
+   void testDescriptorIsEvictedOnServiceChange() {
+      GrpcDescriptorCache.CompiledGrpcService compiled = cache.getCompiledService("hello");
+
+      // Updated service should be compiled again right away.
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "hello", ChangeType.UPDATED));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("hello", ResourceType.PROTOBUF_DESCRIPTOR);
+      GrpcDescriptorCache.CompiledGrpcService recompiled = cache.getCompiledService("hello");
+      assertNotSame(compiled, recompiled);
+      verify(resourceRepository, times(2)).findByServiceIdAndType("hello", ResourceType.PROTOBUF_DESCRIPTOR);
+
+      // Deleted service should be compiled on next access only.
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "hello", ChangeType.DELETED));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("hello", ResourceType.PROTOBUF_DESCRIPTOR);
+      assertNotSame(recompiled, cache.getCompiledService("hello"));
+   }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Service;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ServiceRepository;
+import io.github.microcks.util.OperationPathTrie;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for MockRoutingTable class.
+ * @author agent
+ */
+class MockRoutingTableTest {
+
+   private ServiceRepository repository;
+   private MeterRegistry meterRegistry;
+   private MockRoutingTable routingTable;
+
+   @BeforeEach
+   void setUp() {
+      repository = mock(ServiceRepository.class);
+      meterRegistry = new SimpleMeterRegistry();
+      routingTable = new MockRoutingTable(repository, meterRegistry);
+   }
+
+   @Test
+   void testLookupIsCachedAfterMiss() {
+      Service service = buildService("123", "Pastry API", "1.0");
+      when(repository.findByNameAndVersion("Pastry API", "1.0")).thenReturn(service);
+
+      assertSame(service, routingTable.findByNameAndVersion("Pastry API", "1.0"));
+      assertSame(service, routingTable.findByNameAndVersion("Pastry API", "1.0"));
+      verify(repository, times(1)).findByNameAndVersion("Pastry API", "1.0");
+
+      assertEquals(1.0, meterRegistry.get("microcks.mock.routing.lookups").tag("result", "hit").counter().count());
+      assertEquals(1.0, meterRegistry.get("microcks.mock.routing.lookups").tag("result", "miss").counter().count());
+   }
+
+   @Test
+   void testRebuild() {
+      Service service = buildService("123", "Pastry API", "1.0");
+      when(repository.findAll()).thenReturn(List.of(service));
+
+      routingTable.rebuild();
+      assertSame(service, routingTable.findByNameAndVersion("Pastry API", "1.0"));
+      verify(repository, times(0)).findByNameAndVersion("Pastry API", "1.0");
+
+      assertEquals(1.0, meterRegistry.get("microcks.mock.routing.rebuilds").counter().count());
+      assertEquals(1.0, meterRegistry.get("microcks.mock.routing.services").gauge().value());
+   }
+
+   @Test
+   void testServiceChangeEvents() {
+      Service service = buildService("123", "Pastry API", "1.0");
+      when(repository.findAll()).thenReturn(List.of(service));
+      routingTable.rebuild();
+
+      // Simulate a rename of the service version.
+      Service updated = buildService("123", "Pastry API", "1.1");
+      when(repository.findById("123")).thenReturn(Optional.of(updated));
+      routingTable.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.UPDATED));
+
+      assertSame(updated, routingTable.findByNameAndVersion("Pastry API", "1.1"));
+      assertNull(routingTable.findByNameAndVersion("Pastry API", "1.0"));
+
+      // Now delete the service.
+      routingTable.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.DELETED));
+      assertNull(routingTable.findByNameAndVersion("Pastry API", "1.1"));
+   }
+
+   @Test
+   void testMissingServiceIsRemembered() {
+      assertNull(routingTable.findByNameAndVersion("Pastry API", "1.0"));
+      assertNull(routingTable.findByNameAndVersion("Pastry API", "1.0"));
+      verify(repository, times(1)).findByNameAndVersion("Pastry API", "1.0");
+
+      // Service creation should make it visible.
+      Service service = buildService("123", "Pastry API", "1.0");
+      when(repository.findById("123")).thenReturn(Optional.of(service));
+      routingTable.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.CREATED));
+      assertSame(service, routingTable.findByNameAndVersion("Pastry API", "1.0"));
+
+      // Rebuild should forget missing keys as services may have been created by other replicas.
+      assertNull(routingTable.findByNameAndVersion("Beer API", "1.0"));
+      routingTable.rebuild();
+      assertNull(routingTable.findByNameAndVersion("Beer API", "1.0"));
+      verify(repository, times(2)).findByNameAndVersion("Beer API", "1.0");
+   }
+
+   @Test
+   void testChangeDuringRebuildIsNotLost() throws Exception {
+      Service service = buildService("123", "Pastry API", "1.0");
+      Service created = buildService("456", "Beer API", "1.0");
+      when(repository.findById("456")).thenReturn(Optional.of(created));
+
+      Thread[] eventThread = new Thread[1];
+      when(repository.findAll()).thenAnswer(invocation -> {
+         // Service is created while table is loading services that do not include it yet.
+         eventThread[0] = new Thread(() -> routingTable
+               .onApplicationEvent(new ServiceChangeEvent(this, "456", ChangeType.CREATED)));
+         eventThread[0].start();
+         eventThread[0].join(200);
+         return List.of(service);
+      });
+      routingTable.rebuild();
+      eventThread[0].join();
+
+      assertSame(service, routingTable.findByNameAndVersion("Pastry API", "1.0"));
+      assertSame(created, routingTable.findByNameAndVersion("Beer API", "1.0"));
+      verify(repository, times(0)).findByNameAndVersion("Beer API", "1.0");
+   }
+
+   @Test
+   void testOperationTrieIsEvicted() {
+      Service service = buildService("123", "Pastry API", "1.0");
+      when(repository.findAll()).thenReturn(List.of(service));
+      routingTable.rebuild();
+
+      OperationPathTrie operationTrie = routingTable.getOperationTrie(service);
+      assertSame(service, operationTrie.getService());
+      assertSame(operationTrie, routingTable.getOperationTrie(service));
+
+      // Trie of a deleted service should not be kept.
+      routingTable.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.DELETED));
+      assertNotSame(operationTrie, routingTable.getOperationTrie(service));
+
+      // Trie should be built again after a rebuild.
+      operationTrie = routingTable.getOperationTrie(service);
+      routingTable.rebuild();
+      assertNotSame(operationTrie, routingTable.getOperationTrie(service));
+   }
+
+   private Service buildService(String id, String name, String version) {
+      Service service = new Service();
+      service.setId(id);
+      service.setName(name);
+      service.setVersion(version);
+      return service;
+   }
+}
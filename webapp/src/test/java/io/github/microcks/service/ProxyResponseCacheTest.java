@@ -0,0 +1,159 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Request;
+import io.github.microcks.domain.Response;
+import io.github.microcks.domain.Service;
+import io.github.microcks.repository.RequestRepository;
+import io.github.microcks.repository.ResponseRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Test case for ProxyResponseCache class.
+ * @author agent
+ */
+class ProxyResponseCacheTest {
+
+   private static final URI PASTRIES_URL = URI.create("http://external.net/pastries?size=S");
+
+   private RequestRepository requestRepository;
+   private ResponseRepository responseRepository;
+   private ResponseLookupIndex responseIndex;
+   private ProxyResponseCache cache;
+
+   @BeforeEach
+   void setUp() {
+      requestRepository = mock(RequestRepository.class);
+      responseRepository = mock(ResponseRepository.class);
+      responseIndex = mock(ResponseLookupIndex.class);
+      cache = new ProxyResponseCache(requestRepository, responseRepository, responseIndex);
+      ReflectionTestUtils.setField(cache, "enabled", true);
+      cache.initialize();
+   }
+
+   @Test
+   void testBuildKey() {
+      ProxyResponseCache.CacheKey key = cache.buildKey(HttpMethod.POST, PASTRIES_URL,
+            Map.of("accept", List.of("application/json"), "X-Request-Id", List.of("1")), "{\"name\": \"Eclair\"}");
+
+      // Non key headers should be ignored, key headers should be matched regardless of case.
+      assertEquals(key, cache.buildKey(HttpMethod.POST, PASTRIES_URL,
+            Map.of("Accept", List.of("application/json"), "X-Request-Id", List.of("2")), "{\"name\": \"Eclair\"}"));
+      assertNotEquals(key, cache.buildKey(HttpMethod.POST, PASTRIES_URL,
+            Map.of("Accept", List.of("application/xml")), "{\"name\": \"Eclair\"}"));
+      assertNotEquals(key, cache.buildKey(HttpMethod.POST, PASTRIES_URL,
+            Map.of("Accept", List.of("application/json")), "{\"name\": \"Baba\"}"));
+      assertNotEquals(key, cache.buildKey(HttpMethod.PUT, PASTRIES_URL,
+            Map.of("Accept", List.of("application/json")), "{\"name\": \"Eclair\"}"));
+   }
+
+   @Test
+   void testOnlySuccessfulResponsesAreCached() {
+      ProxyResponseCache.CacheKey key = cache.buildKey(HttpMethod.GET, PASTRIES_URL, Map.of(), null);
+      assertNull(cache.get(key));
+
+      cache.put(key, new ResponseEntity<>("oops".getBytes(), HttpStatus.SERVICE_UNAVAILABLE));
+      assertNull(cache.get(key));
+
+      ResponseEntity<byte[]> response = new ResponseEntity<>("[]".getBytes(), HttpStatus.OK);
+      cache.put(key, response);
+      assertSame(response, cache.get(key));
+
+      // Disabled cache should not return anything.
+      ReflectionTestUtils.setField(cache, "enabled", false);
+      assertNull(cache.get(key));
+   }
+
+   @Test
+   void testRecordExchange() {
+      Service service = new Service();
+      service.setId("123");
+      Operation operation = new Operation();
+      operation.setName("GET /pastries");
+
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      headers.add("X-Pastry", "Eclair");
+      ResponseEntity<byte[]> response = new ResponseEntity<>("[{\"name\": \"Eclair\"}]".getBytes(), headers,
+            HttpStatus.OK);
+      ProxyResponseCache.CacheKey key = cache.buildKey(HttpMethod.GET, PASTRIES_URL, Map.of(), null);
+
+      // Recording is disabled by default.
+      cache.record(service, operation, "?size=S", key, null, response);
+      verify(responseRepository, never()).save(any());
+
+      ReflectionTestUtils.setField(cache, "recordEnabled", true);
+      cache.record(service, operation, "?size=S", key, null, response);
+
+      ArgumentCaptor<Response> responseCaptor = ArgumentCaptor.forClass(Response.class);
+      verify(responseRepository).save(responseCaptor.capture());
+      Response recorded = responseCaptor.getValue();
+      assertNotNull(recorded.getId());
+      assertEquals("123-GET /pastries", recorded.getOperationId());
+      assertEquals(ProxyResponseCache.RECORDING_SOURCE, recorded.getSourceArtifact());
+      assertEquals("200", recorded.getStatus());
+      assertEquals("?size=S", recorded.getDispatchCriteria());
+      assertEquals("application/json", recorded.getMediaType());
+      assertEquals("[{\"name\": \"Eclair\"}]", recorded.getContent());
+      assertEquals(1, recorded.getHeaders().size());
+
+      ArgumentCaptor<Request> requestCaptor = ArgumentCaptor.forClass(Request.class);
+      verify(requestRepository).save(requestCaptor.capture());
+      assertEquals(recorded.getName(), requestCaptor.getValue().getName());
+      assertEquals(recorded.getId(), requestCaptor.getValue().getResponseId());
+      verify(responseIndex).invalidate("123-GET /pastries");
+
+      // Same exchange should not be recorded twice.
+      cache.record(service, operation, "?size=S", key, null, response);
+      verify(responseRepository).save(any(Response.class));
+      verifyNoMoreInteractions(responseRepository);
+
+      // Another replica recording the same exchange should upsert the same documents.
+      ProxyResponseCache otherCache = new ProxyResponseCache(requestRepository, responseRepository, responseIndex);
+      ReflectionTestUtils.setField(otherCache, "recordEnabled", true);
+      otherCache.initialize();
+      otherCache.record(service, operation, "?size=S", key, null, response);
+      verify(responseRepository, times(2)).save(responseCaptor.capture());
+      assertEquals(recorded.getId(), responseCaptor.getValue().getId());
+   }
+}
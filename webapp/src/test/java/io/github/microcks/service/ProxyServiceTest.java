@@ -0,0 +1,186 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Test case for ProxyService class.
+ * @author agent
+ */
+class ProxyServiceTest {
+
+   private HttpServer server;
+   private ProxyService proxyService;
+
+   @BeforeEach
+   void setUp() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/pastries", exchange -> {
+         byte[] request = exchange.getRequestBody().readAllBytes();
+         byte[] body = ("echo:" + new String(request, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+         exchange.getResponseHeaders().add("X-Pastry", "Eclair");
+         exchange.getResponseHeaders().add("Keep-Alive", "timeout=5");
+         exchange.getResponseHeaders().add("X-Header-Received",
+               String.valueOf(exchange.getRequestHeaders().getFirst("X-Custom")));
+         exchange.sendResponseHeaders(201, 0);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.createContext("/headers", exchange -> {
+         exchange.getRequestBody().readAllBytes();
+         exchange.getResponseHeaders().add("X-Host-Received", exchange.getRequestHeaders().getFirst("Host"));
+         exchange.getResponseHeaders().add("X-Content-Type-Received",
+               String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type")));
+         exchange.sendResponseHeaders(204, -1);
+         exchange.close();
+      });
+      server.createContext("/redirect", exchange -> {
+         exchange.getResponseHeaders().add("Location", "/pastries");
+         exchange.sendResponseHeaders(302, -1);
+         exchange.close();
+      });
+      server.createContext("/missing", exchange -> {
+         exchange.sendResponseHeaders(404, -1);
+         exchange.close();
+      });
+      server.start();
+
+      proxyService = new ProxyService();
+      proxyService.initialize();
+   }
+
+   @AfterEach
+   void tearDown() throws IOException {
+      proxyService.shutdown();
+      server.stop(0);
+   }
+
+   @Test
+   void testCallExternal() {
+      ResponseEntity<byte[]> response = proxyService.callExternal(uri("/pastries"), HttpMethod.POST, headers(),
+            "Eclair");
+
+      assertEquals(HttpStatus.CREATED, response.getStatusCode());
+      assertEquals("Eclair", response.getHeaders().getFirst("X-Pastry"));
+      assertArrayEquals("echo:Eclair".getBytes(StandardCharsets.UTF_8), response.getBody());
+
+      response = proxyService.callExternal(uri("/missing"), HttpMethod.GET, new HttpHeaders(), null);
+      assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+   }
+
+   @Test
+   void testStreamExternal() throws IOException {
+      HttpHeaders headers = headers();
+      headers.add(HttpHeaders.CONNECTION, "close");
+
+      try (ProxyService.StreamedResponse response = proxyService.streamExternal(uri("/pastries"), HttpMethod.POST,
+            headers, "Eclair")) {
+         assertEquals(HttpStatus.CREATED, response.status());
+         assertEquals("Eclair", response.headers().getFirst("X-Pastry"));
+         assertEquals("custom", response.headers().getFirst("X-Header-Received"));
+         // Hop-by-hop headers should not be returned.
+         assertFalse(response.headers().containsKey("Keep-Alive"));
+         assertFalse(response.headers().containsKey(HttpHeaders.TRANSFER_ENCODING));
+
+         ByteArrayOutputStream output = new ByteArrayOutputStream();
+         response.transferTo(output);
+         assertEquals("echo:Eclair", output.toString(StandardCharsets.UTF_8));
+      }
+
+      try (ProxyService.StreamedResponse response = proxyService.streamExternal(uri("/missing"), HttpMethod.GET,
+            new HttpHeaders(), null)) {
+         assertEquals(HttpStatus.NOT_FOUND, response.status());
+         ByteArrayOutputStream output = new ByteArrayOutputStream();
+         response.transferTo(output);
+         assertEquals(0, output.size());
+      }
+   }
+
+   @Test
+   void testStreamExternalRequestHeaders() throws IOException {
+      // Host should hold target port, content type should not be added if client did not send one.
+      try (ProxyService.StreamedResponse response = proxyService.streamExternal(uri("/headers"), HttpMethod.POST,
+            new HttpHeaders(), "Eclair")) {
+         assertEquals(HttpStatus.NO_CONTENT, response.status());
+         assertEquals("localhost:" + server.getAddress().getPort(), response.headers().getFirst("X-Host-Received"));
+         assertEquals("null", response.headers().getFirst("X-Content-Type-Received"));
+      }
+
+      try (ProxyService.StreamedResponse response = proxyService.streamExternal(uri("/headers"), HttpMethod.POST,
+            headers(), "Eclair")) {
+         assertEquals("text/plain", response.headers().getFirst("X-Content-Type-Received"));
+      }
+   }
+
+   @Test
+   void testCallExternalRequestHeaders() {
+      // Host sent by client should be replaced by target one, including port.
+      HttpHeaders headers = headers();
+      headers.add(HttpHeaders.HOST, "microcks.example.com");
+      ResponseEntity<byte[]> response = proxyService.callExternal(uri("/headers"), HttpMethod.POST, headers,
+            "Eclair");
+      assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+      assertEquals("localhost:" + server.getAddress().getPort(), response.getHeaders().getFirst("X-Host-Received"));
+   }
+
+   @Test
+   void testRedirects() throws IOException {
+      // Buffered calls follow redirects.
+      ResponseEntity<byte[]> response = proxyService.callExternal(uri("/redirect"), HttpMethod.GET,
+            new HttpHeaders(), null);
+      assertEquals(HttpStatus.CREATED, response.getStatusCode());
+      assertEquals("Eclair", response.getHeaders().getFirst("X-Pastry"));
+
+      // Streamed calls pass them through.
+      try (ProxyService.StreamedResponse streamed = proxyService.streamExternal(uri("/redirect"), HttpMethod.GET,
+            new HttpHeaders(), null)) {
+         assertEquals(HttpStatus.FOUND, streamed.status());
+         assertEquals("/pastries", streamed.headers().getFirst(HttpHeaders.LOCATION));
+      }
+   }
+
+   private URI uri(String path) {
+      return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+   }
+
+   private static HttpHeaders headers() {
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.TEXT_PLAIN);
+      headers.add("X-Custom", "custom");
+      return headers;
+   }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.domain.Service;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+import io.github.microcks.util.openapi.CompiledMessageSchema;
+import io.github.microcks.util.openapi.OpenAPISchemaValidator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for RequestBodySchemaCache class.
+ * @author agent
+ */
+class RequestBodySchemaCacheTest {
+
+   private static final String OPENAPI_SPEC = """
+         openapi: 3.0.2
+         info:
+           title: Pastry API
+           version: 1.0.0
+         paths:
+           /pastries:
+             post:
+               requestBody:
+                 content:
+                   application/json:
+                     schema:
+                       $ref: '#/components/schemas/Pastry'
+               responses:
+                 201:
+                   description: Created
+         components:
+           schemas:
+             Pastry:
+               type: object
+               required:
+                 - name
+               properties:
+                 name:
+                   type: string
+         """;
+
+   private MeterRegistry meterRegistry;
+   private ResourceRepository resourceRepository;
+   private RequestBodySchemaCache cache;
+
+   private Service service;
+   private Operation operation;
+   private Resource resource;
+
+   @BeforeEach
+   void setUp() {
+      meterRegistry = new SimpleMeterRegistry();
+      resourceRepository = mock(ResourceRepository.class);
+      cache = new RequestBodySchemaCache(resourceRepository, meterRegistry);
+      cache.initialize();
+
+      service = new Service();
+      service.setId("123");
+      operation = new Operation();
+      operation.setName("POST /pastries");
+
+      resource = spy(new Resource());
+      resource.setType(ResourceType.OPEN_API_SPEC);
+      resource.setContent(OPENAPI_SPEC);
+      when(resourceRepository.findMainByServiceId("123")).thenReturn(List.of(resource));
+   }
+
+   @Test
+   void testSchemaIsCompiledOnce() throws Exception {
+      CompiledMessageSchema schema = cache.getRequestBodySchema(service, operation, "application/json", null);
+      assertTrue(schema.validate(OpenAPISchemaValidator.getJsonNode("{\"name\": \"Eclair\"}")).isEmpty());
+      assertFalse(schema.validate(OpenAPISchemaValidator.getJsonNode("{\"price\": 2.5}")).isEmpty());
+
+      assertSame(schema, cache.getRequestBodySchema(service, operation, "application/json", null));
+      assertEquals(1.0, getCompilationsCount());
+      verify(resourceRepository, times(1)).findMainByServiceId("123");
+
+      // Another content type is not defined into specification.
+      CompiledMessageSchema otherSchema = cache.getRequestBodySchema(service, operation, "application/xml", null);
+      assertNull(otherSchema.getJsonSchema());
+      assertEquals(1, otherSchema.validate(OpenAPISchemaValidator.getJsonNode("{}")).size());
+      assertEquals(2.0, getCompilationsCount());
+
+      // Errors are kept too and specification is only parsed once.
+      assertSame(otherSchema, cache.getRequestBodySchema(service, operation, "application/xml", null));
+      assertEquals(2.0, getCompilationsCount());
+      verify(resource, times(1)).getContent();
+
+      // Until service is changed.
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.UPDATED));
+      assertNotSame(otherSchema, cache.getRequestBodySchema(service, operation, "application/xml", null));
+      assertEquals(3.0, getCompilationsCount());
+   }
+
+   @Test
+   void testUnparsableSpecificationIsKept() {
+      resource.setContent("openapi: [3.0.2");
+
+      CompiledMessageSchema schema = cache.getRequestBodySchema(service, operation, "application/json", null);
+      assertNull(schema.getJsonSchema());
+      assertEquals(1, schema.validate(null).size());
+      assertSame(schema, cache.getRequestBodySchema(service, operation, "application/json", null));
+      verify(resource, times(1)).getContent();
+      assertEquals(0.0, getCompilationsCount());
+   }
+
+   @Test
+   void testSchemaIsCompiledPerNamespace() {
+      CompiledMessageSchema schema = cache.getRequestBodySchema(service, operation, "application/json", null);
+      CompiledMessageSchema namespacedSchema = cache.getRequestBodySchema(service, operation, "application/json",
+            "http://localhost:8080/api/resources/");
+
+      assertNotSame(schema, namespacedSchema);
+      assertSame(namespacedSchema, cache.getRequestBodySchema(service, operation, "application/json",
+            "http://localhost:8080/api/resources/"));
+      assertEquals(2.0, getCompilationsCount());
+   }
+
+   @Test
+   void testServiceWithoutSpecification() {
+      Service other = new Service();
+      other.setId("456");
+      when(resourceRepository.findMainByServiceId("456")).thenReturn(List.of());
+      when(resourceRepository.findByServiceId("456")).thenReturn(List.of());
+
+      assertNull(cache.getRequestBodySchema(other, operation, "application/json", null));
+      assertNull(cache.getRequestBodySchema(other, operation, "application/json", null));
+      verify(resourceRepository, times(1)).findByServiceId("456");
+   }
+
+   @Test
+   void testServiceChangeEvents() {
+      CompiledMessageSchema schema = cache.getRequestBodySchema(service, operation, "application/json", null);
+
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.UPDATED));
+      assertNotSame(schema, cache.getRequestBodySchema(service, operation, "application/json", null));
+      assertEquals(2.0, getCompilationsCount());
+      verify(resourceRepository, times(2)).findMainByServiceId("123");
+   }
+
+   private double getCompilationsCount() {
+      return meterRegistry.get("microcks.mock.schemas.compilations").counter().count();
+   }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Response;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResponseRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for ResponseLookupIndex class.
+ * @author agent
+ */
+class ResponseLookupIndexTest {
+
+   private static final String OPERATION_ID = "123-GET /pastries";
+
+   private ResponseRepository repository;
+   private MeterRegistry meterRegistry;
+   private ResponseLookupIndex index;
+
+   private Response millefeuille;
+   private Response millefeuilleXml;
+   private Response eclair;
+
+   @BeforeEach
+   void setUp() {
+      repository = mock(ResponseRepository.class);
+      meterRegistry = new SimpleMeterRegistry();
+      index = new ResponseLookupIndex(repository, meterRegistry);
+      index.initialize();
+
+      millefeuille = buildResponse("millefeuille", "?name=Millefeuille", "application/json");
+      millefeuilleXml = buildResponse("millefeuille-xml", "?name=Millefeuille", "application/xml");
+      eclair = buildResponse("eclair", null, "application/json");
+      when(repository.findByOperationId(OPERATION_ID)).thenReturn(List.of(millefeuille, millefeuilleXml, eclair));
+   }
+
+   @Test
+   void testLookups() {
+      assertEquals(List.of(millefeuille, millefeuilleXml),
+            index.findByOperationIdAndDispatchCriteria(OPERATION_ID, "?name=Millefeuille"));
+      assertEquals(List.of(eclair), index.findByOperationIdAndDispatchCriteria(OPERATION_ID, null));
+      assertTrue(index.findByOperationIdAndDispatchCriteria(OPERATION_ID, "?name=Baba").isEmpty());
+
+      assertEquals(List.of(eclair), index.findByOperationIdAndName(OPERATION_ID, "eclair"));
+      assertTrue(index.findByOperationIdAndName(OPERATION_ID, "baba").isEmpty());
+
+      assertSame(millefeuilleXml, index.findFirstByOperationIdAndMediaType(OPERATION_ID, "application/xml"));
+      assertSame(millefeuille, index.findFirstByOperationIdAndMediaType(OPERATION_ID, "text/plain"));
+      assertSame(millefeuille, index.findFirstByOperationIdAndMediaType(OPERATION_ID, null));
+      assertNull(index.findFirstByOperationIdAndMediaType("123-GET /unknown", null));
+
+      // Repository should have been queried once per operation.
+      verify(repository, times(1)).findByOperationId(OPERATION_ID);
+      assertEquals(7.0, meterRegistry.get("microcks.mock.responses.lookups").tag("result", "hit").counter().count());
+      assertEquals(2.0, meterRegistry.get("microcks.mock.responses.lookups").tag("result", "miss").counter().count());
+   }
+
+   @Test
+   void testServiceChangeEvents() {
+      assertEquals(3, index.findByOperationId(OPERATION_ID).size());
+
+      // Change on another service should not invalidate operation.
+      index.onApplicationEvent(new ServiceChangeEvent(this, "456", ChangeType.UPDATED));
+      assertEquals(3, index.findByOperationId(OPERATION_ID).size());
+      verify(repository, times(1)).findByOperationId(OPERATION_ID);
+
+      // Now remove a response and update the service.
+      when(repository.findByOperationId(OPERATION_ID)).thenReturn(List.of(millefeuille, millefeuilleXml));
+      index.onApplicationEvent(new ServiceChangeEvent(this, "123", ChangeType.UPDATED));
+      assertEquals(2, index.findByOperationId(OPERATION_ID).size());
+      assertTrue(index.findByOperationIdAndName(OPERATION_ID, "eclair").isEmpty());
+      verify(repository, times(2)).findByOperationId(OPERATION_ID);
+   }
+
+   @Test
+   void testInvalidateOperation() {
+      assertEquals(3, index.findByOperationId(OPERATION_ID).size());
+
+      // Invalidating another operation should not reload this one.
+      index.invalidate("123-POST /pastries");
+      assertEquals(3, index.findByOperationId(OPERATION_ID).size());
+      verify(repository, times(1)).findByOperationId(OPERATION_ID);
+
+      index.invalidate(OPERATION_ID);
+      assertEquals(3, index.findByOperationId(OPERATION_ID).size());
+      verify(repository, times(2)).findByOperationId(OPERATION_ID);
+   }
+
+   @Test
+   void testMaxSize() {
+      ReflectionTestUtils.setField(index, "maxSize", "256B");
+      index.initialize();
+
+      // Responses are too large to be kept in index, so targeted repository queries are used next.
+      assertEquals(3, index.findByOperationId(OPERATION_ID).size());
+      when(repository.findByOperationIdAndDispatchCriteria(OPERATION_ID, "?name=Millefeuille"))
+            .thenReturn(List.of(millefeuille, millefeuilleXml));
+      assertEquals(2, index.findByOperationIdAndDispatchCriteria(OPERATION_ID, "?name=Millefeuille").size());
+      assertEquals(2, index.findByOperationIdAndDispatchCriteria(OPERATION_ID, "?name=Millefeuille").size());
+      verify(repository, times(1)).findByOperationId(OPERATION_ID);
+      verify(repository, times(2)).findByOperationIdAndDispatchCriteria(OPERATION_ID, "?name=Millefeuille");
+   }
+
+   @Test
+   void testInvalidationDuringLoad() {
+      when(repository.findByOperationId(OPERATION_ID)).thenAnswer(invocation -> {
+         // Invalidating another operation should not prevent this one from being indexed.
+         index.invalidate("123-POST /pastries");
+         return List.of(eclair);
+      });
+      assertEquals(1, index.findByOperationId(OPERATION_ID).size());
+      assertEquals(1, index.findByOperationId(OPERATION_ID).size());
+      verify(repository, times(1)).findByOperationId(OPERATION_ID);
+
+      when(repository.findByOperationId(OPERATION_ID)).thenAnswer(invocation -> {
+         // Invalidating this operation means loaded responses may be stale.
+         index.invalidate(OPERATION_ID);
+         return List.of(eclair);
+      });
+      index.invalidate(OPERATION_ID);
+      assertEquals(1, index.findByOperationId(OPERATION_ID).size());
+      assertEquals(1, index.findByOperationId(OPERATION_ID).size());
+      verify(repository, times(3)).findByOperationId(OPERATION_ID);
+   }
+
+   private Response buildResponse(String name, String dispatchCriteria, String mediaType) {
+      Response response = new Response();
+      response.setName(name);
+      response.setOperationId(OPERATION_ID);
+      response.setDispatchCriteria(dispatchCriteria);
+      response.setMediaType(mediaType);
+      response.setContent("{\"name\": \"" + name + "\"}");
+      return response;
+   }
+}
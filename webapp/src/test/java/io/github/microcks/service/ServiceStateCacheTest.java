@@ -0,0 +1,158 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.ServiceState;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ServiceStateRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for ServiceStateCache class.
+ * @author agent
+ */
+class ServiceStateCacheTest {
+
+   private static final String SERVICE_ID = "serviceId";
+
+   private ServiceStateRepository repository;
+   private ServiceStateCache cache;
+
+   @BeforeEach
+   void setUp() {
+      repository = mock(ServiceStateRepository.class);
+      cache = new ServiceStateCache(repository);
+   }
+
+   @Test
+   void testWriteBehind() {
+      ReflectionTestUtils.setField(cache, "mode", ServiceStateCache.WRITE_BEHIND_MODE);
+      StateStore store = cache.getStateStore(SERVICE_ID);
+
+      // Missing key should be looked up once.
+      assertNull(store.get("foo"));
+      assertNull(store.get("foo"));
+      verify(repository, times(1)).findByServiceIdAndKey(SERVICE_ID, "foo");
+
+      // Written values should be served from memory and flushed in one bulk write.
+      store.put("foo", "bar");
+      store.put("baz", "qux", 3600);
+      store.put("foo", "bar2");
+      assertEquals("bar2", store.get("foo"));
+      assertEquals("qux", store.get("baz"));
+      verify(repository, never()).writeStates(any(), any());
+
+      cache.flush();
+      List<ServiceState> updates = captureWrites().get(0);
+      assertEquals(2, updates.size());
+      assertTrue(updates.stream().anyMatch(state -> "foo".equals(state.getKey()) && "bar2".equals(state.getValue())));
+
+      // Deletion should be kept in memory and flushed as well.
+      store.delete("foo");
+      assertNull(store.get("foo"));
+      cache.flush();
+      verify(repository, times(2)).writeStates(any(), any());
+
+      // Nothing to flush anymore.
+      cache.flush();
+      verify(repository, times(2)).writeStates(any(), any());
+      verify(repository, times(1)).findByServiceIdAndKey(anyString(), anyString());
+   }
+
+   @Test
+   void testLoadExistingAndExpiredStates() {
+      ReflectionTestUtils.setField(cache, "mode", ServiceStateCache.WRITE_BEHIND_MODE);
+      ServiceState existing = new ServiceState(SERVICE_ID, "foo");
+      existing.setValue("bar");
+      existing.setExpireAt(new Date(System.currentTimeMillis() + 60000L));
+      ServiceState expired = new ServiceState(SERVICE_ID, "baz");
+      expired.setValue("qux");
+      expired.setExpireAt(new Date(System.currentTimeMillis() - 1000L));
+      when(repository.findByServiceIdAndKey(SERVICE_ID, "foo")).thenReturn(existing);
+      when(repository.findByServiceIdAndKey(SERVICE_ID, "baz")).thenReturn(expired);
+
+      assertEquals("bar", cache.get(SERVICE_ID, "foo"));
+      assertEquals("bar", cache.get(SERVICE_ID, "foo"));
+      assertNull(cache.get(SERVICE_ID, "baz"));
+      verify(repository, times(1)).findByServiceIdAndKey(SERVICE_ID, "foo");
+      assertEquals(2, cache.size());
+
+      // Expired entries should be removed from memory.
+      cache.put(SERVICE_ID, "short", "lived", 0);
+      assertNull(cache.get(SERVICE_ID, "short"));
+      cache.expireEntries(System.currentTimeMillis() + 2000L);
+      assertEquals(2, cache.size());
+
+      // Deleting service should remove its states from memory and drop its pending writes.
+      cache.onApplicationEvent(new ServiceChangeEvent(this, SERVICE_ID, ChangeType.DELETED));
+      assertEquals(0, cache.size());
+      cache.flush();
+      verify(repository, never()).writeStates(any(), any());
+   }
+
+   @Test
+   void testFailedFlushIsRetried() {
+      ReflectionTestUtils.setField(cache, "mode", ServiceStateCache.WRITE_BEHIND_MODE);
+      doThrow(new RuntimeException("Database is down")).when(repository).writeStates(any(), any());
+      cache.put(SERVICE_ID, "foo", "bar", 60);
+      cache.flush();
+
+      // Value should still be served and written at next flush.
+      assertEquals("bar", cache.get(SERVICE_ID, "foo"));
+      cache.flush();
+      verify(repository, times(2)).writeStates(any(), any());
+   }
+
+   @Test
+   void testWriteThrough() {
+      // Write-through is the default mode.
+      StateStore store = cache.getStateStore(SERVICE_ID);
+
+      store.put("foo", "bar");
+      verify(repository, times(1)).writeStates(any(), any());
+      assertNull(store.get("foo"));
+      assertNull(store.get("foo"));
+      verify(repository, times(2)).findByServiceIdAndKey(SERVICE_ID, "foo");
+   }
+
+   @SuppressWarnings("unchecked")
+   private List<List<ServiceState>> captureWrites() {
+      ArgumentCaptor<Collection<ServiceState>> updates = ArgumentCaptor.forClass(Collection.class);
+      verify(repository).writeStates(updates.capture(), any());
+      return updates.getAllValues().stream().map(states -> List.copyOf(states)).toList();
+   }
+}
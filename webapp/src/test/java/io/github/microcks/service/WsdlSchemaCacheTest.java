@@ -0,0 +1,111 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.service;
+
+import io.github.microcks.domain.Resource;
+import io.github.microcks.domain.ResourceType;
+import io.github.microcks.event.ChangeType;
+import io.github.microcks.event.ServiceChangeEvent;
+import io.github.microcks.repository.ResourceRepository;
+import io.github.microcks.util.soap.SoapMessageValidator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.namespace.QName;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for WsdlSchemaCache class.
+ * @author agent
+ */
+class WsdlSchemaCacheTest {
+
+   private static final String WSDL = """
+         <wsdl:definitions xmlns:wsdl="http://schemas.xmlsoap.org/wsdl/" xmlns:tns="http://www.example.com/hello"
+               targetNamespace="http://www.example.com/hello">
+            <wsdl:types>
+               <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema" targetNamespace="http://www.example.com/hello">
+                  <xs:element name="sayHello" type="xs:string"/>
+               </xs:schema>
+            </wsdl:types>
+         </wsdl:definitions>
+         """;
+
+   private static final String SOAP_MESSAGE = """
+         <soapenv:Envelope xmlns:soapenv="http://schemas.xmlsoap.org/soap/envelope/"
+               xmlns:hel="http://www.example.com/hello">
+            <soapenv:Body>
+               <hel:sayHello>Andrew</hel:sayHello>
+            </soapenv:Body>
+         </soapenv:Envelope>
+         """;
+
+   private ResourceRepository resourceRepository;
+   private WsdlSchemaCache cache;
+
+   @BeforeEach
+   void setUp() {
+      Resource resource = new Resource();
+      resource.setType(ResourceType.WSDL);
+      resource.setContent(WSDL);
+
+      resourceRepository = mock(ResourceRepository.class);
+      when(resourceRepository.findByServiceIdAndType("hello", ResourceType.WSDL)).thenReturn(List.of(resource));
+      cache = new WsdlSchemaCache(resourceRepository);
+      cache.initialize();
+   }
+
+   @Test
+   void testSchemaIsCompiledOnce() {
+      SoapMessageValidator.TypesSchema typesSchema = cache.getTypesSchema("hello");
+      assertNotNull(typesSchema);
+      assertSame(typesSchema, cache.getTypesSchema("hello"));
+      verify(resourceRepository, times(1)).findByServiceIdAndType("hello", ResourceType.WSDL);
+
+      List<String> errors = SoapMessageValidator.validateSoapMessage(typesSchema,
+            new QName("http://www.example.com/hello", "sayHello"), SOAP_MESSAGE);
+      assertTrue(errors.isEmpty(), "Unexpected errors: " + errors);
+
+      // Service without WSDL should not have schema.
+      assertNull(cache.getTypesSchema("pastries"));
+   }
+
+   @Test
+   void testSchemaIsEvictedOnChange() {
+      SoapMessageValidator.TypesSchema typesSchema = cache.getTypesSchema("hello");
+
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "hello", ChangeType.UPDATED));
+      assertNotSame(typesSchema, cache.getTypesSchema("hello"));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("hello", ResourceType.WSDL);
+
+      // Other services are left untouched.
+      typesSchema = cache.getTypesSchema("hello");
+      cache.onApplicationEvent(new ServiceChangeEvent(this, "pastries", ChangeType.DELETED));
+      assertSame(typesSchema, cache.getTypesSchema("hello"));
+      verify(resourceRepository, times(2)).findByServiceIdAndType("hello", ResourceType.WSDL);
+   }
+}
@@ -262,6 +262,17 @@ class DispatchCriteriaHelperTest {
          String dispatchCriteria = DispatchCriteriaHelper.extractFromURIParams("param1 && param2", requestPath);
          assertEquals("?param1=test", dispatchCriteria);
       }
+
+      @Test
+      void testExtractFromURIParamsWithParsedRule() {
+         String requestPath = "/v2/pet/findByDate/2017/01/04?user_key=998bac0775b1d5f588e0a6ca7c11b852&status=available";
+
+         assertEquals(Set.of("id", "user_key", "status"),
+               DispatchCriteriaHelper.parseParamsRule("id ?? user_key && status"));
+         String dispatchCriteria = DispatchCriteriaHelper
+               .extractFromURIParams(DispatchCriteriaHelper.parseParamsRule("user_key && status"), requestPath);
+         assertEquals("?status=available?user_key=998bac0775b1d5f588e0a6ca7c11b852", dispatchCriteria);
+      }
    }
 
    @Nested
@@ -349,6 +360,11 @@ class DispatchCriteriaHelperTest {
          // Only 1 parameter should be taken into account according to rules.
          String dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap("?foo", paramsMap);
          assertEquals("?foo=fooValue", dispatchCriteria);
+
+         // Same result is expected with parsed rule.
+         dispatchCriteria = DispatchCriteriaHelper.extractFromParamMap(DispatchCriteriaHelper.parseParamsRule("?foo"),
+               paramsMap);
+         assertEquals("?foo=fooValue", dispatchCriteria);
       }
    }
 }
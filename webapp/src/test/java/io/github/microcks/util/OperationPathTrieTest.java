@@ -0,0 +1,103 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * This is a test case for OperationPathTrie class.
+ * @author agent
+ */
+class OperationPathTrieTest {
+
+   private Operation getPastries;
+   private Operation getPastry;
+   private Operation getPastryReport;
+   private Operation getPastryCount;
+   private Operation patchPastry;
+   private Operation getOrder;
+   private OperationPathTrie trie;
+
+   @BeforeEach
+   void setUp() {
+      getPastries = buildOperation("GET /pastries", "GET", "/pastries");
+      getPastry = buildOperation("GET /pastries/{name}", "GET", "/pastries/Millefeuille");
+      getPastryReport = buildOperation("GET /pastries/{name}/report/{year}.json", "GET",
+            "/pastries/Eclair/report/2024.json");
+      getPastryCount = buildOperation("GET /pastries/$count", "GET", "/pastries/$count");
+      patchPastry = buildOperation("PATCH /pastries/{name}", "PATCH", "/pastries/Eclair");
+      getOrder = buildOperation("GET /orders/:id", "GET", "/orders/123");
+
+      Service service = new Service();
+      service.setName("Pastry API");
+      service.setVersion("1.0");
+      service.addOperation(getPastries);
+      service.addOperation(getPastry);
+      service.addOperation(getPastryReport);
+      service.addOperation(getPastryCount);
+      service.addOperation(patchPastry);
+      service.addOperation(getOrder);
+      trie = OperationPathTrie.build(service);
+   }
+
+   @Test
+   void testFindOperationByResourcePath() {
+      assertSame(getPastries, trie.findOperationByResourcePath("GET", "/pastries", "/pastries"));
+      assertSame(getPastries, trie.findOperationByResourcePath("GET", "/pastries/", "/pastries"));
+      assertSame(getPastry,
+            trie.findOperationByResourcePath("GET", "/pastries/Millefeuille", "/pastries/Millefeuille"));
+      assertSame(patchPastry, trie.findOperationByResourcePath("PATCH", "/pastries/Eclair", "/pastries/Eclair"));
+      // Operation name matching is considered if no resource path.
+      assertSame(getPastryCount, trie.findOperationByResourcePath("GET", "/pastries/$count", "/pastries/$count"));
+      assertNull(trie.findOperationByResourcePath("GET", "/pastries/Eclair", "/pastries/Eclair"));
+      assertNull(trie.findOperationByResourcePath("DELETE", "/pastries/Eclair", "/pastries/Eclair"));
+   }
+
+   @Test
+   void testFindOperationByPathPattern() {
+      assertSame(getPastries, trie.findOperationByPathPattern("GET", "/pastries"));
+      assertSame(getPastry, trie.findOperationByPathPattern("GET", "/pastries/Eclair"));
+      assertSame(patchPastry, trie.findOperationByPathPattern("PATCH", "/pastries/Eclair"));
+      assertSame(getPastryReport, trie.findOperationByPathPattern("GET", "/pastries/Eclair/report/2025.json"));
+      assertSame(getOrder, trie.findOperationByPathPattern("GET", "/orders/456"));
+
+      // First operation in definition order wins over literal $count.
+      assertSame(getPastry, trie.findOperationByPathPattern("GET", "/pastries/$count"));
+
+      // Variable parts never match empty or many segments.
+      assertNull(trie.findOperationByPathPattern("GET", "/pastries/"));
+      assertNull(trie.findOperationByPathPattern("GET", "/pastries/Eclair/Millefeuille"));
+      assertNull(trie.findOperationByPathPattern("GET", "/pastries/Eclair/report/2025.xml"));
+      assertNull(trie.findOperationByPathPattern("DELETE", "/pastries/Eclair"));
+   }
+
+   private Operation buildOperation(String name, String method, String resourcePath) {
+      Operation operation = new Operation();
+      operation.setName(name);
+      operation.setMethod(method);
+      operation.setResourcePaths(Set.of(resourcePath));
+      return operation;
+   }
+}
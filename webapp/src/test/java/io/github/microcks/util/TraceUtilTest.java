@@ -15,12 +15,17 @@
  */
 package io.github.microcks.util;
 
+import io.github.microcks.domain.Metadata;
+import io.github.microcks.domain.Service;
+import io.github.microcks.util.tracing.CommonEvents;
 import io.github.microcks.util.tracing.TraceUtil;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -52,4 +57,52 @@ class TraceUtilTest {
          verify(span).setAttribute(TraceUtil.EXPLAIN_TRACE_ATTRIBUTE, true);
       }
    }
+
+   @Test
+   @DisplayName("Should add explain events only when span is recording")
+   void testAddExplainEventOnRecordingSpan() {
+      var span = mock(io.opentelemetry.api.trace.Span.class);
+      when(span.isRecording()).thenReturn(true);
+      Service service = new Service();
+
+      assertThat(TraceUtil.enableExplainTracing(span, service)).isTrue();
+      verify(span).setAttribute(TraceUtil.EXPLAIN_TRACE_ATTRIBUTE, true);
+
+      TraceUtil.addExplainEvent(span, service, CommonEvents.INVOCATION_RECEIVED,
+            () -> TraceUtil.explainSpanEventBuilder("Received invocation").build());
+      verify(span).addEvent(eq(CommonEvents.INVOCATION_RECEIVED.getEventName()),
+            any(io.opentelemetry.api.common.Attributes.class));
+   }
+
+   @Test
+   @DisplayName("Should not build explain events attributes when span is not recording")
+   void testAddExplainEventOnNonRecordingSpan() {
+      var span = mock(io.opentelemetry.api.trace.Span.class);
+      when(span.isRecording()).thenReturn(false);
+      AtomicInteger builds = new AtomicInteger();
+
+      assertThat(TraceUtil.enableExplainTracing(span, new Service())).isFalse();
+      TraceUtil.addExplainEvent(span, new Service(), CommonEvents.INVOCATION_RECEIVED, () -> {
+         builds.incrementAndGet();
+         return TraceUtil.explainSpanEventBuilder("Received invocation").build();
+      });
+      assertThat(builds.get()).isZero();
+      verify(span, never()).setAttribute(TraceUtil.EXPLAIN_TRACE_ATTRIBUTE, true);
+      verify(span, never()).addEvent(anyString(), any(io.opentelemetry.api.common.Attributes.class));
+   }
+
+   @Test
+   @DisplayName("Should not add explain events when explain tracing is turned off for service")
+   void testAddExplainEventWithServiceTurnedOff() {
+      var span = mock(io.opentelemetry.api.trace.Span.class);
+      when(span.isRecording()).thenReturn(true);
+      Service service = new Service();
+      service.setMetadata(new Metadata());
+      service.getMetadata().setAnnotation(TraceUtil.EXPLAIN_TRACING_ANNOTATION, "false");
+
+      assertThat(TraceUtil.enableExplainTracing(span, service)).isFalse();
+      TraceUtil.addExplainEvent(span, service, CommonEvents.INVOCATION_RECEIVED,
+            () -> TraceUtil.explainSpanEventBuilder("Received invocation").build());
+      verify(span, never()).addEvent(anyString(), any(io.opentelemetry.api.common.Attributes.class));
+   }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.dispatcher;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.util.DispatchStyles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This is a test case for CompiledDispatcher.
+ * @author agent
+ */
+class CompiledDispatcherTest {
+
+   @Test
+   void testCompileIsCached() {
+      Operation operation = new Operation();
+      operation.setDispatcher(DispatchStyles.URI_PARTS);
+      operation.setDispatcherRules("year && month");
+
+      CompiledDispatcher compiled = CompiledDispatcher.compile(operation);
+      assertSame(compiled, CompiledDispatcher.compile(DispatchStyles.URI_PARTS, "year && month"));
+      assertEquals(Set.of("year", "month"), compiled.getURIPartsRule());
+      assertNull(compiled.getFallback());
+      assertNull(compiled.getProxyFallback());
+
+      // Updated rules should lead to another compiled dispatcher.
+      operation.setDispatcherRules("year");
+      assertEquals(Set.of("year"), CompiledDispatcher.compile(operation).getURIPartsRule());
+   }
+
+   @Test
+   void testCompileFallback() throws Exception {
+      String specRules = "{\"exp\": \"/country\", \"operator\": \"equals\", "
+            + "\"cases\": {\"Belgium\": \"OK\", \"default\": \"KO\"}}";
+      String rules = "{\"dispatcher\": \"JSON_BODY\", \"dispatcherRules\": \"" + specRules.replace("\"", "\\\"")
+            + "\", \"fallback\": \"Why not\"}";
+      CompiledDispatcher compiled = CompiledDispatcher.compile(DispatchStyles.FALLBACK, rules);
+
+      assertNotNull(compiled.getFallback());
+      assertEquals("Why not", compiled.getFallback().getFallback());
+      assertEquals(DispatchStyles.JSON_BODY, compiled.getDispatcher());
+
+      JsonEvaluationSpecification specification = compiled.getJsonEvaluationSpecification();
+      assertEquals("/country", specification.getExpPointer().toString());
+      assertEquals("OK", JsonExpressionEvaluator.evaluate("{\"country\": \"Belgium\"}", specification));
+      assertEquals("KO", JsonExpressionEvaluator.evaluate("{\"country\": \"Germany\"}", specification));
+   }
+
+   @Test
+   void testCompileProxyFallback() {
+      String rules = """
+            {"dispatcher": "URI_ELEMENTS", "dispatcherRules": "id ?? filter", "proxyUrl": "http://external.net/"}
+            """;
+      CompiledDispatcher compiled = CompiledDispatcher.compile(DispatchStyles.PROXY_FALLBACK, rules);
+
+      assertNotNull(compiled.getProxyFallback());
+      assertEquals("http://external.net/", compiled.getProxyFallback().getProxyUrl());
+      assertEquals(DispatchStyles.URI_ELEMENTS, compiled.getDispatcher());
+      assertEquals("id ?? filter", compiled.getDispatcherRules());
+      assertEquals(Set.of("id"), compiled.getURIPartsRule());
+      assertEquals(Set.of("id", "filter"), compiled.getParamsRule());
+   }
+
+   @Test
+   void testCompileParamsRule() {
+      CompiledDispatcher compiled = CompiledDispatcher.compile(DispatchStyles.QUERY_HEADER, "x-tenant && x-user");
+      assertEquals(Set.of("x-tenant", "x-user"), compiled.getParamsRule());
+      assertNull(compiled.getURIPartsRule());
+   }
+
+   @Test
+   void testCompileInvalidRules() {
+      CompiledDispatcher compiled = CompiledDispatcher.compile(DispatchStyles.JSON_BODY, "{not json");
+      JsonMappingException error = assertThrows(JsonMappingException.class, compiled::getJsonEvaluationSpecification);
+      // Exception should not be shared between invocations.
+      assertNotSame(error, assertThrows(JsonMappingException.class, compiled::getJsonEvaluationSpecification));
+      assertEquals(error.getMessage(),
+            assertThrows(JsonMappingException.class, compiled::getJsonEvaluationSpecification).getMessage());
+
+      compiled = CompiledDispatcher.compile(DispatchStyles.FALLBACK, "{not json");
+      assertNull(compiled.getFallback());
+      assertEquals(DispatchStyles.FALLBACK, compiled.getDispatcher());
+
+      compiled = CompiledDispatcher.compile(null, null);
+      assertNull(compiled.getDispatcher());
+   }
+}
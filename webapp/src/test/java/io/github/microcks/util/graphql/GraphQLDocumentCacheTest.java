@@ -0,0 +1,52 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.graphql;
+
+import graphql.language.OperationDefinition;
+import graphql.parser.InvalidSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test case for GraphQLDocumentCache class.
+ * @author agent
+ */
+class GraphQLDocumentCacheTest {
+
+   @Test
+   void testParseOnce() {
+      String query = "query allFilms { allFilms { films { id title } } }";
+      GraphQLDocumentCache.ParsedQuery parsed = GraphQLDocumentCache.parse(query);
+      assertEquals(GraphQLDocumentCache.hash(query), parsed.hash());
+      assertEquals("allFilms",
+            parsed.document().getDefinitionsOfType(OperationDefinition.class).get(0).getName());
+
+      // Same query should give same document, also when retrieved by hash.
+      assertSame(parsed.document(), GraphQLDocumentCache.parse(query).document());
+      assertSame(parsed, GraphQLDocumentCache.getPersistedQuery(parsed.hash().toUpperCase()));
+   }
+
+   @Test
+   void testInvalidQueryIsNotCached() {
+      String query = "query { allFilms { films { id title } ";
+      assertThrows(InvalidSyntaxException.class, () -> GraphQLDocumentCache.parse(query));
+      assertNull(GraphQLDocumentCache.getPersistedQuery(GraphQLDocumentCache.hash(query)));
+   }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.graphql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test case for GraphQLHttpRequest class.
+ * @author agent
+ */
+class GraphQLHttpRequestTest {
+
+   @Test
+   void testFromPostRequest() throws Exception {
+      String body = """
+            {"query": "query film($id: String) { film(id: $id) { id title } }", "variables": {"id": "ZmlsbXM6MQ=="}}
+            """;
+      GraphQLHttpRequest graphqlRequest = GraphQLHttpRequest.from(body, new MockHttpServletRequest("POST", "/"));
+      assertEquals("query film($id: String) { film(id: $id) { id title } }", graphqlRequest.getQuery());
+      assertEquals("ZmlsbXM6MQ==", graphqlRequest.getVariables().path("id").asText());
+      assertNull(graphqlRequest.getPersistedQueryHash());
+      assertSame(GraphQLDocumentCache.parse(graphqlRequest.getQuery()).document(), graphqlRequest.getDocument());
+   }
+
+   @Test
+   void testAutomaticPersistedQuery() throws Exception {
+      String query = "query allFilms { allFilms { films { id title episodeID } } }";
+      String hash = GraphQLDocumentCache.hash(query);
+      String extensions = "{\"persistedQuery\": {\"version\": 1, \"sha256Hash\": \"" + hash + "\"}}";
+
+      // Hash only of a query that has never been sent.
+      MockHttpServletRequest getRequest = new MockHttpServletRequest("GET", "/");
+      getRequest.setParameter("extensions", extensions);
+      assertThrows(GraphQLHttpRequest.PersistedQueryNotFoundException.class,
+            () -> GraphQLHttpRequest.from(null, getRequest));
+
+      // Hash with a query that does not match.
+      String mismatchBody = "{\"query\": \"query { allFilms { films { id } } }\", \"extensions\": " + extensions + "}";
+      assertThrows(IllegalArgumentException.class,
+            () -> GraphQLHttpRequest.from(mismatchBody, new MockHttpServletRequest("POST", "/")));
+
+      // Hash with the query should register it.
+      String body = "{\"query\": \"" + query + "\", \"extensions\": " + extensions + "}";
+      GraphQLHttpRequest registering = GraphQLHttpRequest.from(body, new MockHttpServletRequest("POST", "/"));
+      assertEquals(hash, registering.getPersistedQueryHash());
+
+      // Hash only should now be resolved.
+      GraphQLHttpRequest persisted = GraphQLHttpRequest.from(null, getRequest);
+      assertEquals(query, persisted.getQuery());
+      assertSame(registering.getDocument(), persisted.getDocument());
+
+      String postBody = "{\"operationName\": \"allFilms\", \"extensions\": " + extensions + "}";
+      persisted = GraphQLHttpRequest.from(postBody, new MockHttpServletRequest("POST", "/"));
+      assertEquals(query, persisted.getQuery());
+      assertEquals("allFilms", persisted.getOperationName());
+   }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.util.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test case for JsEnginePool class.
+ * @author agent
+ */
+class JsEnginePoolTest {
+
+   private static final String SCRIPT = JsScriptEngineBinder.wrapIntoFunction("""
+         requestContext.set("pastry", mockRequest.requestContent());
+         return "pastry-" + mockRequest.requestContent();
+         """);
+
+   private JsEnginePool pool;
+
+   @BeforeEach
+   void setUp() {
+      pool = new JsEnginePool(10, 2, 3, new LRUScriptCache(10));
+   }
+
+   @Test
+   void testEngineIsReusedWithInvocationBinding() {
+      Map<String, Object> eclairContext = new HashMap<>();
+      JsEnginePool.PooledEngine engine = pool.borrow(SCRIPT);
+      engine.bind(new FakeScriptMockRequest("Eclair", null), eclairContext, null);
+      assertEquals("pastry-Eclair", engine.invokeProcessFn());
+      assertEquals("Eclair", eclairContext.get("pastry"));
+      pool.release(engine, true);
+      assertEquals(1, pool.getIdleEnginesCount(SCRIPT));
+
+      // Same engine should be borrowed again and bound to the new invocation only.
+      Map<String, Object> millefeuilleContext = new HashMap<>();
+      JsEnginePool.PooledEngine otherEngine = pool.borrow(SCRIPT);
+      assertSame(engine, otherEngine);
+      assertEquals(0, pool.getIdleEnginesCount(SCRIPT));
+      otherEngine.bind(new FakeScriptMockRequest("Millefeuille", null), millefeuilleContext, null);
+      assertEquals("pastry-Millefeuille", otherEngine.invokeProcessFn());
+      assertEquals("Millefeuille", millefeuilleContext.get("pastry"));
+      assertEquals("Eclair", eclairContext.get("pastry"));
+      pool.release(otherEngine, true);
+   }
+
+   @Test
+   void testConcurrentBorrowsShareBytecode() {
+      JsEnginePool.PooledEngine engine = pool.borrow(SCRIPT);
+      JsEnginePool.PooledEngine otherEngine = pool.borrow(SCRIPT);
+      assertNotSame(engine, otherEngine);
+
+      engine.bind(new FakeScriptMockRequest("Eclair", null), new HashMap<>(), null);
+      otherEngine.bind(new FakeScriptMockRequest("Baba", null), new HashMap<>(), null);
+      assertEquals("pastry-Eclair", engine.invokeProcessFn());
+      assertEquals("pastry-Baba", otherEngine.invokeProcessFn());
+
+      pool.release(engine, true);
+      pool.release(otherEngine, true);
+      assertEquals(2, pool.getIdleEnginesCount(SCRIPT));
+
+      // Pool is bounded to 2 idle engines per script.
+      JsEnginePool.PooledEngine thirdEngine = new JsEnginePool(10, 2, 3, new LRUScriptCache(10)).borrow(SCRIPT);
+      pool.release(thirdEngine, true);
+      assertEquals(2, pool.getIdleEnginesCount(SCRIPT));
+   }
+
+   @Test
+   void testGlobalsAndOutputAreNotRetained() {
+      String script = JsScriptEngineBinder.wrapIntoFunction("""
+            if (globalThis.counter === undefined) {
+               globalThis.counter = 0;
+            }
+            globalThis.counter++;
+            console.log("invocation " + globalThis.counter);
+            return "count-" + globalThis.counter;
+            """);
+
+      for (int i = 0; i < 2; i++) {
+         JsEnginePool.PooledEngine engine = pool.borrow(script);
+         engine.bind(new FakeScriptMockRequest("Eclair", null), new HashMap<>(), null);
+         assertEquals("count-1", engine.invokeProcessFn());
+         // Output should only hold the one of current invocation.
+         assertEquals("invocation 1", (engine.stdout() + engine.stderr()).trim());
+         pool.release(engine, true);
+         assertEquals(1, pool.getIdleEnginesCount(script));
+      }
+   }
+
+   @Test
+   void testEngineIsRetired() {
+      // Failed engines are not given back to pool.
+      JsEnginePool.PooledEngine engine = pool.borrow(SCRIPT);
+      engine.bind(null, null, null);
+      assertThrows(Exception.class, engine::invokeProcessFn);
+      pool.release(engine, false);
+      assertEquals(0, pool.getIdleEnginesCount(SCRIPT));
+
+      // Engines are retired after max invocations.
+      engine = pool.borrow(SCRIPT);
+      for (int i = 0; i < 3; i++) {
+         engine.bind(new FakeScriptMockRequest("Eclair", null), new HashMap<>(), null);
+         assertEquals("pastry-Eclair", engine.invokeProcessFn());
+      }
+      pool.release(engine, true);
+      assertEquals(0, pool.getIdleEnginesCount(SCRIPT));
+   }
+}
@@ -16,7 +16,6 @@
 package io.github.microcks.util.script;
 
 import io.github.microcks.service.StateStore;
-import io.roastedroot.quickjs4j.core.Engine;
 import jakarta.servlet.http.Cookie;
 import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Test;
@@ -43,8 +42,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             """);
 
       String body = "content";
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("content", null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "content", null, null, null);
 
       assertEquals(body, result);
    }
@@ -60,8 +58,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       MockHttpServletRequest request = new MockHttpServletRequest();
       request.addHeader("foo", "bar");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("content", null, null, request);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "content", null, null, request);
 
       assertEquals("bar", result);
    }
@@ -80,8 +77,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       MockHttpServletRequest request = new MockHttpServletRequest();
       request.addHeader("baz", "bar");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("content", null, null, request);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "content", null, null, request);
 
       assertEquals("no-foo", result);
    }
@@ -100,8 +96,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       MockHttpServletRequest request = new MockHttpServletRequest();
       request.addHeader("foo", "bar");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("content", null, null, request);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "content", null, null, request);
 
       assertEquals("bar", result);
    }
@@ -118,8 +113,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       MockHttpServletRequest request = new MockHttpServletRequest();
       request.setQueryString("foobar");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(body, null, null, request);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, body, null, null, request);
 
       assertEquals("foobar", result);
    }
@@ -136,8 +130,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       MockHttpServletRequest request = new MockHttpServletRequest();
       request.setCookies(new Cookie("bar", "baz"));
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(body, null, null, request);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, body, null, null, request);
 
       assertEquals("barbaz", result);
    }
@@ -154,8 +147,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       Map<String, String> uriParameters = new HashMap<>();
       uriParameters.put("foo", "bar");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("content", null, null, request, uriParameters);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "content", null, null, request, uriParameters);
 
       assertEquals("bar", result);
    }
@@ -176,8 +168,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       uriParameters.put("foo", "bar");
       uriParameters.put("baz", "xyz");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("content", null, null, request, uriParameters);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "content", null, null, request, uriParameters);
 
       assertEquals("params-ok", result);
    }
@@ -192,8 +183,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       Map<String, Object> context = new HashMap<>();
       String body = "content";
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(body, context, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, body, context, null, null);
 
       assertEquals(body, result);
       assertTrue(context.containsKey("foo"));
@@ -238,8 +228,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
       store.put("foo", "fooValue");
       store.put("baz", "bazValue");
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext("body", context, store, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, "body", context, store, null);
 
       assertEquals("fooValue", result);
       assertEquals("barValue", store.get("bar"));
@@ -257,8 +246,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return response.status + ':' + (body.includes('test-fetch') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -275,8 +263,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return body.status + ':' + (body.message.includes('test-fetch-json') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -291,8 +278,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             ');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertNull(result);
    }
@@ -308,8 +294,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return response.status + ':' + (body.includes('POST received') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -326,8 +311,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return response.status + ':' + (body.includes('PUT received') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -344,8 +328,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return response.status + ':' + (body.includes('DELETE received') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -362,8 +345,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return response.status + ':' + (body.includes('PATCH received') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -385,8 +367,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
                   return response.status + ':' + (body.includes('custom-value') && body.includes('Bearer token123') ? 'ok' : 'fail');
                   """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -408,8 +389,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return response.status + ':' + (responseBody.includes('POST received') ? 'ok' : 'fail');
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertTrue(result.startsWith("200:"));
       assertTrue(result.endsWith(":ok"));
@@ -425,8 +405,7 @@ class JsScriptEngineBinderTest extends AbstractBaseIT {
             return "unreachable";
             """);
 
-      Engine engine = JsScriptEngineBinder.buildEvaluationContext(null, null, null, null);
-      String result = JsScriptEngineBinder.invokeProcessFn(script, engine);
+      String result = JsScriptEngineBinder.evaluate(script, null, null, null, null);
 
       assertNull(result);
    }
@@ -15,12 +15,22 @@
  */
 package io.github.microcks.util.soapui;
 
+import io.github.microcks.util.soap.SoapEnvelopeParser;
+
 import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -82,4 +92,31 @@ class SoapUIXPathBuilderTest {
       }
       assertEquals("Ms. Karla", result);
    }
+
+   @Test
+   void testEvaluateRulesOnDocument() throws Exception {
+      String rules = "declare namespace ser='http://www.example.com/hello';\n" + "//ser:sayHello/name";
+      String soap = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:hel=\"http://www.example.com/hello\">\n"
+            + "   <soapenv:Body>\n" + "      <hel:sayHello>\n" + "         <name>Karla</name>\n"
+            + "      </hel:sayHello>\n" + "   </soapenv:Body>\n" + "</soapenv:Envelope>";
+
+      // Evaluate many times and concurrently so that pooled matchers are reused.
+      List<Callable<String>> evaluations = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+         evaluations.add(() -> SoapUIXPathBuilder.evaluateRules(rules, SoapEnvelopeParser.parse(soap)));
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         for (Future<String> result : executor.invokeAll(evaluations)) {
+            assertEquals("Karla", result.get());
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      Document document = SoapEnvelopeParser.parse(soap);
+      assertThrows(XPathExpressionException.class,
+            () -> SoapUIXPathBuilder.evaluateRules("declare namespace ser='http://www.example.com/hello';\n//ser:[",
+                  document));
+   }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Service;
+import io.github.microcks.service.GraphQLSchemaCache;
+import io.github.microcks.service.MockRoutingTable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for GraphQLController class.
+ * @author agent
+ */
+class GraphQLControllerTest {
+
+   private static final long FIELD_PROCESSING_TIME = 300L;
+
+   private final ObjectMapper mapper = new ObjectMapper();
+   private final AtomicInteger concurrentInvocations = new AtomicInteger();
+   private final AtomicInteger maxConcurrentInvocations = new AtomicInteger();
+   private final List<HttpServletRequest> receivedRequests = new CopyOnWriteArrayList<>();
+   private final List<HttpHeaders> receivedHeaders = new CopyOnWriteArrayList<>();
+
+   private GraphQLController controller;
+
+   @BeforeEach
+   void setUp() {
+      Service service = new Service();
+      service.setId("films");
+      service.setName("Films");
+      service.setVersion("1.0");
+      for (String name : List.of("film", "director", "studio")) {
+         Operation operation = new Operation();
+         operation.setName(name);
+         operation.setMethod("QUERY");
+         service.addOperation(operation);
+      }
+      Operation mutation = new Operation();
+      mutation.setName("rateFilm");
+      mutation.setMethod("MUTATION");
+      service.addOperation(mutation);
+
+      MockRoutingTable routingTable = mock(MockRoutingTable.class);
+      when(routingTable.findByNameAndVersion("Films", "1.0")).thenReturn(service);
+
+      // Each field takes some time to be processed and returns its own name.
+      GraphQLInvocationProcessor invocationProcessor = mock(GraphQLInvocationProcessor.class);
+      when(invocationProcessor.processInvocation(any(), anyLong(), anyMap(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+               MockInvocationContext ic = invocation.getArgument(0);
+               receivedHeaders.add(invocation.getArgument(5));
+               receivedRequests.add(invocation.getArgument(6));
+               maxConcurrentInvocations.accumulateAndGet(concurrentInvocations.incrementAndGet(), Math::max);
+               Thread.sleep(FIELD_PROCESSING_TIME);
+               concurrentInvocations.decrementAndGet();
+               String name = ic.operation().getName();
+               String content = "{\"data\": {\"" + name + "\": {\"name\": \"" + name + "\"}}}";
+               return new ResponseResult(HttpStatus.OK, null, content.getBytes(StandardCharsets.UTF_8));
+            });
+
+      controller = new GraphQLController(routingTable, mock(GraphQLSchemaCache.class), invocationProcessor,
+            new MockStageTimers(new SimpleMeterRegistry()), new MockDelayScheduler());
+   }
+
+   @Test
+   void testQuerySelectionsAreProcessedConcurrently() throws Exception {
+      long start = System.currentTimeMillis();
+      ResponseEntity<?> response = execute("query { studio { name } film { name } director { name } }");
+      long duration = System.currentTimeMillis() - start;
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertTrue(maxConcurrentInvocations.get() > 1);
+      assertTrue(duration < 3 * FIELD_PROCESSING_TIME, "Expected concurrent processing but took " + duration);
+
+      // Aggregation should respect order of selections.
+      JsonNode data = mapper.readTree((String) response.getBody()).path("data");
+      List<String> fieldNames = new ArrayList<>();
+      for (Iterator<String> names = data.fieldNames(); names.hasNext();) {
+         fieldNames.add(names.next());
+      }
+      assertEquals(List.of("studio", "film", "director"), fieldNames);
+      assertEquals("director", data.path("director").path("name").asText());
+   }
+
+   @Test
+   void testQuerySelectionErrorIsPropagated() {
+      ResponseEntity<?> response = execute("query { film { name } actor { name } director { name } }");
+      assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+      assertEquals("No 'actor' operation found", response.getBody());
+   }
+
+   @Test
+   void testSequentialProcessing() {
+      // Mutation selections must always be processed sequentially.
+      ResponseEntity<?> response = execute("mutation { rateFilm { name } rateFilm { name } }");
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(1, maxConcurrentInvocations.get());
+
+      // As query selections when parallel processing is disabled.
+      ReflectionTestUtils.setField(controller, "parallelSelectionsEnabled", false);
+      response = execute("query { film { name } director { name } }");
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(1, maxConcurrentInvocations.get());
+   }
+
+   @Test
+   void testDelayIsDeferredWhenAsyncEnabled() throws Exception {
+      MockDelayScheduler delayScheduler = new MockDelayScheduler();
+      ReflectionTestUtils.setField(delayScheduler, "asyncEnabled", true);
+      ReflectionTestUtils.setField(controller, "delayScheduler", delayScheduler);
+
+      long start = System.currentTimeMillis();
+      Object result = executeRaw("query { film { name } }", 1000L);
+      assertTrue(System.currentTimeMillis() - start < 1000L, "Request thread should not wait for delay");
+      assertInstanceOf(DeferredResult.class, result);
+
+      DeferredResult<?> deferredResult = (DeferredResult<?>) result;
+      assertFalse(deferredResult.hasResult());
+      long deadline = System.currentTimeMillis() + 5000L;
+      while (!deferredResult.hasResult() && System.currentTimeMillis() < deadline) {
+         Thread.sleep(50L);
+      }
+      assertTrue(System.currentTimeMillis() - start >= 1000L);
+      ResponseEntity<?> response = (ResponseEntity<?>) deferredResult.getResult();
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+   }
+
+   @Test
+   void testConcurrentSelectionsGetRequestSnapshot() {
+      MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql/Films/1.0");
+      request.addHeader("X-Tenant", "acme");
+      request.addParameter("lang", "fr");
+      HttpHeaders headers = new HttpHeaders();
+      headers.add("X-Tenant", "acme");
+
+      String body = "{\"query\": \"query { film { name } director { name } }\"}";
+      controller.execute("Films", "1.0", null, null, body, headers, request, HttpMethod.POST);
+
+      assertEquals(2, receivedRequests.size());
+      for (HttpServletRequest received : receivedRequests) {
+         assertNotSame(request, received);
+         assertEquals("acme", received.getHeader("x-tenant"));
+         assertEquals("fr", received.getParameter("lang"));
+         assertEquals("POST", received.getMethod());
+         assertEquals("http://localhost/graphql/Films/1.0", received.getRequestURL().toString());
+      }
+      for (HttpHeaders received : receivedHeaders) {
+         assertEquals("acme", received.getFirst("X-Tenant"));
+         assertThrows(UnsupportedOperationException.class, () -> received.add("X-Other", "value"));
+      }
+   }
+
+   private ResponseEntity<?> execute(String query) {
+      return (ResponseEntity<?>) executeRaw(query, null);
+   }
+
+   private Object executeRaw(String query, Long delay) {
+      MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql/Films/1.0");
+      String body = "{\"query\": \"" + query + "\"}";
+      return controller.execute("Films", "1.0", delay, null, body, new HttpHeaders(), request, HttpMethod.POST);
+   }
+}
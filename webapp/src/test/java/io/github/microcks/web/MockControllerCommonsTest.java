@@ -15,9 +15,13 @@
  */
 package io.github.microcks.web;
 
+import io.github.microcks.domain.Response;
 import io.github.microcks.util.delay.DelaySpec;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,4 +65,36 @@ class MockControllerCommonsTest {
       assertEquals(100L, spec.baseValue());
       assertEquals("random", spec.strategyName());
    }
+
+   @Test
+   void shouldRenderCompiledResponseTemplate() {
+      Response response = new Response();
+      response.setId("pastry-response");
+      response.setContent("{\"name\": \"{{ request.body/name }}\", \"size\": \"{{ size }}\"}");
+
+      assertEquals("{\"name\": \"Eclair\", \"size\": \"S\"}", MockControllerCommons
+            .renderResponseContent("{\"name\": \"Eclair\"}", Map.of("size", "S"), response));
+      assertEquals("{\"name\": \"Baba\", \"size\": \"\"}",
+            MockControllerCommons.renderResponseContent("{\"name\": \"Baba\"}", null, response));
+
+      // Updated content should be compiled again.
+      response.setContent("{\"pastry\": \"{{ request.body/name }}\"}");
+      assertEquals("{\"pastry\": \"Baba\"}",
+            MockControllerCommons.renderResponseContent("{\"name\": \"Baba\"}", null, response));
+   }
+
+   @Test
+   void shouldRenderContentWithoutModifyingResponse() {
+      Response response = new Response();
+      response.setId("soap-response");
+      response.setContent("<sayHelloResponse>Hello ${name}</sayHelloResponse>");
+
+      String template = SoapController.convertSoapUITemplate(response.getContent());
+      String content = MockControllerCommons.renderResponseContent(null, null, new MockHttpServletRequest(),
+            Map.of("name", "Laurent"), response, template);
+      assertEquals("<sayHelloResponse>Hello Laurent</sayHelloResponse>", content);
+
+      // Shared response should keep its original content.
+      assertEquals("<sayHelloResponse>Hello ${name}</sayHelloResponse>", response.getContent());
+   }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import io.github.microcks.util.delay.DelaySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for MockDelayScheduler class.
+ * @author agent
+ */
+class MockDelaySchedulerTest {
+
+   private final MockDelayScheduler scheduler = new MockDelayScheduler();
+
+   @AfterEach
+   void tearDown() {
+      scheduler.shutdown();
+   }
+
+   @Test
+   void testAsyncIsDisabledByDefault() {
+      assertFalse(scheduler.isAsyncEnabled());
+   }
+
+   @Test
+   void testSchedule() throws Exception {
+      CountDownLatch latch = new CountDownLatch(1);
+      long start = System.currentTimeMillis();
+      scheduler.schedule(100, latch::countDown);
+
+      assertTrue(latch.await(2, TimeUnit.SECONDS));
+      assertTrue(System.currentTimeMillis() - start >= 100);
+   }
+
+   @Test
+   void testDeferResult() throws Exception {
+      HttpHeaders headers = new HttpHeaders();
+      headers.add("X-Pastry", "Eclair");
+      ResponseEntity<byte[]> entity = new ResponseEntity<>("{\"name\":\"Eclair\"}".getBytes(), headers,
+            HttpStatus.CREATED);
+
+      long start = System.currentTimeMillis();
+      DeferredResult<ResponseEntity<?>> deferredResult = scheduler.deferResult(100, () -> entity);
+      assertFalse(deferredResult.hasResult());
+
+      CountDownLatch latch = new CountDownLatch(1);
+      deferredResult.setResultHandler(result -> latch.countDown());
+      assertTrue(latch.await(2, TimeUnit.SECONDS));
+      assertTrue(System.currentTimeMillis() - start >= 100);
+      assertSame(entity, deferredResult.getResult());
+   }
+
+   @Test
+   void testDeferResultWithFailure() throws Exception {
+      IllegalStateException failure = new IllegalStateException("Oops");
+      DeferredResult<Object> deferredResult = scheduler.deferResult(10, () -> {
+         throw failure;
+      });
+
+      CountDownLatch latch = new CountDownLatch(1);
+      deferredResult.setResultHandler(result -> latch.countDown());
+      assertTrue(latch.await(2, TimeUnit.SECONDS));
+      assertSame(failure, deferredResult.getResult());
+   }
+
+   @Test
+   void testComputeRemainingDelay() {
+      long startTime = System.currentTimeMillis();
+      assertEquals(0L, MockControllerCommons.computeRemainingDelay(startTime, null));
+      assertEquals(0L, MockControllerCommons.computeRemainingDelay(startTime - 500, new DelaySpec(100L, "fixed")));
+
+      long remaining = MockControllerCommons.computeRemainingDelay(startTime, new DelaySpec(1000L, "fixed"));
+      assertTrue(remaining > 900 && remaining <= 1000);
+   }
+}
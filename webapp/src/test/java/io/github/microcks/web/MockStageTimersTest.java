@@ -0,0 +1,103 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import io.github.microcks.domain.Operation;
+import io.github.microcks.domain.Service;
+import io.github.microcks.web.MockStageTimers.Stage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for MockStageTimers class.
+ * @author agent
+ */
+class MockStageTimersTest {
+
+   @Test
+   void testStagesAreRecordedWithTags() {
+      MeterRegistry registry = new SimpleMeterRegistry();
+      MockStageTimers timers = new MockStageTimers(registry);
+
+      Service service = new Service();
+      service.setName("Pastries API");
+      service.setVersion("1.0");
+      Operation operation = new Operation();
+      operation.setName("GET /pastries");
+      operation.setDispatcher("URI_PARTS");
+
+      timers.record(Stage.SERVICE_LOOKUP, MockStageTimers.REST, service, null, timers.start());
+      timers.record(Stage.RENDERING, MockStageTimers.REST, service, operation, timers.start());
+      timers.record(Stage.RENDERING, MockStageTimers.REST, service, operation, timers.start());
+      timers.record(Stage.SERVICE_LOOKUP, MockStageTimers.SOAP, null, null, timers.start());
+
+      Timer lookupTimer = registry.find(MockStageTimers.TIMER_NAME).tag("stage", "service-lookup")
+            .tag("protocol", "rest").tag("service", "Pastries API:1.0").tag("operation", "none")
+            .tag("dispatcher", "none").timer();
+      assertNotNull(lookupTimer);
+      assertEquals(1, lookupTimer.count());
+
+      Timer renderingTimer = registry.find(MockStageTimers.TIMER_NAME).tag("stage", "rendering")
+            .tag("operation", "GET /pastries").tag("dispatcher", "URI_PARTS").timer();
+      assertNotNull(renderingTimer);
+      assertEquals(2, renderingTimer.count());
+
+      Timer unknownTimer = registry.find(MockStageTimers.TIMER_NAME).tag("protocol", "soap").tag("service", "none")
+            .timer();
+      assertNotNull(unknownTimer);
+      assertEquals(1, unknownTimer.count());
+   }
+
+   @Test
+   void testAccumulatedDurationIsRecordedOnce() throws Exception {
+      MeterRegistry registry = new SimpleMeterRegistry();
+      MockStageTimers timers = new MockStageTimers(registry);
+
+      long stageStart = timers.start();
+      Thread.sleep(5);
+      long duration = timers.elapsed(stageStart);
+      stageStart = timers.start();
+      Thread.sleep(5);
+      duration += timers.elapsed(stageStart);
+      timers.recordDuration(Stage.SERIALIZATION, MockStageTimers.GRAPHQL, null, null, duration);
+
+      Timer timer = registry.find(MockStageTimers.TIMER_NAME).tag("stage", "serialization").timer();
+      assertNotNull(timer);
+      assertEquals(1, timer.count());
+      assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 10);
+   }
+
+   @Test
+   void testDisabledTimers() {
+      MeterRegistry registry = new SimpleMeterRegistry();
+      MockStageTimers timers = new MockStageTimers(registry);
+      ReflectionTestUtils.setField(timers, "enabled", false);
+
+      timers.record(Stage.DELAY, MockStageTimers.GRPC, null, null, timers.start());
+      assertEquals(0L, timers.elapsed(timers.start()));
+      assertTrue(registry.find(MockStageTimers.TIMER_NAME).timers().isEmpty());
+   }
+}
@@ -18,12 +18,18 @@ package io.github.microcks.web;
 import io.github.microcks.domain.Operation;
 import io.github.microcks.domain.Response;
 import io.github.microcks.domain.Service;
+import io.github.microcks.repository.RequestRepository;
 import io.github.microcks.repository.ResponseRepository;
 import io.github.microcks.repository.ServiceStateRepository;
+import io.github.microcks.service.CompiledGroovyScriptCache;
 import io.github.microcks.service.OpenTelemetryResolverService;
+import io.github.microcks.service.ProxyResponseCache;
 import io.github.microcks.service.ProxyService;
+import io.github.microcks.service.ResponseLookupIndex;
+import io.github.microcks.service.ServiceStateCache;
 import io.github.microcks.util.DispatchStyles;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.opentelemetry.api.OpenTelemetry;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -31,22 +37,26 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -54,22 +64,32 @@ import static org.mockito.Mockito.when;
 class RestInvocationProcessorTest {
 
    private RestInvocationProcessor processor;
-   private ResponseRepository responseRepo;
+   private ResponseLookupIndex responseIndex;
    private ProxyService proxyService;
+   private ProxyResponseCache proxyResponseCache;
    private HttpServletRequest request;
+   private SimpleMeterRegistry stageRegistry;
 
    @BeforeEach
    void setup() {
       // Mock all the dependencies needed by the processor.
       ServiceStateRepository stateRepo = mock(ServiceStateRepository.class);
-      responseRepo = mock(ResponseRepository.class);
+      responseIndex = mock(ResponseLookupIndex.class);
       ApplicationContext appContext = mock(ApplicationContext.class);
       proxyService = mock(ProxyService.class);
       request = mock(HttpServletRequest.class);
       OpenTelemetryResolverService otelResolver = mock(OpenTelemetryResolverService.class);
       OpenTelemetry openTelemetry = OpenTelemetry.noop();
       when(otelResolver.getOpenTelemetry()).thenReturn(openTelemetry);
-      processor = new RestInvocationProcessor(stateRepo, responseRepo, appContext, proxyService, otelResolver);
+      StaticResponseCache staticResponses = new StaticResponseCache();
+      staticResponses.initialize();
+      proxyResponseCache = new ProxyResponseCache(mock(RequestRepository.class), mock(ResponseRepository.class),
+            responseIndex);
+      proxyResponseCache.initialize();
+      stageRegistry = new SimpleMeterRegistry();
+      processor = new RestInvocationProcessor(new ServiceStateCache(stateRepo), responseIndex, staticResponses,
+            new CompiledGroovyScriptCache(new SimpleMeterRegistry()), appContext, proxyService, proxyResponseCache,
+            otelResolver, new MockStageTimers(stageRegistry));
       ReflectionTestUtils.setField(processor, "enableBinaryResponseDecode", true);
    }
 
@@ -107,7 +127,7 @@ class RestInvocationProcessorTest {
 
          when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/api/test"));
          when(request.getHeader("Accept")).thenReturn("application/json");
-         when(responseRepo.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(List.of(mockResponse));
+         when(responseIndex.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(List.of(mockResponse));
 
          // Act
          var result = processor.processInvocation(context, System.currentTimeMillis(), null, null, Map.of(), request);
@@ -118,6 +138,9 @@ class RestInvocationProcessorTest {
          assertEquals("{\"message\": \"Hello\"}", new String(result.content()));
          assertEquals("application/json;charset=UTF-8",
                Objects.requireNonNull(result.headers().getContentType()).toString());
+
+         // Headers and content rendering are recorded as a single stage sample.
+         assertEquals(1, stageRegistry.get(MockStageTimers.TIMER_NAME).tag("stage", "rendering").timer().count());
       }
 
       @Test
@@ -130,7 +153,7 @@ class RestInvocationProcessorTest {
          var mockResponse = createMockResponse("application/octet-stream", dataUri);
 
          when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/file"));
-         when(responseRepo.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(List.of(mockResponse));
+         when(responseIndex.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(List.of(mockResponse));
 
          // Act
          var result = processor.processInvocation(context, System.currentTimeMillis(), null, null, Map.of(), request);
@@ -150,7 +173,7 @@ class RestInvocationProcessorTest {
 
          when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/api/options"));
          when(request.getHeader("Accept")).thenReturn("text/plain"); // This Accept header matches neither response.
-         when(responseRepo.findByOperationIdAndDispatchCriteria(any(), any()))
+         when(responseIndex.findByOperationIdAndDispatchCriteria(any(), any()))
                .thenReturn(List.of(xmlResponse, jsonResponse));
 
          // Act
@@ -182,8 +205,8 @@ class RestInvocationProcessorTest {
          when(request.getQueryString()).thenReturn("id=123");
 
          // Mock repository to find no matching response.
-         when(responseRepo.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(Collections.emptyList());
-         when(responseRepo.findByOperationIdAndName(any(), any())).thenReturn(Collections.emptyList());
+         when(responseIndex.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(Collections.emptyList());
+         when(responseIndex.findByOperationIdAndName(any(), any())).thenReturn(Collections.emptyList());
 
          // Act
          var result = processor.processInvocation(context, System.currentTimeMillis(), null, "{}", Map.of(), request);
@@ -202,9 +225,9 @@ class RestInvocationProcessorTest {
 
          when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/nothing"));
          // Mock all repository lookups to return empty lists.
-         when(responseRepo.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(Collections.emptyList());
-         when(responseRepo.findByOperationIdAndName(any(), any())).thenReturn(Collections.emptyList());
-         when(responseRepo.findByOperationId(any())).thenReturn(Collections.emptyList());
+         when(responseIndex.findByOperationIdAndDispatchCriteria(any(), any())).thenReturn(Collections.emptyList());
+         when(responseIndex.findByOperationIdAndName(any(), any())).thenReturn(Collections.emptyList());
+         when(responseIndex.findFirstByOperationIdAndMediaType(any(), any())).thenReturn(null);
 
          // Act
          var result = processor.processInvocation(context, System.currentTimeMillis(), null, null, Map.of(), request);
@@ -246,5 +269,56 @@ class RestInvocationProcessorTest {
          assertArrayEquals("from proxy".getBytes(), result.content());
          verify(proxyService).callExternal(any(), eq(HttpMethod.GET), any(), isNull());
       }
+
+      @Test
+      @DisplayName("should replay cached proxy response when proxy cache is enabled")
+      void shouldReplayCachedProxyResponse() {
+         // Arrange
+         ReflectionTestUtils.setField(proxyResponseCache, "enabled", true);
+         var context = createMockContext("GET /proxy", "GET", "/proxy");
+         context.operation().setDispatcher("PROXY");
+         context.operation().setDispatcherRules("http://external.net/myService/v1/");
+
+         var proxyResponse = new ResponseEntity<>("from proxy".getBytes(), HttpStatus.OK);
+         when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/proxy"));
+         when(proxyService.callExternal(any(), eq(HttpMethod.GET), any(), isNull())).thenReturn(proxyResponse);
+
+         // Act
+         var result = processor.processInvocation(context, System.currentTimeMillis(), null, null, Map.of(), request,
+               false, true);
+         var replayed = processor.processInvocation(context, System.currentTimeMillis(), null, null, Map.of(),
+               request, false, true);
+
+         // Assert
+         assertNull(result.streamedResponse());
+         assertArrayEquals("from proxy".getBytes(), result.content());
+         assertArrayEquals("from proxy".getBytes(), replayed.content());
+         verify(proxyService).callExternal(any(), eq(HttpMethod.GET), any(), isNull());
+      }
+
+      @Test
+      @DisplayName("should return streamed response when proxy streaming is requested")
+      void shouldStreamProxyResponse() throws Exception {
+         // Arrange
+         var context = createMockContext("GET /proxy", "GET", "/proxy");
+         context.operation().setDispatcher("PROXY");
+         context.operation().setDispatcherRules("http://external.net/myService/v1/");
+
+         var streamedResponse = new ProxyService.StreamedResponse(HttpStatus.OK, new HttpHeaders(),
+               new ByteArrayInputStream("from proxy".getBytes()), () -> {
+               });
+         when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/proxy"));
+         when(proxyService.streamExternal(any(), eq(HttpMethod.GET), any(), isNull())).thenReturn(streamedResponse);
+
+         // Act
+         var result = processor.processInvocation(context, System.currentTimeMillis(), null, null, Map.of(), request,
+               false, true);
+
+         // Assert
+         assertSame(streamedResponse, result.streamedResponse());
+         assertEquals(HttpStatus.OK, result.status());
+         assertNull(result.content());
+         verify(proxyService, never()).callExternal(any(), any(), any(), any());
+      }
    }
 }
@@ -120,6 +120,19 @@ class SoapControllerTest {
       assertEquals("sayHelloWorld", SoapController.extractOperationName(noArgFullOperationPayloadWithNamespace));
    }
 
+   @Test
+   void testMalformedPayloadOperationParsing() {
+      // Undeclared namespace prefix prevents scanning, regular expressions should be used instead.
+      String undeclaredPrefixPayload = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">\n"
+            + "   <soapenv:Body>\n" + "      <hel:sayHello>\n" + "         <name>Karla</name>\n"
+            + "      </hel:sayHello>\n" + "   </soapenv:Body>\n" + "</soapenv:Envelope>";
+
+      assertTrue(SoapController.hasPayloadCorrectStructureForOperation(undeclaredPrefixPayload, "sayHello"));
+      assertFalse(SoapController.hasPayloadCorrectStructureForOperation(undeclaredPrefixPayload, "sayHelloWorld"));
+
+      assertEquals("sayHello", SoapController.extractOperationName(undeclaredPrefixPayload));
+   }
+
    @Test
    void testConvertSoapUITemplate() {
       String soapUITemplate = "<something>${myParam}</something>";
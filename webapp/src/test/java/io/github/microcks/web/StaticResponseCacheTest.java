@@ -0,0 +1,141 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.web;
+
+import io.github.microcks.domain.Header;
+import io.github.microcks.domain.Response;
+import io.github.microcks.util.DataUriUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for StaticResponseCache class.
+ * @author agent
+ */
+class StaticResponseCacheTest {
+
+   private StaticResponseCache cache;
+
+   @BeforeEach
+   void setUp() {
+      cache = new StaticResponseCache();
+      cache.initialize();
+   }
+
+   @Test
+   void testStaticResponseIsPrepared() {
+      Response response = buildResponse("eclair", "application/json", "{\"name\": \"Eclair\"}");
+      response.setHeaders(Set.of(new Header("X-Pastry", Set.of("Eclair")),
+            new Header(HttpHeaders.TRANSFER_ENCODING, Set.of("chunked"))));
+
+      StaticResponseCache.PreparedResponse prepared = cache.getPreparedResponse(response);
+      assertNotNull(prepared);
+      assertArrayEquals("{\"name\": \"Eclair\"}".getBytes(StandardCharsets.UTF_8), prepared.getContent());
+      assertEquals("application/json;charset=UTF-8", prepared.getHeaders().getContentType().toString());
+      assertEquals("Eclair", prepared.getHeaders().getFirst("X-Pastry"));
+      assertFalse(prepared.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING));
+      assertThrows(UnsupportedOperationException.class, () -> prepared.getHeaders().add("X-Other", "value"));
+
+      // Same response should give same prepared representation.
+      assertSame(prepared, cache.getPreparedResponse(response));
+
+      // Equal response from a refreshed index should also reuse the representation.
+      Response reloaded = buildResponse("eclair", "application/json", "{\"name\": \"Eclair\"}");
+      reloaded.setHeaders(Set.of(new Header("X-Pastry", Set.of("Eclair")),
+            new Header(HttpHeaders.TRANSFER_ENCODING, Set.of("chunked"))));
+      assertSame(prepared.getContent(), cache.getPreparedResponse(reloaded).getContent());
+
+      // Updated response should be prepared again.
+      response.setContent("{\"name\": \"Millefeuille\"}");
+      assertArrayEquals("{\"name\": \"Millefeuille\"}".getBytes(StandardCharsets.UTF_8),
+            cache.getPreparedResponse(response).getContent());
+   }
+
+   @Test
+   void testTemplatedResponsesAreNotPrepared() {
+      assertNull(cache.getPreparedResponse(buildResponse("eclair", "application/json", "{\"id\": \"{{ uuid() }}\"}")));
+
+      Response response = buildResponse("baba", "application/json", "{\"name\": \"Baba\"}");
+      response.setHeaders(Set.of(new Header("X-Request-Id", Set.of("{{ uuid() }}"))));
+      assertNull(cache.getPreparedResponse(response));
+
+      response.setHeaders(Set.of(new Header("Location", Set.of("/pastries/baba"))));
+      assertNull(cache.getPreparedResponse(response));
+
+      // Responses without identifier cannot be cached.
+      assertNull(cache.getPreparedResponse(buildResponse(null, "application/json", "{\"name\": \"Baba\"}")));
+   }
+
+   @Test
+   void testBinaryResponseIsDecodedOnce() {
+      ReflectionTestUtils.setField(cache, "enableBinaryResponseDecode", true);
+      byte[] image = new byte[] { (byte) 0x89, 0x50, 0x4E, 0x47 };
+      Response response = buildResponse("image", "image/png", DataUriUtil.buildDataUri(image));
+
+      StaticResponseCache.PreparedResponse prepared = cache.getPreparedResponse(response);
+      assertNotNull(prepared);
+      assertArrayEquals(image, prepared.getContent());
+   }
+
+   @Test
+   void testGzipVariant() throws Exception {
+      String content = "{\"name\": \"Eclair\"}".repeat(100);
+      Response response = buildResponse("eclair", "application/json", content);
+      StaticResponseCache.PreparedResponse prepared = cache.getPreparedResponse(response);
+
+      MockHttpServletRequest request = new MockHttpServletRequest();
+      request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+      assertFalse(cache.shouldUseGzip(prepared, request));
+
+      ReflectionTestUtils.setField(cache, "gzipEnabled", true);
+      assertTrue(cache.shouldUseGzip(prepared, request));
+      assertFalse(cache.shouldUseGzip(prepared, new MockHttpServletRequest()));
+
+      assertEquals("gzip", prepared.getGzipHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+      assertEquals("application/json;charset=UTF-8", prepared.getGzipHeaders().getContentType().toString());
+      try (GZIPInputStream gzis = new GZIPInputStream(new ByteArrayInputStream(prepared.getGzipContent()))) {
+         assertEquals(content, new String(gzis.readAllBytes(), StandardCharsets.UTF_8));
+      }
+      assertSame(prepared.getGzipContent(), prepared.getGzipContent());
+   }
+
+   private Response buildResponse(String id, String mediaType, String content) {
+      Response response = new Response();
+      response.setId(id);
+      response.setStatus("200");
+      response.setMediaType(mediaType);
+      response.setContent(content);
+      return response;
+   }
+}